@@ -0,0 +1,179 @@
+package com.github.motyka.textprocessor.benchmark;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the benchmarks with the GC profiler, so the allocation rate is reported next to the throughput.
+ * <p>
+ * With -Dbenchmark.smoke=true only a short run over the small documents is done and the average time and allocation
+ * per operation are compared with the baseline file (-Dbenchmark.baseline). The run fails if any of them exceeds
+ * the baseline by more than -Dbenchmark.margin (0.5 means 50%). -Dbenchmark.updateBaseline=true writes the measured
+ * values to the baseline file instead.
+ * <p>
+ * The smoke run also measures {@link SplittingEngineBenchmark} and fails if the split loop of any engine allocates
+ * more than -Dbenchmark.maxLoopAllocation bytes per operation (64 by default), no matter how many paragraphs it finds.
+ */
+public class BenchmarkRunner {
+
+	private static final String ALLOCATION = "gc.alloc.rate.norm";
+
+	public static void main(String[] args) throws Exception {
+		if(Boolean.getBoolean("benchmark.smoke")) {
+			System.exit(smoke() ? 0 : 1);
+		}
+
+		Options options = new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(options).run();
+	}
+
+	private static boolean smoke() throws RunnerException, IOException {
+		Options options = new OptionsBuilder()
+				.include(ParagraphServiceBenchmark.class.getSimpleName())
+				.param("size", "1KB", "100KB")
+				.param("limits", "1200-800")
+				.param("strategy", "REGEX", "SCANNING")
+				.mode(Mode.AverageTime)
+				.timeUnit(TimeUnit.MICROSECONDS)
+				.warmupIterations(2)
+				.warmupTime(TimeValue.seconds(1))
+				.measurementIterations(3)
+				.measurementTime(TimeValue.seconds(1))
+				.forks(1)
+				.jvmArgsAppend("-Xmx1g")
+				.addProfiler(GCProfiler.class)
+				.build();
+		Collection<RunResult> results = new Runner(options).run();
+		boolean loopAllocation = checkLoopAllocation(Double.parseDouble(System.getProperty("benchmark.maxLoopAllocation", "64")));
+
+		Path baselineFile = Paths.get(System.getProperty("benchmark.baseline"));
+		if(Boolean.getBoolean("benchmark.updateBaseline")) {
+			writeBaseline(baselineFile, results);
+			return loopAllocation;
+		}
+		return compare(readBaseline(baselineFile), results, Double.parseDouble(System.getProperty("benchmark.margin", "0.5")))
+				&& loopAllocation;
+	}
+
+	private static boolean checkLoopAllocation(double maxAllocation) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(SplittingEngineBenchmark.class.getSimpleName())
+				// small paragraphs, so every operation runs the loop many times, and enough operations
+				// per iteration, so the allocation of the JMH infrastructure is negligible
+				.param("size", "10KB")
+				.param("limits", "120-80")
+				.mode(Mode.AverageTime)
+				.timeUnit(TimeUnit.MICROSECONDS)
+				.warmupIterations(2)
+				.warmupTime(TimeValue.seconds(1))
+				.measurementIterations(3)
+				.measurementTime(TimeValue.seconds(1))
+				.forks(1)
+				.addProfiler(GCProfiler.class)
+				.build();
+
+		boolean passed = true;
+		for(RunResult result : new Runner(options).run()) {
+			BenchmarkParams params = result.getParams();
+			String key = String.join(".", params.getParam("mix"), params.getParam("limits"), params.getParam("strategy"));
+			if(allocation(result) > maxAllocation) {
+				System.err.println(String.format(Locale.ROOT, "%s: the split loop allocates %.0f B/op, more than %.0f",
+						key, allocation(result), maxAllocation));
+				passed = false;
+			}
+		}
+		return passed;
+	}
+
+	private static boolean compare(Properties baseline, Collection<RunResult> results, double margin) {
+		List<String> failures = new ArrayList<>();
+		for(RunResult result : results) {
+			String key = key(result.getParams());
+			check(failures, key + ".time", baseline, result.getPrimaryResult().getScore(), margin);
+			check(failures, key + ".alloc", baseline, allocation(result), margin);
+		}
+
+		if(failures.isEmpty()) {
+			System.out.println("All benchmarks are within " + margin * 100 + "% of the baseline.");
+			return true;
+		}
+		failures.forEach(System.err::println);
+		return false;
+	}
+
+	private static void check(List<String> failures, String key, Properties baseline, double score, double margin) {
+		String expected = baseline.getProperty(key);
+		if(expected == null) {
+			System.out.println("No baseline for " + key + ", measured " + score);
+			return;
+		}
+		double limit = Double.parseDouble(expected) * (1 + margin);
+		if(score > limit) {
+			failures.add(String.format(Locale.ROOT, "%s: %.2f exceeds the baseline %s by more than %.0f%%", key, score, expected, margin * 100));
+		}
+	}
+
+	private static double allocation(RunResult result) {
+		for(Map.Entry<String, Result> entry : result.getSecondaryResults().entrySet()) {
+			if(entry.getKey().endsWith(ALLOCATION)) {
+				return entry.getValue().getScore();
+			}
+		}
+		return 0;
+	}
+
+	private static String key(BenchmarkParams params) {
+		return String.join(".", params.getParam("size"), params.getParam("mix"), params.getParam("limits"), params.getParam("strategy"));
+	}
+
+	private static Properties readBaseline(Path file) throws IOException {
+		Properties baseline = new Properties();
+		try(Reader reader = Files.newBufferedReader(file)) {
+			baseline.load(reader);
+		}
+		return baseline;
+	}
+
+	private static void writeBaseline(Path file, Collection<RunResult> results) throws IOException {
+		// sorted, so the changes of the baseline are easy to review
+		Map<String, String> baseline = new TreeMap<>();
+		for(RunResult result : results) {
+			String key = key(result.getParams());
+			baseline.put(key + ".time", String.format(Locale.ROOT, "%.2f", result.getPrimaryResult().getScore()));
+			baseline.put(key + ".alloc", String.format(Locale.ROOT, "%.0f", allocation(result)));
+		}
+		try(Writer writer = Files.newBufferedWriter(file)) {
+			writer.write("# ParagraphServiceBenchmark smoke baseline: average time (us/op) and allocation (B/op)\n");
+			for(Map.Entry<String, String> entry : baseline.entrySet()) {
+				writer.write(entry.getKey() + "=" + entry.getValue() + "\n");
+			}
+		}
+	}
+}
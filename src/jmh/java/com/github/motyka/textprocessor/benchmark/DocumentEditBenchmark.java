@@ -0,0 +1,66 @@
+package com.github.motyka.textprocessor.benchmark;
+
+import com.github.motyka.textprocessor.paragraph.DocumentDiff;
+import com.github.motyka.textprocessor.paragraph.DocumentStore;
+import com.github.motyka.textprocessor.paragraph.Paragraph;
+import com.github.motyka.textprocessor.paragraph.ParagraphService;
+import com.github.motyka.textprocessor.paragraph.ParagraphServiceFactory;
+import com.github.motyka.textprocessor.paragraph.SplitRequest;
+import com.github.motyka.textprocessor.paragraph.SplittingStrategy;
+import com.github.motyka.textprocessor.paragraph.TextEdit;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares editing one character of a stored document, which re-splits only the paragraphs around it,
+ * with splitting the whole edited text again. Without double new lines (NO_SEPARATORS) the split restarts
+ * at the last paragraph before the edit which reads only the text before it, the same as with them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class DocumentEditBenchmark {
+
+	private static final String ID = "document";
+
+	@Param({"100KB", "10MB"})
+	private String size;
+
+	@Param({"NEW_LINES", "NO_SEPARATORS"})
+	private SeparatorMix separators;
+
+	private final ParagraphService service = ParagraphServiceFactory.create();
+	private DocumentStore store;
+	private String text;
+	private final SplitRequest request = SplitRequest.builder().strategy(SplittingStrategy.SCANNING).build();
+	private int offset;
+	private int version;
+
+	@Setup
+	public void setUp() throws IOException {
+		text = separators.generate(ParagraphServiceBenchmark.parseSize(size), 42);
+		store = new DocumentStore(service, 1L << 31, "", new SimpleMeterRegistry());
+		version = store.store(ID, text, 1200, 800, SplittingStrategy.SCANNING).getVersion();
+		offset = text.length() / 2;
+	}
+
+	@Benchmark
+	public DocumentDiff edit() throws IOException {
+		// the character is replaced by a different one every time, so the paragraphs around it are split again
+		String inserted = version % 2 == 0 ? "x" : "y";
+		return store.edit(ID, version++, Collections.singletonList(new TextEdit(offset, 1, inserted)), null);
+	}
+
+	@Benchmark
+	public List<Paragraph> splitAgain() {
+		return service.splitAndSearch(text, request);
+	}
+}
@@ -0,0 +1,58 @@
+package com.github.motyka.textprocessor.benchmark;
+
+import com.github.motyka.textprocessor.paragraph.DocumentStore;
+import com.github.motyka.textprocessor.paragraph.Paragraph;
+import com.github.motyka.textprocessor.paragraph.ParagraphService;
+import com.github.motyka.textprocessor.paragraph.ParagraphServiceFactory;
+import com.github.motyka.textprocessor.paragraph.SplitRequest;
+import com.github.motyka.textprocessor.paragraph.SplittingStrategy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares searching a stored document with splitting and searching the whole text again,
+ * for a term in every paragraph (*ipsum*) and a rare one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class DocumentStoreBenchmark {
+
+	private static final String ID = "document";
+
+	@Param({"100KB", "10MB"})
+	private String size;
+
+	@Param({"ipsum", "sagittis tempor urna"})
+	private String searchTerm;
+
+	private final ParagraphService service = ParagraphServiceFactory.create();
+	private DocumentStore store;
+	private String text;
+	private SplitRequest request;
+
+	@Setup
+	public void setUp() throws IOException {
+		text = SeparatorMix.NEW_LINES.generate(ParagraphServiceBenchmark.parseSize(size), 42);
+		request = SplitRequest.builder().searchTerm(searchTerm).strategy(SplittingStrategy.SCANNING).build();
+		store = new DocumentStore(service, 1L << 31, "", new SimpleMeterRegistry());
+		store.store(ID, text, 1200, 800, SplittingStrategy.SCANNING);
+	}
+
+	@Benchmark
+	public List<Paragraph> stored() {
+		return store.search(ID, searchTerm);
+	}
+
+	@Benchmark
+	public List<Paragraph> splitAndSearch() {
+		return service.splitAndSearch(text, request);
+	}
+}
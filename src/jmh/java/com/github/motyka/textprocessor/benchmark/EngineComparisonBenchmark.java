@@ -0,0 +1,47 @@
+package com.github.motyka.textprocessor.benchmark;
+
+import com.github.motyka.textprocessor.paragraph.DifferentialCase;
+import com.github.motyka.textprocessor.paragraph.DifferentialDocuments;
+import com.github.motyka.textprocessor.paragraph.DifferentialEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of every {@link DifferentialEngine} on the corpus of the differential test: the random and adversarial
+ * documents with their limits and search terms, so an engine is compared with the others on the same inputs it was verified on.
+ * One operation splits the whole corpus.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class EngineComparisonBenchmark {
+
+	@Param({"REFERENCE", "REGEX", "SCANNING", "PARALLEL", "STREAMING", "PUSHED", "MAPPED", "EDITS", "PAGES", "OFFSETS", "UTF8"})
+	private DifferentialEngine engine;
+
+	@Param({"1000"})
+	private int documents;
+
+	private List<DifferentialCase> corpus;
+
+	@Setup
+	public void setUp() {
+		corpus = DifferentialDocuments.corpus(42, documents);
+	}
+
+	@Benchmark
+	public int split() {
+		int paragraphs = 0;
+		for(DifferentialCase input : corpus) {
+			if(engine.supports(input.getText())) {
+				paragraphs += engine.split(input).size();
+			}
+		}
+		return paragraphs;
+	}
+}
@@ -0,0 +1,91 @@
+package com.github.motyka.textprocessor.benchmark;
+
+import com.github.motyka.textprocessor.paragraph.LineBreaks;
+import com.github.motyka.textprocessor.paragraph.ScanningSplittingEngine;
+import com.github.motyka.textprocessor.paragraph.SplitRuleChain;
+import com.github.motyka.textprocessor.paragraph.SplittingEngine;
+import com.github.motyka.textprocessor.paragraph.SplittingStrategy;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of the line breaks of a chain: the LF document split by the default chain compared with the same document
+ * with CRLF or a mix of the Unicode line breaks split by the chains recognizing them, and with the CRLF document
+ * normalized to LF before it's split, which is what the clients did before.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class LineBreaksBenchmark {
+
+	public enum Document {
+		LF,
+		CRLF,
+		UNICODE,
+		CRLF_NORMALIZED
+	}
+
+	private static final String[] UNICODE_BREAKS = {"\r\n", "\r", "\u0085", "\u2028", "\u2029", "\n"};
+
+	@Param({"1MB"})
+	private String size;
+
+	@Param({"LF", "CRLF", "UNICODE", "CRLF_NORMALIZED"})
+	private Document document;
+
+	// *mainLimit*-*secondaryLimit*
+	@Param({"1200-800", "120-80"})
+	private String limits;
+
+	private String text;
+	private SplittingEngine engine;
+	private int mainLimit;
+	private int secondaryLimit;
+	private SplittingEngine.ParagraphListener listener;
+
+	@Setup
+	public void setUp(Blackhole blackhole) {
+		String lf = SeparatorMix.NEW_LINES.generate(ParagraphServiceBenchmark.parseSize(size), 42);
+		switch(document) {
+			case LF:
+				text = lf;
+				engine = SplittingStrategy.SCANNING.getEngine();
+				break;
+			case CRLF:
+				text = lf.replace("\n", "\r\n");
+				engine = new ScanningSplittingEngine(SplitRuleChain.compile("crlf", SplitRuleChain.DEFAULT.getRules(), LineBreaks.CRLF));
+				break;
+			case UNICODE:
+				StringBuilder unicode = new StringBuilder(lf.length() * 2);
+				for(int i = 0, breaks = 0; i < lf.length(); i++) {
+					char ch = lf.charAt(i);
+					unicode.append(ch == '\n' ? UNICODE_BREAKS[breaks++ % UNICODE_BREAKS.length] : String.valueOf(ch));
+				}
+				text = unicode.toString();
+				engine = new ScanningSplittingEngine(SplitRuleChain.compile("unicode", SplitRuleChain.DEFAULT.getRules(), LineBreaks.UNICODE));
+				break;
+			default:
+				text = lf.replace("\n", "\r\n");
+				engine = SplittingStrategy.SCANNING.getEngine();
+		}
+		String[] parts = limits.split("-");
+		mainLimit = Integer.parseInt(parts[0]);
+		secondaryLimit = Integer.parseInt(parts[1]);
+		listener = (start, length) -> {
+			blackhole.consume(start);
+			blackhole.consume(length);
+		};
+	}
+
+	@Benchmark
+	public void split() {
+		// the copy is a part of the operation, the same as on the client
+		CharSequence split = document == Document.CRLF_NORMALIZED ? text.replace("\r\n", "\n") : text;
+		engine.split(split, mainLimit, secondaryLimit, listener);
+	}
+}
@@ -0,0 +1,144 @@
+package com.github.motyka.textprocessor.benchmark;
+
+import com.github.motyka.textprocessor.TextProcessorApplication;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the latency of the blocking /paragraphs/splitAndSearch/stream and the non-blocking
+ * /paragraphs/splitAndSearch/stream/async under a mixed load: slow clients uploading big documents
+ * in small chunks and fast clients sending small documents at the same time. The server runs with a small
+ * number of request threads (-Dload.threads), so the slow uploads can take all of them.
+ * <p>
+ * The other options are -Dload.slowClients, -Dload.bigSize (characters), -Dload.chunkDelay (milliseconds
+ * between the 8KB chunks of the big documents), -Dload.fastClients and -Dload.fastRequests (per client).
+ */
+public class LoadTest {
+
+	private static final int THREADS = Integer.getInteger("load.threads", 16);
+	private static final int SLOW_CLIENTS = Integer.getInteger("load.slowClients", 64);
+	private static final int BIG_SIZE = Integer.getInteger("load.bigSize", 256 * 1024);
+	private static final int CHUNK_SIZE = 8 * 1024;
+	private static final int CHUNK_DELAY = Integer.getInteger("load.chunkDelay", 50);
+	private static final int FAST_CLIENTS = Integer.getInteger("load.fastClients", 8);
+	private static final int FAST_REQUESTS = Integer.getInteger("load.fastRequests", 50);
+
+	private static final String PATH = "/paragraphs/splitAndSearch/stream";
+	private static final String NON_BLOCKING_PATH = "/paragraphs/splitAndSearch/stream/async";
+
+	public static void main(String[] args) throws Exception {
+		ConfigurableApplicationContext context = SpringApplication.run(TextProcessorApplication.class,
+				"--server.port=0", "--server.tomcat.max-threads=" + THREADS, "--logging.level.root=WARN", "--spring.main.banner-mode=off");
+		int port = Integer.parseInt(context.getEnvironment().getProperty("local.server.port"));
+		byte[] big = SeparatorMix.NEW_LINES.generate(BIG_SIZE, 1).getBytes(StandardCharsets.UTF_8);
+		byte[] small = SeparatorMix.NEW_LINES.generate(1024, 2).getBytes(StandardCharsets.UTF_8);
+
+		try {
+			System.out.printf("%d request threads, %d slow clients uploading %dKB in %dKB chunks every %dms, %d fast clients sending %d x 1KB%n",
+					THREADS, SLOW_CLIENTS, big.length / 1024, CHUNK_SIZE / 1024, CHUNK_DELAY, FAST_CLIENTS, FAST_REQUESTS);
+			System.out.printf("%-48s %10s %10s %10s %10s %10s%n", "endpoint", "requests", "p50 ms", "p99 ms", "max ms", "failed");
+			for(String path : new String[]{PATH, NON_BLOCKING_PATH}) {
+				// warm up
+				run(port, path, big, small, 4, 2, 0);
+				run(port, path, big, small, SLOW_CLIENTS, FAST_CLIENTS, CHUNK_DELAY);
+			}
+		} finally {
+			System.exit(SpringApplication.exit(context));
+		}
+	}
+
+	private static void run(int port, String path, byte[] big, byte[] small, int slowClients, int fastClients, int chunkDelay) throws Exception {
+		ExecutorService executor = Executors.newCachedThreadPool();
+		List<Future<Long>> slow = new ArrayList<>();
+		for(int i = 0; i < slowClients; i++) {
+			slow.add(executor.submit(() -> request(port, path, big, chunkDelay)));
+		}
+		// the slow uploads should take the request threads first
+		Thread.sleep(200);
+
+		List<Future<List<Long>>> fast = new ArrayList<>();
+		for(int i = 0; i < fastClients; i++) {
+			fast.add(executor.submit(() -> {
+				List<Long> latencies = new ArrayList<>();
+				for(int j = 0; j < FAST_REQUESTS; j++) {
+					latencies.add(request(port, path, small, 0));
+				}
+				return latencies;
+			}));
+		}
+
+		List<Long> fastLatencies = new ArrayList<>();
+		for(Future<List<Long>> future : fast) {
+			fastLatencies.addAll(future.get());
+		}
+		List<Long> slowLatencies = new ArrayList<>();
+		for(Future<Long> future : slow) {
+			slowLatencies.add(future.get());
+		}
+		executor.shutdown();
+		executor.awaitTermination(1, TimeUnit.MINUTES);
+
+		if(chunkDelay > 0) {
+			print(path + " small", fastLatencies);
+			print(path + " big", slowLatencies);
+		}
+	}
+
+	/**
+	 * Sends the body in chunks with the delay between them.
+	 * @return time until the whole response is read in nanoseconds, -1 if the request failed
+	 */
+	private static long request(int port, String path, byte[] body, int chunkDelay) throws IOException, InterruptedException {
+		long start = System.nanoTime();
+		try(Socket socket = new Socket("localhost", port)) {
+			OutputStream output = socket.getOutputStream();
+			String headers = "POST " + path + "?mainLimit=1200&secondaryLimit=800&searchTerm=ipsum HTTP/1.1\r\n"
+					+ "Host: localhost\r\nContent-Type: text/plain; charset=UTF-8\r\nContent-Length: " + body.length + "\r\n"
+					+ "Connection: close\r\n\r\n";
+			output.write(headers.getBytes(StandardCharsets.US_ASCII));
+			for(int i = 0; i < body.length; i += CHUNK_SIZE) {
+				output.write(body, i, Math.min(CHUNK_SIZE, body.length - i));
+				output.flush();
+				if(chunkDelay > 0) {
+					Thread.sleep(chunkDelay);
+				}
+			}
+
+			InputStream input = socket.getInputStream();
+			byte[] status = input.readNBytes(12);
+			input.transferTo(OutputStream.nullOutputStream());
+			return new String(status, StandardCharsets.US_ASCII).equals("HTTP/1.1 200") ? System.nanoTime() - start : -1;
+		}
+	}
+
+	private static void print(String name, List<Long> latencies) {
+		long failed = latencies.stream().filter(latency -> latency < 0).count();
+		List<Long> sorted = new ArrayList<>();
+		latencies.stream().filter(latency -> latency >= 0).forEach(sorted::add);
+		Collections.sort(sorted);
+		System.out.printf(Locale.ROOT, "%-48s %10d %10.1f %10.1f %10.1f %10d%n", name, latencies.size(),
+				percentile(sorted, 0.5), percentile(sorted, 0.99), percentile(sorted, 1), failed);
+	}
+
+	private static double percentile(List<Long> sorted, double percentile) {
+		if(sorted.isEmpty()) {
+			return Double.NaN;
+		}
+		int index = (int) Math.ceil(percentile * sorted.size()) - 1;
+		return sorted.get(Math.max(0, index)) / 1e6;
+	}
+}
@@ -0,0 +1,56 @@
+package com.github.motyka.textprocessor.benchmark;
+
+import com.github.motyka.textprocessor.paragraph.Paragraph;
+import com.github.motyka.textprocessor.paragraph.ParagraphPage;
+import com.github.motyka.textprocessor.paragraph.ParagraphService;
+import com.github.motyka.textprocessor.paragraph.ParagraphServiceFactory;
+import com.github.motyka.textprocessor.paragraph.SplitRequest;
+import com.github.motyka.textprocessor.paragraph.SplittingStrategy;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the first page of the paragraphs, which splits only the beginning of the text, with the split of the whole text.
+ * The page of only the matching paragraphs splits the text until it finds *limit* of them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class PageBenchmark {
+
+	private static final SplitRequest REQUEST = SplitRequest.builder().searchTerm("ipsum").strategy(SplittingStrategy.SCANNING).build();
+
+	@Param({"10MB"})
+	private String size;
+
+	@Param({"100"})
+	private int limit;
+
+	private final ParagraphService service = ParagraphServiceFactory.create();
+	private String text;
+
+	@Setup
+	public void setUp() {
+		text = SeparatorMix.NEW_LINES.generate(ParagraphServiceBenchmark.parseSize(size), 42);
+	}
+
+	@Benchmark
+	public ParagraphPage firstPage() {
+		return service.page(text, REQUEST, 0, limit, false, null);
+	}
+
+	@Benchmark
+	public ParagraphPage firstMatchingPage() {
+		return service.page(text, REQUEST, 0, limit, true, null);
+	}
+
+	@Benchmark
+	public List<Paragraph> splitAndSearch() {
+		return service.splitAndSearch(text, REQUEST);
+	}
+}
@@ -0,0 +1,66 @@
+package com.github.motyka.textprocessor.benchmark;
+
+import com.github.motyka.textprocessor.paragraph.Paragraph;
+import com.github.motyka.textprocessor.paragraph.ParagraphService;
+import com.github.motyka.textprocessor.paragraph.ParagraphServiceFactory;
+import com.github.motyka.textprocessor.paragraph.SplitRequest;
+import com.github.motyka.textprocessor.paragraph.SplittingStrategy;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link ParagraphService#splitAndSearch} for different document sizes, separators and limits.
+ * The REGEX strategy is quadratic in the limits without dots, so it is only practical for the small sizes: -p strategy=REGEX -p size=1KB,100KB
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ParagraphServiceBenchmark {
+
+	private static final String SEARCH_TERM = "ipsum";
+
+	@Param({"1KB", "100KB", "10MB", "100MB"})
+	private String size;
+
+	@Param({"NEW_LINES", "PUNCTUATION", "NO_SEPARATORS"})
+	private SeparatorMix mix;
+
+	// *mainLimit*-*secondaryLimit*
+	@Param({"1200-800", "120-80", "12000-11000"})
+	private String limits;
+
+	@Param({"SCANNING"})
+	private SplittingStrategy strategy;
+
+	private final ParagraphService service = ParagraphServiceFactory.create();
+	private String text;
+	private SplitRequest request;
+
+	@Setup
+	public void setUp() {
+		text = mix.generate(parseSize(size), 42);
+		String[] parts = limits.split("-");
+		request = SplitRequest.builder().searchTerm(SEARCH_TERM).mainLimit(Integer.parseInt(parts[0])).secondaryLimit(Integer.parseInt(parts[1]))
+				.strategy(strategy).build();
+	}
+
+	@Benchmark
+	public List<Paragraph> splitAndSearch() {
+		return service.splitAndSearch(text, request);
+	}
+
+	static int parseSize(String size) {
+		if(size.endsWith("MB")) {
+			return Integer.parseInt(size.substring(0, size.length() - 2)) * 1024 * 1024;
+		}
+		if(size.endsWith("KB")) {
+			return Integer.parseInt(size.substring(0, size.length() - 2)) * 1024;
+		}
+		return Integer.parseInt(size);
+	}
+}
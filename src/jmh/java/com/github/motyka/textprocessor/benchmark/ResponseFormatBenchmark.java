@@ -0,0 +1,59 @@
+package com.github.motyka.textprocessor.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.github.motyka.textprocessor.paragraph.Paragraph;
+import com.github.motyka.textprocessor.paragraph.ParagraphServiceFactory;
+import com.github.motyka.textprocessor.paragraph.SplitRequest;
+import com.github.motyka.textprocessor.paragraph.SplittingStrategy;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares serializing the paragraphs of a split text as JSON, Smile and CBOR, the formats negotiated by the Accept
+ * header of /paragraphs/splitAndSearch. The size of the response is printed once in the setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ResponseFormatBenchmark {
+
+	public enum Format {
+		JSON(new ObjectMapper()),
+		SMILE(new ObjectMapper(new SmileFactory())),
+		CBOR(new ObjectMapper(new CBORFactory()));
+
+		private final ObjectMapper mapper;
+
+		Format(ObjectMapper mapper) {
+			this.mapper = mapper;
+		}
+	}
+
+	@Param({"100KB", "10MB"})
+	private String size;
+
+	@Param({"JSON", "SMILE", "CBOR"})
+	private Format format;
+
+	private List<Paragraph> paragraphs;
+
+	@Setup
+	public void setUp() throws IOException {
+		String text = SeparatorMix.NEW_LINES.generate(ParagraphServiceBenchmark.parseSize(size), 42);
+		paragraphs = ParagraphServiceFactory.create().splitAndSearch(text, SplitRequest.builder().searchTerm("ipsum").strategy(SplittingStrategy.SCANNING).build());
+		System.out.println(format + " " + size + ": " + serialize().length + " bytes");
+	}
+
+	@Benchmark
+	public byte[] serialize() throws IOException {
+		return format.mapper.writeValueAsBytes(paragraphs);
+	}
+}
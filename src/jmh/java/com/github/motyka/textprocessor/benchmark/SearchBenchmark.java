@@ -0,0 +1,84 @@
+package com.github.motyka.textprocessor.benchmark;
+
+import com.github.motyka.textprocessor.paragraph.ScanningSplittingEngine;
+import com.github.motyka.textprocessor.search.SearchOptions;
+import com.github.motyka.textprocessor.search.SearchPattern;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares searching every paragraph of a document for the search term with the options of {@link SearchPattern}
+ * with the exact String.contains and with String.toLowerCase of every paragraph. The paragraphs are split
+ * in the setup, only the search is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class SearchBenchmark {
+
+	private static final String SEARCH_TERM = "Faucibus Urna";
+
+	@Param({"100KB"})
+	private String size;
+
+	@Param({"false", "true"})
+	private boolean nonAscii;
+
+	// the options of the *pattern* benchmark
+	@Param({"ignoreCase", "ignoreCase,normalize", "ignoreCase,wholeWord", "ignoreCase,regex"})
+	private String options;
+
+	private String text;
+	private int[] starts;
+	private int[] ends;
+	private SearchPattern.Searcher searcher;
+
+	@Setup
+	public void setUp() {
+		text = SeparatorMix.NEW_LINES.generate(ParagraphServiceBenchmark.parseSize(size), 42);
+		if(nonAscii) {
+			text = text.replace("dolor", "dolór").replace("elit", "élit€");
+		}
+		List<int[]> paragraphs = new ArrayList<>();
+		new ScanningSplittingEngine().split(text, 1200, 800, (start, length) -> paragraphs.add(new int[]{start, start + length}));
+		starts = paragraphs.stream().mapToInt(paragraph -> paragraph[0]).toArray();
+		ends = paragraphs.stream().mapToInt(paragraph -> paragraph[1]).toArray();
+		searcher = SearchPattern.compile(SEARCH_TERM, new SearchOptions(options.contains("ignoreCase"), options.contains("normalize"),
+				options.contains("wholeWord"), options.contains("regex"))).searcher();
+	}
+
+	@Benchmark
+	public int exactContains() {
+		int count = 0;
+		for(int i = 0; i < starts.length; i++) {
+			count += text.substring(starts[i], ends[i]).contains(SEARCH_TERM) ? 1 : 0;
+		}
+		return count;
+	}
+
+	@Benchmark
+	public int lowerCaseContains() {
+		String term = SEARCH_TERM.toLowerCase(Locale.ROOT);
+		int count = 0;
+		for(int i = 0; i < starts.length; i++) {
+			count += text.substring(starts[i], ends[i]).toLowerCase(Locale.ROOT).contains(term) ? 1 : 0;
+		}
+		return count;
+	}
+
+	@Benchmark
+	public int pattern() {
+		int count = 0;
+		for(int i = 0; i < starts.length; i++) {
+			count += searcher.contains(text, starts[i], ends[i]) ? 1 : 0;
+		}
+		return count;
+	}
+}
@@ -0,0 +1,73 @@
+package com.github.motyka.textprocessor.benchmark;
+
+import java.util.Random;
+
+/**
+ * Kinds of generated documents, each one exercises a different splitting rule.
+ */
+public enum SeparatorMix {
+	/**
+	 * Sentences grouped into paragraphs separated by double new lines.
+	 */
+	NEW_LINES {
+		@Override
+		void append(StringBuilder sb, Random random) {
+			int sentences = 1 + random.nextInt(8);
+			for(int i = 0; i < sentences; i++) {
+				appendWords(sb, random, 5 + random.nextInt(15), " ");
+				sb.append(". ");
+			}
+			sb.append("\n\n");
+		}
+	},
+	/**
+	 * Words separated only by punctuation, there are no whitespaces nor dots.
+	 */
+	PUNCTUATION {
+		@Override
+		void append(StringBuilder sb, Random random) {
+			appendWords(sb, random, 1, "");
+			sb.append(MARKS.charAt(random.nextInt(MARKS.length())));
+		}
+	},
+	/**
+	 * Only alphanumeric characters, the worst case which is split into *mainLimit* chunks.
+	 */
+	NO_SEPARATORS {
+		@Override
+		void append(StringBuilder sb, Random random) {
+			appendWords(sb, random, 1, "");
+		}
+	};
+
+	private static final String MARKS = ",;:!?-";
+	private static final String[] WORDS = {"lorem", "ipsum", "dolor", "sit", "amet", "consectetur", "adipiscing",
+			"elit", "nulla", "vulputate", "velit", "faucibus", "sagittis", "tempor", "urna", "rutrum", "mollis", "2020"};
+
+	/**
+	 * Generates a document of the given length, the same for the same seed.
+	 * @param length
+	 * @param seed
+	 * @return
+	 */
+	public String generate(int length, long seed) {
+		Random random = new Random(seed);
+		StringBuilder sb = new StringBuilder(length + 1000);
+		while(sb.length() < length) {
+			append(sb, random);
+		}
+		sb.setLength(length);
+		return sb.toString();
+	}
+
+	abstract void append(StringBuilder sb, Random random);
+
+	private static void appendWords(StringBuilder sb, Random random, int count, String separator) {
+		for(int i = 0; i < count; i++) {
+			if(i > 0) {
+				sb.append(separator);
+			}
+			sb.append(WORDS[random.nextInt(WORDS.length)]);
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package com.github.motyka.textprocessor.benchmark;
+
+import com.github.motyka.textprocessor.paragraph.SplitReason;
+import com.github.motyka.textprocessor.paragraph.SplittingEngine;
+import com.github.motyka.textprocessor.paragraph.SplittingStrategy;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures only the split loop of the engines, the paragraphs are consumed without creating any objects,
+ * so the allocation per operation is the garbage of the engine itself. It should stay close to zero
+ * regardless of the number of paragraphs, the smoke run checks it (-Dbenchmark.maxLoopAllocation).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class SplittingEngineBenchmark {
+
+	@Param({"1KB", "100KB"})
+	private String size;
+
+	@Param({"NEW_LINES", "PUNCTUATION", "NO_SEPARATORS"})
+	private SeparatorMix mix;
+
+	// *mainLimit*-*secondaryLimit*
+	@Param({"1200-800", "120-80"})
+	private String limits;
+
+	@Param({"REGEX", "SCANNING"})
+	private SplittingStrategy strategy;
+
+	private String text;
+	private int mainLimit;
+	private int secondaryLimit;
+	private SplittingEngine.ParagraphListener listener;
+
+	@Setup
+	public void setUp(Blackhole blackhole) {
+		text = mix.generate(ParagraphServiceBenchmark.parseSize(size), 42);
+		String[] parts = limits.split("-");
+		mainLimit = Integer.parseInt(parts[0]);
+		secondaryLimit = Integer.parseInt(parts[1]);
+		// created once, so it isn't counted in the allocation of the loop
+		listener = new SplittingEngine.ParagraphListener() {
+			@Override
+			public void paragraph(int start, int length) {
+				blackhole.consume(start);
+				blackhole.consume(length);
+			}
+
+			@Override
+			public void paragraph(int start, int length, SplitReason reason) {
+				paragraph(start, length);
+				blackhole.consume(reason);
+			}
+		};
+	}
+
+	@Benchmark
+	public void split() {
+		strategy.getEngine().split(text, mainLimit, secondaryLimit, listener);
+	}
+}
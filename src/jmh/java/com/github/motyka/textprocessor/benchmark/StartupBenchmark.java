@@ -0,0 +1,120 @@
+package com.github.motyka.textprocessor.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time from starting the JVM to the first successful /paragraphs/splitAndSearch response
+ * with the default profile, the fast-startup profile and the fast-startup profile with the AppCDS archive.
+ * The application is run from the directory built by the cds profile (-Dstartup.directory, target/cds by default):
+ * <pre>
+ * mvn -Pcds,benchmarks verify -DskipTests -Dbenchmark.main=com.github.motyka.textprocessor.benchmark.StartupBenchmark
+ * </pre>
+ * Every variant is started -Dstartup.runs times (5 by default).
+ */
+public class StartupBenchmark {
+
+	private static final String MAIN = "com.github.motyka.textprocessor.TextProcessorApplication";
+	private static final int RUNS = Integer.getInteger("startup.runs", 5);
+	private static final Path DIRECTORY = Paths.get(System.getProperty("startup.directory", "target/cds"));
+	private static final long TIMEOUT = TimeUnit.MINUTES.toNanos(2);
+
+	private static final String BODY = "{\"text\": \"The first paragraph.\\n\\nThe second one, lorem ipsum.\", \"searchTerm\": \"ipsum\"}";
+
+	public static void main(String[] args) throws Exception {
+		if(!Files.exists(DIRECTORY.resolve("app.jar"))) {
+			throw new IllegalStateException("The application isn't built in " + DIRECTORY.toAbsolutePath() + ", build it with mvn -Pcds package first.");
+		}
+		boolean archive = Files.exists(DIRECTORY.resolve("app.jsa"));
+
+		System.out.printf("%d runs of each variant, %d processors%n", RUNS, Runtime.getRuntime().availableProcessors());
+		System.out.printf("%-32s %10s %10s %10s%n", "variant", "min ms", "median ms", "max ms");
+		measure("default", Collections.emptyList(), Collections.emptyList());
+		measure("fast-startup", Collections.emptyList(), Collections.singletonList("--spring.profiles.active=fast-startup"));
+		if(archive) {
+			measure("fast-startup + AppCDS", Collections.singletonList("-XX:SharedArchiveFile=app.jsa"),
+					Collections.singletonList("--spring.profiles.active=fast-startup"));
+		} else {
+			System.out.println("fast-startup + AppCDS: app.jsa is missing");
+		}
+	}
+
+	private static void measure(String variant, List<String> jvmOptions, List<String> arguments) throws Exception {
+		List<Long> times = new ArrayList<>();
+		for(int i = 0; i < RUNS; i++) {
+			times.add(start(jvmOptions, arguments));
+		}
+		Collections.sort(times);
+		System.out.printf(Locale.ROOT, "%-32s %10.0f %10.0f %10.0f%n", variant, times.get(0) / 1e6, times.get(times.size() / 2) / 1e6,
+				times.get(times.size() - 1) / 1e6);
+	}
+
+	/**
+	 * @return nanoseconds from starting the process to the first successful response
+	 */
+	private static long start(List<String> jvmOptions, List<String> arguments) throws Exception {
+		int port;
+		try(ServerSocket socket = new ServerSocket(0)) {
+			port = socket.getLocalPort();
+		}
+		List<String> command = new ArrayList<>();
+		command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+		command.addAll(jvmOptions);
+		command.addAll(Arrays.asList("-cp", "app.jar" + File.pathSeparator + "lib/*", MAIN, "--server.port=" + port));
+		command.addAll(arguments);
+
+		long start = System.nanoTime();
+		Process process = new ProcessBuilder(command)
+				.directory(DIRECTORY.toFile())
+				.redirectErrorStream(true)
+				.redirectOutput(ProcessBuilder.Redirect.DISCARD)
+				.start();
+		try {
+			while(!request(port)) {
+				if(!process.isAlive() || System.nanoTime() - start > TIMEOUT) {
+					throw new IllegalStateException("The application didn't start: " + command);
+				}
+				Thread.sleep(5);
+			}
+			return System.nanoTime() - start;
+		} finally {
+			process.destroy();
+			process.waitFor();
+		}
+	}
+
+	private static boolean request(int port) throws IOException {
+		byte[] body = BODY.getBytes(StandardCharsets.UTF_8);
+		try(Socket socket = new Socket("localhost", port)) {
+			OutputStream output = socket.getOutputStream();
+			String headers = "POST /paragraphs/splitAndSearch HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\n"
+					+ "Content-Length: " + body.length + "\r\nConnection: close\r\n\r\n";
+			output.write(headers.getBytes(StandardCharsets.US_ASCII));
+			output.write(body);
+			output.flush();
+
+			InputStream input = socket.getInputStream();
+			byte[] status = input.readNBytes(12);
+			input.transferTo(OutputStream.nullOutputStream());
+			return new String(status, StandardCharsets.US_ASCII).equals("HTTP/1.1 200");
+		} catch(ConnectException ex) {
+			// not listening yet
+			return false;
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package com.github.motyka.textprocessor.benchmark;
+
+import com.github.motyka.textprocessor.paragraph.OffsetUnit;
+import com.github.motyka.textprocessor.paragraph.ParagraphOffsets;
+import com.github.motyka.textprocessor.paragraph.ParagraphService;
+import com.github.motyka.textprocessor.paragraph.ParagraphServiceFactory;
+import com.github.motyka.textprocessor.paragraph.SplitRequest;
+import com.github.motyka.textprocessor.paragraph.SplittingStrategy;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares splitting the UTF-8 request body decoded into a String with splitting its bytes directly.
+ * The ASCII text is read byte by byte, the text with non ASCII words (*nonAscii*) is decoded character by character.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class Utf8OffsetsBenchmark {
+
+	private static final String SEARCH_TERM = "ipsum";
+
+	@Param({"100KB", "10MB"})
+	private String size;
+
+	@Param({"NEW_LINES", "PUNCTUATION"})
+	private SeparatorMix mix;
+
+	@Param({"false", "true"})
+	private boolean nonAscii;
+
+	@Param({"CHARS", "BYTES"})
+	private OffsetUnit unit;
+
+	private final ParagraphService service = ParagraphServiceFactory.create();
+	private byte[] bytes;
+	// the positions in the decoded text are always in characters
+	private final SplitRequest decodedRequest = SplitRequest.builder().searchTerm(SEARCH_TERM).strategy(SplittingStrategy.SCANNING).build();
+	private SplitRequest request;
+
+	@Setup
+	public void setUp() {
+		String text = mix.generate(ParagraphServiceBenchmark.parseSize(size), 42);
+		if(nonAscii) {
+			text = text.replace("dolor", "dolór").replace("elit", "élit€");
+		}
+		bytes = text.getBytes(StandardCharsets.UTF_8);
+		request = SplitRequest.builder().searchTerm(SEARCH_TERM).strategy(SplittingStrategy.SCANNING).unit(unit).build();
+	}
+
+	@Benchmark
+	public ParagraphOffsets decoded() {
+		return service.splitAndSearchOffsets(new String(bytes, StandardCharsets.UTF_8), decodedRequest);
+	}
+
+	@Benchmark
+	public ParagraphOffsets bytes() {
+		return service.splitAndSearchOffsets(bytes, request);
+	}
+}
@@ -1,13 +1,29 @@
 package com.github.motyka.textprocessor;
 
+import com.github.motyka.textprocessor.config.StartupTrainingConfig;
+import com.github.motyka.textprocessor.corpus.CorpusSplittingRunner;
+import com.github.motyka.textprocessor.paragraph.FileSplittingRunner;
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
+import java.util.Arrays;
+
 @SpringBootApplication
 public class TextProcessorApplication {
 
 	public static void main(String[] args) {
-		SpringApplication.run(TextProcessorApplication.class, args);
+		SpringApplication application = new SpringApplication(TextProcessorApplication.class);
+		// splitting the files or the corpus from the command line doesn't need the web server, the application exits afterwards
+		if(Arrays.stream(args).anyMatch(arg -> arg.startsWith("--" + FileSplittingRunner.SPLIT_OPTION + "=") || arg.startsWith("--" + CorpusSplittingRunner.CORPUS_OPTION + "="))) {
+			application.setWebApplicationType(WebApplicationType.NONE);
+			System.exit(SpringApplication.exit(application.run(args)));
+		}
+		// the training run for AppCDS exits after its requests
+		if(Arrays.asList(args).contains("--" + StartupTrainingConfig.TRAINING_PROPERTY + "=true")) {
+			System.exit(SpringApplication.exit(application.run(args)));
+		}
+		application.run(args);
 	}
 
 }
@@ -0,0 +1,202 @@
+package com.github.motyka.textprocessor.admission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpStatus;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits the memory of the requests processed at once. Every request reserves the approximate bytes it holds
+ * in memory, the requests which don't fit into the budget wait in a FIFO queue for at most *maxWait* milliseconds,
+ * so the big requests aren't overtaken forever by the small ones. A request bigger than the whole budget is only
+ * admitted when no other request is processed. Every client can also have only *maxClientRequests* requests
+ * processed or waiting at once, so a single client can't take the whole budget.
+ */
+public class AdmissionControl {
+
+	private final long maxBytes;
+	private final int maxClientRequests;
+	private final int maxQueue;
+	private final long maxWait;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	// signalled when a request is finished or leaves the queue
+	private final Condition changed = lock.newCondition();
+	private final Deque<Object> queue = new ArrayDeque<>();
+	// requests processed or waiting by the clients
+	private final Map<String, Integer> clients = new HashMap<>();
+	private long inFlightBytes;
+	private int inFlightRequests;
+
+	private final Counter clientRejections;
+	private final Counter queueRejections;
+	private final Counter timeoutRejections;
+
+	/**
+	 * @param maxBytes budget of all requests processed at once
+	 * @param maxClientRequests requests of one client processed or waiting at once
+	 * @param maxQueue requests waiting for the budget at once
+	 * @param maxWait time a request can wait for the budget in milliseconds
+	 * @param registry
+	 */
+	public AdmissionControl(long maxBytes, int maxClientRequests, int maxQueue, long maxWait, MeterRegistry registry) {
+		if(maxBytes <= 0 || maxClientRequests <= 0 || maxQueue < 0 || maxWait < 0) {
+			throw new IllegalArgumentException("The budget and the client requests must be greater than 0, the queue and the wait can't be negative.");
+		}
+		this.maxBytes = maxBytes;
+		this.maxClientRequests = maxClientRequests;
+		this.maxQueue = maxQueue;
+		this.maxWait = maxWait;
+
+		Gauge.builder("paragraph.admission.in-flight", this, AdmissionControl::getInFlightBytes)
+				.description("Approximate memory of the requests processed at once")
+				.baseUnit("bytes")
+				.register(registry);
+		Gauge.builder("paragraph.admission.in-flight.requests", this, AdmissionControl::getInFlightRequests)
+				.description("Number of the requests processed at once")
+				.register(registry);
+		Gauge.builder("paragraph.admission.queue", this, AdmissionControl::getQueueDepth)
+				.description("Number of the requests waiting for the memory budget")
+				.register(registry);
+		clientRejections = rejections("client", registry);
+		queueRejections = rejections("queue", registry);
+		timeoutRejections = rejections("timeout", registry);
+	}
+
+	private static Counter rejections(String reason, MeterRegistry registry) {
+		return Counter.builder("paragraph.admission.rejected")
+				.description("Number of the rejected requests by the reason: the client has too many requests, the queue is full or the wait timed out")
+				.tag("reason", reason)
+				.register(registry);
+	}
+
+	/**
+	 * Reserves the bytes of the request, waits if they don't fit into the budget.
+	 * @param client the requests of the same client are counted together
+	 * @param bytes
+	 * @return permit which has to be closed when the request is finished
+	 * @throws AdmissionRejectedException with 429 if the client has too many requests,
+	 * with 503 if the queue is full or the request waited too long
+	 * @throws InterruptedException
+	 */
+	public Permit acquire(String client, long bytes) throws InterruptedException {
+		lock.lock();
+		try {
+			int requests = clients.getOrDefault(client, 0);
+			if(requests >= maxClientRequests) {
+				clientRejections.increment();
+				throw new AdmissionRejectedException(HttpStatus.TOO_MANY_REQUESTS, "The client has already " + requests + " requests.");
+			}
+			if(queue.isEmpty() && fits(bytes)) {
+				return admit(client, bytes);
+			}
+			if(queue.size() >= maxQueue) {
+				queueRejections.increment();
+				throw new AdmissionRejectedException(HttpStatus.SERVICE_UNAVAILABLE, "Too many requests are waiting for the memory.");
+			}
+
+			Object ticket = new Object();
+			queue.addLast(ticket);
+			clients.merge(client, 1, Integer::sum);
+			try {
+				long remaining = TimeUnit.MILLISECONDS.toNanos(maxWait);
+				while(queue.peekFirst() != ticket || !fits(bytes)) {
+					if(remaining <= 0) {
+						timeoutRejections.increment();
+						throw new AdmissionRejectedException(HttpStatus.SERVICE_UNAVAILABLE, "The request waited for the memory for " + maxWait + " ms.");
+					}
+					remaining = changed.awaitNanos(remaining);
+				}
+			} finally {
+				queue.remove(ticket);
+				release(client);
+				// the next request in the queue can fit now
+				changed.signalAll();
+			}
+			return admit(client, bytes);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private boolean fits(long bytes) {
+		return inFlightRequests == 0 || inFlightBytes + bytes <= maxBytes;
+	}
+
+	private Permit admit(String client, long bytes) {
+		inFlightBytes += bytes;
+		inFlightRequests++;
+		clients.merge(client, 1, Integer::sum);
+		return new Permit(client, bytes);
+	}
+
+	private void release(String client) {
+		clients.computeIfPresent(client, (key, requests) -> requests > 1 ? requests - 1 : null);
+	}
+
+	public long getInFlightBytes() {
+		lock.lock();
+		try {
+			return inFlightBytes;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public int getInFlightRequests() {
+		lock.lock();
+		try {
+			return inFlightRequests;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public int getQueueDepth() {
+		lock.lock();
+		try {
+			return queue.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Bytes reserved by an admitted request, they are released once when it's closed.
+	 */
+	public class Permit implements AutoCloseable {
+		private final String client;
+		private final long bytes;
+		private boolean closed;
+
+		private Permit(String client, long bytes) {
+			this.client = client;
+			this.bytes = bytes;
+		}
+
+		@Override
+		public void close() {
+			lock.lock();
+			try {
+				if(closed) {
+					return;
+				}
+				closed = true;
+				inFlightBytes -= bytes;
+				inFlightRequests--;
+				release(client);
+				changed.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+}
@@ -0,0 +1,192 @@
+package com.github.motyka.textprocessor.admission;
+
+import com.github.motyka.textprocessor.compression.ContentEncoding;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Admits the requests by {@link AdmissionControl}. A request holds about *copies* times its body in memory
+ * (the bytes, the decoded text, the paragraphs), the body of an unknown length counts as *unknownLength* bytes
+ * and the compressed body as *compressedLength* bytes, the most it can be decompressed into.
+ * The streaming endpoints only hold their buffer whatever the length of the body, so they count as *streamingBytes*,
+ * but at most *maxStreamingRequests* requests of every streaming endpoint are processed at once, the others get 503
+ * without waiting. The asynchronous requests keep their bytes until they are completed.
+ */
+public class AdmissionFilter extends OncePerRequestFilter {
+
+	private final Logger logger = LoggerFactory.getLogger(AdmissionFilter.class);
+
+	private final AdmissionControl admission;
+	private final int copies;
+	private final long unknownLength;
+	private final long compressedLength;
+	// POST requests of these paths are streamed, by the path
+	private final Map<String, Semaphore> streams;
+	private final long streamingBytes;
+	// the header identifying the client, null for the remote address
+	private final String clientHeader;
+	private final int retryAfter;
+
+	/**
+	 * @param admission
+	 * @param copies
+	 * @param unknownLength
+	 * @param compressedLength decompressed bytes of a compressed body
+	 * @param streamingPaths paths of the streaming endpoints, relative to the context path
+	 * @param streamingBytes bytes of every streamed request
+	 * @param maxStreamingRequests requests of every streaming endpoint processed at once
+	 * @param clientHeader the header identifying the client, e.g. set by a proxy, null or empty for the remote address
+	 * @param retryAfter seconds sent in the Retry-After header of the rejected requests
+	 */
+	public AdmissionFilter(AdmissionControl admission, int copies, long unknownLength, long compressedLength, Collection<String> streamingPaths, long streamingBytes,
+			int maxStreamingRequests, String clientHeader, int retryAfter) {
+		this.admission = admission;
+		this.copies = copies;
+		this.unknownLength = unknownLength;
+		this.compressedLength = compressedLength;
+		this.streams = streamingPaths.stream().collect(Collectors.toMap(Function.identity(), path -> new Semaphore(maxStreamingRequests)));
+		this.streamingBytes = streamingBytes;
+		this.clientHeader = clientHeader == null || clientHeader.isEmpty() ? null : clientHeader;
+		this.retryAfter = retryAfter;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+		Semaphore stream = "POST".equals(request.getMethod()) ? streams.get(request.getRequestURI().substring(request.getContextPath().length())) : null;
+		long bytes;
+		if(stream != null) {
+			bytes = streamingBytes;
+		} else if(isCompressed(request)) {
+			bytes = copies * compressedLength;
+		} else {
+			long length = request.getContentLengthLong();
+			bytes = copies * (length >= 0 ? length : unknownLength);
+		}
+		String client = client(request);
+
+		if(stream != null && !stream.tryAcquire()) {
+			logger.debug("rejected {} {}: too many streams", request.getMethod(), request.getRequestURI());
+			reject(response, HttpStatus.SERVICE_UNAVAILABLE, "Too many requests are streamed at once.");
+			return;
+		}
+		Admitted admitted;
+		try {
+			admitted = new Admitted(admission.acquire(client, bytes), stream);
+		} catch(AdmissionRejectedException ex) {
+			release(stream);
+			logger.debug("rejected {} {} of {} bytes: {}", request.getMethod(), request.getRequestURI(), bytes, ex.getMessage());
+			reject(response, ex.getStatus(), ex.getMessage());
+			return;
+		} catch(InterruptedException ex) {
+			release(stream);
+			Thread.currentThread().interrupt();
+			reject(response, HttpStatus.SERVICE_UNAVAILABLE, "Interrupted while waiting for the memory.");
+			return;
+		}
+
+		boolean async = false;
+		try {
+			chain.doFilter(request, response);
+			if(request.isAsyncStarted()) {
+				request.getAsyncContext().addListener(new AdmittedListener(admitted));
+				async = true;
+			}
+		} finally {
+			if(!async) {
+				admitted.close();
+			}
+		}
+	}
+
+	private static boolean isCompressed(HttpServletRequest request) {
+		String encoding = request.getHeader(HttpHeaders.CONTENT_ENCODING);
+		return encoding != null && ContentEncoding.of(encoding) != ContentEncoding.IDENTITY;
+	}
+
+	private static void release(Semaphore stream) {
+		if(stream != null) {
+			stream.release();
+		}
+	}
+
+	private String client(HttpServletRequest request) {
+		String client = clientHeader != null ? request.getHeader(clientHeader) : null;
+		return client != null ? client : request.getRemoteAddr();
+	}
+
+	private void reject(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+		response.setHeader(HttpHeaders.RETRY_AFTER, Integer.toString(retryAfter));
+		response.sendError(status.value(), message);
+	}
+
+	/**
+	 * Permit of an admitted request and its place among the streams of the endpoint, released once.
+	 */
+	private static class Admitted implements AutoCloseable {
+		private final AdmissionControl.Permit permit;
+		private final Semaphore stream;
+		private final AtomicBoolean closed = new AtomicBoolean();
+
+		Admitted(AdmissionControl.Permit permit, Semaphore stream) {
+			this.permit = permit;
+			this.stream = stream;
+		}
+
+		@Override
+		public void close() {
+			if(closed.compareAndSet(false, true)) {
+				permit.close();
+				release(stream);
+			}
+		}
+	}
+
+	/**
+	 * Releases the bytes when the asynchronous request is finished.
+	 */
+	private static class AdmittedListener implements AsyncListener {
+		private final Admitted admitted;
+
+		AdmittedListener(Admitted admitted) {
+			this.admitted = admitted;
+		}
+
+		@Override
+		public void onComplete(AsyncEvent event) {
+			admitted.close();
+		}
+
+		@Override
+		public void onTimeout(AsyncEvent event) {
+			admitted.close();
+		}
+
+		@Override
+		public void onError(AsyncEvent event) {
+			admitted.close();
+		}
+
+		@Override
+		public void onStartAsync(AsyncEvent event) {
+			// the same request, the listener has to be added again to get its completion
+			event.getAsyncContext().addListener(this);
+		}
+	}
+}
@@ -0,0 +1,19 @@
+package com.github.motyka.textprocessor.admission;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * The request wasn't admitted, 429 if its client has too many requests, 503 if there isn't enough memory.
+ */
+public class AdmissionRejectedException extends RuntimeException {
+	private final HttpStatus status;
+
+	public AdmissionRejectedException(HttpStatus status, String message) {
+		super(message);
+		this.status = status;
+	}
+
+	public HttpStatus getStatus() {
+		return status;
+	}
+}
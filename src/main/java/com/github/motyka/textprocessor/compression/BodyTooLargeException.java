@@ -0,0 +1,14 @@
+package com.github.motyka.textprocessor.compression;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * The decompressed request body is longer than the limit, e.g. a small compressed body of a huge text.
+ */
+@ResponseStatus(HttpStatus.PAYLOAD_TOO_LARGE)
+public class BodyTooLargeException extends RuntimeException {
+	public BodyTooLargeException(String message) {
+		super(message);
+	}
+}
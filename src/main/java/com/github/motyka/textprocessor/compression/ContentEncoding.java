@@ -0,0 +1,68 @@
+package com.github.motyka.textprocessor.compression;
+
+import com.github.luben.zstd.ZstdInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Encodings of the compressed request bodies by the values of the Content-Encoding header.
+ */
+public enum ContentEncoding {
+	IDENTITY("identity") {
+		@Override
+		public InputStream decode(InputStream input) {
+			return input;
+		}
+	},
+	GZIP("gzip") {
+		@Override
+		public InputStream decode(InputStream input) throws IOException {
+			return new GZIPInputStream(input, BUFFER_SIZE);
+		}
+	},
+	ZSTD("zstd") {
+		@Override
+		public InputStream decode(InputStream input) throws IOException {
+			return new ZstdInputStream(input);
+		}
+	};
+
+	private static final int BUFFER_SIZE = 65536;
+
+	private final String token;
+
+	ContentEncoding(String token) {
+		this.token = token;
+	}
+
+	public String getToken() {
+		return token;
+	}
+
+	/**
+	 * @param input the compressed body
+	 * @return the decompressed body, it's read from the input as it's read
+	 * @throws IOException if the header of the compressed body can't be read
+	 */
+	public abstract InputStream decode(InputStream input) throws IOException;
+
+	/**
+	 * @param header value of the Content-Encoding header, x-gzip is the same as gzip
+	 * @return the encoding or null if it isn't supported
+	 */
+	public static ContentEncoding of(String header) {
+		String token = header.trim().toLowerCase(Locale.ROOT);
+		if(token.equals("x-gzip")) {
+			return GZIP;
+		}
+		for(ContentEncoding encoding : values()) {
+			if(encoding.token.equals(token)) {
+				return encoding;
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,199 @@
+package com.github.motyka.textprocessor.compression;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Decompresses the request bodies with the Content-Encoding header (gzip or zstd) while they are read,
+ * so the text is split from the decompressed stream without holding the compressed or the whole decompressed body.
+ * The decompressed body has an unknown length, the Content-Encoding and Content-Length headers are hidden.
+ * The other encodings are rejected with 415. A few kilobytes can decompress into gigabytes, so the endpoints which
+ * hold the whole body in memory limit the decompressed bytes, the longer bodies are rejected with 413 when the limit
+ * is read.
+ */
+public class DecompressingFilter extends OncePerRequestFilter {
+
+	// 0 or less for the streaming endpoints, which don't hold the body
+	private final long maxBytes;
+
+	/**
+	 * @param maxBytes decompressed bytes of a body, 0 or less for no limit
+	 */
+	public DecompressingFilter(long maxBytes) {
+		this.maxBytes = maxBytes;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+		String header = request.getHeader(HttpHeaders.CONTENT_ENCODING);
+		if(header == null) {
+			chain.doFilter(request, response);
+			return;
+		}
+		ContentEncoding encoding = ContentEncoding.of(header);
+		if(encoding == null) {
+			response.setHeader(HttpHeaders.ACCEPT_ENCODING, supported());
+			response.sendError(HttpStatus.UNSUPPORTED_MEDIA_TYPE.value(), "Unsupported Content-Encoding: " + header);
+			return;
+		}
+		if(encoding == ContentEncoding.IDENTITY) {
+			chain.doFilter(request, response);
+			return;
+		}
+		DecompressedRequest decompressed = new DecompressedRequest(request, encoding, maxBytes);
+		try {
+			chain.doFilter(decompressed, response);
+		} finally {
+			// the zstd stream left for its finalizer would close the input of a later request on the same connection,
+			// Tomcat reuses it
+			decompressed.close();
+		}
+	}
+
+	private static String supported() {
+		return Arrays.stream(ContentEncoding.values()).map(ContentEncoding::getToken).collect(Collectors.joining(", "));
+	}
+
+	/**
+	 * The request with the decompressed body, the body is decompressed when it's read first.
+	 */
+	private static class DecompressedRequest extends HttpServletRequestWrapper {
+		private final ContentEncoding encoding;
+		private final long maxBytes;
+		private ServletInputStream input;
+
+		DecompressedRequest(HttpServletRequest request, ContentEncoding encoding, long maxBytes) {
+			super(request);
+			this.encoding = encoding;
+			this.maxBytes = maxBytes;
+		}
+
+		@Override
+		public ServletInputStream getInputStream() throws IOException {
+			if(input == null) {
+				input = new DecompressedInputStream(encoding.decode(super.getInputStream()), maxBytes);
+			}
+			return input;
+		}
+
+		void close() throws IOException {
+			if(input != null) {
+				input.close();
+			}
+		}
+
+		@Override
+		public int getContentLength() {
+			return -1;
+		}
+
+		@Override
+		public long getContentLengthLong() {
+			return -1;
+		}
+
+		@Override
+		public String getHeader(String name) {
+			return isHidden(name) ? null : super.getHeader(name);
+		}
+
+		@Override
+		public Enumeration<String> getHeaders(String name) {
+			return isHidden(name) ? Collections.emptyEnumeration() : super.getHeaders(name);
+		}
+
+		@Override
+		public Enumeration<String> getHeaderNames() {
+			List<String> names = Collections.list(super.getHeaderNames()).stream()
+					.filter(name -> !isHidden(name))
+					.collect(Collectors.toList());
+			return Collections.enumeration(names);
+		}
+
+		private static boolean isHidden(String name) {
+			return HttpHeaders.CONTENT_ENCODING.equalsIgnoreCase(name) || HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name);
+		}
+	}
+
+	/**
+	 * Blocking stream of the decompressed body. The non-blocking reading isn't supported, the decompressing
+	 * stream would block on a partially received frame.
+	 */
+	private static class DecompressedInputStream extends ServletInputStream {
+		private final InputStream input;
+		private final long maxBytes;
+		private long readBytes;
+		private boolean finished;
+
+		DecompressedInputStream(InputStream input, long maxBytes) {
+			this.input = input;
+			this.maxBytes = maxBytes;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int read = input.read();
+			finished = read < 0;
+			count(read < 0 ? 0 : 1);
+			return read;
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length) throws IOException {
+			int read = input.read(bytes, offset, length);
+			finished = read < 0;
+			count(read);
+			return read;
+		}
+
+		private void count(int read) {
+			if(read > 0) {
+				readBytes += read;
+				if(maxBytes > 0 && readBytes > maxBytes) {
+					throw new BodyTooLargeException("The decompressed body is longer than " + maxBytes + " bytes.");
+				}
+			}
+		}
+
+		@Override
+		public int available() throws IOException {
+			return input.available();
+		}
+
+		@Override
+		public void close() throws IOException {
+			input.close();
+		}
+
+		@Override
+		public boolean isFinished() {
+			return finished;
+		}
+
+		@Override
+		public boolean isReady() {
+			return true;
+		}
+
+		@Override
+		public void setReadListener(ReadListener listener) {
+			throw new UnsupportedOperationException("The compressed body can only be read blocking.");
+		}
+	}
+}
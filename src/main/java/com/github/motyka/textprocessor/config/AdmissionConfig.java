@@ -0,0 +1,50 @@
+package com.github.motyka.textprocessor.config;
+
+import com.github.motyka.textprocessor.admission.AdmissionControl;
+import com.github.motyka.textprocessor.admission.AdmissionFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Arrays;
+import java.util.List;
+
+@Configuration
+public class AdmissionConfig {
+	@Bean
+	public AdmissionControl admissionControl(
+			@Value("${paragraph.admission.max-in-flight-bytes:0}") long maxBytes,
+			@Value("${paragraph.admission.max-client-requests:16}") int maxClientRequests,
+			@Value("${paragraph.admission.max-queue:100}") int maxQueue,
+			@Value("${paragraph.admission.max-wait:5000}") long maxWait,
+			MeterRegistry registry) {
+		// a quarter of the heap by default, the rest is left for the caches, the documents and the jobs
+		return new AdmissionControl(maxBytes > 0 ? maxBytes : Runtime.getRuntime().maxMemory() / 4, maxClientRequests, maxQueue, maxWait, registry);
+	}
+
+	@Bean
+	public FilterRegistrationBean<AdmissionFilter> admissionFilter(AdmissionControl admission,
+			@Value("${paragraph.admission.enabled:true}") boolean enabled,
+			@Value("${paragraph.admission.copies:3}") int copies,
+			@Value("${paragraph.admission.unknown-length:1048576}") long unknownLength,
+			@Value("${paragraph.compression.max-decompressed-bytes:16777216}") long maxDecompressedBytes,
+			@Value("${paragraph.streaming.max-buffer-size:4194304}") int maxStreamingBufferSize,
+			@Value("${paragraph.admission.max-streaming-requests:4}") int maxStreamingRequests,
+			@Value("${paragraph.admission.client-header:}") String clientHeader,
+			@Value("${paragraph.admission.retry-after:1}") int retryAfter) {
+		// the streaming endpoints hold at most their buffer, 2 bytes of every character and about 1 byte of the body read into it,
+		// /jobs writes the body to a file
+		List<String> streamingPaths = Arrays.asList("/paragraphs/splitAndSearch/stream", "/paragraphs/splitAndSearch/stream/async", "/jobs");
+		long streamingBytes = 3L * maxStreamingBufferSize;
+		FilterRegistrationBean<AdmissionFilter> registration = new FilterRegistrationBean<>(
+				new AdmissionFilter(admission, copies, unknownLength, maxDecompressedBytes, streamingPaths, streamingBytes, maxStreamingRequests, clientHeader, retryAfter));
+		registration.addUrlPatterns("/paragraphs/*", "/documents/*", "/jobs", "/jobs/*");
+		// before the decompression, which hides the Content-Encoding and Content-Length
+		registration.setOrder(-1);
+		registration.setEnabled(enabled);
+		registration.setAsyncSupported(true);
+		return registration;
+	}
+}
@@ -0,0 +1,33 @@
+package com.github.motyka.textprocessor.config;
+
+import com.github.motyka.textprocessor.compression.DecompressingFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class CompressionConfig {
+	@Bean
+	public FilterRegistrationBean<DecompressingFilter> decompressingFilter(
+			@Value("${paragraph.compression.max-decompressed-bytes:16777216}") long maxBytes) {
+		// the endpoints holding the whole body in memory
+		FilterRegistrationBean<DecompressingFilter> registration = new FilterRegistrationBean<>(new DecompressingFilter(maxBytes));
+		registration.addUrlPatterns("/paragraphs/splitAndSearch", "/paragraphs/splitAndSearch/batch", "/paragraphs/splitAndSearch/offsets", "/paragraphs/splitAndSearch/page",
+				"/documents/*");
+		// after the admission control, which counts the compressed body as *maxBytes*
+		registration.setOrder(0);
+		return registration;
+	}
+
+	@Bean
+	public FilterRegistrationBean<DecompressingFilter> streamingDecompressingFilter() {
+		// the bodies are split while they are read or written to a file, so they aren't limited;
+		// not the non-blocking /paragraphs/splitAndSearch/stream/async, the decompressed body can't be read without blocking
+		FilterRegistrationBean<DecompressingFilter> registration = new FilterRegistrationBean<>(new DecompressingFilter(0));
+		registration.setName("streamingDecompressingFilter");
+		registration.addUrlPatterns("/paragraphs/splitAndSearch/stream", "/jobs");
+		registration.setOrder(0);
+		return registration;
+	}
+}
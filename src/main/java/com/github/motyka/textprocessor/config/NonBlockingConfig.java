@@ -0,0 +1,21 @@
+package com.github.motyka.textprocessor.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.motyka.textprocessor.paragraph.NonBlockingParagraphServlet;
+import com.github.motyka.textprocessor.paragraph.ParagraphService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.ServletRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class NonBlockingConfig {
+	@Bean
+	public ServletRegistrationBean<NonBlockingParagraphServlet> nonBlockingParagraphServlet(ParagraphService service, ObjectMapper objectMapper,
+			@Value("${paragraph.non-blocking.timeout:600000}") long timeout) {
+		ServletRegistrationBean<NonBlockingParagraphServlet> registration = new ServletRegistrationBean<>(
+				new NonBlockingParagraphServlet(service, objectMapper, timeout), "/paragraphs/splitAndSearch/stream/async");
+		registration.setAsyncSupported(true);
+		return registration;
+	}
+}
@@ -0,0 +1,60 @@
+package com.github.motyka.textprocessor.config;
+
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * With *--paragraph.startup.training=true* the application sends a few requests to itself right after the start
+ * and exits, so the classes loaded by the first requests are recorded in the AppCDS class list (see the cds profile
+ * of the build), not only the ones loaded by the start.
+ */
+@Configuration
+@ConditionalOnProperty(name = StartupTrainingConfig.TRAINING_PROPERTY, havingValue = "true")
+public class StartupTrainingConfig {
+
+	public static final String TRAINING_PROPERTY = "paragraph.startup.training";
+
+	private static final String TEXT = "The first paragraph. It has two sentences!\n\nThe second one, with a comma; and a semicolon.\n"
+			+ "Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor incididunt ut labore et dolore magna aliqua.";
+
+	@Bean
+	public ApplicationRunner startupTraining(Environment environment) {
+		return args -> {
+			String url = "http://localhost:" + environment.getProperty("local.server.port") + "/paragraphs/splitAndSearch";
+			String json = "{\"text\": \"" + TEXT.replace("\n", "\\n") + "\", \"searchTerm\": \"ipsum\"}";
+			post(url + "?mainLimit=40&secondaryLimit=20", "application/json", json);
+			post(url + "/offsets?mainLimit=40&secondaryLimit=20&searchTerm=ipsum", "text/plain", TEXT);
+			post(url + "/stream?mainLimit=40&secondaryLimit=20&searchTerm=ipsum", "text/plain", TEXT);
+		};
+	}
+
+	private static void post(String url, String contentType, String body) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+		try {
+			connection.setRequestMethod("POST");
+			connection.setDoOutput(true);
+			connection.setRequestProperty("Content-Type", contentType + ";charset=UTF-8");
+			try(OutputStream output = connection.getOutputStream()) {
+				output.write(body.getBytes(StandardCharsets.UTF_8));
+			}
+			if(connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+				throw new IOException("The training request " + url + " failed: " + connection.getResponseCode());
+			}
+			try(InputStream input = connection.getInputStream()) {
+				input.readAllBytes();
+			}
+		} finally {
+			connection.disconnect();
+		}
+	}
+}
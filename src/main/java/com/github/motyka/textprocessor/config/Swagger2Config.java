@@ -2,6 +2,7 @@ package com.github.motyka.textprocessor.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 import springfox.documentation.builders.ApiInfoBuilder;
 import springfox.documentation.builders.PathSelectors;
 import springfox.documentation.builders.RequestHandlerSelectors;
@@ -10,8 +11,10 @@ import springfox.documentation.spi.DocumentationType;
 import springfox.documentation.spring.web.plugins.Docket;
 import springfox.documentation.swagger2.annotations.EnableSwagger2;
 
+// the documentation scans the controllers at the start, it's left out of the fast-startup profile
 @Configuration
 @EnableSwagger2
+@Profile("!fast-startup")
 public class Swagger2Config {
 	@Bean
 	public Docket api() {
@@ -0,0 +1,20 @@
+package com.github.motyka.textprocessor.corpus;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+/**
+ * Progress of an unfinished split of a corpus. The files are numbered in the order they are walked, all the files
+ * before *next* and the files in *done* are written to the shards, which are *lengths* bytes long. Everything written
+ * after the checkpoint is truncated when the split is resumed and the files are split again.
+ */
+@Value
+@AllArgsConstructor(onConstructor_ = @JsonCreator)
+public class CorpusCheckpoint {
+	// the corpus, the options and the format, the split can only be resumed with the same ones
+	private String settings;
+	private long next;
+	private long[] done;
+	private long[] lengths;
+}
@@ -0,0 +1,64 @@
+package com.github.motyka.textprocessor.corpus;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.motyka.textprocessor.paragraph.ParagraphOffsets;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Format of the records of the files written to the shards.
+ */
+public enum CorpusFormat {
+	/**
+	 * A JSON line for every file with its path and the positions of its paragraphs, the same as the *--split* option
+	 * prints: {"path": "...", "offsets": {"start": [...], "length": [...], "contains": [...]}}.
+	 */
+	JSONL(".jsonl") {
+		@Override
+		byte[] encode(ObjectMapper objectMapper, String path, ParagraphOffsets offsets) throws IOException {
+			Map<String, Object> line = new LinkedHashMap<>();
+			line.put("path", path);
+			line.put("offsets", offsets);
+			byte[] json = objectMapper.writeValueAsBytes(line);
+			byte[] record = new byte[json.length + 1];
+			System.arraycopy(json, 0, record, 0, json.length);
+			record[json.length] = '\n';
+			return record;
+		}
+	},
+	/**
+	 * Length-prefixed records: a big-endian int with the number of bytes of the path in UTF-8, the path, an int with
+	 * the number of bytes of the paragraphs and the paragraphs encoded as varints, see {@link ParagraphOffsets#toVarints()}.
+	 */
+	BINARY(".bin") {
+		@Override
+		byte[] encode(ObjectMapper objectMapper, String path, ParagraphOffsets offsets) throws IOException {
+			byte[] name = path.getBytes(StandardCharsets.UTF_8);
+			byte[] varints = offsets.toVarints();
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(8 + name.length + varints.length);
+			DataOutputStream output = new DataOutputStream(bytes);
+			output.writeInt(name.length);
+			output.write(name);
+			output.writeInt(varints.length);
+			output.write(varints);
+			return bytes.toByteArray();
+		}
+	};
+
+	private final String extension;
+
+	CorpusFormat(String extension) {
+		this.extension = extension;
+	}
+
+	String getExtension() {
+		return extension;
+	}
+
+	abstract byte[] encode(ObjectMapper objectMapper, String path, ParagraphOffsets offsets) throws IOException;
+}
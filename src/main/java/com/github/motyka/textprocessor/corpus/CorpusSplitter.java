@@ -0,0 +1,467 @@
+package com.github.motyka.textprocessor.corpus;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.motyka.textprocessor.paragraph.ParagraphOffsets;
+import com.github.motyka.textprocessor.paragraph.ParagraphService;
+import com.github.motyka.textprocessor.paragraph.SplitRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Splits all the files of a directory tree in one process, e.g. a nightly job over millions of files, and writes
+ * the positions of their paragraphs to the shards in the output directory.
+ * <p>
+ * The files are walked in the alphabetical order and read by *io-threads* threads into a bounded queue, at most
+ * *queue-capacity* files are read but not written yet. The files are split from their UTF-8 bytes by *workers*
+ * threads and the records are written to the shard *number of the file % shards*, see {@link CorpusFormat}.
+ * <p>
+ * Every *checkpoint-interval* files the shards are flushed to the disk and their lengths are written to the checkpoint
+ * with the files written so far. If the split crashes, the next split of the same corpus into the same directory
+ * truncates the shards to the checkpoint and skips the files already written, so every file is in the output once.
+ * The corpus can't change in the meantime. The checkpoint is deleted when the split is finished.
+ */
+@Service
+public class CorpusSplitter {
+
+	public static final String CHECKPOINT = "checkpoint.json";
+	public static final String SHARD_PREFIX = "part-";
+
+	private final Logger logger = LoggerFactory.getLogger(CorpusSplitter.class);
+
+	private final ParagraphService service;
+	private final ObjectMapper objectMapper;
+	private final int ioThreads;
+	private final int workers;
+	private final int queueCapacity;
+	private final int shards;
+	private final CorpusFormat format;
+	private final long checkpointInterval;
+	private final long reportInterval;
+
+	/**
+	 * @param service
+	 * @param objectMapper
+	 * @param ioThreads threads reading the files
+	 * @param workers threads splitting the files, 0 means all available processors
+	 * @param queueCapacity files read but not written yet
+	 * @param shards number of the output files
+	 * @param format
+	 * @param checkpointInterval number of the files between the checkpoints
+	 * @param reportInterval milliseconds between the progress reports in the log
+	 */
+	public CorpusSplitter(
+			ParagraphService service,
+			ObjectMapper objectMapper,
+			@Value("${paragraph.corpus.io-threads:4}") int ioThreads,
+			@Value("${paragraph.corpus.workers:0}") int workers,
+			@Value("${paragraph.corpus.queue-capacity:256}") int queueCapacity,
+			@Value("${paragraph.corpus.shards:16}") int shards,
+			@Value("${paragraph.corpus.format:JSONL}") CorpusFormat format,
+			@Value("${paragraph.corpus.checkpoint-interval:1000}") long checkpointInterval,
+			@Value("${paragraph.corpus.report-interval:10000}") long reportInterval) {
+		if(ioThreads <= 0 || workers < 0 || queueCapacity <= 0 || shards <= 0 || checkpointInterval <= 0 || reportInterval <= 0) {
+			throw new IllegalArgumentException("The io-threads, queue-capacity, shards, checkpoint-interval and report-interval of paragraph.corpus must be greater than 0 and the workers can't be negative.");
+		}
+		this.service = service;
+		this.objectMapper = objectMapper;
+		this.ioThreads = ioThreads;
+		this.workers = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+		this.queueCapacity = queueCapacity;
+		this.shards = shards;
+		this.format = Objects.requireNonNull(format, "The format can't be null");
+		this.checkpointInterval = checkpointInterval;
+		this.reportInterval = reportInterval;
+	}
+
+	/**
+	 * Splits the files, resumes the unfinished split if there is a checkpoint in the output directory.
+	 * @param input the directory or a single file
+	 * @param output the directory of the shards and the checkpoint, it's created if it doesn't exist
+	 * @param request the search options aren't supported, see {@link ParagraphService#splitAndSearchOffsets(byte[], SplitRequest)}
+	 * @return statistics of the files split by this call
+	 * @throws IOException if the corpus can't be walked or the output can't be written, the split can be resumed then
+	 * @throws IllegalStateException if the checkpoint was written with a different corpus or options
+	 */
+	public CorpusStats split(Path input, Path output, SplitRequest request) throws IOException, InterruptedException {
+		if(!Files.exists(input)) {
+			throw new IllegalArgumentException("The corpus doesn't exist: " + input);
+		}
+		// fails fast on the invalid limits or rules instead of failing every file
+		service.splitAndSearchOffsets(new byte[0], request);
+
+		Files.createDirectories(output);
+		String settings = String.join("|", input.toAbsolutePath().normalize().toString(), format.name(), Integer.toString(shards), String.valueOf(request.getSearchTerm()),
+				String.valueOf(request.getSearchTerms()), Integer.toString(request.getMainLimit()), Integer.toString(request.getSecondaryLimit()),
+				String.valueOf(request.getRules()), String.valueOf(request.getUnit()));
+		CorpusCheckpoint checkpoint = readCheckpoint(output, settings);
+
+		Run run = new Run(input, output, settings, checkpoint, request);
+		return run.split();
+	}
+
+	private CorpusCheckpoint readCheckpoint(Path output, String settings) throws IOException {
+		Path file = output.resolve(CHECKPOINT);
+		if(!Files.exists(file)) {
+			return null;
+		}
+		CorpusCheckpoint checkpoint = objectMapper.readValue(file.toFile(), CorpusCheckpoint.class);
+		if(!checkpoint.getSettings().equals(settings) || checkpoint.getLengths().length != shards) {
+			throw new IllegalStateException("The checkpoint " + file + " is of a different split: " + checkpoint.getSettings()
+					+ ", it can be resumed only with the same corpus and options or deleted to start again.");
+		}
+		logger.info("Resuming the split from {}: {} files and {} more written", file, checkpoint.getNext(), checkpoint.getDone().length);
+		return checkpoint;
+	}
+
+	/**
+	 * Walks the files in the alphabetical order, every directory is listed only when it's reached.
+	 * @return false if the walk was stopped by the visitor
+	 */
+	private static boolean walk(Path path, FileVisitor visitor) throws IOException, InterruptedException {
+		if(Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+			List<Path> entries;
+			try(Stream<Path> list = Files.list(path)) {
+				entries = list.sorted().collect(Collectors.toList());
+			}
+			for(Path entry : entries) {
+				if(!walk(entry, visitor)) {
+					return false;
+				}
+			}
+			return true;
+		}
+		return !Files.isRegularFile(path) || visitor.visit(path);
+	}
+
+	private interface FileVisitor {
+		boolean visit(Path file) throws InterruptedException;
+	}
+
+	/**
+	 * A file read by an I/O thread, the bytes are null if it couldn't be read.
+	 */
+	private static final class LoadedFile {
+		static final LoadedFile END = new LoadedFile(-1, null, null, null);
+
+		final long number;
+		final String path;
+		final byte[] bytes;
+		final String error;
+
+		LoadedFile(long number, String path, byte[] bytes, String error) {
+			this.number = number;
+			this.path = path;
+			this.bytes = bytes;
+			this.error = error;
+		}
+	}
+
+	/**
+	 * An output file, its length is the length of the flushed file plus the buffered bytes.
+	 */
+	private static final class Shard {
+		final FileChannel channel;
+		final OutputStream output;
+		long length;
+
+		Shard(Path file, long length) throws IOException {
+			channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+			// the records written after the checkpoint are written again
+			channel.truncate(length);
+			channel.position(length);
+			output = new BufferedOutputStream(Channels.newOutputStream(channel), 65536);
+			this.length = length;
+		}
+
+		void write(byte[] record) throws IOException {
+			output.write(record);
+			length += record.length;
+		}
+
+		void sync() throws IOException {
+			output.flush();
+			channel.force(false);
+		}
+	}
+
+	/**
+	 * State of one split. The walking thread reads the files on the I/O threads, the workers split them and commit
+	 * the records: write them to the shards and mark them as written, under one lock with the checkpoints,
+	 * so a checkpoint is always consistent with the shards.
+	 */
+	private class Run {
+		private final Path input;
+		private final Path output;
+		private final String settings;
+		private final SplitRequest request;
+
+		// the files written before the split was resumed
+		private final long resumedNext;
+		private final Set<Long> resumedDone;
+
+		private final Object lock = new Object();
+		private final Shard[] outputs;
+		// all the files before it are written
+		private long next;
+		// the files after *next* which are written
+		private final TreeSet<Long> done = new TreeSet<>();
+		private long sinceCheckpoint;
+
+		// files read but not written yet
+		private final Semaphore permits = new Semaphore(queueCapacity);
+		private final BlockingQueue<LoadedFile> queue = new ArrayBlockingQueue<>(queueCapacity + workers);
+		private volatile Throwable failure;
+		// number of the next walked file, only used by the walking thread
+		private long number;
+
+		private final AtomicLong files = new AtomicLong();
+		private final AtomicLong skipped = new AtomicLong();
+		private final AtomicLong failed = new AtomicLong();
+		private final AtomicLong bytes = new AtomicLong();
+		private final AtomicLong paragraphs = new AtomicLong();
+		private final long started = System.nanoTime();
+
+		Run(Path input, Path output, String settings, CorpusCheckpoint checkpoint, SplitRequest request) throws IOException {
+			this.input = input;
+			this.output = output;
+			this.settings = settings;
+			this.request = request;
+
+			if(checkpoint != null) {
+				resumedNext = checkpoint.getNext();
+				resumedDone = Arrays.stream(checkpoint.getDone()).boxed().collect(Collectors.toSet());
+				next = resumedNext;
+				done.addAll(resumedDone);
+			} else {
+				resumedNext = 0;
+				resumedDone = Collections.emptySet();
+			}
+			outputs = new Shard[shards];
+			try {
+				for(int i = 0; i < shards; i++) {
+					outputs[i] = new Shard(output.resolve(String.format("%s%05d%s", SHARD_PREFIX, i, format.getExtension())),
+							checkpoint != null ? checkpoint.getLengths()[i] : 0);
+				}
+			} catch(IOException ex) {
+				close();
+				throw ex;
+			}
+		}
+
+		CorpusStats split() throws IOException, InterruptedException {
+			ExecutorService readers = Executors.newFixedThreadPool(ioThreads);
+			ExecutorService splitters = Executors.newFixedThreadPool(workers);
+			ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+			boolean finished = false;
+			try {
+				for(int i = 0; i < workers; i++) {
+					splitters.execute(this::work);
+				}
+				reporter.scheduleWithFixedDelay(() -> logger.info("Split {}", stats()), reportInterval, reportInterval, TimeUnit.MILLISECONDS);
+
+				try {
+					walk(input, file -> read(readers, file));
+				} finally {
+					readers.shutdown();
+					readers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+					for(int i = 0; i < workers; i++) {
+						queue.put(LoadedFile.END);
+					}
+					splitters.shutdown();
+					splitters.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+				}
+				if(failure != null) {
+					throw new IOException("The split failed, it can be resumed from " + output.resolve(CHECKPOINT), failure);
+				}
+				finish();
+				finished = true;
+			} finally {
+				reporter.shutdownNow();
+				if(!finished) {
+					// the walk or the split failed, it can be resumed from the files written so far
+					checkpointQuietly();
+				}
+				close();
+			}
+			CorpusStats stats = stats();
+			logger.info("Split {}", stats);
+			return stats;
+		}
+
+		private boolean read(ExecutorService readers, Path file) throws InterruptedException {
+			long current = number++;
+			if(current < resumedNext || resumedDone.contains(current)) {
+				skipped.incrementAndGet();
+				return true;
+			}
+			permits.acquire();
+			if(failure != null) {
+				permits.release();
+				return false;
+			}
+			// the corpus can be a single file
+			String relative = input.relativize(file).toString();
+			String path = relative.isEmpty() ? file.getFileName().toString() : relative;
+			readers.execute(() -> {
+				LoadedFile loaded;
+				try {
+					loaded = new LoadedFile(current, path, Files.readAllBytes(file), null);
+				} catch(IOException | OutOfMemoryError ex) {
+					// e.g. deleted in the meantime or bigger than 2GB
+					loaded = new LoadedFile(current, path, null, ex.toString());
+				}
+				// never blocks, there are at most queue-capacity files read
+				queue.add(loaded);
+			});
+			return true;
+		}
+
+		private void work() {
+			while(true) {
+				LoadedFile file;
+				try {
+					file = queue.take();
+				} catch(InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+				if(file == LoadedFile.END) {
+					return;
+				}
+				try {
+					// after a failure the remaining files are only dropped, they are split again when the split is resumed
+					if(failure == null) {
+						split(file);
+					}
+				} catch(Throwable ex) {
+					logger.error("The split of {} failed", file.path, ex);
+					failure = ex;
+				} finally {
+					permits.release();
+				}
+			}
+		}
+
+		private void split(LoadedFile file) throws IOException {
+			byte[] record = null;
+			String error = file.error;
+			int count = 0;
+			if(file.bytes != null) {
+				try {
+					ParagraphOffsets offsets = service.splitAndSearchOffsets(file.bytes, request);
+					record = format.encode(objectMapper, file.path, offsets);
+					count = offsets.size();
+				} catch(RuntimeException ex) {
+					error = ex.toString();
+				}
+			}
+			if(error != null) {
+				logger.warn("The file {} was skipped: {}", file.path, error);
+				failed.incrementAndGet();
+			} else {
+				files.incrementAndGet();
+				bytes.addAndGet(file.bytes.length);
+				paragraphs.addAndGet(count);
+			}
+			commit(file.number, record);
+		}
+
+		private void commit(long file, byte[] record) throws IOException {
+			synchronized(lock) {
+				if(record != null) {
+					outputs[(int) (file % outputs.length)].write(record);
+				}
+				done.add(file);
+				while(done.remove(next)) {
+					next++;
+				}
+				if(++sinceCheckpoint >= checkpointInterval) {
+					checkpoint();
+				}
+			}
+		}
+
+		private void checkpoint() throws IOException {
+			synchronized(lock) {
+				long[] lengths = new long[outputs.length];
+				for(int i = 0; i < outputs.length; i++) {
+					outputs[i].sync();
+					lengths[i] = outputs[i].length;
+				}
+				long[] written = done.stream().mapToLong(Long::longValue).toArray();
+				Path file = output.resolve(CHECKPOINT);
+				Path temporary = output.resolve(CHECKPOINT + ".tmp");
+				try(FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+					channel.write(ByteBuffer.wrap(objectMapper.writeValueAsBytes(new CorpusCheckpoint(settings, next, written, lengths))));
+					channel.force(false);
+				}
+				Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				sinceCheckpoint = 0;
+			}
+		}
+
+		private void checkpointQuietly() {
+			try {
+				checkpoint();
+			} catch(IOException | UncheckedIOException ex) {
+				logger.error("The checkpoint couldn't be written, the split will be resumed from the previous one", ex);
+			}
+		}
+
+		private void finish() throws IOException {
+			synchronized(lock) {
+				for(Shard shard : outputs) {
+					shard.sync();
+				}
+				Files.deleteIfExists(output.resolve(CHECKPOINT));
+			}
+		}
+
+		private void close() {
+			for(Shard shard : outputs) {
+				if(shard != null) {
+					try {
+						shard.output.close();
+					} catch(IOException ex) {
+						logger.warn("The shard couldn't be closed", ex);
+					}
+				}
+			}
+		}
+
+		private CorpusStats stats() {
+			return new CorpusStats(files.get(), skipped.get(), failed.get(), bytes.get(), paragraphs.get(), (System.nanoTime() - started) / 1e9);
+		}
+	}
+}
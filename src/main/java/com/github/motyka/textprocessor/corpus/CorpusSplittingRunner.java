@@ -0,0 +1,57 @@
+package com.github.motyka.textprocessor.corpus;
+
+import com.github.motyka.textprocessor.paragraph.OffsetUnit;
+import com.github.motyka.textprocessor.paragraph.SplitRequest;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Splits the corpus given in the command line with the *--corpus* option into the shards in the *--output* directory, e.g.
+ * *--corpus=/data/books --output=/data/paragraphs --searchTerm=ipsum --mainLimit=1200 --secondaryLimit=800 --paragraph.corpus.shards=64*,
+ * see {@link CorpusSplitter}. The statistics are printed when it's finished, running it again after a crash resumes it.
+ */
+@Component
+public class CorpusSplittingRunner implements ApplicationRunner {
+
+	public static final String CORPUS_OPTION = "corpus";
+
+	private final CorpusSplitter splitter;
+
+	public CorpusSplittingRunner(CorpusSplitter splitter) {
+		this.splitter = splitter;
+	}
+
+	@Override
+	public void run(ApplicationArguments args) throws Exception {
+		if(!args.containsOption(CORPUS_OPTION)) {
+			return;
+		}
+		String output = option(args, "output", null);
+		if(output == null) {
+			throw new IllegalArgumentException("The --output directory of the corpus is missing.");
+		}
+		String searchTerm = option(args, "searchTerm", null);
+		String searchTerms = option(args, "searchTerms", null);
+		List<String> terms = searchTerms == null ? null : Arrays.asList(searchTerms.split(","));
+		int mainLimit = Integer.parseInt(option(args, "mainLimit", "1200"));
+		int secondaryLimit = Integer.parseInt(option(args, "secondaryLimit", "800"));
+		String rules = option(args, "rules", null);
+		OffsetUnit units = OffsetUnit.valueOf(option(args, "units", OffsetUnit.CHARS.name()));
+
+		SplitRequest request = SplitRequest.builder().searchTerm(searchTerm).searchTerms(terms).mainLimit(mainLimit).secondaryLimit(secondaryLimit)
+				.rules(rules).unit(units).build();
+
+		CorpusStats stats = splitter.split(Paths.get(option(args, CORPUS_OPTION, null)), Paths.get(output), request);
+		System.out.println(stats);
+	}
+
+	private String option(ApplicationArguments args, String name, String defaultValue) {
+		List<String> values = args.getOptionValues(name);
+		return values == null || values.isEmpty() ? defaultValue : values.get(0);
+	}
+}
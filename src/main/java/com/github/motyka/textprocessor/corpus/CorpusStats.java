@@ -0,0 +1,30 @@
+package com.github.motyka.textprocessor.corpus;
+
+import lombok.Value;
+
+/**
+ * Statistics of a split of a corpus, only of the files split by this run, not the ones skipped after resuming it.
+ */
+@Value
+public class CorpusStats {
+	private long files;
+	private long skipped;
+	private long failed;
+	private long bytes;
+	private long paragraphs;
+	private double seconds;
+
+	public double getFilesPerSecond() {
+		return seconds > 0 ? files / seconds : 0;
+	}
+
+	public double getMegabytesPerSecond() {
+		return seconds > 0 ? bytes / 1048576.0 / seconds : 0;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d files (%d skipped, %d failed), %.1f MB, %d paragraphs in %.1f s: %.1f files/s, %.1f MB/s",
+				files, skipped, failed, bytes / 1048576.0, paragraphs, seconds, getFilesPerSecond(), getMegabytesPerSecond());
+	}
+}
@@ -0,0 +1,26 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import lombok.AllArgsConstructor;
+import lombok.ToString;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Document of the batch, the results are returned by its id.
+ */
+@Value
+@AllArgsConstructor(onConstructor_ = @JsonCreator)
+public class BatchItem {
+	private String id;
+	// can be the whole document, so it isn't logged
+	@ToString.Exclude
+	private String text;
+	private String searchTerm;
+	private List<String> searchTerms;
+
+	public BatchItem(String id, String text, String searchTerm) {
+		this(id, text, searchTerm, null);
+	}
+}
@@ -0,0 +1,24 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Paragraphs of the document of the batch or the reason why it couldn't be split.
+ */
+@Value
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchResult {
+	private List<Paragraph> paragraphs;
+	private String error;
+
+	static BatchResult of(List<Paragraph> paragraphs) {
+		return new BatchResult(paragraphs, null);
+	}
+
+	static BatchResult error(String error) {
+		return new BatchResult(null, error);
+	}
+}
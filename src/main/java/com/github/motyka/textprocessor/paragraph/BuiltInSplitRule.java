@@ -0,0 +1,132 @@
+package com.github.motyka.textprocessor.paragraph;
+
+/**
+ * The rules of the default chain (NEW_LINE, DOT, PUNCTUATION, SPACE), which give the same paragraphs
+ * as {@link RegexSplittingEngine}, and the rules for the other chains.
+ */
+public enum BuiltInSplitRule implements SplitRule {
+	/**
+	 * Line break of the chain, LF by default.
+	 */
+	NEW_LINE(SplitReason.NEW_LINE) {
+		@Override
+		public boolean isSeparator(char ch) {
+			return ch == '\n';
+		}
+
+		@Override
+		public boolean isLineBreak() {
+			return true;
+		}
+	},
+	/**
+	 * Dot after a word in the same line.
+	 */
+	DOT(SplitReason.DOT) {
+		@Override
+		public boolean isSeparator(char ch) {
+			return ch == '.';
+		}
+
+		@Override
+		public boolean isIncluded() {
+			return true;
+		}
+
+		@Override
+		public boolean isAfterWord() {
+			return true;
+		}
+	},
+	PUNCTUATION(SplitReason.PUNCTUATION) {
+		@Override
+		public boolean isSeparator(char ch) {
+			return ScanningSplittingEngine.isPunctuation(ch);
+		}
+
+		@Override
+		public boolean isIncluded() {
+			return true;
+		}
+	},
+	SPACE(SplitReason.SPACE) {
+		@Override
+		public boolean isSeparator(char ch) {
+			return ch == ' ';
+		}
+	},
+	/**
+	 * '.', '?' or '!' after a word, followed by a whitespace, so the URLs, numbers and abbreviations like "e.g."
+	 * aren't split.
+	 */
+	SENTENCE_END(SplitReason.DOT) {
+		@Override
+		public boolean isSeparator(char ch) {
+			return ch == '.' || ch == '?' || ch == '!';
+		}
+
+		@Override
+		public boolean isIncluded() {
+			return true;
+		}
+
+		@Override
+		public boolean isAfterWord() {
+			return true;
+		}
+
+		@Override
+		public boolean isBeforeWhitespace() {
+			return true;
+		}
+	},
+	/**
+	 * Punctuation followed by a whitespace, unlike PUNCTUATION it never splits a URL.
+	 */
+	PUNCTUATION_BEFORE_SPACE(SplitReason.PUNCTUATION) {
+		@Override
+		public boolean isSeparator(char ch) {
+			return ScanningSplittingEngine.isPunctuation(ch);
+		}
+
+		@Override
+		public boolean isIncluded() {
+			return true;
+		}
+
+		@Override
+		public boolean isBeforeWhitespace() {
+			return true;
+		}
+	},
+	/**
+	 * Markdown heading, the paragraph ends before the line starting with '#'.
+	 */
+	HEADING(SplitReason.NEW_LINE) {
+		@Override
+		public boolean isSeparator(char ch) {
+			return ch == '#';
+		}
+
+		@Override
+		public boolean isLineStart() {
+			return true;
+		}
+	};
+
+	private final SplitReason reason;
+
+	BuiltInSplitRule(SplitReason reason) {
+		this.reason = reason;
+	}
+
+	@Override
+	public String getName() {
+		return name();
+	}
+
+	@Override
+	public SplitReason getReason() {
+		return reason;
+	}
+}
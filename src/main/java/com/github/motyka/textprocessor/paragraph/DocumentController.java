@@ -0,0 +1,87 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Documents stored on the server to be searched many times without splitting them again, see {@link DocumentStore}.
+ */
+@RestController
+@RequestMapping("documents")
+public class DocumentController {
+
+	private final Logger logger = LoggerFactory.getLogger(DocumentController.class);
+
+	private DocumentStore store;
+
+	public DocumentController(DocumentStore store) {
+		this.store = store;
+	}
+
+	@PutMapping(value = "/{id}", consumes = MediaType.TEXT_PLAIN_VALUE)
+	public DocumentInfo store(
+			@PathVariable String id,
+			@RequestBody String text,
+			@RequestParam(defaultValue = "1200") int mainLimit,
+			@RequestParam(defaultValue = "800") int secondaryLimit,
+			@RequestParam(required = false) SplittingStrategy strategy) throws IOException {
+		logger.debug("store: {}, mainLimit: {}, secondaryLimit: {}, strategy: {}", id, mainLimit, secondaryLimit, strategy);
+		try {
+			return store.store(id, text, mainLimit, secondaryLimit, strategy);
+		} catch(NullPointerException | IllegalArgumentException ex) {
+			throw new ParagraphSplittingException(ex);
+		}
+	}
+
+	/**
+	 * Applies the edits to the stored document and returns the changed paragraphs, 409 if the document
+	 * has another version than the edits were made to. The changed paragraphs containing the search term are marked.
+	 */
+	@PostMapping(value = "/{id}/edits", consumes = MediaType.APPLICATION_JSON_VALUE)
+	public DocumentDiff edit(@PathVariable String id, @RequestBody DocumentEdit edit, @RequestParam(required = false) String searchTerm) throws IOException {
+		logger.debug("edit: {}, version: {}, {}", id, edit.getVersion(), searchTerm);
+		try {
+			return store.edit(id, edit.getVersion(), edit.getEdits(), searchTerm);
+		} catch(NullPointerException | IllegalArgumentException ex) {
+			throw new ParagraphSplittingException(ex);
+		}
+	}
+
+	@GetMapping("/{id}")
+	public DocumentInfo info(@PathVariable String id) {
+		try {
+			return store.info(id);
+		} catch(NullPointerException | IllegalArgumentException ex) {
+			throw new ParagraphSplittingException(ex);
+		}
+	}
+
+	/**
+	 * Returns the paragraphs of the stored document containing the search term.
+	 */
+	@GetMapping("/{id}/search")
+	public List<Paragraph> search(@PathVariable String id, @RequestParam String searchTerm) {
+		logger.debug("search: {}, {}", id, searchTerm);
+		try {
+			return store.search(id, searchTerm);
+		} catch(NullPointerException | IllegalArgumentException ex) {
+			throw new ParagraphSplittingException(ex);
+		}
+	}
+
+	@DeleteMapping("/{id}")
+	@ResponseStatus(HttpStatus.NO_CONTENT)
+	public void delete(@PathVariable String id) throws IOException {
+		try {
+			store.delete(id);
+		} catch(NullPointerException | IllegalArgumentException ex) {
+			throw new ParagraphSplittingException(ex);
+		}
+	}
+}
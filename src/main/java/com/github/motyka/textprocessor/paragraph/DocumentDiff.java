@@ -0,0 +1,16 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Changes of the paragraphs of an edited document, one for every edit in the order of the edits.
+ */
+@Value
+public class DocumentDiff {
+	private String id;
+	// the new version of the document
+	private int version;
+	private List<ParagraphChange> changes;
+}
@@ -0,0 +1,18 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Edits of a stored document, they are applied in order.
+ */
+@Value
+@AllArgsConstructor(onConstructor_ = @JsonCreator)
+public class DocumentEdit {
+	// the version the edits were made to, the document isn't changed if it has another one
+	private int version;
+	private List<TextEdit> edits;
+}
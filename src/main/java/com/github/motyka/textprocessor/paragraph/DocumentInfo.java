@@ -0,0 +1,19 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import lombok.Value;
+
+/**
+ * Stored document without its text and paragraphs.
+ */
+@Value
+public class DocumentInfo {
+	private String id;
+	// 1 when the document is stored, incremented by every edit
+	private int version;
+	private int length;
+	private int paragraphs;
+	private int mainLimit;
+	private int secondaryLimit;
+	// approximate size of the document and its index in memory in bytes
+	private long weight;
+}
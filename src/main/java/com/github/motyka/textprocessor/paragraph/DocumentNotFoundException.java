@@ -0,0 +1,11 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class DocumentNotFoundException extends RuntimeException {
+	public DocumentNotFoundException(String id) {
+		super("The document doesn't exist: " + id);
+	}
+}
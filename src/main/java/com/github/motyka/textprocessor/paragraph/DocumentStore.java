@@ -0,0 +1,319 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.motyka.textprocessor.search.NgramIndex;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the documents which are searched many times. A document is split once when it is stored and its paragraphs
+ * are indexed by {@link NgramIndex}, so a search only checks the paragraphs containing all trigrams of the term
+ * instead of splitting and scanning the whole document again.
+ * <p>
+ * The documents in memory are bounded by the approximate size of their text and index in bytes, they are evicted
+ * by Caffeine's W-TinyLFU policy. If the directory is set, the documents are also written there and the evicted ones
+ * (or all of them after a restart) are read back from it when they are searched, without splitting them again.
+ * Without the directory the evicted documents are lost and have to be stored again.
+ * <p>
+ * The edits of a document re-split and index only the paragraphs around them, see {@link IncrementalSplitter},
+ * and return the changes of the paragraphs, so an editor doesn't have to send and split the whole document after
+ * every change. In the directory the edits are appended to the log of the document, which is replayed when
+ * the document is read. The document is written whole again only when its log is longer than its text.
+ */
+@Service
+public class DocumentStore {
+
+	private static final Pattern ID = Pattern.compile("[A-Za-z0-9][A-Za-z0-9._-]{0,127}");
+	private static final String EXTENSION = ".idx";
+	private static final String LOG_EXTENSION = ".log";
+
+	private final Logger logger = LoggerFactory.getLogger(DocumentStore.class);
+
+	private final ParagraphService service;
+	private final long maxWeight;
+	// null if the documents are only kept in memory
+	private final Path directory;
+	private final Cache<String, StoredDocument> documents;
+
+	public DocumentStore(
+			ParagraphService service,
+			@Value("${document.store.max-weight:268435456}") long maxWeight,
+			@Value("${document.store.directory:}") String directory,
+			MeterRegistry registry) throws IOException {
+		this.service = service;
+		this.maxWeight = maxWeight;
+		this.directory = directory == null || directory.isEmpty() ? null : Files.createDirectories(Paths.get(directory));
+		documents = Caffeine.newBuilder()
+				.maximumWeight(maxWeight)
+				.weigher((String id, StoredDocument document) -> (int) Math.min(Integer.MAX_VALUE, document.weight()))
+				.recordStats()
+				.build();
+		// cache.gets{cache="document.store", result="hit|miss"}, cache.evictions, cache.size ...
+		CaffeineCacheMetrics.monitor(registry, documents, "document.store");
+	}
+
+	/**
+	 * Splits and indexes the document, the document with the same id is replaced.
+	 * @param id letters, digits, '.', '_' and '-', at most 128 characters
+	 * @param text
+	 * @param mainLimit
+	 * @param secondaryLimit
+	 * @param strategy
+	 * @return
+	 * @throws IOException if the document can't be written to the directory
+	 */
+	public DocumentInfo store(String id, String text, int mainLimit, int secondaryLimit, SplittingStrategy strategy) throws IOException {
+		logger.debug("store document {} {} - {} using {}", id, secondaryLimit, mainLimit, strategy);
+
+		validate(id);
+		Objects.requireNonNull(text, "The text can't be null");
+		// the text alone is checked before it is split and the paragraphs before they are indexed
+		checkWeight(StoredDocument.weight(text.length(), 0));
+		ParagraphOffsets offsets = service.splitAndSearchOffsets(text, SplitRequest.builder().mainLimit(mainLimit).secondaryLimit(secondaryLimit).strategy(strategy).build());
+		checkWeight(StoredDocument.weight(text.length(), offsets.size()));
+		int[] starts = new int[offsets.size()];
+		for(int i = 0; i < starts.length; i++) {
+			starts[i] = (int) offsets.getStart()[i];
+		}
+		StoredDocument document = new StoredDocument(id, 1, text, mainLimit, secondaryLimit, starts, offsets.getLength(),
+				NgramIndex.build(text, starts, offsets.getLength()));
+		checkWeight(document.weight());
+
+		if(directory != null) {
+			// the edits of the replaced document can't be replayed on this one
+			Files.deleteIfExists(log(id));
+		}
+		write(id, document);
+		documents.put(id, document);
+		return document.info();
+	}
+
+	private void checkWeight(long weight) {
+		if(weight > maxWeight) {
+			throw new IllegalArgumentException("The document is bigger than document.store.max-weight: " + weight);
+		}
+	}
+
+	/**
+	 * Applies the edits to the document, only the paragraphs around every edit are split and indexed again.
+	 * @param id
+	 * @param version the current version of the document, the edits were made to it
+	 * @param edits
+	 * @param searchTerm the changed paragraphs containing it are marked, so an editor keeps showing the results
+	 * of its search, can be null
+	 * @return the new version and the changes of the paragraphs
+	 * @throws IOException if the edits can't be written to the directory
+	 * @throws DocumentVersionException if the document has another version, e.g. it was edited concurrently
+	 */
+	public DocumentDiff edit(String id, int version, List<TextEdit> edits, String searchTerm) throws IOException {
+		logger.debug("edit document {} version {} with {} edits", id, version, edits == null ? 0 : edits.size());
+
+		Objects.requireNonNull(edits, "The edits can't be null");
+		StoredDocument document = get(id);
+		// the edits of the same version wait for each other, all but the first one get the conflict
+		synchronized(document) {
+			if(document.getVersion() != version || documents.asMap().get(id) != document) {
+				throw new DocumentVersionException(id, documents.asMap().getOrDefault(id, document).getVersion(), version);
+			}
+			long weight = document.weight() + StoredDocument.EDIT_WEIGHT * document.validate(edits);
+			if(weight > maxWeight) {
+				throw new IllegalArgumentException("The edited document can be bigger than document.store.max-weight: " + weight);
+			}
+			// logged before they are applied, so the document in memory is never ahead of the directory
+			long logLength = log(id, version + 1, edits);
+			List<ParagraphChange> changes = new ArrayList<>();
+			document.edit(edits, searchTerm, changes);
+			if(logLength > document.getLength()) {
+				write(id, document);
+				Files.delete(log(id));
+			}
+			// weighed again
+			documents.asMap().replace(id, document, document);
+			return new DocumentDiff(id, document.getVersion(), changes);
+		}
+	}
+
+	/**
+	 * @param id
+	 * @param searchTerm
+	 * @return paragraphs containing the search term in the order of the document
+	 */
+	public List<Paragraph> search(String id, String searchTerm) {
+		logger.debug("search document {} for:{}", id, searchTerm);
+
+		if(searchTerm == null || searchTerm.isEmpty()) {
+			throw new IllegalArgumentException("The search term can't be empty.");
+		}
+		return get(id).search(searchTerm);
+	}
+
+	public DocumentInfo info(String id) {
+		return get(id).info();
+	}
+
+	/**
+	 * @param id
+	 * @throws IOException if the document can't be deleted from the directory
+	 */
+	public void delete(String id) throws IOException {
+		validate(id);
+		boolean deleted = documents.asMap().remove(id) != null;
+		if(directory != null) {
+			deleted |= Files.deleteIfExists(file(id));
+			Files.deleteIfExists(log(id));
+		}
+		if(!deleted) {
+			throw new DocumentNotFoundException(id);
+		}
+	}
+
+	private StoredDocument get(String id) {
+		validate(id);
+		StoredDocument document = documents.get(id, this::read);
+		if(document == null) {
+			throw new DocumentNotFoundException(id);
+		}
+		return document;
+	}
+
+	/**
+	 * @param id
+	 * @return the document from the directory with the edits of its log or null if it isn't there
+	 */
+	private StoredDocument read(String id) {
+		if(directory == null || !Files.exists(file(id))) {
+			return null;
+		}
+		logger.debug("read document {}", id);
+		StoredDocument document;
+		try(DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file(id))))) {
+			document = StoredDocument.read(input);
+		} catch(IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+		if(Files.exists(log(id))) {
+			replay(id, document);
+		}
+		return document;
+	}
+
+	private void replay(String id, StoredDocument document) {
+		long replayed = 0;
+		try(DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(log(id))))) {
+			while(true) {
+				int version;
+				try {
+					version = input.readInt();
+				} catch(EOFException ex) {
+					return;
+				}
+				List<TextEdit> edits = new ArrayList<>();
+				long length = 8;
+				for(int count = input.readInt(); count > 0; count--) {
+					int offset = input.readInt();
+					int deleted = input.readInt();
+					byte[] inserted = new byte[input.readInt()];
+					input.readFully(inserted);
+					edits.add(new TextEdit(offset, deleted, new String(inserted, StandardCharsets.UTF_8)));
+					length += 12 + inserted.length;
+				}
+				// the edits written before the document were already applied to it
+				if(version > document.getVersion()) {
+					document.validate(edits);
+					document.edit(edits, null, new ArrayList<>());
+				}
+				replayed += length;
+			}
+		} catch(EOFException ex) {
+			// the last edits were written partially and never applied, the next ones are appended after the complete ones
+			logger.warn("truncated the log of the document {} after {} bytes", id, replayed);
+			try(FileChannel channel = FileChannel.open(log(id), StandardOpenOption.WRITE)) {
+				channel.truncate(replayed);
+			} catch(IOException truncateException) {
+				throw new UncheckedIOException(truncateException);
+			}
+		} catch(IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	/**
+	 * Appends the edits to the log of the document.
+	 * @param id
+	 * @param version the version of the document after the edits
+	 * @param edits
+	 * @return the length of the log in bytes, 0 if the documents aren't written to the directory
+	 * @throws IOException
+	 */
+	private long log(String id, int version, List<TextEdit> edits) throws IOException {
+		if(directory == null) {
+			return 0;
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream output = new DataOutputStream(bytes);
+		output.writeInt(version);
+		output.writeInt(edits.size());
+		for(TextEdit edit : edits) {
+			byte[] inserted = Objects.toString(edit.getInserted(), "").getBytes(StandardCharsets.UTF_8);
+			output.writeInt(edit.getOffset());
+			output.writeInt(edit.getDeleted());
+			output.writeInt(inserted.length);
+			output.write(inserted);
+		}
+		// in one write, so the log ends with a partial record only after a crash
+		Files.write(log(id), bytes.toByteArray(), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+		return Files.size(log(id));
+	}
+
+	private void write(String id, StoredDocument document) throws IOException {
+		if(directory != null) {
+			// written whole before it replaces the previous version, so a restart never reads a partial file
+			Path temporary = Files.createTempFile(directory, id, ".tmp");
+			try(DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+				document.write(output);
+			}
+			Files.move(temporary, file(id), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+	}
+
+	private Path file(String id) {
+		return directory.resolve(id + EXTENSION);
+	}
+
+	private Path log(String id) {
+		return directory.resolve(id + LOG_EXTENSION);
+	}
+
+	private void validate(String id) {
+		Objects.requireNonNull(id, "The id of the document can't be null");
+		// the id is the name of the file
+		if(!ID.matcher(id).matches()) {
+			throw new IllegalArgumentException("The id can only contain letters, digits, '.', '_' and '-': " + id);
+		}
+	}
+}
@@ -0,0 +1,11 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class DocumentVersionException extends RuntimeException {
+	public DocumentVersionException(String id, int version, int expected) {
+		super("The document " + id + " has the version " + version + ", not " + expected);
+	}
+}
@@ -0,0 +1,231 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import java.util.Arrays;
+
+/**
+ * Positions of the paragraphs of {@link StoredDocument}, also a gap buffer kept between the edits: the paragraphs
+ * after the gap keep their starts relative to the end of the text, so they are moved by the following edits before
+ * them without touching them. An edit only moves the paragraphs between the previous edit and this one.
+ * <p>
+ * Every paragraph has an id which doesn't change while it isn't edited, the index of the document refers
+ * to the paragraphs by these ids. A split paragraph gets a new id, the ids aren't reused.
+ */
+final class EditedParagraphs {
+
+	private static final int GAP = 16;
+
+	private int[] starts;
+	private int[] lengths;
+	private int[] ids;
+	private int gapStart;
+	private int gapEnd;
+	// the starts after the gap are kept minus the length of the text
+	private int textLength;
+	// the positions in the arrays by the ids, only the ones of the current paragraphs are valid
+	private int[] positions;
+	private int nextId;
+
+	/**
+	 * The paragraph *i* has the id *i*.
+	 */
+	EditedParagraphs(int[] starts, int[] lengths, int textLength) {
+		this(starts, lengths, identity(starts.length), starts.length, textLength);
+	}
+
+	/**
+	 * @param starts
+	 * @param lengths
+	 * @param ids
+	 * @param nextId greater than all ids ever given to the paragraphs
+	 * @param textLength
+	 */
+	EditedParagraphs(int[] starts, int[] lengths, int[] ids, int nextId, int textLength) {
+		this.starts = Arrays.copyOf(starts, starts.length + GAP);
+		this.lengths = Arrays.copyOf(lengths, lengths.length + GAP);
+		this.ids = Arrays.copyOf(ids, ids.length + GAP);
+		this.gapStart = starts.length;
+		this.gapEnd = this.starts.length;
+		this.textLength = textLength;
+		this.nextId = nextId;
+		this.positions = new int[nextId + GAP];
+		for(int i = 0; i < ids.length; i++) {
+			positions[ids[i]] = i;
+		}
+	}
+
+	private static int[] identity(int size) {
+		int[] ids = new int[size];
+		Arrays.setAll(ids, i -> i);
+		return ids;
+	}
+
+	int size() {
+		return starts.length - (gapEnd - gapStart);
+	}
+
+	int start(int index) {
+		return index < gapStart ? starts[index] : starts[index + gapEnd - gapStart] + textLength;
+	}
+
+	int length(int index) {
+		return lengths[index < gapStart ? index : index + gapEnd - gapStart];
+	}
+
+	int id(int index) {
+		return ids[index < gapStart ? index : index + gapEnd - gapStart];
+	}
+
+	/**
+	 * @param id of a current paragraph
+	 * @return its index
+	 */
+	int index(int id) {
+		int position = positions[id];
+		return position < gapStart ? position : position - (gapEnd - gapStart);
+	}
+
+	/**
+	 * @return the id the next new paragraph gets
+	 */
+	int nextId() {
+		return nextId;
+	}
+
+	/**
+	 * @param position
+	 * @return index of the first paragraph starting at or after the position
+	 */
+	int firstFrom(int position) {
+		int low = 0;
+		int high = size();
+		while(low < high) {
+			int middle = (low + high) >>> 1;
+			if(start(middle) < position) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Replaces the paragraphs changed by the edit, the length of the text changes by the shift of the change.
+	 * The new paragraphs get the next ids.
+	 * @param change
+	 * @return ids of the removed paragraphs
+	 */
+	int[] apply(IncrementalSplitter.Change change) {
+		moveGap(change.first + change.removed);
+		int[] removed = Arrays.copyOfRange(ids, change.first, gapStart);
+		gapStart = change.first;
+		int count = change.starts.length;
+		if(count > gapEnd - gapStart) {
+			grow(count);
+		}
+		if(nextId + count > positions.length) {
+			positions = Arrays.copyOf(positions, Math.max(positions.length * 2, nextId + count));
+		}
+		System.arraycopy(change.starts, 0, starts, gapStart, count);
+		System.arraycopy(change.lengths, 0, lengths, gapStart, count);
+		for(int i = 0; i < count; i++) {
+			ids[gapStart + i] = nextId;
+			positions[nextId++] = gapStart + i;
+		}
+		gapStart += count;
+		textLength += change.shift;
+		return removed;
+	}
+
+	private void moveGap(int index) {
+		if(index < gapStart) {
+			int moved = gapStart - index;
+			System.arraycopy(lengths, index, lengths, gapEnd - moved, moved);
+			System.arraycopy(ids, index, ids, gapEnd - moved, moved);
+			// backwards, the moved paragraphs can overlap their new positions
+			for(int i = moved - 1; i >= 0; i--) {
+				starts[gapEnd - moved + i] = starts[index + i] - textLength;
+				positions[ids[gapEnd - moved + i]] = gapEnd - moved + i;
+			}
+			gapEnd -= moved;
+		} else if(index > gapStart) {
+			int moved = index - gapStart;
+			System.arraycopy(lengths, gapEnd, lengths, gapStart, moved);
+			System.arraycopy(ids, gapEnd, ids, gapStart, moved);
+			for(int i = 0; i < moved; i++) {
+				starts[gapStart + i] = starts[gapEnd + i] + textLength;
+				positions[ids[gapStart + i]] = gapStart + i;
+			}
+			gapEnd += moved;
+		}
+		gapStart = index;
+	}
+
+	private void grow(int inserted) {
+		int after = starts.length - gapEnd;
+		int capacity = Math.max(starts.length * 2, size() + inserted + GAP);
+		int[] grownStarts = new int[capacity];
+		int[] grownLengths = new int[capacity];
+		int[] grownIds = new int[capacity];
+		System.arraycopy(starts, 0, grownStarts, 0, gapStart);
+		System.arraycopy(lengths, 0, grownLengths, 0, gapStart);
+		System.arraycopy(ids, 0, grownIds, 0, gapStart);
+		System.arraycopy(starts, gapEnd, grownStarts, capacity - after, after);
+		System.arraycopy(lengths, gapEnd, grownLengths, capacity - after, after);
+		System.arraycopy(ids, gapEnd, grownIds, capacity - after, after);
+		starts = grownStarts;
+		lengths = grownLengths;
+		ids = grownIds;
+		gapEnd = capacity - after;
+		for(int i = gapEnd; i < capacity; i++) {
+			positions[ids[i]] = i;
+		}
+	}
+
+	/**
+	 * @return the starts of all the paragraphs
+	 */
+	int[] starts() {
+		int[] result = new int[size()];
+		for(int i = 0; i < result.length; i++) {
+			result[i] = start(i);
+		}
+		return result;
+	}
+
+	/**
+	 * @return the lengths of all the paragraphs
+	 */
+	int[] lengths() {
+		return withoutGap(lengths);
+	}
+
+	/**
+	 * @return the ids of all the paragraphs
+	 */
+	int[] ids() {
+		return withoutGap(ids);
+	}
+
+	private int[] withoutGap(int[] values) {
+		int[] result = new int[size()];
+		System.arraycopy(values, 0, result, 0, gapStart);
+		System.arraycopy(values, gapEnd, result, gapStart, result.length - gapStart);
+		return result;
+	}
+
+	/**
+	 * @return approximate size of the positions in bytes
+	 */
+	long weight() {
+		return 64 + 12L * starts.length + 4L * positions.length;
+	}
+
+	/**
+	 * @param paragraphs
+	 * @return approximate size of new positions of the paragraphs in bytes
+	 */
+	static long weight(int paragraphs) {
+		return 64 + 16L * (paragraphs + GAP);
+	}
+}
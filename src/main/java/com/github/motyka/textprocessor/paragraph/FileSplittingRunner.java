@@ -0,0 +1,57 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits the files given in the command line with the *--split* option, e.g.
+ * *--split=corpus/books --searchTerm=ipsum --mainLimit=1200 --secondaryLimit=800 --paragraph.files.root=/data*.
+ * Every file is printed as a JSON line with its path and the positions of its paragraphs.
+ */
+@Component
+public class FileSplittingRunner implements ApplicationRunner {
+
+	public static final String SPLIT_OPTION = "split";
+
+	private final ParagraphFileService fileService;
+	private final ObjectMapper objectMapper;
+
+	public FileSplittingRunner(ParagraphFileService fileService, ObjectMapper objectMapper) {
+		this.fileService = fileService;
+		this.objectMapper = objectMapper;
+	}
+
+	@Override
+	public void run(ApplicationArguments args) throws Exception {
+		if(!args.containsOption(SPLIT_OPTION)) {
+			return;
+		}
+		String searchTerm = option(args, "searchTerm", null);
+		String searchTerms = option(args, "searchTerms", null);
+		List<String> terms = searchTerms == null ? null : Arrays.asList(searchTerms.split(","));
+		int mainLimit = Integer.parseInt(option(args, "mainLimit", "1200"));
+		int secondaryLimit = Integer.parseInt(option(args, "secondaryLimit", "800"));
+		SplitRequest request = SplitRequest.builder().searchTerm(searchTerm).searchTerms(terms).mainLimit(mainLimit).secondaryLimit(secondaryLimit).build();
+
+		for(String path : args.getOptionValues(SPLIT_OPTION)) {
+			for(Map.Entry<String, ParagraphOffsets> file : fileService.splitAndSearchOffsets(path, request).entrySet()) {
+				Map<String, Object> line = new LinkedHashMap<>();
+				line.put("path", file.getKey());
+				line.put("offsets", file.getValue());
+				System.out.println(objectMapper.writeValueAsString(line));
+			}
+		}
+	}
+
+	private String option(ApplicationArguments args, String name, String defaultValue) {
+		List<String> values = args.getOptionValues(name);
+		return values == null || values.isEmpty() ? defaultValue : values.get(0);
+	}
+}
@@ -0,0 +1,95 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import java.util.Arrays;
+
+/**
+ * Re-splits only the part of an edited text around the edit. {@link ScanningSplittingEngine#next} only reads
+ * *mainLimit* + 1 characters from the start of a paragraph, and the scan for a double new line past them stops
+ * at the first alphanumeric character, so the paragraphs which read only the characters before the edit are the same
+ * and the split restarts at the last of them. It continues until a new paragraph starts at the position of an old
+ * paragraph after the edit, from there on the text and so the paragraphs are the same as before, only shifted.
+ * The cost depends on the size of the edit and the paragraphs around it, not the length of the text.
+ */
+class IncrementalSplitter {
+
+	private final ScanningSplittingEngine engine;
+	private final int mainLimit;
+	private final int secondaryLimit;
+
+	IncrementalSplitter(ScanningSplittingEngine engine, int mainLimit, int secondaryLimit) {
+		this.engine = engine;
+		this.mainLimit = mainLimit;
+		this.secondaryLimit = secondaryLimit;
+	}
+
+	/**
+	 * @param text the text after the edit
+	 * @param oldEnd end of the text before the edit without the trailing whitespaces
+	 * @param paragraphs the paragraphs before the edit
+	 * @param offset position of the edit
+	 * @param deleted number of the characters removed at the offset
+	 * @param inserted number of the characters inserted instead of them
+	 * @return the paragraphs replacing the changed ones
+	 */
+	Change split(CharSequence text, int oldEnd, EditedParagraphs paragraphs, int offset, int deleted, int inserted) {
+		LineBreaks lineBreaks = engine.getChain().getLineBreaks();
+		int shift = inserted - deleted;
+		int size = paragraphs.size();
+		int end = lineBreaks.trimEnd(text, 0, text.length());
+		// the characters before it are the same in both texts, up to their ends
+		int unchanged = Math.min(offset, Math.min(end, oldEnd));
+		// the paragraphs before the restart read at most up to its *mainLimit* + 1 and the scans for double new lines
+		// up to an alphanumeric character after its *mainLimit*
+		int restart = Math.min(unchanged - mainLimit - 1, lineBreaks.findLastAlphanumeric(text, unchanged) - mainLimit + 1);
+		int first = Math.max(0, paragraphs.firstFrom(restart + 1) - 1);
+		int from = first < size && paragraphs.start(first) <= restart ? paragraphs.start(first) : 0;
+
+		int old = first;
+		int[] newStarts = new int[4];
+		int[] newLengths = new int[4];
+		int count = 0;
+		ScanningSplittingEngine.Boundary boundary = new ScanningSplittingEngine.Boundary();
+		int start = ScanningSplittingEngine.trimStart(text, from, end);
+		while(start < end) {
+			// the old paragraphs before this one and the ones overlapping the edit are replaced
+			while(old < size && (paragraphs.start(old) < offset + deleted || paragraphs.start(old) + shift < start)) {
+				old++;
+			}
+			if(old < size && paragraphs.start(old) + shift == start) {
+				return new Change(first, old - first, Arrays.copyOf(newStarts, count), Arrays.copyOf(newLengths, count), shift);
+			}
+
+			int newLines = lineBreaks.findNewLines(text, start, end, start + mainLimit);
+			int length = engine.next(text, start, end, newLines, mainLimit, secondaryLimit, boundary).length;
+			if(count == newStarts.length) {
+				newStarts = Arrays.copyOf(newStarts, count * 2);
+				newLengths = Arrays.copyOf(newLengths, count * 2);
+			}
+			newStarts[count] = start;
+			newLengths[count] = lineBreaks.trimEnd(text, start, start + length) - start;
+			count++;
+			start = ScanningSplittingEngine.trimStart(text, start + length, end);
+		}
+		return new Change(first, size - first, Arrays.copyOf(newStarts, count), Arrays.copyOf(newLengths, count), shift);
+	}
+
+	/**
+	 * The paragraphs *first* ... *first + removed - 1* are replaced by the new ones, the paragraphs after them
+	 * are moved by *shift* characters.
+	 */
+	static final class Change {
+		final int first;
+		final int removed;
+		final int[] starts;
+		final int[] lengths;
+		final int shift;
+
+		Change(int first, int removed, int[] starts, int[] lengths, int shift) {
+			this.first = first;
+			this.removed = removed;
+			this.starts = starts;
+			this.lengths = lengths;
+			this.shift = shift;
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Uploaded text split by a worker of {@link JobService}, its parameters, progress and paragraphs.
+ * The state is changed by the worker and read by the requests.
+ */
+class Job {
+
+	final String id;
+	// the uploaded text, deleted when the job is finished
+	final Path input;
+	final Charset charset;
+	final long totalBytes;
+	final SplitRequest request;
+	final JobResults results;
+	final Instant submitted;
+
+	final AtomicLong processedBytes = new AtomicLong();
+	volatile int matched;
+	private volatile JobState state = JobState.QUEUED;
+	private volatile String error;
+	private volatile Instant finished;
+	private volatile Instant expires;
+
+	Job(String id, Path input, Charset charset, long totalBytes, SplitRequest request, JobResults results, Instant submitted) {
+		this.id = id;
+		this.input = input;
+		this.charset = charset;
+		this.totalBytes = totalBytes;
+		this.request = request;
+		this.results = results;
+		this.submitted = submitted;
+	}
+
+	/**
+	 * @return false if the job was cancelled before it started
+	 */
+	synchronized boolean start() {
+		if(state != JobState.QUEUED) {
+			return false;
+		}
+		state = JobState.RUNNING;
+		return true;
+	}
+
+	/**
+	 * Changes the state if the job wasn't finished yet, e.g. cancelled while it was running.
+	 * @param state
+	 * @param error null if the job didn't fail
+	 * @param now
+	 * @param ttl how long the finished job is kept in milliseconds
+	 */
+	synchronized void finish(JobState state, String error, Instant now, long ttl) {
+		if(this.state.isFinished()) {
+			return;
+		}
+		this.state = state;
+		this.error = error;
+		finished = now;
+		expires = now.plusMillis(ttl);
+	}
+
+	JobState getState() {
+		return state;
+	}
+
+	boolean isExpired(Instant now) {
+		Instant expires = this.expires;
+		return expires != null && !now.isBefore(expires);
+	}
+
+	/**
+	 * Deletes the uploaded text and the paragraphs.
+	 */
+	void delete() throws IOException {
+		try {
+			results.close();
+		} finally {
+			Files.deleteIfExists(input);
+		}
+	}
+
+	JobInfo info() {
+		// the state first, so the paragraphs of a finished job are all counted
+		JobState state = this.state;
+		return new JobInfo(id, state, totalBytes, state == JobState.DONE ? totalBytes : Math.min(totalBytes, processedBytes.get()), results.size(), matched,
+				results.isSpilled(), error, submitted, finished, expires);
+	}
+}
@@ -0,0 +1,92 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Very large texts split in the background, see {@link JobService}.
+ */
+@RestController
+@RequestMapping("jobs")
+public class JobController {
+
+	private final Logger logger = LoggerFactory.getLogger(JobController.class);
+
+	private JobService service;
+
+	public JobController(JobService service) {
+		this.service = service;
+	}
+
+	/**
+	 * Uploads the text from the request body and returns the queued job, its progress is at the Location.
+	 */
+	@PostMapping(consumes = MediaType.TEXT_PLAIN_VALUE)
+	public ResponseEntity<JobInfo> submit(
+			HttpServletRequest request,
+			@RequestParam(required = false) String searchTerm,
+			@RequestParam(required = false) List<String> searchTerms,
+			@RequestParam(defaultValue = "1200") int mainLimit,
+			@RequestParam(defaultValue = "800") int secondaryLimit,
+			@RequestParam(required = false) String rules,
+			@RequestParam(defaultValue = "CHARS") OffsetUnit units) throws IOException {
+		logger.debug("submit: {}, mainLimit: {}, secondaryLimit: {}, rules: {}, units: {}", searchTerm, mainLimit, secondaryLimit, rules, units);
+		Charset charset = request.getCharacterEncoding() != null ? Charset.forName(request.getCharacterEncoding()) : StandardCharsets.UTF_8;
+		try {
+			JobInfo job = service.submit(request.getInputStream(), charset, SplitRequest.builder().searchTerm(searchTerm).searchTerms(searchTerms)
+					.mainLimit(mainLimit).secondaryLimit(secondaryLimit).rules(rules).unit(units).build());
+			return ResponseEntity.status(HttpStatus.ACCEPTED).location(ServletUriComponentsBuilder.fromCurrentRequestUri().path("/{id}").buildAndExpand(job.getId()).toUri()).body(job);
+		} catch(NullPointerException | IllegalArgumentException ex) {
+			throw new ParagraphSplittingException(ex);
+		}
+	}
+
+	@GetMapping("/{id}")
+	public JobInfo info(@PathVariable String id) {
+		try {
+			return service.info(id);
+		} catch(NullPointerException | IllegalArgumentException ex) {
+			throw new ParagraphSplittingException(ex);
+		}
+	}
+
+	/**
+	 * Returns the paragraphs found so far from the offset, the next page starts at JobPage.next.
+	 */
+	@GetMapping("/{id}/paragraphs")
+	public JobPage paragraphs(
+			@PathVariable String id,
+			@RequestParam(defaultValue = "0") long offset,
+			@RequestParam(defaultValue = "100") int limit) throws IOException {
+		logger.debug("paragraphs: {}, offset: {}, limit: {}", id, offset, limit);
+		try {
+			return service.page(id, offset, limit);
+		} catch(NullPointerException | IllegalArgumentException ex) {
+			throw new ParagraphSplittingException(ex);
+		}
+	}
+
+	/**
+	 * Cancels the job and deletes its paragraphs.
+	 */
+	@DeleteMapping("/{id}")
+	@ResponseStatus(HttpStatus.NO_CONTENT)
+	public void delete(@PathVariable String id) throws IOException {
+		try {
+			service.delete(id);
+		} catch(NullPointerException | IllegalArgumentException ex) {
+			throw new ParagraphSplittingException(ex);
+		}
+	}
+}
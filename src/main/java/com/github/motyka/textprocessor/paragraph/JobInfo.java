@@ -0,0 +1,33 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Value;
+
+import java.time.Instant;
+
+/**
+ * Progress of a job of {@link JobService}.
+ */
+@Value
+public class JobInfo {
+	private String id;
+	private JobState state;
+	// size of the uploaded text in bytes
+	private long totalBytes;
+	// bytes of the text read by the splitter so far
+	private long processedBytes;
+	// paragraphs found so far, they can be read before the job is done
+	private int paragraphs;
+	// paragraphs containing the search term
+	private int matched;
+	// true if the paragraphs didn't fit into paragraph.jobs.max-memory and are read from the disk
+	private boolean spilled;
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	private String error;
+	private Instant submitted;
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	private Instant finished;
+	// the job and its paragraphs are removed after this time, null until the job is finished
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	private Instant expires;
+}
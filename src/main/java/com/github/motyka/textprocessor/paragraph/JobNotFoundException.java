@@ -0,0 +1,11 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class JobNotFoundException extends RuntimeException {
+	public JobNotFoundException(String id) {
+		super("The job doesn't exist: " + id);
+	}
+}
@@ -0,0 +1,18 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Paragraphs of a job from the offset, the next page starts at the *next* offset.
+ */
+@Value
+public class JobPage {
+	private JobState state;
+	private long offset;
+	private List<Paragraph> paragraphs;
+	// null if the job is finished and there are no more paragraphs, otherwise the offset of the next page
+	// which can be empty if the job hasn't found the paragraphs yet
+	private Long next;
+}
@@ -0,0 +1,231 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Paragraphs found by a job, they are added by the worker and read by pages while the job is still running.
+ * <p>
+ * The paragraphs are kept in memory while the paragraphs of all jobs fit into the shared budget. When they don't,
+ * the paragraphs of the job are moved to its file and the next ones are appended there, the position of every
+ * paragraph in the file is kept so a page is read with one positioned read. The paragraphs are written
+ * with DataOutput, not as JSON, because Paragraph can't be read by Jackson.
+ */
+class JobResults implements Closeable {
+
+	// approximate size of a Paragraph with its String in memory without the characters
+	private static final int PARAGRAPH_WEIGHT = 96;
+
+	// bytes of all jobs in memory
+	private final AtomicLong memory;
+	private final long maxMemory;
+	private final Path file;
+
+	// null when the paragraphs were spilled to the file
+	private List<Paragraph> paragraphs = new ArrayList<>();
+	private long weight;
+
+	private OutputStream output;
+	// one record is written to the buffer first, so its size is known
+	private final ByteArrayOutputStream record = new ByteArrayOutputStream();
+	private final DataOutputStream recordOutput = new DataOutputStream(record);
+	// positions of the paragraphs in the file, the last one is the end of the file
+	private long[] positions;
+	private int size;
+	private boolean closed;
+
+	/**
+	 * @param memory bytes of the paragraphs of all jobs in memory
+	 * @param maxMemory
+	 * @param file the file the paragraphs are spilled to, it's created only if they are
+	 */
+	JobResults(AtomicLong memory, long maxMemory, Path file) {
+		this.memory = memory;
+		this.maxMemory = maxMemory;
+		this.file = file;
+	}
+
+	/**
+	 * Adds the paragraph to the end, it's ignored after {@link #close()}.
+	 */
+	synchronized void add(Paragraph paragraph) throws IOException {
+		if(closed) {
+			return;
+		}
+		if(paragraphs != null) {
+			long paragraphWeight = weight(paragraph);
+			if(memory.addAndGet(paragraphWeight) <= maxMemory) {
+				paragraphs.add(paragraph);
+				weight += paragraphWeight;
+				size++;
+				return;
+			}
+			memory.addAndGet(-paragraphWeight);
+			spill();
+		}
+		write(paragraph);
+		size++;
+	}
+
+	/**
+	 * @param offset index of the first paragraph
+	 * @param limit maximum number of the paragraphs
+	 * @return paragraphs found so far from the offset, empty if there are no more
+	 * @throws IOException
+	 */
+	synchronized List<Paragraph> page(long offset, int limit) throws IOException {
+		if(closed || offset >= size) {
+			return Collections.emptyList();
+		}
+		int from = (int) offset;
+		int to = (int) Math.min(size, offset + limit);
+		if(paragraphs != null) {
+			return new ArrayList<>(paragraphs.subList(from, to));
+		}
+
+		output.flush();
+		ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(positions[to] - positions[from]));
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			while(buffer.hasRemaining()) {
+				if(channel.read(buffer, positions[from] + buffer.position()) < 0) {
+					throw new IOException("The file of the paragraphs is shorter than expected: " + file);
+				}
+			}
+		}
+		DataInputStream input = new DataInputStream(new ByteArrayInputStream(buffer.array()));
+		List<Paragraph> page = new ArrayList<>(to - from);
+		for(int i = from; i < to; i++) {
+			page.add(read(input));
+		}
+		return page;
+	}
+
+	synchronized int size() {
+		return size;
+	}
+
+	synchronized boolean isSpilled() {
+		return paragraphs == null;
+	}
+
+	/**
+	 * Releases the memory and deletes the file.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		closed = true;
+		memory.addAndGet(-weight);
+		weight = 0;
+		if(paragraphs != null) {
+			paragraphs.clear();
+		}
+		if(output != null) {
+			output.close();
+			output = null;
+		}
+		Files.deleteIfExists(file);
+	}
+
+	private void spill() throws IOException {
+		output = new BufferedOutputStream(Files.newOutputStream(file));
+		positions = new long[Math.max(16, paragraphs.size() * 2)];
+		List<Paragraph> kept = paragraphs;
+		paragraphs = null;
+		for(int i = 0; i < kept.size(); i++) {
+			size = i;
+			write(kept.get(i));
+		}
+		size = kept.size();
+		memory.addAndGet(-weight);
+		weight = 0;
+	}
+
+	// writes the paragraph number *size* to the end of the file
+	private void write(Paragraph paragraph) throws IOException {
+		record.reset();
+		write(paragraph, recordOutput);
+		if(size + 1 >= positions.length) {
+			positions = Arrays.copyOf(positions, positions.length * 2);
+		}
+		positions[size + 1] = positions[size] + record.size();
+		record.writeTo(output);
+	}
+
+	private static long weight(Paragraph paragraph) {
+		int matches = paragraph.getMatches() != null ? paragraph.getMatches().size() : 0;
+		int occurrences = paragraph.getOccurrences() != null ? paragraph.getOccurrences().size() : 0;
+		return PARAGRAPH_WEIGHT + 2L * paragraph.getText().length() + 32L * (matches + occurrences);
+	}
+
+	static void write(Paragraph paragraph, DataOutput output) throws IOException {
+		byte[] text = paragraph.getText().getBytes(StandardCharsets.UTF_8);
+		output.writeInt(text.length);
+		output.write(text);
+		output.writeLong(paragraph.getStart());
+		output.writeInt(paragraph.getLength());
+		output.writeBoolean(paragraph.isContains());
+		// -1 if the list is null
+		if(paragraph.getMatches() == null) {
+			output.writeInt(-1);
+		} else {
+			output.writeInt(paragraph.getMatches().size());
+			for(TermMatch match : paragraph.getMatches()) {
+				output.writeInt(match.getTerm());
+				output.writeLong(match.getStart());
+			}
+		}
+		if(paragraph.getOccurrences() == null) {
+			output.writeInt(-1);
+		} else {
+			output.writeInt(paragraph.getOccurrences().size());
+			for(Occurrence occurrence : paragraph.getOccurrences()) {
+				output.writeLong(occurrence.getStart());
+				output.writeInt(occurrence.getLength());
+			}
+		}
+	}
+
+	static Paragraph read(DataInput input) throws IOException {
+		byte[] text = new byte[input.readInt()];
+		input.readFully(text);
+		long start = input.readLong();
+		int length = input.readInt();
+		boolean contains = input.readBoolean();
+		List<TermMatch> matches = null;
+		int count = input.readInt();
+		if(count >= 0) {
+			matches = new ArrayList<>(count);
+			for(int i = 0; i < count; i++) {
+				matches.add(new TermMatch(input.readInt(), input.readLong()));
+			}
+		}
+		List<Occurrence> occurrences = null;
+		count = input.readInt();
+		if(count >= 0) {
+			occurrences = new ArrayList<>(count);
+			for(int i = 0; i < count; i++) {
+				occurrences.add(new Occurrence(input.readLong(), input.readInt()));
+			}
+		}
+		return new Paragraph(new String(text, StandardCharsets.UTF_8), start, length, contains, matches, occurrences);
+	}
+}
@@ -0,0 +1,363 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Splits very large texts in the background. The text is uploaded to the directory and the job id is returned
+ * right away, the client polls the progress and reads the paragraphs by pages while the job is still running.
+ * <p>
+ * The jobs are run by a fixed number of workers. The queue is ordered by the time the job would be finished
+ * if it was split at paragraph.jobs.priority-bytes-per-second after it was submitted, so a small job doesn't wait
+ * for the huge ones submitted shortly before it, but a huge job is still started once it waited long enough.
+ * <p>
+ * The paragraphs of all jobs are kept in memory up to paragraph.jobs.max-memory bytes, the paragraphs of the job
+ * which doesn't fit are moved to its file, see {@link JobResults}. The finished jobs are removed with their files
+ * after paragraph.jobs.ttl milliseconds.
+ */
+@Service
+public class JobService {
+
+	static final int MAX_PAGE_SIZE = 10_000;
+
+	private final Logger logger = LoggerFactory.getLogger(JobService.class);
+
+	private final ParagraphService service;
+	private final int threads;
+	private final int maxJobs;
+	private final long bytesPerSecond;
+	private final long maxMemory;
+	private final long maxBytes;
+	private final long ttl;
+	private final Path directory;
+
+	private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+	// bytes of the paragraphs of all jobs in memory
+	private final AtomicLong memory = new AtomicLong();
+	private final AtomicLong sequence = new AtomicLong();
+	private ThreadPoolExecutor workers;
+	private ScheduledExecutorService cleaner;
+
+	public JobService(
+			ParagraphService service,
+			@Value("${paragraph.jobs.threads:2}") int threads,
+			@Value("${paragraph.jobs.max-jobs:1000}") int maxJobs,
+			@Value("${paragraph.jobs.priority-bytes-per-second:10485760}") long bytesPerSecond,
+			@Value("${paragraph.jobs.max-memory:134217728}") long maxMemory,
+			@Value("${paragraph.jobs.max-bytes:1073741824}") long maxBytes,
+			@Value("${paragraph.jobs.ttl:3600000}") long ttl,
+			@Value("${paragraph.jobs.directory:}") String directory,
+			MeterRegistry registry) throws IOException {
+		if(threads <= 0 || maxJobs <= 0 || bytesPerSecond <= 0 || maxBytes <= 0 || ttl < 0) {
+			throw new IllegalArgumentException("The threads, max-jobs, priority-bytes-per-second and max-bytes of paragraph.jobs must be greater than 0 and the ttl can't be negative.");
+		}
+		this.service = service;
+		this.threads = threads;
+		this.maxJobs = maxJobs;
+		this.bytesPerSecond = bytesPerSecond;
+		this.maxMemory = maxMemory;
+		this.maxBytes = maxBytes;
+		this.ttl = ttl;
+		this.directory = directory == null || directory.isEmpty() ? Files.createTempDirectory("jobs") : Files.createDirectories(Paths.get(directory));
+
+		for(JobState state : JobState.values()) {
+			Gauge.builder("paragraph.jobs", jobs, jobs -> jobs.values().stream().filter(job -> job.getState() == state).count())
+					.description("Number of jobs by the state")
+					.tag("state", state.name())
+					.register(registry);
+		}
+		Gauge.builder("paragraph.jobs.memory", memory, AtomicLong::get)
+				.description("Approximate size of the paragraphs of the jobs kept in memory")
+				.baseUnit("bytes")
+				.register(registry);
+	}
+
+	/**
+	 * Uploads the text to the directory and queues the job splitting it.
+	 * @param input the text, it's read whole before the method returns
+	 * @param charset of the text
+	 * @param request the strategy and the search options are ignored as in {@link ParagraphService#splitAndSearch(java.io.Reader, SplitRequest, java.util.function.Consumer)}
+	 * @return the queued job
+	 * @throws IOException if the text can't be read or written to the directory
+	 * @throws TooManyJobsException if there are paragraph.jobs.max-jobs jobs which haven't expired yet
+	 * or the directory doesn't have paragraph.jobs.max-bytes of usable space
+	 * @throws JobTooLargeException if the text is longer than paragraph.jobs.max-bytes
+	 */
+	public JobInfo submit(InputStream input, Charset charset, SplitRequest request) throws IOException {
+		logger.debug("submit job {}", request);
+
+		Objects.requireNonNull(input, "The input can't be null");
+		Objects.requireNonNull(charset, "The charset can't be null");
+		service.validateStream(request);
+		request.getUnit().checkCharset(charset);
+		removeExpired();
+		if(jobs.size() >= maxJobs) {
+			throw new TooManyJobsException(maxJobs);
+		}
+		// the text of every job can be as long as the limit, the queued texts can't fill the disk
+		long usable = Files.getFileStore(directory).getUsableSpace();
+		if(usable < maxBytes) {
+			throw new TooManyJobsException("The directory of the jobs has only " + usable + " bytes of usable space, a job can have "
+					+ maxBytes + " bytes (paragraph.jobs.max-bytes).");
+		}
+
+		String id = UUID.randomUUID().toString();
+		Path file = directory.resolve(id + ".txt");
+		long size;
+		try {
+			size = copy(input, file);
+		} catch(IOException | RuntimeException ex) {
+			Files.deleteIfExists(file);
+			throw ex;
+		}
+		Job job = new Job(id, file, charset, size, request, new JobResults(memory, maxMemory, directory.resolve(id + ".par")), Instant.now());
+		jobs.put(id, job);
+		workers().execute(new JobTask(job, job.submitted.toEpochMilli() + size * 1000 / bytesPerSecond, sequence.getAndIncrement()));
+		return job.info();
+	}
+
+	/**
+	 * @return number of the bytes copied, at most paragraph.jobs.max-bytes
+	 */
+	private long copy(InputStream input, Path file) throws IOException {
+		long size = 0;
+		byte[] buffer = new byte[65536];
+		try(OutputStream output = Files.newOutputStream(file, StandardOpenOption.CREATE_NEW)) {
+			for(int read = input.read(buffer); read >= 0; read = input.read(buffer)) {
+				size += read;
+				if(size > maxBytes) {
+					throw new JobTooLargeException(maxBytes);
+				}
+				output.write(buffer, 0, read);
+			}
+		}
+		return size;
+	}
+
+	public JobInfo info(String id) {
+		return get(id).info();
+	}
+
+	/**
+	 * @param id
+	 * @param offset index of the first paragraph
+	 * @param limit maximum number of the paragraphs, at most {@link #MAX_PAGE_SIZE}
+	 * @return paragraphs found so far from the offset
+	 * @throws IOException if the paragraphs can't be read from the file
+	 */
+	public JobPage page(String id, long offset, int limit) throws IOException {
+		if(offset < 0) {
+			throw new IllegalArgumentException("The offset can't be negative.");
+		}
+		if(limit <= 0 || limit > MAX_PAGE_SIZE) {
+			throw new IllegalArgumentException("The limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+		}
+		Job job = get(id);
+		// the state first, so all paragraphs are there if the job is finished
+		JobState state = job.getState();
+		List<Paragraph> paragraphs = job.results.page(offset, limit);
+		long next = offset + paragraphs.size();
+		boolean last = state.isFinished() && next >= job.results.size();
+		return new JobPage(state, offset, paragraphs, last ? null : next);
+	}
+
+	/**
+	 * Cancels the job if it isn't finished and deletes it with its paragraphs.
+	 * @param id
+	 * @throws IOException if the files can't be deleted
+	 */
+	public void delete(String id) throws IOException {
+		Objects.requireNonNull(id, "The id of the job can't be null");
+		Job job = jobs.remove(id);
+		if(job == null) {
+			throw new JobNotFoundException(id);
+		}
+		job.finish(JobState.CANCELLED, null, Instant.now(), ttl);
+		job.delete();
+	}
+
+	/**
+	 * Removes the finished jobs after their ttl.
+	 */
+	void removeExpired() {
+		Instant now = Instant.now();
+		for(Job job : jobs.values()) {
+			if(job.isExpired(now) && jobs.remove(job.id, job)) {
+				logger.debug("remove expired job {}", job.id);
+				try {
+					job.delete();
+				} catch(IOException ex) {
+					logger.warn("The files of the job {} can't be deleted", job.id, ex);
+				}
+			}
+		}
+	}
+
+	private Job get(String id) {
+		Objects.requireNonNull(id, "The id of the job can't be null");
+		Job job = jobs.get(id);
+		if(job == null) {
+			throw new JobNotFoundException(id);
+		}
+		return job;
+	}
+
+	private void process(Job job) {
+		if(!job.start()) {
+			return;
+		}
+		logger.debug("start job {} of {} bytes", job.id, job.totalBytes);
+		JobState state = JobState.DONE;
+		String error = null;
+		try(InputStream input = new CountingInputStream(Files.newInputStream(job.input), job.processedBytes)) {
+			service.splitAndSearch(new InputStreamReader(input, job.charset), job.request, paragraph -> {
+				if(job.getState() != JobState.RUNNING) {
+					throw new CancellationException();
+				}
+				try {
+					job.results.add(paragraph);
+				} catch(IOException ex) {
+					throw new UncheckedIOException(ex);
+				}
+				if(paragraph.isContains()) {
+					job.matched++;
+				}
+			});
+		} catch(CancellationException ex) {
+			state = JobState.CANCELLED;
+		} catch(IOException | RuntimeException ex) {
+			logger.warn("The job {} failed", job.id, ex);
+			state = JobState.FAILED;
+			error = ex.getMessage();
+		}
+		job.finish(state, error, Instant.now(), ttl);
+		logger.debug("finish job {} {} with {} paragraphs", job.id, job.getState(), job.results.size());
+		try {
+			Files.deleteIfExists(job.input);
+		} catch(IOException ex) {
+			logger.warn("The text of the job {} can't be deleted", job.id, ex);
+		}
+	}
+
+	private synchronized ThreadPoolExecutor workers() {
+		if(workers == null) {
+			// the tasks are Comparable, execute() puts them into the queue as they are
+			workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>());
+			cleaner = Executors.newSingleThreadScheduledExecutor();
+			long period = Math.max(1000, Math.min(ttl, 60_000));
+			cleaner.scheduleAtFixedRate(this::removeExpired, period, period, TimeUnit.MILLISECONDS);
+		}
+		return workers;
+	}
+
+	@PreDestroy
+	public synchronized void shutdown() {
+		if(workers != null) {
+			workers.shutdownNow();
+			cleaner.shutdownNow();
+		}
+		for(String id : jobs.keySet()) {
+			try {
+				delete(id);
+			} catch(JobNotFoundException | IOException ex) {
+				logger.warn("The job {} can't be deleted", id, ex);
+			}
+		}
+	}
+
+	/**
+	 * Queued job, the one with the lowest rank is started first.
+	 */
+	private class JobTask implements Runnable, Comparable<JobTask> {
+		private final Job job;
+		// submission time plus the expected duration in milliseconds
+		private final long rank;
+		// the jobs with the same rank are started in the order of submission
+		private final long sequence;
+
+		JobTask(Job job, long rank, long sequence) {
+			this.job = job;
+			this.rank = rank;
+			this.sequence = sequence;
+		}
+
+		@Override
+		public void run() {
+			process(job);
+		}
+
+		@Override
+		public int compareTo(JobTask other) {
+			int result = Long.compare(rank, other.rank);
+			return result != 0 ? result : Long.compare(sequence, other.sequence);
+		}
+	}
+
+	/**
+	 * Counts the bytes read by the splitter, they are the progress of the job.
+	 */
+	private static class CountingInputStream extends FilterInputStream {
+		private final AtomicLong count;
+
+		CountingInputStream(InputStream input, AtomicLong count) {
+			super(input);
+			this.count = count;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int result = super.read();
+			if(result >= 0) {
+				count.incrementAndGet();
+			}
+			return result;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			int result = super.read(buffer, offset, length);
+			if(result > 0) {
+				count.addAndGet(result);
+			}
+			return result;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long result = super.skip(n);
+			count.addAndGet(result);
+			return result;
+		}
+	}
+}
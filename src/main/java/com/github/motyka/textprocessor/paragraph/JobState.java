@@ -0,0 +1,15 @@
+package com.github.motyka.textprocessor.paragraph;
+
+public enum JobState {
+	QUEUED,
+	RUNNING,
+	// all paragraphs were found
+	DONE,
+	// the text couldn't be split, the paragraphs found before the error are kept
+	FAILED,
+	CANCELLED;
+
+	public boolean isFinished() {
+		return this != QUEUED && this != RUNNING;
+	}
+}
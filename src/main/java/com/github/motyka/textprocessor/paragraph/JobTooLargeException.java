@@ -0,0 +1,11 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.PAYLOAD_TOO_LARGE)
+public class JobTooLargeException extends RuntimeException {
+	public JobTooLargeException(long maxBytes) {
+		super("The text of the job is longer than " + maxBytes + " bytes (paragraph.jobs.max-bytes).");
+	}
+}
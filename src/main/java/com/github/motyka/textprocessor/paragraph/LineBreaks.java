@@ -0,0 +1,227 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * The characters ending a line for a split rule chain: the double line breaks end the paragraphs and the rules
+ * like {@link BuiltInSplitRule#NEW_LINE} split at any of them. CR followed by LF is a single line break, so CRLF
+ * documents don't have to be normalized and the positions of the paragraphs are in the original text.
+ * The default chain only breaks the lines at LF, the same as {@link RegexSplittingEngine}.
+ */
+public final class LineBreaks {
+
+	public enum LineBreak {
+		LF('\n'),
+		CR('\r'),
+		NEL('\u0085'),
+		LS('\u2028'),
+		PS('\u2029');
+
+		private final char character;
+
+		LineBreak(char character) {
+			this.character = character;
+		}
+
+		public char getCharacter() {
+			return character;
+		}
+	}
+
+	private static final int NOT_FOUND = -1;
+	// kinds of the characters in the scans
+	private static final byte LINE_BREAK = 1;
+	private static final byte ALPHANUMERIC = 2;
+
+	public static final LineBreaks LF = new LineBreaks(EnumSet.of(LineBreak.LF));
+	public static final LineBreaks CRLF = new LineBreaks(EnumSet.of(LineBreak.LF, LineBreak.CR));
+	public static final LineBreaks UNICODE = new LineBreaks(EnumSet.allOf(LineBreak.class));
+
+	private final Set<LineBreak> breaks;
+	// checked on every character, the set is only used to describe the line breaks
+	private final boolean lf;
+	private final boolean cr;
+	private final boolean unicode;
+	private final boolean nel;
+	private final boolean ls;
+	private final boolean ps;
+	private final boolean lfOnly;
+	// kinds of the characters below 256, so every set of the line breaks is scanned at the same cost
+	private final byte[] latin = new byte[256];
+
+	private LineBreaks(Set<LineBreak> breaks) {
+		if(breaks.isEmpty()) {
+			throw new IllegalArgumentException("There has to be at least one line break");
+		}
+		this.breaks = breaks;
+		lf = breaks.contains(LineBreak.LF);
+		cr = breaks.contains(LineBreak.CR);
+		nel = breaks.contains(LineBreak.NEL);
+		ls = breaks.contains(LineBreak.LS);
+		ps = breaks.contains(LineBreak.PS);
+		unicode = nel || ls || ps;
+		lfOnly = lf && !cr && !unicode;
+		for(char ch = 0; ch < latin.length; ch++) {
+			latin[ch] = isLineBreak(ch) ? LINE_BREAK : ScanningSplittingEngine.isAlphanumeric(ch) ? ALPHANUMERIC : 0;
+		}
+	}
+
+	/**
+	 * @param breaks names of {@link LineBreak} separated by commas, e.g. LF,CR
+	 * @return
+	 */
+	public static LineBreaks parse(String breaks) {
+		Set<LineBreak> set = EnumSet.noneOf(LineBreak.class);
+		for(String name : breaks.split(",")) {
+			try {
+				set.add(LineBreak.valueOf(name.trim().toUpperCase(Locale.ROOT)));
+			} catch(IllegalArgumentException ex) {
+				throw new IllegalArgumentException("Unknown line break " + name.trim() + ", the line breaks are " + EnumSet.allOf(LineBreak.class), ex);
+			}
+		}
+		return new LineBreaks(set);
+	}
+
+	public Set<LineBreak> getBreaks() {
+		return breaks;
+	}
+
+	boolean isLineBreak(char ch) {
+		if(ch <= '\r') {
+			return (ch == '\n' && lf) || (ch == '\r' && cr);
+		}
+		return unicode && ch >= '\u0085' && ((ch == '\u0085' && nel) || (ch == '\u2028' && ls) || (ch == '\u2029' && ps));
+	}
+
+	private int kind(char ch) {
+		return ch < 256 ? latin[ch] : unicode && isLineBreak(ch) ? LINE_BREAK : 0;
+	}
+
+	/**
+	 * @param text
+	 * @param index of a line break
+	 * @return true if the line break is the LF of CRLF, which is only one line break started by CR
+	 */
+	private boolean isCrlfEnd(CharSequence text, int index) {
+		return cr && index > 0 && text.charAt(index) == '\n' && text.charAt(index - 1) == '\r';
+	}
+
+	/**
+	 * Finds the first line break followed by another line break, there can't be alphanumeric characters between them.
+	 * @param text
+	 * @param from
+	 * @param end
+	 * @return position of the first line break or *end* if there are no double line breaks
+	 */
+	int findNewLines(CharSequence text, int from, int end) {
+		return findNewLines(text, from, end, end);
+	}
+
+	/**
+	 * The same as {@link #findNewLines(CharSequence, int, int)}, but stops at *limit* if no double line break starts
+	 * before it, so a paragraph can be split without scanning the rest of the text. {@link ScanningSplittingEngine#next}
+	 * gives the same paragraph for this and the unbounded position if the limit is the start of the paragraph plus *mainLimit*.
+	 * @param text
+	 * @param from
+	 * @param end
+	 * @param limit
+	 * @return position of the first line break, if it's before *limit*, or *end*
+	 */
+	int findNewLines(CharSequence text, int from, int end, int limit) {
+		if(lfOnly) {
+			return findLfNewLines(text, from, end, limit);
+		}
+		int newLine = NOT_FOUND;
+		for(int i = from; i < end && (i < limit || newLine != NOT_FOUND); i++) {
+			int kind = kind(text.charAt(i));
+
+			if(kind == LINE_BREAK) {
+				if(isCrlfEnd(text, i)) {
+					continue;
+				}
+				if(newLine != NOT_FOUND) {
+					return newLine;
+				}
+				newLine = i;
+			} else if(kind == ALPHANUMERIC) {
+				newLine = NOT_FOUND;
+			}
+		}
+		return end;
+	}
+
+	// the most common set compares the characters with the constant, which is faster than the lookup of their kind
+	private static int findLfNewLines(CharSequence text, int from, int end, int limit) {
+		int newLine = NOT_FOUND;
+		for(int i = from; i < end && (i < limit || newLine != NOT_FOUND); i++) {
+			char ch = text.charAt(i);
+
+			if(ch == '\n') {
+				if(newLine != NOT_FOUND) {
+					return newLine;
+				}
+				newLine = i;
+			} else if(ScanningSplittingEngine.isAlphanumeric(ch)) {
+				newLine = NOT_FOUND;
+			}
+		}
+		return end;
+	}
+
+	/**
+	 * The scans of {@link #findNewLines} past their limit stop at the first alphanumeric character.
+	 * @param text
+	 * @param limit
+	 * @return position of the last alphanumeric character before the limit or -1 if there is none
+	 */
+	int findLastAlphanumeric(CharSequence text, int limit) {
+		for(int i = limit - 1; i >= 0; i--) {
+			char ch = text.charAt(i);
+			if(lfOnly ? ScanningSplittingEngine.isAlphanumeric(ch) : kind(ch) == ALPHANUMERIC) {
+				return i;
+			}
+		}
+		return NOT_FOUND;
+	}
+
+	/**
+	 * @param text
+	 * @param from
+	 * @param end
+	 * @return start of the last line break after the last alphanumeric character or *end* if there is none
+	 */
+	int findLastLineBreak(CharSequence text, int from, int end) {
+		for(int i = end - 1; i >= from; i--) {
+			int kind = kind(text.charAt(i));
+
+			if(kind == LINE_BREAK) {
+				return isCrlfEnd(text, i) ? i - 1 : i;
+			} else if(kind == ALPHANUMERIC) {
+				break;
+			}
+		}
+		return end;
+	}
+
+	/**
+	 * The same as {@link ScanningSplittingEngine#trimEnd}, but also without the trailing NEL, which isn't a whitespace.
+	 * @param text
+	 * @param from
+	 * @param to
+	 * @return end of the text without the trailing whitespaces and line breaks
+	 */
+	int trimEnd(CharSequence text, int from, int to) {
+		char ch;
+		while(to > from && (Character.isWhitespace(ch = text.charAt(to - 1)) || (nel && ch == '\u0085'))) {
+			to--;
+		}
+		return to;
+	}
+
+	@Override
+	public String toString() {
+		return breaks.toString();
+	}
+}
@@ -0,0 +1,87 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a UTF-8 file decoding it directly from the memory mapped file, so the file is never copied onto the heap.
+ * A mapping can't be longer than 2GB, so the file is mapped in parts of *mappingSize* bytes, the next part starts
+ * at the first byte not decoded yet, so the characters are never split between the parts.
+ */
+class MappedFileReader extends Reader {
+
+	// the longest UTF-8 sequence of a character
+	private static final int MAX_CHAR_BYTES = 4;
+
+	private final FileChannel channel;
+	private final long size;
+	private final int mappingSize;
+	private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+	private ByteBuffer bytes = ByteBuffer.allocate(0);
+	// position of the end of the current mapping in the file
+	private long mappedEnd;
+	// second half of a surrogate pair which didn't fit into the buffer of the last read
+	private final CharBuffer pending = CharBuffer.allocate(2).limit(0);
+	private boolean eof;
+
+	MappedFileReader(Path file, int mappingSize) throws IOException {
+		this.channel = FileChannel.open(file, StandardOpenOption.READ);
+		this.size = channel.size();
+		this.mappingSize = Math.max(mappingSize, MAX_CHAR_BYTES);
+	}
+
+	@Override
+	public int read(char[] buffer, int offset, int length) throws IOException {
+		if(length == 0) {
+			return 0;
+		}
+		CharBuffer output = CharBuffer.wrap(buffer, offset, length);
+		while(pending.hasRemaining() && output.hasRemaining()) {
+			output.put(pending.get());
+		}
+
+		while(output.position() == offset && !eof) {
+			boolean last = mappedEnd == size;
+			if(!last && bytes.remaining() < MAX_CHAR_BYTES) {
+				map(mappedEnd - bytes.remaining());
+				continue;
+			}
+
+			CoderResult result = decoder.decode(bytes, output, last);
+			if(result.isOverflow() && output.position() == offset) {
+				// a surrogate pair doesn't fit into a single character
+				pending.clear();
+				decoder.decode(bytes, pending, last);
+				pending.flip();
+				output.put(pending.get());
+			} else if(last && !bytes.hasRemaining()) {
+				decoder.flush(output);
+				eof = true;
+			}
+		}
+		return output.position() == offset ? -1 : output.position() - offset;
+	}
+
+	private void map(long position) throws IOException {
+		mappedEnd = Math.min(size, position + mappingSize);
+		bytes = channel.map(FileChannel.MapMode.READ_ONLY, position, mappedEnd - position);
+	}
+
+	@Override
+	public void close() throws IOException {
+		// the mapping stays valid until the buffer is garbage collected
+		channel.close();
+	}
+}
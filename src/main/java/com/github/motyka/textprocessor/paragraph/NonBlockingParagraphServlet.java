@@ -0,0 +1,241 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * The same as {@link ParagraphController#splitAndSearchStream}, but the request is read and the paragraphs are written
+ * with the non-blocking servlet I/O. The request thread is released right away and a container thread only splits
+ * the part of the body which has already arrived, so the slow clients don't hold the threads while uploading.
+ * The body isn't read while the paragraphs can't be written, so a slow reader of the response slows down the upload.
+ */
+public class NonBlockingParagraphServlet extends HttpServlet {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private final Logger logger = LoggerFactory.getLogger(NonBlockingParagraphServlet.class);
+
+	private final transient ParagraphService service;
+	private final transient ObjectMapper objectMapper;
+	// time for the whole request in milliseconds
+	private final long timeout;
+
+	public NonBlockingParagraphServlet(ParagraphService service, ObjectMapper objectMapper, long timeout) {
+		this.service = service;
+		this.objectMapper = objectMapper;
+		this.timeout = timeout;
+	}
+
+	@Override
+	protected void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+		String encoding = request.getHeader("Content-Encoding");
+		if(encoding != null && !encoding.trim().equalsIgnoreCase("identity")) {
+			// the compressed bodies are decompressed blocking, they can be sent to /paragraphs/splitAndSearch/stream
+			response.sendError(HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE, "Compressed bodies aren't supported: " + encoding);
+			return;
+		}
+		Charset charset = request.getCharacterEncoding() != null ? Charset.forName(request.getCharacterEncoding()) : StandardCharsets.UTF_8;
+		String searchTerm = request.getParameter("searchTerm");
+		List<String> searchTerms = listParameter(request, "searchTerms");
+		logger.debug("splitAndSearchStreamAsync: {}, mainLimit: {}, secondaryLimit: {}", searchTerm, request.getParameter("mainLimit"), request.getParameter("secondaryLimit"));
+
+		Handler handler = new Handler(charset);
+		try {
+			int mainLimit = intParameter(request, "mainLimit", 1200);
+			int secondaryLimit = intParameter(request, "secondaryLimit", 800);
+			String units = request.getParameter("units");
+			OffsetUnit unit = units == null ? OffsetUnit.CHARS : OffsetUnit.valueOf(units);
+			unit.checkCharset(charset);
+			handler.stream = service.openStream(SplitRequest.builder().searchTerm(searchTerm).searchTerms(searchTerms).mainLimit(mainLimit).secondaryLimit(secondaryLimit)
+					.rules(request.getParameter("rules")).unit(unit).build(), handler::paragraph);
+		} catch(IllegalArgumentException ex) {
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST, ex.getMessage());
+			return;
+		}
+
+		response.setContentType(ParagraphController.APPLICATION_NDJSON_VALUE);
+		handler.async = request.startAsync();
+		handler.async.setTimeout(timeout);
+		handler.input = request.getInputStream();
+		handler.output = response.getOutputStream();
+		handler.input.setReadListener(handler);
+		handler.output.setWriteListener(handler);
+	}
+
+	private int intParameter(HttpServletRequest request, String name, int defaultValue) {
+		String value = request.getParameter(name);
+		return value == null ? defaultValue : Integer.parseInt(value);
+	}
+
+	private List<String> listParameter(HttpServletRequest request, String name) {
+		String[] values = request.getParameterValues(name);
+		if(values == null) {
+			return null;
+		}
+		// both searchTerms=a&searchTerms=b and searchTerms=a,b as in the controller
+		List<String> list = new ArrayList<>();
+		for(String value : values) {
+			list.addAll(Arrays.asList(value.split(",")));
+		}
+		return list;
+	}
+
+	/**
+	 * Reads the request when its body arrives and writes the paragraphs when the response can be written.
+	 * The container can call the listeners from different threads, so they are synchronized.
+	 */
+	private class Handler implements ReadListener, WriteListener {
+		private final CharsetDecoder decoder;
+		private final byte[] bytes = new byte[BUFFER_SIZE];
+		// the bytes read but not decoded yet, e.g. the beginning of a multibyte character
+		private final ByteBuffer undecoded = ByteBuffer.wrap(bytes);
+		private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+		// the paragraphs which couldn't be written yet
+		private final Deque<ByteBuffer> pending = new ArrayDeque<>();
+
+		private ParagraphStream stream;
+		private AsyncContext async;
+		private ServletInputStream input;
+		private ServletOutputStream output;
+		private boolean allRead;
+		private boolean completed;
+
+		private Handler(Charset charset) {
+			decoder = charset.newDecoder()
+					.onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		}
+
+		@Override
+		public synchronized void onDataAvailable() throws IOException {
+			read();
+		}
+
+		@Override
+		public synchronized void onAllDataRead() throws IOException {
+			finish();
+		}
+
+		@Override
+		public synchronized void onWritePossible() throws IOException {
+			if(write()) {
+				if(allRead) {
+					complete();
+				} else {
+					// the body wasn't read while the paragraphs couldn't be written
+					read();
+				}
+			}
+		}
+
+		@Override
+		public synchronized void onError(Throwable throwable) {
+			logger.debug("splitAndSearchStreamAsync failed", throwable);
+			complete();
+		}
+
+		private void read() throws IOException {
+			// the body isn't read until the paragraphs are written, *onWritePossible* continues reading
+			while(!input.isFinished() && input.isReady()) {
+				int read = input.read(bytes, undecoded.position(), undecoded.remaining());
+				if(read > 0) {
+					undecoded.position(undecoded.position() + read);
+					undecoded.flip();
+					decode(false);
+					undecoded.compact();
+				}
+				if(!write()) {
+					return;
+				}
+			}
+			if(input.isFinished()) {
+				// the container doesn't call *onAllDataRead* if the end was read in *onWritePossible*
+				finish();
+			}
+		}
+
+		private void finish() throws IOException {
+			if(allRead) {
+				return;
+			}
+			allRead = true;
+			undecoded.flip();
+			decode(true);
+			stream.finish();
+			if(write()) {
+				complete();
+			}
+		}
+
+		private void decode(boolean endOfInput) {
+			while(true) {
+				CoderResult result = decoder.decode(undecoded, chars, endOfInput);
+				if(endOfInput && result.isUnderflow()) {
+					result = decoder.flush(chars);
+				}
+				chars.flip();
+				stream.feed(chars.array(), 0, chars.limit());
+				chars.clear();
+				if(result.isUnderflow()) {
+					return;
+				}
+			}
+		}
+
+		private void paragraph(Paragraph paragraph) {
+			try {
+				byte[] json = objectMapper.writeValueAsBytes(paragraph);
+				pending.add(ByteBuffer.allocate(json.length + 1).put(json).put((byte) '\n').flip());
+			} catch(IOException ex) {
+				throw new UncheckedIOException(ex);
+			}
+		}
+
+		/**
+		 * @return true if all the paragraphs are written and more can be written
+		 * @throws IOException
+		 */
+		private boolean write() throws IOException {
+			while(!pending.isEmpty() && output.isReady()) {
+				ByteBuffer paragraph = pending.poll();
+				output.write(paragraph.array(), paragraph.position(), paragraph.remaining());
+				if(pending.isEmpty() && output.isReady()) {
+					// every paragraph is sent as soon as it is found
+					output.flush();
+				}
+			}
+			return pending.isEmpty() && output.isReady();
+		}
+
+		private void complete() {
+			if(!completed) {
+				completed = true;
+				async.complete();
+			}
+		}
+	}
+}
@@ -0,0 +1,11 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import lombok.Value;
+
+@Value
+public class Occurrence {
+	// position of the occurrence of the search term in the text
+	private long start;
+	// the occurrences of a regular expression or a normalized term can have other lengths than the search term
+	private int length;
+}
@@ -0,0 +1,29 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Unit of the positions and lengths of the paragraphs.
+ */
+public enum OffsetUnit {
+	/**
+	 * UTF-16 characters of the decoded text, as String.length().
+	 */
+	CHARS,
+	/**
+	 * Bytes of the text encoded in UTF-8, e.g. of the request body.
+	 */
+	BYTES;
+
+	/**
+	 * The bytes are counted in UTF-8, so they would be wrong for a body in another charset.
+	 * @param charset of the text read from the body
+	 * @throws IllegalArgumentException if the unit is BYTES and the charset isn't UTF-8
+	 */
+	public void checkCharset(Charset charset) {
+		if(this == BYTES && !StandardCharsets.UTF_8.equals(charset)) {
+			throw new IllegalArgumentException("The positions in bytes are only supported for the text encoded in UTF-8: " + charset);
+		}
+	}
+}
@@ -0,0 +1,84 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import com.github.motyka.textprocessor.search.AhoCorasick;
+import com.github.motyka.textprocessor.search.SearchPattern;
+
+import java.util.Arrays;
+
+/**
+ * Collects the positions of the paragraphs into {@link ParagraphOffsets} without creating their text.
+ */
+class OffsetsCollector implements SplittingEngine.ParagraphListener {
+
+	private static final int NOT_FOUND = -1;
+
+	// the search term is only given with a String text
+	private final CharSequence text;
+	private final String searchTerm;
+	// the search term with the options, searched in every paragraph instead of the indexOf
+	private final SearchPattern.Searcher searcher;
+	private final AhoCorasick automaton;
+
+	private long[] starts = new long[16];
+	private int[] lengths = new int[16];
+	private boolean[] contains = new boolean[16];
+	private int size;
+
+	// the paragraphs come in order, so the first occurrence of the search term is only searched forward
+	private int nextMatch = NOT_FOUND;
+
+	OffsetsCollector(CharSequence text, String searchTerm, AhoCorasick automaton) {
+		this(text, searchTerm, null, automaton);
+	}
+
+	OffsetsCollector(CharSequence text, String searchTerm, SearchPattern pattern, AhoCorasick automaton) {
+		this.text = text;
+		this.searchTerm = searchTerm;
+		this.searcher = pattern != null ? pattern.searcher() : null;
+		this.automaton = automaton;
+	}
+
+	@Override
+	public void paragraph(int start, int length) {
+		add(start, length, search(start, length) || (automaton != null && automaton.containsAny(text, start, start + length)));
+	}
+
+	/**
+	 * Adds the paragraph searched before, e.g. of a stream without the whole text.
+	 * @param start
+	 * @param length
+	 * @param contains
+	 */
+	void add(long start, int length, boolean contains) {
+		if(size == starts.length) {
+			starts = Arrays.copyOf(starts, size * 2);
+			lengths = Arrays.copyOf(lengths, size * 2);
+			this.contains = Arrays.copyOf(this.contains, size * 2);
+		}
+		starts[size] = start;
+		lengths[size] = length;
+		this.contains[size] = contains;
+		size++;
+	}
+
+	private boolean search(int start, int length) {
+		if(searcher != null) {
+			return searcher.contains(text, start, start + length);
+		}
+		// assumed that the search team can't be empty to do the search
+		if(searchTerm == null || searchTerm.isEmpty()) {
+			return false;
+		}
+		if(nextMatch != text.length() && nextMatch < start) {
+			nextMatch = text.toString().indexOf(searchTerm, start);
+			if(nextMatch < 0) {
+				nextMatch = text.length();
+			}
+		}
+		return nextMatch + searchTerm.length() <= start + length;
+	}
+
+	ParagraphOffsets build() {
+		return new ParagraphOffsets(Arrays.copyOf(starts, size), Arrays.copyOf(lengths, size), Arrays.copyOf(contains, size));
+	}
+}
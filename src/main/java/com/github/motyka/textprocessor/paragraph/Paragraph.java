@@ -1,11 +1,30 @@
 package com.github.motyka.textprocessor.paragraph;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
 import lombok.Value;
 
+import java.util.List;
+
 @Value
+@AllArgsConstructor
 public class Paragraph {
 	private String text;
-	private int start;
+	private long start;
 	private int length;
 	private boolean contains;
+	// occurrences of the search terms, only if they were specified
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	private List<TermMatch> matches;
+	// occurrences of the search term, only if it was searched with SearchOptions
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	private List<Occurrence> occurrences;
+
+	public Paragraph(String text, long start, int length, boolean contains) {
+		this(text, start, length, contains, null);
+	}
+
+	public Paragraph(String text, long start, int length, boolean contains, List<TermMatch> matches) {
+		this(text, start, length, contains, matches, null);
+	}
 }
@@ -0,0 +1,87 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Positions of the paragraphs of a text without the search results, so they can be kept in {@link SplitCache}
+ * and searched again for other search terms.
+ */
+class ParagraphBoundaries {
+
+	private final int[] starts;
+	private final int[] lengths;
+
+	private ParagraphBoundaries(int[] starts, int[] lengths) {
+		this.starts = starts;
+		this.lengths = lengths;
+	}
+
+	int size() {
+		return starts.length;
+	}
+
+	int start(int paragraph) {
+		return starts[paragraph];
+	}
+
+	/**
+	 * Passes the paragraphs *from* - *to* to the listener as if the text was split again.
+	 * @param from
+	 * @param to
+	 * @param listener
+	 */
+	void replay(int from, int to, SplittingEngine.ParagraphListener listener) {
+		for(int i = from; i < to; i++) {
+			listener.paragraph(starts[i], lengths[i]);
+		}
+	}
+
+	/**
+	 * @return approximate size in memory in bytes
+	 */
+	int weight() {
+		return 48 + 8 * starts.length;
+	}
+
+	/**
+	 * @param parts
+	 * @return all the paragraphs of the parts in the same order
+	 */
+	static ParagraphBoundaries concat(List<ParagraphBoundaries> parts) {
+		if(parts.size() == 1) {
+			return parts.get(0);
+		}
+		int size = parts.stream().mapToInt(ParagraphBoundaries::size).sum();
+		int[] starts = new int[size];
+		int[] lengths = new int[size];
+		int position = 0;
+		for(ParagraphBoundaries part : parts) {
+			System.arraycopy(part.starts, 0, starts, position, part.size());
+			System.arraycopy(part.lengths, 0, lengths, position, part.size());
+			position += part.size();
+		}
+		return new ParagraphBoundaries(starts, lengths);
+	}
+
+	static class Collector implements SplittingEngine.ParagraphListener {
+		private int[] starts = new int[16];
+		private int[] lengths = new int[16];
+		private int size;
+
+		@Override
+		public void paragraph(int start, int length) {
+			if(size == starts.length) {
+				starts = Arrays.copyOf(starts, size * 2);
+				lengths = Arrays.copyOf(lengths, size * 2);
+			}
+			starts[size] = start;
+			lengths[size] = length;
+			size++;
+		}
+
+		ParagraphBoundaries build() {
+			return new ParagraphBoundaries(Arrays.copyOf(starts, size), Arrays.copyOf(lengths, size));
+		}
+	}
+}
@@ -0,0 +1,17 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * The paragraphs *index* ... *index + removed - 1* of the document are replaced by the paragraphs,
+ * the start of every paragraph after them is moved by *shift* characters.
+ */
+@Value
+public class ParagraphChange {
+	private int index;
+	private int removed;
+	private List<Paragraph> paragraphs;
+	private int shift;
+}
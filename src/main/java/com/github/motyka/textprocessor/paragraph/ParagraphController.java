@@ -1,34 +1,277 @@
 package com.github.motyka.textprocessor.paragraph;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("paragraphs")
 public class ParagraphController {
 
+	// every paragraph is a JSON object in a separate line
+	public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
 	private final Logger logger = LoggerFactory.getLogger(ParagraphController.class);
 
 	private ParagraphService service;
+	private ParagraphFileService fileService;
+	private ObjectMapper objectMapper;
 
-	public ParagraphController(ParagraphService service) {
+	public ParagraphController(ParagraphService service, ParagraphFileService fileService, ObjectMapper objectMapper) {
 		this.service = service;
+		this.fileService = fileService;
+		this.objectMapper = objectMapper;
 	}
 
+	/**
+	 * Splits the text with the default split rules or the rules of the chain named by *rules*, see {@link #rules()}.
+	 */
 	@PostMapping("/splitAndSearch")
 	public List<Paragraph> splitAndSearch(
 			@RequestBody SearchCriteria searchCriteria,
 			@RequestParam(defaultValue = "1200") int mainLimit,
-			@RequestParam(defaultValue = "800") int secondaryLimit) {
-		logger.info("splitAndSearch: {}, mainLimit: {}, secondaryLimit: {}", searchCriteria, mainLimit, secondaryLimit);
+			@RequestParam(defaultValue = "800") int secondaryLimit,
+			@RequestParam(required = false) SplittingStrategy strategy,
+			@RequestParam(required = false) String rules) {
+		logger.debug("splitAndSearch: {}, mainLimit: {}, secondaryLimit: {}, strategy: {}, rules: {}", searchCriteria, mainLimit, secondaryLimit, strategy, rules);
 		try {
-			return service.splitAndSearch(searchCriteria.getText(), searchCriteria.getSearchTerm(), mainLimit, secondaryLimit);
+			return service.splitAndSearch(searchCriteria.getText(), request(searchCriteria, mainLimit, secondaryLimit, strategy, rules));
 		} catch(NullPointerException | IllegalArgumentException ex) {
 			// this exception will override Spring's default HTTP code for NPE and IAE from 500 to 400 (BAD_REQUEST)
 			throw new ParagraphSplittingException(ex);
 		}
 	}
+
+	/**
+	 * Returns a page of the paragraphs, the text is only split until the page is filled. The next page of the same text
+	 * continues the split at the ParagraphPage.next cursor, the offset skips the paragraphs after the cursor.
+	 */
+	@PostMapping("/splitAndSearch/page")
+	public ParagraphPage splitAndSearchPage(
+			@RequestBody SearchCriteria searchCriteria,
+			@RequestParam(defaultValue = "1200") int mainLimit,
+			@RequestParam(defaultValue = "800") int secondaryLimit,
+			@RequestParam(required = false) SplittingStrategy strategy,
+			@RequestParam(required = false) String rules,
+			@RequestParam(defaultValue = "0") long offset,
+			@RequestParam(defaultValue = "100") int limit,
+			@RequestParam(defaultValue = "false") boolean onlyMatching,
+			@RequestParam(required = false) String cursor) {
+		logger.debug("splitAndSearchPage: {}, mainLimit: {}, secondaryLimit: {}, strategy: {}, rules: {}, offset: {}, limit: {}, onlyMatching: {}, cursor: {}",
+				searchCriteria, mainLimit, secondaryLimit, strategy, rules, offset, limit, onlyMatching, cursor);
+		try {
+			return service.page(searchCriteria.getText(), request(searchCriteria, mainLimit, secondaryLimit, strategy, rules), offset, limit, onlyMatching, cursor);
+		} catch(NullPointerException | IllegalArgumentException ex) {
+			throw new ParagraphSplittingException(ex);
+		}
+	}
+
+	/**
+	 * Splits many documents with the same limits, the results are returned by the ids of the documents.
+	 * A document that can't be split has the error in its result instead of failing the whole batch.
+	 */
+	@PostMapping("/splitAndSearch/batch")
+	public Map<String, BatchResult> splitAndSearchBatch(
+			@RequestBody List<BatchItem> items,
+			@RequestParam(defaultValue = "1200") int mainLimit,
+			@RequestParam(defaultValue = "800") int secondaryLimit,
+			@RequestParam(required = false) SplittingStrategy strategy,
+			@RequestParam(required = false) String rules) {
+		logger.debug("splitAndSearchBatch: {} documents, mainLimit: {}, secondaryLimit: {}, strategy: {}, rules: {}", items.size(), mainLimit, secondaryLimit, strategy, rules);
+		try {
+			return service.splitAndSearch(items, SplitRequest.builder().mainLimit(mainLimit).secondaryLimit(secondaryLimit).strategy(strategy).rules(rules).build());
+		} catch(NullPointerException | IllegalArgumentException ex) {
+			throw new ParagraphSplittingException(ex);
+		}
+	}
+
+	/**
+	 * Returns only the positions of the paragraphs as columns of the start, length and contains values.
+	 */
+	@PostMapping(value = "/splitAndSearch/offsets", produces = MediaType.APPLICATION_JSON_VALUE)
+	public ParagraphOffsets splitAndSearchOffsets(
+			@RequestBody SearchCriteria searchCriteria,
+			@RequestParam(defaultValue = "1200") int mainLimit,
+			@RequestParam(defaultValue = "800") int secondaryLimit,
+			@RequestParam(required = false) SplittingStrategy strategy,
+			@RequestParam(required = false) String rules) {
+		logger.debug("splitAndSearchOffsets: {}, mainLimit: {}, secondaryLimit: {}, strategy: {}, rules: {}", searchCriteria, mainLimit, secondaryLimit, strategy, rules);
+		try {
+			return service.splitAndSearchOffsets(searchCriteria.getText(), request(searchCriteria, mainLimit, secondaryLimit, strategy, rules));
+		} catch(NullPointerException | IllegalArgumentException ex) {
+			throw new ParagraphSplittingException(ex);
+		}
+	}
+
+	/**
+	 * The same as {@link #splitAndSearchOffsets}, but the positions are encoded as varints, see {@link ParagraphOffsets#toVarints()}.
+	 */
+	@PostMapping(value = "/splitAndSearch/offsets", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+	public byte[] splitAndSearchOffsetsBinary(
+			@RequestBody SearchCriteria searchCriteria,
+			@RequestParam(defaultValue = "1200") int mainLimit,
+			@RequestParam(defaultValue = "800") int secondaryLimit,
+			@RequestParam(required = false) SplittingStrategy strategy,
+			@RequestParam(required = false) String rules) {
+		return splitAndSearchOffsets(searchCriteria, mainLimit, secondaryLimit, strategy, rules).toVarints();
+	}
+
+	/**
+	 * The same as {@link #splitAndSearchOffsets} for the text sent as the request body encoded in UTF-8, which is split
+	 * without decoding it. The positions are in characters or in bytes of the body.
+	 */
+	@PostMapping(value = "/splitAndSearch/offsets", consumes = MediaType.TEXT_PLAIN_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+	public ParagraphOffsets splitAndSearchOffsetsUtf8(
+			HttpServletRequest request,
+			@RequestBody byte[] text,
+			@RequestParam(required = false) String searchTerm,
+			@RequestParam(required = false) List<String> searchTerms,
+			@RequestParam(defaultValue = "1200") int mainLimit,
+			@RequestParam(defaultValue = "800") int secondaryLimit,
+			@RequestParam(required = false) SplittingStrategy strategy,
+			@RequestParam(required = false) String rules,
+			@RequestParam(defaultValue = "CHARS") OffsetUnit units) {
+		logger.debug("splitAndSearchOffsetsUtf8: {} bytes, {}, mainLimit: {}, secondaryLimit: {}, strategy: {}, rules: {}, units: {}", text.length, searchTerm, mainLimit, secondaryLimit,
+				strategy, rules, units);
+		try {
+			if(request.getCharacterEncoding() != null && !StandardCharsets.UTF_8.equals(Charset.forName(request.getCharacterEncoding()))) {
+				throw new IllegalArgumentException("The text must be encoded in UTF-8: " + request.getCharacterEncoding());
+			}
+			return service.splitAndSearchOffsets(text, SplitRequest.builder().searchTerm(searchTerm).searchTerms(searchTerms).mainLimit(mainLimit).secondaryLimit(secondaryLimit)
+					.strategy(strategy).rules(rules).unit(units).build());
+		} catch(NullPointerException | IllegalArgumentException ex) {
+			throw new ParagraphSplittingException(ex);
+		}
+	}
+
+	/**
+	 * The same as {@link #splitAndSearchOffsetsUtf8}, but the positions are encoded as varints.
+	 */
+	@PostMapping(value = "/splitAndSearch/offsets", consumes = MediaType.TEXT_PLAIN_VALUE, produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+	public byte[] splitAndSearchOffsetsUtf8Binary(
+			HttpServletRequest request,
+			@RequestBody byte[] text,
+			@RequestParam(required = false) String searchTerm,
+			@RequestParam(required = false) List<String> searchTerms,
+			@RequestParam(defaultValue = "1200") int mainLimit,
+			@RequestParam(defaultValue = "800") int secondaryLimit,
+			@RequestParam(required = false) SplittingStrategy strategy,
+			@RequestParam(required = false) String rules,
+			@RequestParam(defaultValue = "CHARS") OffsetUnit units) {
+		return splitAndSearchOffsetsUtf8(request, text, searchTerm, searchTerms, mainLimit, secondaryLimit, strategy, rules, units).toVarints();
+	}
+
+	/**
+	 * Splits the file or all the files in the directory stored on the server under *paragraph.files.root*,
+	 * only the positions of the paragraphs are returned by the paths of the files.
+	 */
+	@GetMapping(value = "/splitAndSearch/file", produces = MediaType.APPLICATION_JSON_VALUE)
+	public Map<String, ParagraphOffsets> splitAndSearchFile(
+			@RequestParam String path,
+			@RequestParam(required = false) String searchTerm,
+			@RequestParam(required = false) List<String> searchTerms,
+			@RequestParam(defaultValue = "1200") int mainLimit,
+			@RequestParam(defaultValue = "800") int secondaryLimit) throws IOException {
+		logger.debug("splitAndSearchFile: {}, {}, mainLimit: {}, secondaryLimit: {}", path, searchTerm, mainLimit, secondaryLimit);
+		try {
+			return fileService.splitAndSearchOffsets(path, SplitRequest.builder().searchTerm(searchTerm).searchTerms(searchTerms).mainLimit(mainLimit).secondaryLimit(secondaryLimit).build());
+		} catch(NullPointerException | IllegalArgumentException ex) {
+			throw new ParagraphSplittingException(ex);
+		}
+	}
+
+	/**
+	 * Splits the text from the request body without reading it whole into the memory, the paragraphs are sent back
+	 * while the body is read. The positions are in characters or in bytes of the body. If the split fails after
+	 * the first paragraphs were sent, the last line is {@link StreamError} instead of the status 400.
+	 */
+	@PostMapping(value = "/splitAndSearch/stream", consumes = MediaType.TEXT_PLAIN_VALUE, produces = APPLICATION_NDJSON_VALUE)
+	public void splitAndSearchStream(
+			HttpServletRequest request,
+			HttpServletResponse response,
+			@RequestParam(required = false) String searchTerm,
+			@RequestParam(required = false) List<String> searchTerms,
+			@RequestParam(defaultValue = "1200") int mainLimit,
+			@RequestParam(defaultValue = "800") int secondaryLimit,
+			@RequestParam(required = false) String rules,
+			@RequestParam(defaultValue = "CHARS") OffsetUnit units) throws IOException {
+		logger.debug("splitAndSearchStream: {}, mainLimit: {}, secondaryLimit: {}, rules: {}, units: {}", searchTerm, mainLimit, secondaryLimit, rules, units);
+		Charset charset = request.getCharacterEncoding() != null ? Charset.forName(request.getCharacterEncoding()) : StandardCharsets.UTF_8;
+		stream(request.getInputStream(), charset, response, streamRequest(searchTerm, searchTerms, mainLimit, secondaryLimit, rules, units));
+	}
+
+	/**
+	 * The same as {@link #splitAndSearchStream} for a file uploaded as multipart/form-data.
+	 */
+	@PostMapping(value = "/splitAndSearch/stream", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = APPLICATION_NDJSON_VALUE)
+	public void splitAndSearchStreamFile(
+			@RequestParam MultipartFile file,
+			HttpServletResponse response,
+			@RequestParam(required = false) String searchTerm,
+			@RequestParam(required = false) List<String> searchTerms,
+			@RequestParam(defaultValue = "1200") int mainLimit,
+			@RequestParam(defaultValue = "800") int secondaryLimit,
+			@RequestParam(required = false) String rules,
+			@RequestParam(defaultValue = "CHARS") OffsetUnit units) throws IOException {
+		logger.debug("splitAndSearchStreamFile: {}, {}, mainLimit: {}, secondaryLimit: {}, rules: {}, units: {}", file.getOriginalFilename(), searchTerm, mainLimit, secondaryLimit,
+				rules, units);
+		stream(file.getInputStream(), StandardCharsets.UTF_8, response, streamRequest(searchTerm, searchTerms, mainLimit, secondaryLimit, rules, units));
+	}
+
+	/**
+	 * @return names of the split rules by the names of the chains which can be passed as *rules*
+	 */
+	@GetMapping(value = "/rules", produces = MediaType.APPLICATION_JSON_VALUE)
+	public Map<String, List<String>> rules() {
+		return service.getRuleChains();
+	}
+
+	private static SplitRequest request(SearchCriteria searchCriteria, int mainLimit, int secondaryLimit, SplittingStrategy strategy, String rules) {
+		return SplitRequest.builder().searchTerm(searchCriteria.getSearchTerm()).options(searchCriteria.getOptions()).searchTerms(searchCriteria.getSearchTerms())
+				.mainLimit(mainLimit).secondaryLimit(secondaryLimit).strategy(strategy).rules(rules).build();
+	}
+
+	private static SplitRequest streamRequest(String searchTerm, List<String> searchTerms, int mainLimit, int secondaryLimit, String rules, OffsetUnit units) {
+		return SplitRequest.builder().searchTerm(searchTerm).searchTerms(searchTerms).mainLimit(mainLimit).secondaryLimit(secondaryLimit).rules(rules).unit(units).build();
+	}
+
+	private void stream(InputStream input, Charset charset, HttpServletResponse response, SplitRequest splitRequest) throws IOException {
+		response.setContentType(APPLICATION_NDJSON_VALUE);
+		OutputStream output = response.getOutputStream();
+		try {
+			splitRequest.getUnit().checkCharset(charset);
+			// the paragraphs are sent whenever the buffer of the response fills up, not flushed one by one
+			service.splitAndSearch(new InputStreamReader(input, charset), splitRequest, paragraph -> {
+				try {
+					output.write(objectMapper.writeValueAsBytes(paragraph));
+					output.write('\n');
+				} catch(IOException ex) {
+					throw new UncheckedIOException(ex);
+				}
+			});
+		} catch(NullPointerException | IllegalArgumentException ex) {
+			if(!response.isCommitted()) {
+				throw new ParagraphSplittingException(ex);
+			}
+			// the status was sent with the first paragraphs, the last line tells the client the text wasn't split whole
+			logger.debug("splitAndSearchStream failed after the response was committed", ex);
+			output.write(objectMapper.writeValueAsBytes(new StreamError(String.valueOf(ex.getMessage()))));
+			output.write('\n');
+		}
+	}
 }
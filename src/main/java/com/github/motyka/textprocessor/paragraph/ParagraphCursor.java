@@ -0,0 +1,64 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * Opaque token of the position where the next page of {@link ParagraphService#page} starts. The position is the start
+ * of a paragraph, so the split continued from there gives the same paragraphs as the split of the whole text.
+ * The token also has a checksum of the limits, the rules and the text around the position, so a cursor of another
+ * text is rejected instead of giving different paragraphs.
+ */
+final class ParagraphCursor {
+
+	private static final int BYTES = 2 * Integer.BYTES;
+	// characters before and after the position in the checksum
+	private static final int CONTEXT = 16;
+
+	private ParagraphCursor() {
+	}
+
+	static String encode(CharSequence text, int position, int mainLimit, int secondaryLimit, String rules) {
+		ByteBuffer buffer = ByteBuffer.allocate(BYTES)
+				.putInt(position)
+				.putInt(checksum(text, position, mainLimit, secondaryLimit, rules));
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+	}
+
+	/**
+	 * @param cursor
+	 * @param text
+	 * @param mainLimit
+	 * @param secondaryLimit
+	 * @param rules
+	 * @return position of the cursor in the text
+	 * @throws IllegalArgumentException if the cursor is malformed or it was created for another text, limits or rules
+	 */
+	static int decode(String cursor, CharSequence text, int mainLimit, int secondaryLimit, String rules) {
+		byte[] bytes;
+		try {
+			bytes = Base64.getUrlDecoder().decode(cursor);
+		} catch(IllegalArgumentException ex) {
+			throw new IllegalArgumentException("Invalid cursor: " + cursor, ex);
+		}
+		if(bytes.length != BYTES) {
+			throw new IllegalArgumentException("Invalid cursor: " + cursor);
+		}
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		int position = buffer.getInt();
+		int checksum = buffer.getInt();
+		if(position < 0 || position > text.length() || checksum != checksum(text, position, mainLimit, secondaryLimit, rules)) {
+			throw new IllegalArgumentException("The cursor doesn't belong to the text, the limits or the rules: " + cursor);
+		}
+		return position;
+	}
+
+	private static int checksum(CharSequence text, int position, int mainLimit, int secondaryLimit, String rules) {
+		int hash = Objects.hash(text.length(), mainLimit, secondaryLimit, Objects.requireNonNullElse(rules, SplitRuleChain.DEFAULT_NAME));
+		for(int i = Math.max(0, position - CONTEXT), end = Math.min(text.length(), position + CONTEXT); i < end; i++) {
+			hash = 31 * hash + text.charAt(i);
+		}
+		return hash;
+	}
+}
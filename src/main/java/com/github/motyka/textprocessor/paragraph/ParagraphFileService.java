@@ -0,0 +1,113 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Splits the UTF-8 files stored on the server under the configured root directory. The files are memory mapped
+ * and split while decoding, so they are never read onto the heap, and only the positions of the paragraphs are returned.
+ */
+@Service
+public class ParagraphFileService {
+
+	private final Logger logger = LoggerFactory.getLogger(ParagraphFileService.class);
+
+	private final ParagraphService service;
+
+	// only the files under this directory can be split, empty means that no files can be split
+	@Value("${paragraph.files.root:}")
+	private String root = "";
+
+	// size of a single mapping of the file in bytes, it can't be bigger than 2GB
+	@Value("${paragraph.files.mapping-size:1073741824}")
+	private int mappingSize = 1 << 30;
+
+	public ParagraphFileService(ParagraphService service) {
+		this.service = service;
+	}
+
+	/**
+	 * Splits the file or all the files in the directory and its subdirectories.
+	 * @param path relative to the root directory
+	 * @param request only the search terms and the limits are used
+	 * @return positions of the paragraphs by the paths of the files relative to the root directory, in alphabetical order
+	 * @throws IOException
+	 */
+	public Map<String, ParagraphOffsets> splitAndSearchOffsets(String path, SplitRequest request) throws IOException {
+		logger.debug("split files {} {}", path, request);
+
+		Path rootDirectory = rootDirectory();
+		Path file = resolve(rootDirectory, path);
+
+		List<Path> files;
+		if(Files.isDirectory(file)) {
+			try(Stream<Path> walk = Files.walk(file)) {
+				files = walk.filter(each -> isInRoot(rootDirectory, each)).sorted().collect(Collectors.toList());
+			}
+		} else {
+			files = List.of(file);
+		}
+
+		Map<String, ParagraphOffsets> offsets = new LinkedHashMap<>();
+		for(Path each : files) {
+			try(Reader reader = new MappedFileReader(each, mappingSize)) {
+				String name = rootDirectory.relativize(each).toString().replace('\\', '/');
+				offsets.put(name, service.splitAndSearchOffsets(reader, request));
+			}
+		}
+		return offsets;
+	}
+
+	private Path rootDirectory() throws IOException {
+		if(root == null || root.isEmpty()) {
+			throw new IllegalArgumentException("The files can't be split, paragraph.files.root isn't set.");
+		}
+		return Paths.get(root).toRealPath();
+	}
+
+	// the walk doesn't follow the links to directories, but a link to a file would be read wherever it points
+	private boolean isInRoot(Path rootDirectory, Path file) {
+		if(!Files.isRegularFile(file)) {
+			return false;
+		}
+		try {
+			if(file.toRealPath().startsWith(rootDirectory)) {
+				return true;
+			}
+		} catch(IOException ex) {
+			// removed while walking
+		}
+		logger.debug("skipped the file outside of the root directory {}", file);
+		return false;
+	}
+
+	private Path resolve(Path rootDirectory, String path) throws IOException {
+		Objects.requireNonNull(path, "The path can't be null");
+		Path file;
+		try {
+			// the real path resolves the symbolic links, so they can't point outside of the root directory
+			file = rootDirectory.resolve(path).toRealPath();
+		} catch(NoSuchFileException ex) {
+			throw new IllegalArgumentException("The file doesn't exist: " + path);
+		}
+		if(!file.startsWith(rootDirectory)) {
+			throw new IllegalArgumentException("The file must be in the root directory: " + path);
+		}
+		return file;
+	}
+}
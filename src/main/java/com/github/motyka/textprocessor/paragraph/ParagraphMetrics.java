@@ -0,0 +1,114 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Micrometer meters of the splitting and searching, exported by Actuator, e.g. at /actuator/prometheus.
+ * They are updated once per request, the paragraphs are only counted by {@link SplitRecorder}.
+ */
+@Component
+public class ParagraphMetrics {
+
+	static final String PARAGRAPHS = "paragraphs";
+	static final String OFFSETS = "offsets";
+	static final String STREAM = "stream";
+	static final String PAGE = "page";
+
+	private final MeterRegistry registry;
+	private final DistributionSummary textSize;
+	private final DistributionSummary paragraphs;
+	private final Map<SplitReason, Counter> reasons = new EnumMap<>(SplitReason.class);
+	private final Counter hits;
+	private final Counter misses;
+
+	public ParagraphMetrics(MeterRegistry registry) {
+		this.registry = registry;
+		textSize = DistributionSummary.builder("paragraph.split.text.size")
+				.description("Length of the split texts")
+				.baseUnit("characters")
+				.publishPercentileHistogram()
+				.minimumExpectedValue(1L)
+				.maximumExpectedValue(1L << 30)
+				.register(registry);
+		paragraphs = DistributionSummary.builder("paragraph.split.paragraphs")
+				.description("Number of paragraphs of the split texts")
+				.baseUnit("paragraphs")
+				.publishPercentileHistogram()
+				.minimumExpectedValue(1L)
+				.maximumExpectedValue(1L << 24)
+				.register(registry);
+		for(SplitReason reason : SplitReason.values()) {
+			reasons.put(reason, Counter.builder("paragraph.split.reason")
+					.description("Number of paragraphs ended by the separator")
+					.tag("reason", reason.name())
+					.register(registry));
+		}
+		hits = searchCounter("hit");
+		misses = searchCounter("miss");
+	}
+
+	private Counter searchCounter(String result) {
+		return Counter.builder("paragraph.search.paragraphs")
+				.description("Number of searched paragraphs by the result, hit / (hit + miss) is the hit ratio")
+				.tag("result", result)
+				.register(registry);
+	}
+
+	Timer.Sample start() {
+		return Timer.start(registry);
+	}
+
+	/**
+	 * @param listener
+	 * @return listener counting the separators of the paragraphs, they are added to the metrics by {@link SplitRecorder#finish()}
+	 */
+	<L extends SplittingEngine.ParagraphListener> SplitRecorder<L> recorder(L listener) {
+		return new SplitRecorder<>(listener, this);
+	}
+
+	/**
+	 * Records the finished split.
+	 * @param sample started by {@link #start()}
+	 * @param mode {@link #PARAGRAPHS}, {@link #OFFSETS}, {@link #STREAM} or {@link #PAGE}
+	 * @param strategy
+	 * @param textLength length of the split text, of a page only the scanned part
+	 * @param paragraphCount
+	 * @param matchedCount number of paragraphs containing the search terms
+	 * @param searched false if there was nothing to search for
+	 */
+	void split(Timer.Sample sample, String mode, SplittingStrategy strategy, long textLength, int paragraphCount, int matchedCount, boolean searched) {
+		sample.stop(Timer.builder("paragraph.split")
+				.description("Time of splitting the text and searching in the paragraphs")
+				.tag("mode", mode)
+				.tag("strategy", strategy.name())
+				.publishPercentileHistogram()
+				.minimumExpectedValue(Duration.ofNanos(100_000))
+				.maximumExpectedValue(Duration.ofMinutes(1))
+				.register(registry));
+		textSize.record(textLength);
+		paragraphs.record(paragraphCount);
+		if(searched) {
+			hits.increment(matchedCount);
+			misses.increment(paragraphCount - matchedCount);
+		}
+	}
+
+	/**
+	 * @param counts number of paragraphs by {@link SplitReason#ordinal()}
+	 */
+	void reasons(int[] counts) {
+		for(SplitReason reason : SplitReason.values()) {
+			if(counts[reason.ordinal()] > 0) {
+				reasons.get(reason).increment(counts[reason.ordinal()]);
+			}
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import lombok.Value;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+/**
+ * Paragraphs without their text, stored in columns: the paragraph *i* is described by
+ * start[i], length[i] and contains[i].
+ */
+@Value
+public class ParagraphOffsets {
+	private long[] start;
+	private int[] length;
+	private boolean[] contains;
+
+	public int size() {
+		return start.length;
+	}
+
+	/**
+	 * @param parts
+	 * @return all the paragraphs of the parts in the same order
+	 */
+	public static ParagraphOffsets concat(List<ParagraphOffsets> parts) {
+		int size = parts.stream().mapToInt(ParagraphOffsets::size).sum();
+		long[] start = new long[size];
+		int[] length = new int[size];
+		boolean[] contains = new boolean[size];
+		int position = 0;
+		for(ParagraphOffsets part : parts) {
+			System.arraycopy(part.start, 0, start, position, part.size());
+			System.arraycopy(part.length, 0, length, position, part.size());
+			System.arraycopy(part.contains, 0, contains, position, part.size());
+			position += part.size();
+		}
+		return new ParagraphOffsets(start, length, contains);
+	}
+
+	/**
+	 * Encodes the paragraphs as unsigned LEB128 varints: the number of paragraphs followed by two varints for every
+	 * paragraph, the difference between its start and the start of the previous one (0 for the first one)
+	 * and (length << 1 | contains).
+	 * @return
+	 */
+	public byte[] toVarints() {
+		ByteArrayOutputStream output = new ByteArrayOutputStream(1 + size() * 4);
+		writeVarint(output, size());
+		long previous = 0;
+		for(int i = 0; i < size(); i++) {
+			writeVarint(output, start[i] - previous);
+			writeVarint(output, ((long) length[i] << 1) | (contains[i] ? 1 : 0));
+			previous = start[i];
+		}
+		return output.toByteArray();
+	}
+
+	private static void writeVarint(ByteArrayOutputStream output, long value) {
+		while((value & ~0x7FL) != 0) {
+			output.write((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		output.write((int) value);
+	}
+}
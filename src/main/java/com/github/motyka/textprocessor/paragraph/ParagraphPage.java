@@ -0,0 +1,16 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Paragraphs of a text split only as far as the page needs, the next page continues the split at the *next* cursor.
+ */
+@Value
+public class ParagraphPage {
+	private List<Paragraph> paragraphs;
+	// null if there are no more paragraphs, otherwise the cursor of the next page
+	// which can be empty if only the matching paragraphs are returned and none of the remaining ones matches
+	private String next;
+}
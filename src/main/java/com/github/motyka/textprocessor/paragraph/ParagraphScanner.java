@@ -0,0 +1,78 @@
+package com.github.motyka.textprocessor.paragraph;
+
+/**
+ * Splits the text by {@link ScanningSplittingEngine} one paragraph at a time, the text after the last requested
+ * paragraph isn't scanned. A paragraph only depends on the text from its start, so the split can be continued
+ * from the start of any paragraph, see {@link #position()}.
+ */
+class ParagraphScanner {
+
+	private static final int NOT_FOUND = -1;
+
+	private final ScanningSplittingEngine engine;
+	private final CharSequence text;
+	private final int end;
+	private final int mainLimit;
+	private final int secondaryLimit;
+	private final ScanningSplittingEngine.Boundary boundary = new ScanningSplittingEngine.Boundary();
+
+	// the double new lines are only searched forward, so this part of the text is scanned once
+	private int newLines = NOT_FOUND;
+	// start of the next paragraph
+	private int position;
+	private int start;
+	private int length;
+
+	/**
+	 * @param engine
+	 * @param text
+	 * @param from start of a paragraph of the whole text, e.g. 0
+	 * @param mainLimit
+	 * @param secondaryLimit
+	 */
+	ParagraphScanner(ScanningSplittingEngine engine, CharSequence text, int from, int mainLimit, int secondaryLimit) {
+		this.engine = engine;
+		this.text = text;
+		this.end = engine.getChain().getLineBreaks().trimEnd(text, 0, text.length());
+		this.mainLimit = mainLimit;
+		this.secondaryLimit = secondaryLimit;
+		this.position = ScanningSplittingEngine.trimStart(text, from, end);
+	}
+
+	/**
+	 * Finds the next paragraph, its position is returned by {@link #start()} and {@link #length()}.
+	 * @return false if there are no more paragraphs
+	 */
+	boolean next() {
+		if(!hasNext()) {
+			return false;
+		}
+		if(newLines < position) {
+			newLines = engine.getChain().getLineBreaks().findNewLines(text, position, end);
+		}
+		int paragraphLength = engine.next(text, position, end, newLines, mainLimit, secondaryLimit, boundary).length;
+		start = position;
+		length = engine.getChain().getLineBreaks().trimEnd(text, start, start + paragraphLength) - start;
+		position = ScanningSplittingEngine.trimStart(text, start + paragraphLength, end);
+		return true;
+	}
+
+	boolean hasNext() {
+		return position < end;
+	}
+
+	int start() {
+		return start;
+	}
+
+	int length() {
+		return length;
+	}
+
+	/**
+	 * @return start of the next paragraph, the split continued from there gives the remaining paragraphs
+	 */
+	int position() {
+		return position;
+	}
+}
@@ -1,103 +1,462 @@
 package com.github.motyka.textprocessor.paragraph;
 
+import com.github.motyka.textprocessor.search.AhoCorasick;
+import com.github.motyka.textprocessor.search.SearchOptions;
+import com.github.motyka.textprocessor.search.SearchPattern;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PreDestroy;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
-import java.util.Optional;
-import java.util.regex.MatchResult;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Service
 public class ParagraphService {
 
 	private final Logger logger = LoggerFactory.getLogger(ParagraphService.class);
 
-	private static final Pattern PUNCTUATION = Pattern.compile("\\p{Punct}");
-	// there can't be alphanumeric characters between new line characters
-	private static final Pattern NEW_LINES = Pattern.compile("\n[^\\p{Alnum}]*\n");
-	// there needs to be a paragraph (alphanumeric characters) before the dot
-	private static final Pattern DOT = Pattern.compile("\\p{Alnum}.*?\\.");
-	// only keep punctuation that adhere to the paragraph
-	private static final Pattern TRIM = Pattern.compile("\\p{Punct}*\\p{Alnum}");
+	// used when the strategy isn't specified in the request
+	@Value("${paragraph.splitting.strategy:REGEX}")
+	private SplittingStrategy strategy = SplittingStrategy.REGEX;
+
+	// initial size of the buffer used for splitting streams, in characters
+	@Value("${paragraph.streaming.buffer-size:65536}")
+	private int streamingBufferSize = 65536;
+
+	// the buffer only grows while the end of the paragraph isn't decided, the longer runs fail the split
+	@Value("${paragraph.streaming.max-buffer-size:4194304}")
+	private int maxStreamingBufferSize = 4194304;
+
+	// maximum number of automatons for the search terms kept for the next requests
+	@Value("${paragraph.search.automaton-cache-size:100}")
+	private int automatonCacheSize = 100;
+
+	// maximum number of the search terms of a request and their total length in characters, every character
+	// of the terms is a state of the automaton
+	@Value("${paragraph.search.max-terms:10000}")
+	private int maxSearchTerms = 10000;
+	@Value("${paragraph.search.max-terms-length:65536}")
+	private int maxSearchTermsLength = 65536;
+
+	// maximum number of search terms compiled with their options kept for the next requests
+	@Value("${paragraph.search.pattern-cache-size:100}")
+	private int patternCacheSize = 100;
+
+	// maximum length of a regular expression search term and the milliseconds it can be matched in a request,
+	// a backtracking expression fails the request instead of holding its thread
+	@Value("${paragraph.search.regex.max-length:1000}")
+	private int maxRegexLength = SearchPattern.DEFAULT_MAX_REGEX_LENGTH;
+	@Value("${paragraph.search.regex.timeout:1000}")
+	private long regexTimeout = SearchPattern.DEFAULT_REGEX_TIMEOUT;
+
+	// texts at least this long are split on many threads, by the SCANNING strategy also when REGEX is the default
+	@Value("${paragraph.parallel.threshold:1048576}")
+	private int parallelThreshold = 1048576;
+
+	// number of threads splitting the text, 0 means the number of processors
+	@Value("${paragraph.parallel.parallelism:0}")
+	private int parallelism = 0;
+
+	// the text is cut at the first double new line after every *segmentSize* characters
+	@Value("${paragraph.parallel.segment-size:262144}")
+	private int parallelSegmentSize = 262144;
+
+	// number of threads splitting the documents of the batches, 0 means the number of processors
+	@Value("${paragraph.batch.threads:0}")
+	private int batchThreads = 0;
+
+	// documents waiting for the threads, if the queue is full the request thread splits the document itself
+	@Value("${paragraph.batch.queue-capacity:1000}")
+	private int batchQueueCapacity = 1000;
+
+	private final ParagraphMetrics metrics;
+	private final SplitCache cache;
+	private final SplitRuleChains ruleChains;
+
+	private ForkJoinPool parallelPool;
+	private ParallelSplitter parallelSplitter;
+	private ExecutorService batchExecutor;
+
+	private final Map<List<String>, AhoCorasick> automatons = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<List<String>, AhoCorasick> eldest) {
+			return size() > automatonCacheSize;
+		}
+	});
+
+	private final Map<Map.Entry<String, SearchOptions>, SearchPattern> patterns = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Map.Entry<String, SearchOptions>, SearchPattern> eldest) {
+			return size() > patternCacheSize;
+		}
+	});
+
+	public ParagraphService(ParagraphMetrics metrics, SplitCache cache, SplitRuleChains ruleChains) {
+		this.metrics = metrics;
+		this.cache = cache;
+		this.ruleChains = ruleChains;
+	}
 
 	public List<Paragraph> splitAndSearch(String text, String searchTerm, int mainLimit, int secondaryLimit) {
-		logger.info("split {} - {} and search for:{}", secondaryLimit, mainLimit, searchTerm);
+		return splitAndSearch(text, SplitRequest.of(searchTerm, mainLimit, secondaryLimit));
+	}
 
-		validate(text, mainLimit, secondaryLimit);
-		StringBuilder textLeft = new StringBuilder(text);
-		List<Paragraph> paragraphs = new ArrayList<>();
+	/**
+	 * Splits the text and searches for the search term and all the search terms at once.
+	 * The paragraph contains the search terms if any of them is found, their occurrences are in {@link Paragraph#getMatches()}.
+	 * With the search options the search term is matched according to them, its occurrences are in {@link Paragraph#getOccurrences()}.
+	 * @param text
+	 * @param request the positions are in characters
+	 * @return
+	 */
+	public List<Paragraph> splitAndSearch(String text, SplitRequest request) {
+		SplittingStrategy splittingStrategy = strategy(request, text);
+		logger.debug("split {} using {}", request, splittingStrategy);
 
-		trimEnd(textLeft);
-		// the starting position of paragraph
-		int offset = 0;
-		offset += trimStart(textLeft);
+		validate(text, request);
+		int mainLimit = request.getMainLimit();
+		int secondaryLimit = request.getSecondaryLimit();
+		String searchTerm = request.getSearchTerm();
+		SplittingEngine engine = engine(splittingStrategy, request.getRules());
+		SearchPattern pattern = pattern(searchTerm, request.getOptions());
+		AhoCorasick automaton = automaton(request.getSearchTerms());
+		Timer.Sample sample = metrics.start();
 
-		while(textLeft.length() > 0) {
-			// always split at double new line before 1200 character (can be separated by non alphanumeric characters)
-			Matcher matcher = NEW_LINES.matcher(textLeft);
-			if(matcher.find() && isInRange(matcher.start(), mainLimit)) {
-				logger.info("double new line before *mainLimit*");
-				offset += addParagraph(paragraphs, textLeft, offset, matcher.start(), searchTerm);
-				continue;
-			}
+		List<Paragraph> paragraphs = new ArrayList<>();
+		split(text, mainLimit, secondaryLimit, splittingStrategy, engine, () -> new ParagraphCollector(text, searchTerm, pattern, automaton), c -> c.paragraphs)
+				.forEach(paragraphs::addAll);
 
-			// no need to split anymore if too small
-			if(textLeft.length() < mainLimit) {
-				addParagraph(paragraphs, textLeft, offset, textLeft.length(), searchTerm);
-				break;
+		int matched = 0;
+		for(Paragraph paragraph : paragraphs) {
+			if(paragraph.isContains()) {
+				matched++;
 			}
+		}
+		metrics.split(sample, ParagraphMetrics.PARAGRAPHS, splittingStrategy, text.length(), paragraphs.size(), matched, isSearched(searchTerm, automaton));
+		return paragraphs;
+	}
 
-			CharSequence mainSubstring = textLeft.subSequence(0, Math.min(textLeft.length(), mainLimit));
-			CharSequence secondarySubstring = textLeft.subSequence(0, Math.min(textLeft.length(), secondaryLimit));
+	/**
+	 * Splits the text on demand, a paragraph is split and created only when the iteration gets to it, so the caller
+	 * which needs only the first paragraphs doesn't pay for the rest of the text. The text is always split by the SCANNING
+	 * strategy, which gives the same paragraphs as the REGEX one with the default rules, it isn't cached or split in parallel.
+	 * @param text
+	 * @param request its strategy is only validated
+	 * @param onlyMatching true to return only the paragraphs containing the search terms, the other ones aren't created
+	 * @return
+	 */
+	public Iterator<Paragraph> iterator(String text, SplitRequest request, boolean onlyMatching) {
+		strategy(request);
+		return paragraphs(text, 0, request, onlyMatching);
+	}
 
-			// NEW LINE
-			Optional<Integer> newLineResult = characterMatching("\n", textLeft, mainLimit, secondaryLimit);
-			if(newLineResult.isPresent()) {
-				logger.info("separating because of new line");
-				offset += addParagraph(paragraphs, textLeft, offset, newLineResult.get(), searchTerm);
-				continue;
-			}
+	/**
+	 * The same as {@link #iterator(String, SplitRequest, boolean)} as a sequential stream,
+	 * e.g. stream(...).limit(10) splits only the beginning of the text.
+	 */
+	public Stream<Paragraph> stream(String text, SplitRequest request, boolean onlyMatching) {
+		Iterator<Paragraph> paragraphs = iterator(text, request, onlyMatching);
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(paragraphs, Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE), false);
+	}
 
-			// DOT
-			Optional<Integer> dotResult = patternMatching(DOT, mainSubstring, secondarySubstring, mainLimit, secondaryLimit);
-			if(dotResult.isPresent()) {
-				logger.info("separating because of dot");
-				offset += addParagraph(paragraphs, textLeft, offset, dotResult.get(), searchTerm);
-				continue;
-			}
+	/**
+	 * Splits the text only until the page is filled, the next page continues the split at {@link ParagraphPage#getNext()}
+	 * instead of splitting the text from its beginning again. See {@link #iterator(String, SplitRequest, boolean)}.
+	 * @param text
+	 * @param request its strategy is only validated, the text is always split by the SCANNING strategy
+	 * @param offset number of the paragraphs skipped after the cursor, they aren't created
+	 * @param limit maximum number of the paragraphs, at most {@link JobService#MAX_PAGE_SIZE}
+	 * @param onlyMatching true to return only the paragraphs containing the search terms, the offset skips the matching ones
+	 * @param cursor next cursor of the previous page of the same text, limits and rules, null to start at the beginning
+	 * @return
+	 */
+	public ParagraphPage page(String text, SplitRequest request, long offset, int limit, boolean onlyMatching, String cursor) {
+		strategy(request);
+		logger.debug("split page {} from {} + {} limit {}", request, cursor, offset, limit);
+
+		validate(text, request);
+		if(offset < 0) {
+			throw new IllegalArgumentException("The offset can't be negative.");
+		}
+		if(limit <= 0 || limit > JobService.MAX_PAGE_SIZE) {
+			throw new IllegalArgumentException("The limit must be between 1 and " + JobService.MAX_PAGE_SIZE + ".");
+		}
+		int mainLimit = request.getMainLimit();
+		int secondaryLimit = request.getSecondaryLimit();
+		int from = cursor != null ? ParagraphCursor.decode(cursor, text, mainLimit, secondaryLimit, request.getRules()) : 0;
+		Timer.Sample sample = metrics.start();
 
-			// PUNCTUATION
-			Optional<Integer> punctuationResult = patternMatching(PUNCTUATION, mainSubstring, secondarySubstring, mainLimit, secondaryLimit);
-			if(punctuationResult.isPresent()) {
-				logger.info("separating because of punctuation");
-				offset += addParagraph(paragraphs, textLeft, offset, punctuationResult.get(), searchTerm);
-				continue;
+		LazyParagraphs paragraphs = paragraphs(text, from, request, onlyMatching);
+		paragraphs.skip(offset);
+		List<Paragraph> page = new ArrayList<>();
+		int matched = 0;
+		// the next paragraph isn't split once the page is full
+		while(page.size() < limit && paragraphs.hasNext()) {
+			Paragraph paragraph = paragraphs.next();
+			page.add(paragraph);
+			if(paragraph.isContains()) {
+				matched++;
 			}
+		}
+		int position = paragraphs.position();
+		String next = paragraphs.isFinished() ? null : ParagraphCursor.encode(text, position, mainLimit, secondaryLimit, request.getRules());
+
+		metrics.split(sample, ParagraphMetrics.PAGE, SplittingStrategy.SCANNING, position - from, page.size(), matched,
+				isSearched(request.getSearchTerm(), paragraphs.collector.automaton));
+		return new ParagraphPage(page, next);
+	}
+
+	private LazyParagraphs paragraphs(String text, int from, SplitRequest request, boolean onlyMatching) {
+		validate(text, request);
+		ScanningSplittingEngine engine = (ScanningSplittingEngine) engine(SplittingStrategy.SCANNING, request.getRules());
+		ParagraphCollector collector = new ParagraphCollector(text, request.getSearchTerm(), pattern(request.getSearchTerm(), request.getOptions()),
+				automaton(request.getSearchTerms()));
+		return new LazyParagraphs(new ParagraphScanner(engine, text, from, request.getMainLimit(), request.getSecondaryLimit()), collector, onlyMatching);
+	}
+
+	/**
+	 * The same as {@link #splitAndSearch(String, SplitRequest)}, but only the positions of the paragraphs are returned,
+	 * their text isn't created.
+	 * @param text
+	 * @param request the positions are in characters
+	 * @return
+	 */
+	public ParagraphOffsets splitAndSearchOffsets(String text, SplitRequest request) {
+		SplittingStrategy splittingStrategy = strategy(request, text);
+		logger.debug("split offsets {} using {}", request, splittingStrategy);
 
-			// SPACE
-			Optional<Integer> spaceResult = characterMatching(" ", textLeft, mainLimit, secondaryLimit);
-			if(spaceResult.isPresent()) {
-				logger.info("separating because of space");
-				offset += addParagraph(paragraphs, textLeft, offset, spaceResult.get(), searchTerm);
-				continue;
+		validate(text, request);
+		String searchTerm = request.getSearchTerm();
+		SplittingEngine engine = engine(splittingStrategy, request.getRules());
+		SearchPattern pattern = pattern(searchTerm, request.getOptions());
+		AhoCorasick automaton = automaton(request.getSearchTerms());
+		Timer.Sample sample = metrics.start();
+
+		ParagraphOffsets offsets = ParagraphOffsets.concat(split(text, request.getMainLimit(), request.getSecondaryLimit(), splittingStrategy, engine,
+				() -> new OffsetsCollector(text, searchTerm, pattern, automaton), OffsetsCollector::build));
+
+		metrics.split(sample, ParagraphMetrics.OFFSETS, splittingStrategy, text.length(), offsets.size(), countContains(offsets), isSearched(searchTerm, automaton));
+		return offsets;
+	}
+
+	/**
+	 * The same as {@link #splitAndSearchOffsets(String, SplitRequest)} for the text encoded in UTF-8, which is split
+	 * without decoding it into a String. The paragraphs are the same as of the decoded text, the malformed bytes are read
+	 * as U+FFFD. The text isn't cached and it is always split on one thread.
+	 * @param text
+	 * @param request the search options aren't supported, the positions are in its unit
+	 * @return
+	 */
+	public ParagraphOffsets splitAndSearchOffsets(byte[] text, SplitRequest request) {
+		SplittingStrategy splittingStrategy = strategy(request);
+		logger.debug("split UTF-8 offsets {} using {}", request, splittingStrategy);
+
+		Objects.requireNonNull(text, "The text can't be null");
+		validate(request);
+		SplittingEngine engine = engine(splittingStrategy, request.getRules());
+		AhoCorasick automaton = automaton(terms(request.getSearchTerm(), request.getSearchTerms()));
+		Timer.Sample sample = metrics.start();
+
+		Utf8Text chars = new Utf8Text(text);
+		SplitRecorder<OffsetsCollector> recorder = metrics.recorder(new OffsetsCollector(chars, null, automaton));
+		engine.split(chars, request.getMainLimit(), request.getSecondaryLimit(), recorder);
+		ParagraphOffsets offsets = recorder.finish().build();
+		if(request.getUnit() == OffsetUnit.BYTES) {
+			offsets = toBytes(offsets, chars);
+		}
+
+		metrics.split(sample, ParagraphMetrics.OFFSETS, splittingStrategy, chars.length(), offsets.size(), countContains(offsets), automaton != null);
+		return offsets;
+	}
+
+	/**
+	 * Splits the documents of the batch concurrently with the same limits. The documents that can't be split
+	 * (e.g. without text) have the error in the result instead of failing the whole batch.
+	 * @param items
+	 * @param request the limits, strategy and rules of all the documents, the search terms are of the documents
+	 * @return results by the ids of the documents in the order of the batch
+	 */
+	public Map<String, BatchResult> splitAndSearch(List<BatchItem> items, SplitRequest request) {
+		logger.debug("split batch of {} documents {}", items == null ? null : items.size(), request);
+
+		Objects.requireNonNull(items, "The documents can't be null");
+		validate(request);
+		// an unknown chain fails the whole batch
+		engine(strategy(request), request.getRules());
+		// the results are returned by the ids, so they have to be checked before any document is split
+		Set<String> ids = new HashSet<>();
+		for(BatchItem item : items) {
+			Objects.requireNonNull(item, "The document can't be null");
+			Objects.requireNonNull(item.getId(), "The id of the document can't be null");
+			if(!ids.add(item.getId())) {
+				throw new IllegalArgumentException("The ids of the documents must be unique: " + item.getId());
 			}
+		}
 
-			// split into *mainLimit* chunk
-			int chunkSize = Math.min(textLeft.length(), mainLimit);
-			offset += addParagraph(paragraphs, textLeft, offset, chunkSize, searchTerm);
+		ExecutorService executor = batchExecutor();
+		Map<String, Future<BatchResult>> futures = new LinkedHashMap<>();
+		for(BatchItem item : items) {
+			SplitRequest itemRequest = request.toBuilder().searchTerm(item.getSearchTerm()).options(null).searchTerms(item.getSearchTerms()).build();
+			futures.put(item.getId(), executor.submit(() -> {
+				try {
+					return BatchResult.of(splitAndSearch(item.getText(), itemRequest));
+				} catch(NullPointerException | IllegalArgumentException ex) {
+					return BatchResult.error(ex.getMessage());
+				}
+			}));
 		}
 
-		return paragraphs;
+		Map<String, BatchResult> results = new LinkedHashMap<>();
+		try {
+			for(Map.Entry<String, Future<BatchResult>> future : futures.entrySet()) {
+				results.put(future.getKey(), future.getValue().get());
+			}
+		} catch(InterruptedException ex) {
+			futures.values().forEach(future -> future.cancel(true));
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Splitting interrupted", ex);
+		} catch(ExecutionException ex) {
+			futures.values().forEach(future -> future.cancel(true));
+			if(ex.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) ex.getCause();
+			}
+			throw new IllegalStateException(ex.getCause());
+		}
+		return results;
+	}
+
+	/**
+	 * Splits the text read from the reader, every paragraph is passed to the consumer as soon as it is found.
+	 * The paragraphs are the same as for {@link SplittingStrategy#SCANNING} and the whole text. The positions
+	 * of the paragraphs and the search terms can be in the bytes of the text encoded in UTF-8, e.g. of the request
+	 * body the reader decodes.
+	 * @param reader
+	 * @param request the strategy and the search options are ignored
+	 * @param consumer
+	 * @throws IOException
+	 */
+	public void splitAndSearch(Reader reader, SplitRequest request, Consumer<Paragraph> consumer) throws IOException {
+		logger.debug("split stream {}", request);
+
+		Objects.requireNonNull(reader, "The reader can't be null");
+		validate(request);
+		ScanningSplittingEngine engine = (ScanningSplittingEngine) engine(SplittingStrategy.SCANNING, request.getRules());
+		String searchTerm = request.getSearchTerm();
+		AhoCorasick automaton = automaton(request.getSearchTerms());
+		Timer.Sample sample = metrics.start();
+
+		StreamingSplitter splitter = new StreamingSplitter(reader, engine, request.getMainLimit(), request.getSecondaryLimit(), streamingBufferSize);
+		splitter.limitBuffer(maxStreamingBufferSize);
+		StreamCollector collector = new StreamCollector(searchTerm, automaton, consumer, utf8Splitter(splitter, request.getUnit()));
+		splitter.split(collector);
+		metrics.split(sample, ParagraphMetrics.STREAM, SplittingStrategy.SCANNING, splitter.getLength(), collector.paragraphs, collector.matched, isSearched(searchTerm, automaton));
+	}
+
+	/**
+	 * The same as {@link #splitAndSearch(Reader, SplitRequest, Consumer)}, but the text is pushed
+	 * to the returned stream as it arrives, so no thread is blocked waiting for it.
+	 * @param request
+	 * @param consumer
+	 * @return
+	 */
+	public ParagraphStream openStream(SplitRequest request, Consumer<Paragraph> consumer) {
+		logger.debug("split pushed stream {}", request);
+
+		validate(request);
+		ScanningSplittingEngine engine = (ScanningSplittingEngine) engine(SplittingStrategy.SCANNING, request.getRules());
+		String searchTerm = request.getSearchTerm();
+		AhoCorasick automaton = automaton(request.getSearchTerms());
+		Timer.Sample sample = metrics.start();
+
+		StreamingSplitter splitter = new StreamingSplitter(engine, request.getMainLimit(), request.getSecondaryLimit(), streamingBufferSize);
+		splitter.limitBuffer(maxStreamingBufferSize);
+		StreamCollector collector = new StreamCollector(searchTerm, automaton, consumer, utf8Splitter(splitter, request.getUnit()));
+		return new ParagraphStream(splitter, collector, () -> metrics.split(sample, ParagraphMetrics.STREAM, SplittingStrategy.SCANNING,
+				splitter.getLength(), collector.paragraphs, collector.matched, isSearched(searchTerm, automaton)));
 	}
 
-	private void validate(String text, int mainLimit, int secondaryLimit) {
+	/**
+	 * The same as {@link #splitAndSearch(Reader, SplitRequest, Consumer)}, but only the positions
+	 * of the paragraphs are returned, the paragraphs are searched in the buffer of the stream without creating their text.
+	 * @param reader
+	 * @param request only the search terms and the limits are used, the positions are in characters
+	 * @return
+	 * @throws IOException
+	 */
+	public ParagraphOffsets splitAndSearchOffsets(Reader reader, SplitRequest request) throws IOException {
+		logger.debug("split stream offsets {}", request);
+
+		Objects.requireNonNull(reader, "The reader can't be null");
+		validate(request);
+		AhoCorasick automaton = automaton(terms(request.getSearchTerm(), request.getSearchTerms()));
+		Timer.Sample sample = metrics.start();
+
+		OffsetsCollector collector = new OffsetsCollector(null, null, null);
+		StreamingSplitter splitter = new StreamingSplitter(reader, request.getMainLimit(), request.getSecondaryLimit(), streamingBufferSize);
+		splitter.limitBuffer(maxStreamingBufferSize);
+		splitter.split(new StreamingSplitter.Listener() {
+			private char[] buffer;
+			private CharSequence chars;
+
+			@Override
+			public void paragraph(long start, char[] buffer, int offset, int length) {
+				if(this.buffer != buffer) {
+					// the buffer is only replaced when it grows
+					this.buffer = buffer;
+					chars = CharBuffer.wrap(buffer);
+				}
+				collector.add(start, length, automaton != null && automaton.containsAny(chars, offset, offset + length));
+			}
+		});
+
+		ParagraphOffsets offsets = collector.build();
+		metrics.split(sample, ParagraphMetrics.STREAM, SplittingStrategy.SCANNING, splitter.getLength(), offsets.size(), countContains(offsets), automaton != null);
+		return offsets;
+	}
+
+	private void validate(String text, SplitRequest request) {
 		Objects.requireNonNull(text, "The text can't be null");
+		validate(request);
+		if(request.getUnit() != OffsetUnit.CHARS) {
+			throw new IllegalArgumentException("The positions in a decoded text can only be in characters: " + request.getUnit());
+		}
+	}
 
+	private void validate(SplitRequest request) {
+		Objects.requireNonNull(request, "The request can't be null");
+		Objects.requireNonNull(request.getUnit(), "The unit can't be null");
+		int mainLimit = request.getMainLimit();
+		int secondaryLimit = request.getSecondaryLimit();
 		if(mainLimit <= 0 || secondaryLimit <= 0) {
 			throw new IllegalArgumentException("The main and secondary limits muse be greater than 0.");
 		}
@@ -107,96 +466,436 @@ public class ParagraphService {
 	}
 
 	/**
-	 * Add a new paragraph and removes it from the passed text.
-	 * @param paragraphs
+	 * Checks the parameters of a stream split before it is done, e.g. by a {@link JobService} job,
+	 * so the invalid ones are rejected right away.
+	 */
+	void validateStream(SplitRequest request) {
+		validate(request);
+		engine(SplittingStrategy.SCANNING, request.getRules());
+	}
+
+	/**
+	 * Splits the text or takes its paragraphs from the cache and passes them to the listeners,
+	 * there are many listeners if the text is split in parallel.
 	 * @param text
-	 * @param start
-	 * @param length
-	 * @return number of characters removed from the passed text
+	 * @param mainLimit
+	 * @param secondaryLimit
+	 * @param strategy of the engine, part of the key of the cache
+	 * @param engine
+	 * @param listeners
+	 * @param finisher returns the result of the listener
+	 * @return results of the listeners in the order of the text
+	 */
+	private <L extends SplittingEngine.ParagraphListener, R> List<R> split(String text, int mainLimit, int secondaryLimit, SplittingStrategy strategy, SplittingEngine engine,
+			Supplier<L> listeners, Function<L, R> finisher) {
+		if(!cache.isEnabled()) {
+			return splitText(text, mainLimit, secondaryLimit, engine, listeners, finisher);
+		}
+
+		String rules = engine instanceof ScanningSplittingEngine ? ((ScanningSplittingEngine) engine).getChain().getName() : SplitRuleChain.DEFAULT_NAME;
+		ParagraphBoundaries boundaries = cache.get(text, mainLimit, secondaryLimit, strategy, rules, () -> ParagraphBoundaries.concat(
+				splitText(text, mainLimit, secondaryLimit, engine, ParagraphBoundaries.Collector::new, ParagraphBoundaries.Collector::build)));
+		if(isParallel(text, engine)) {
+			return parallelSplitter().replay(boundaries, listeners, finisher);
+		}
+		L listener = listeners.get();
+		boundaries.replay(0, boundaries.size(), listener);
+		return Collections.singletonList(finisher.apply(listener));
+	}
+
+	private <L extends SplittingEngine.ParagraphListener, R> List<R> splitText(String text, int mainLimit, int secondaryLimit, SplittingEngine engine,
+			Supplier<L> listeners, Function<L, R> finisher) {
+		if(isParallel(text, engine)) {
+			return parallelSplitter().split((ScanningSplittingEngine) engine, text, mainLimit, secondaryLimit, () -> metrics.recorder(listeners.get()),
+					r -> finisher.apply(r.finish()));
+		}
+		SplitRecorder<L> recorder = metrics.recorder(listeners.get());
+		engine.split(text, mainLimit, secondaryLimit, recorder);
+		return Collections.singletonList(finisher.apply(recorder.finish()));
+	}
+
+	private boolean isParallel(String text, SplittingEngine engine) {
+		// only the scanning engine can split a part of the text
+		return engine instanceof ScanningSplittingEngine && text.length() >= parallelThreshold;
+	}
+
+	/**
+	 * @param strategy requested strategy
+	 * @param rules requested chain
+	 * @return the requested strategy or the default one, the chains other than the default one are only supported
+	 * by the SCANNING strategy
+	 */
+	private SplittingStrategy strategy(SplittingStrategy strategy, String rules) {
+		if(rules == null || SplitRuleChain.DEFAULT_NAME.equals(rules)) {
+			return Objects.requireNonNullElse(strategy, this.strategy);
+		}
+		if(strategy == SplittingStrategy.REGEX) {
+			throw new IllegalArgumentException("The split rules can only be used with the SCANNING strategy: " + rules);
+		}
+		return SplittingStrategy.SCANNING;
+	}
+
+	private SplittingStrategy strategy(SplitRequest request) {
+		return strategy(request.getStrategy(), request.getRules());
+	}
+
+	/**
+	 * @param request
+	 * @param text
+	 * @return the strategy of the request, SCANNING instead of the default REGEX for the texts split in parallel:
+	 * the REGEX engine can't split a part of the text and it is only used with the default chain, which gives the same
+	 * paragraphs. REGEX requested explicitly is kept and splits the text sequentially.
+	 */
+	private SplittingStrategy strategy(SplitRequest request, String text) {
+		SplittingStrategy strategy = strategy(request);
+		if(request.getStrategy() == null && strategy == SplittingStrategy.REGEX && text != null && text.length() >= parallelThreshold) {
+			return SplittingStrategy.SCANNING;
+		}
+		return strategy;
+	}
+
+	private SplittingEngine engine(SplittingStrategy strategy, String rules) {
+		if(rules == null || strategy != SplittingStrategy.SCANNING) {
+			return strategy.getEngine();
+		}
+		return ruleChains.engine(rules);
+	}
+
+	/**
+	 * @return names of the rules by the names of the chains which can be used in the requests
+	 */
+	public Map<String, List<String>> getRuleChains() {
+		return ruleChains.getChains();
+	}
+
+	private synchronized ParallelSplitter parallelSplitter() {
+		if(parallelSplitter == null) {
+			int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+			parallelPool = new ForkJoinPool(threads);
+			parallelSplitter = new ParallelSplitter((ScanningSplittingEngine) SplittingStrategy.SCANNING.getEngine(), parallelPool, parallelSegmentSize);
+		}
+		return parallelSplitter;
+	}
+
+	private synchronized ExecutorService batchExecutor() {
+		if(batchExecutor == null) {
+			int threads = batchThreads > 0 ? batchThreads : Runtime.getRuntime().availableProcessors();
+			batchExecutor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(batchQueueCapacity),
+					new ThreadPoolExecutor.CallerRunsPolicy());
+		}
+		return batchExecutor;
+	}
+
+	@PreDestroy
+	public synchronized void shutdown() {
+		if(parallelPool != null) {
+			parallelPool.shutdown();
+		}
+		if(batchExecutor != null) {
+			batchExecutor.shutdown();
+		}
+	}
+
+	/**
+	 * The search term is searched together with the search terms if there is no String text for String.contains.
+	 * @param searchTerm
+	 * @param searchTerms
+	 * @return
 	 */
-	private int addParagraph(List<Paragraph> paragraphs, StringBuilder text, int start, int length, String searchTerm) {
-		logger.info("new paragraph start {}, length {}", start, length);
-		StringBuilder paragraph = new StringBuilder(text.substring(0, length));
-		int trimmedLength = length - trimEnd(paragraph);
-		boolean contains = search(paragraph, searchTerm);
+	private List<String> terms(String searchTerm, List<String> searchTerms) {
+		List<String> terms = new ArrayList<>();
+		if(searchTerm != null && !searchTerm.isEmpty()) {
+			terms.add(searchTerm);
+		}
+		if(searchTerms != null) {
+			terms.addAll(searchTerms);
+		}
+		return terms;
+	}
+
+	private StreamingSplitter utf8Splitter(StreamingSplitter splitter, OffsetUnit unit) {
+		if(unit != OffsetUnit.BYTES) {
+			return null;
+		}
+		splitter.countUtf8Bytes();
+		return splitter;
+	}
 
-		paragraphs.add(new Paragraph(paragraph.toString(), start, trimmedLength, contains));
-		text.delete(0, length);
-		return length + trimStart(text);
+	/**
+	 * @param offsets in characters of the text
+	 * @param text
+	 * @return the same paragraphs in bytes of the text
+	 */
+	private ParagraphOffsets toBytes(ParagraphOffsets offsets, Utf8Text text) {
+		long[] start = new long[offsets.size()];
+		int[] length = new int[offsets.size()];
+		for(int i = 0; i < offsets.size(); i++) {
+			int paragraphStart = (int) offsets.getStart()[i];
+			start[i] = text.byteOffset(paragraphStart);
+			length[i] = text.byteOffset(paragraphStart + offsets.getLength()[i]) - (int) start[i];
+		}
+		return new ParagraphOffsets(start, length, offsets.getContains());
+	}
+
+	/**
+	 * @param searchTerms
+	 * @return automaton searching for the terms or null if there are no terms
+	 */
+	private AhoCorasick automaton(List<String> searchTerms) {
+		if(searchTerms == null || searchTerms.isEmpty()) {
+			return null;
+		}
+		if(searchTerms.size() > maxSearchTerms) {
+			throw new IllegalArgumentException("At most " + maxSearchTerms + " search terms can be searched at once.");
+		}
+		long length = 0;
+		for(String term : searchTerms) {
+			length += term != null ? term.length() : 0;
+		}
+		if(length > maxSearchTermsLength) {
+			throw new IllegalArgumentException("The search terms can have at most " + maxSearchTermsLength + " characters together.");
+		}
+		List<String> terms = new ArrayList<>(searchTerms);
+		AhoCorasick automaton = automatons.get(terms);
+		if(automaton == null) {
+			// built outside of the lock, in the worst case the same automaton is built twice
+			automaton = new AhoCorasick(terms);
+			automatons.put(terms, automaton);
+		}
+		return automaton;
 	}
 
-	private Optional<Integer> patternMatching(Pattern pattern, CharSequence mainSubstring, CharSequence secondarySubstring, int mainLimit, int secondaryLimit) {
-		// split at first match between *secondaryLimit* - *mainLimit* character
-		Matcher matcher = pattern.matcher(mainSubstring);
-		int index = matcher.results().filter(m -> m.end() >= secondaryLimit).map(MatchResult::end).findFirst().orElse(-1);
-		if(isInRange(index, mainLimit)) {
-			logger.info("first pattern match between {} - {}: {}", secondaryLimit, mainLimit, index);
-			return Optional.of(index);
+	/**
+	 * @param searchTerm
+	 * @param options
+	 * @return the search term compiled with the options or null for the exact match
+	 */
+	private SearchPattern pattern(String searchTerm, SearchOptions options) {
+		if(options == null || searchTerm == null || searchTerm.isEmpty()) {
+			return null;
 		}
-		// split at last match before *secondaryLimit* character
-		matcher = pattern.matcher(secondarySubstring);
-		index = matcher.results().reduce((f, s) -> s).map(MatchResult::end).orElse(-1);
-		if(isInRange(index, secondaryLimit)) {
-			logger.info("last pattern match before {}: {}", secondaryLimit, index);
-			return Optional.of(index);
+		Map.Entry<String, SearchOptions> key = new AbstractMap.SimpleImmutableEntry<>(searchTerm, options);
+		SearchPattern pattern = patterns.get(key);
+		if(pattern == null) {
+			// compiled outside of the lock, in the worst case the same pattern is compiled twice
+			pattern = SearchPattern.compile(searchTerm, options, maxRegexLength, regexTimeout);
+			patterns.put(key, pattern);
 		}
-		return Optional.empty();
+		return pattern;
 	}
 
-	private Optional<Integer> characterMatching(String separator, StringBuilder text, int mainLimit, int secondaryLimit) {
-		// split at first match between *secondaryLimit* - *mainLimit* character
-		int index = text.indexOf(separator, secondaryLimit);
-		if(isInRange(index, mainLimit)) {
-			logger.info("first character match between {} - {}: {}", secondaryLimit, mainLimit, index);
-			return Optional.of(index);
+	/**
+	 * @param automaton
+	 * @param text
+	 * @param offset position of the text in the whole text
+	 * @param start position of the paragraph in the text
+	 * @param length
+	 * @return occurrences of the search terms in the paragraph or null if there are no search terms
+	 */
+	private List<TermMatch> match(AhoCorasick automaton, String text, long offset, int start, int length) {
+		if(automaton == null) {
+			return null;
 		}
-		// split at last match before *secondaryLimit* character
-		index = text.lastIndexOf(separator, secondaryLimit);
-		if(isInRange(index, secondaryLimit)) {
-			logger.info("last character match before {}: {}", secondaryLimit, index);
-			return Optional.of(index);
+		List<TermMatch> matches = new ArrayList<>();
+		automaton.search(text, start, start + length, (term, position) -> matches.add(new TermMatch(term, offset + position - start)));
+		return matches;
+	}
+
+	private int countContains(ParagraphOffsets offsets) {
+		int count = 0;
+		for(boolean contains : offsets.getContains()) {
+			if(contains) {
+				count++;
+			}
 		}
-		return Optional.empty();
+		return count;
 	}
 
-	private boolean isInRange(int index, int upperBound) {
-		// index == -1 means the term was not found
-		return index >= 0 && index < upperBound;
+	private boolean isSearched(String searchTerm, AhoCorasick automaton) {
+		return (searchTerm != null && !searchTerm.isEmpty()) || automaton != null;
 	}
 
-	private boolean search(StringBuilder paragraph, String searchTerm) {
+	private boolean isMatched(List<TermMatch> matches) {
+		return matches != null && !matches.isEmpty();
+	}
+
+	private boolean search(String paragraph, String searchTerm) {
 		// assumed that the search team can't be empty to do the search
-		return searchTerm != null && !searchTerm.isEmpty() && paragraph.indexOf(searchTerm) >= 0;
+		return searchTerm != null && !searchTerm.isEmpty() && paragraph.contains(searchTerm);
 	}
 
-	private int trimStart(StringBuilder sb) {
-		Matcher matcher = TRIM.matcher(sb);
+	/**
+	 * Creates the paragraphs of a stream from its buffer and searches in them.
+	 */
+	private class StreamCollector implements StreamingSplitter.Listener {
+		private final String searchTerm;
+		private final AhoCorasick automaton;
+		private final Consumer<Paragraph> consumer;
+		// converts the positions to the bytes of the text, null for the positions in characters
+		private final StreamingSplitter utf8Splitter;
+		private int paragraphs;
+		// number of paragraphs containing the search terms
+		private int matched;
 
-		if(matcher.find()) {
-			sb.delete(0, matcher.start());
-			return matcher.start();
-		} else {
-			return clear(sb);
+		private StreamCollector(String searchTerm, AhoCorasick automaton, Consumer<Paragraph> consumer, StreamingSplitter utf8Splitter) {
+			this.searchTerm = searchTerm;
+			this.automaton = automaton;
+			this.consumer = consumer;
+			this.utf8Splitter = utf8Splitter;
+		}
+
+		@Override
+		public void paragraph(long start, char[] buffer, int offset, int length) {
+			String paragraph = new String(buffer, offset, length);
+			List<TermMatch> matches = match(automaton, paragraph, start, 0, length);
+			boolean contains = search(paragraph, searchTerm) || isMatched(matches);
+			paragraphs++;
+			matched += contains ? 1 : 0;
+			if(utf8Splitter == null) {
+				consumer.accept(new Paragraph(paragraph, start, length, contains, matches));
+				return;
+			}
+
+			long byteStart = utf8Splitter.utf8Offset(offset);
+			int byteLength = (int) (utf8Splitter.utf8Offset(offset + length) - byteStart);
+			if(matches != null) {
+				for(int i = 0; i < matches.size(); i++) {
+					TermMatch match = matches.get(i);
+					int position = (int) (match.getStart() - start);
+					matches.set(i, new TermMatch(match.getTerm(), byteStart + Utf8Text.encodedLength(buffer, offset, offset + position)));
+				}
+			}
+			consumer.accept(new Paragraph(paragraph, byteStart, byteLength, contains, matches));
 		}
 	}
 
-	private int trimEnd(StringBuilder sb) {
-		for(int i = sb.length() - 1; i >= 0; i--) {
-			char ch = sb.charAt(i);
+	/**
+	 * Creates the paragraphs and searches in them.
+	 */
+	private class ParagraphCollector implements SplittingEngine.ParagraphListener {
+		private final String text;
+		private final String searchTerm;
+		// the search term with the options, searched instead of String.contains
+		private final SearchPattern.Searcher searcher;
+		private final AhoCorasick automaton;
+		private final List<Paragraph> paragraphs = new ArrayList<>();
+		// the paragraphs come in order, so the first occurrence of the search term is only searched forward
+		private int nextMatch = -1;
+
+		private ParagraphCollector(String text, String searchTerm, SearchPattern pattern, AhoCorasick automaton) {
+			this.text = text;
+			this.searchTerm = searchTerm;
+			this.searcher = pattern != null ? pattern.searcher() : null;
+			this.automaton = automaton;
+		}
+
+		@Override
+		public void paragraph(int start, int length) {
+			paragraphs.add(create(start, length));
+		}
 
-			if(!Character.isWhitespace(ch)) {
-				int length = sb.length();
-				sb.delete(i + 1, sb.length());
-				return length - i - 1;
+		private Paragraph create(int start, int length) {
+			String paragraph = text.substring(start, start + length);
+			List<TermMatch> matches = match(automaton, text, start, start, length);
+			if(searcher == null) {
+				return new Paragraph(paragraph, start, length, search(paragraph, searchTerm) || isMatched(matches), matches);
 			}
+			List<Occurrence> occurrences = new ArrayList<>();
+			searcher.search(text, start, start + length, (from, to) -> occurrences.add(new Occurrence(from, to - from)));
+			return new Paragraph(paragraph, start, length, !occurrences.isEmpty() || isMatched(matches), matches, occurrences);
 		}
 
-		return clear(sb);
+		/**
+		 * The same as {@link Paragraph#isContains()} of the created paragraph, but without creating it.
+		 * The paragraphs have to be checked in order, the search term is only searched forward.
+		 */
+		private boolean contains(int start, int length) {
+			if(automaton != null && automaton.containsAny(text, start, start + length)) {
+				return true;
+			}
+			if(searcher != null) {
+				return searcher.contains(text, start, start + length);
+			}
+			// assumed that the search team can't be empty to do the search
+			if(searchTerm == null || searchTerm.isEmpty()) {
+				return false;
+			}
+			if(nextMatch != text.length() && nextMatch < start) {
+				nextMatch = text.indexOf(searchTerm, start);
+				if(nextMatch < 0) {
+					nextMatch = text.length();
+				}
+			}
+			return nextMatch + searchTerm.length() <= start + length;
+		}
 	}
 
-	private int clear(StringBuilder sb) {
-		int length = sb.length();
-		sb.delete(0, length);
-		return length;
+	/**
+	 * Paragraphs of the text split on demand, the text after the last returned paragraph isn't scanned yet.
+	 */
+	private class LazyParagraphs implements Iterator<Paragraph> {
+		private final ParagraphScanner scanner;
+		private final ParagraphCollector collector;
+		private final boolean onlyMatching;
+		private Paragraph next;
+
+		private LazyParagraphs(ParagraphScanner scanner, ParagraphCollector collector, boolean onlyMatching) {
+			this.scanner = scanner;
+			this.collector = collector;
+			this.onlyMatching = onlyMatching;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while(next == null && find()) {
+				next = collector.create(scanner.start(), scanner.length());
+			}
+			return next != null;
+		}
+
+		@Override
+		public Paragraph next() {
+			if(!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			Paragraph paragraph = next;
+			next = null;
+			return paragraph;
+		}
+
+		/**
+		 * Skips the paragraphs without creating them.
+		 * @param count
+		 */
+		private void skip(long count) {
+			if(next != null && count > 0) {
+				next = null;
+				count--;
+			}
+			while(count > 0 && find()) {
+				count--;
+			}
+		}
+
+		// splits the next paragraph, if only the matching ones are returned it's the next matching one
+		private boolean find() {
+			while(scanner.next()) {
+				if(!onlyMatching || collector.contains(scanner.start(), scanner.length())) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private boolean isFinished() {
+			return next == null && !scanner.hasNext();
+		}
+
+		/**
+		 * @return start of the first paragraph which wasn't returned yet
+		 */
+		private int position() {
+			return next != null ? (int) next.getStart() : scanner.position();
+		}
 	}
 }
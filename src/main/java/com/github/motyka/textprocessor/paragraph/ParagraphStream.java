@@ -0,0 +1,37 @@
+package com.github.motyka.textprocessor.paragraph;
+
+/**
+ * Splits the text pushed in parts as they arrive, e.g. read from a non-blocking request.
+ * The paragraphs are passed to the consumer given to {@link ParagraphService#openStream} as soon as they are found.
+ * The methods must not be called concurrently.
+ */
+public class ParagraphStream {
+
+	private final StreamingSplitter splitter;
+	private final StreamingSplitter.Listener listener;
+	private final Runnable onFinish;
+
+	ParagraphStream(StreamingSplitter splitter, StreamingSplitter.Listener listener, Runnable onFinish) {
+		this.splitter = splitter;
+		this.listener = listener;
+		this.onFinish = onFinish;
+	}
+
+	/**
+	 * Splits the next part of the text, the array can be reused after the method returns.
+	 * @param chars
+	 * @param offset
+	 * @param length
+	 */
+	public void feed(char[] chars, int offset, int length) {
+		splitter.feed(chars, offset, length, listener);
+	}
+
+	/**
+	 * Splits the rest of the text after the last part.
+	 */
+	public void finish() {
+		splitter.finish(listener);
+		onFinish.run();
+	}
+}
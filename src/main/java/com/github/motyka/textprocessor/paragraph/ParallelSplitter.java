@@ -0,0 +1,142 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Splits the text on many threads. The text is cut into segments at double new lines, which always end a paragraph,
+ * so every segment can be split separately by {@link ScanningSplittingEngine} and the paragraphs are the same
+ * as the ones found by splitting the whole text.
+ */
+class ParallelSplitter {
+
+	private final ScanningSplittingEngine engine;
+	private final ForkJoinPool pool;
+	private final int segmentSize;
+
+	ParallelSplitter(ScanningSplittingEngine engine, ForkJoinPool pool, int segmentSize) {
+		this.engine = engine;
+		this.pool = pool;
+		this.segmentSize = segmentSize;
+	}
+
+	/**
+	 * @param text
+	 * @param mainLimit
+	 * @param secondaryLimit
+	 * @param listeners creates the listener for every segment
+	 * @param finisher returns the result of the segment from its listener
+	 * @return results of the segments in the order of the text
+	 */
+	<L extends SplittingEngine.ParagraphListener, R> List<R> split(CharSequence text, int mainLimit, int secondaryLimit,
+			Supplier<L> listeners, Function<L, R> finisher) {
+		return split(engine, text, mainLimit, secondaryLimit, listeners, finisher);
+	}
+
+	/**
+	 * The same as {@link #split(CharSequence, int, int, Supplier, Function)} with the rules of another chain.
+	 * @param engine
+	 * @param text
+	 * @param mainLimit
+	 * @param secondaryLimit
+	 * @param listeners
+	 * @param finisher
+	 * @return
+	 */
+	<L extends SplittingEngine.ParagraphListener, R> List<R> split(ScanningSplittingEngine engine, CharSequence text, int mainLimit, int secondaryLimit,
+			Supplier<L> listeners, Function<L, R> finisher) {
+		List<Integer> boundaries = findBoundaries(engine.getChain().getLineBreaks(), text);
+		List<Callable<R>> tasks = new ArrayList<>();
+		for(int i = 0; i < boundaries.size() - 1; i++) {
+			int from = boundaries.get(i);
+			int to = boundaries.get(i + 1);
+			tasks.add(() -> {
+				L listener = listeners.get();
+				engine.split(text, from, to, mainLimit, secondaryLimit, listener);
+				return finisher.apply(listener);
+			});
+		}
+
+		return invokeAll(tasks);
+	}
+
+	/**
+	 * Passes the paragraphs split before to the listeners, every listener gets the paragraphs of about
+	 * *segmentSize* characters.
+	 * @param boundaries
+	 * @param listeners creates the listener for every segment
+	 * @param finisher returns the result of the segment from its listener
+	 * @return results of the segments in the order of the text
+	 */
+	<L extends SplittingEngine.ParagraphListener, R> List<R> replay(ParagraphBoundaries boundaries, Supplier<L> listeners, Function<L, R> finisher) {
+		List<Callable<R>> tasks = new ArrayList<>();
+		int from = 0;
+		for(int i = 1; i <= boundaries.size(); i++) {
+			if(i == boundaries.size() || boundaries.start(i) - boundaries.start(from) >= segmentSize) {
+				int first = from;
+				int last = i;
+				tasks.add(() -> {
+					L listener = listeners.get();
+					boundaries.replay(first, last, listener);
+					return finisher.apply(listener);
+				});
+				from = i;
+			}
+		}
+		return invokeAll(tasks);
+	}
+
+	private <R> List<R> invokeAll(List<Callable<R>> tasks) {
+		List<R> results = new ArrayList<>();
+		try {
+			for(Future<R> future : pool.invokeAll(tasks)) {
+				results.add(future.get());
+			}
+		} catch(InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Splitting interrupted", ex);
+		} catch(ExecutionException ex) {
+			if(ex.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) ex.getCause();
+			}
+			throw new IllegalStateException(ex.getCause());
+		}
+		return results;
+	}
+
+	/**
+	 * Finds the first double new line after every *segmentSize* characters.
+	 * @param text
+	 * @return 0, the double new lines and the length of the text
+	 */
+	List<Integer> findBoundaries(CharSequence text) {
+		return findBoundaries(engine.getChain().getLineBreaks(), text);
+	}
+
+	/**
+	 * @param lineBreaks of the chain the segments are split with
+	 * @param text
+	 * @return 0, the double line breaks and the length of the text
+	 */
+	List<Integer> findBoundaries(LineBreaks lineBreaks, CharSequence text) {
+		int end = lineBreaks.trimEnd(text, 0, text.length());
+		List<Integer> boundaries = new ArrayList<>();
+		boundaries.add(0);
+		for(int from = segmentSize; from < end; from += segmentSize) {
+			// the double new line has to be in this segment, so no part of the text is scanned twice
+			int segmentEnd = Math.min(from + segmentSize, end);
+			int newLines = lineBreaks.findNewLines(text, Math.max(from, boundaries.get(boundaries.size() - 1) + 1), segmentEnd);
+			if(newLines < segmentEnd) {
+				boundaries.add(newLines);
+			}
+		}
+		boundaries.add(text.length());
+		return boundaries;
+	}
+}
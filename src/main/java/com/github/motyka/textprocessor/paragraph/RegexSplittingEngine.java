@@ -0,0 +1,214 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits the text using regular expressions for the double new lines, dots and punctuation. The text is never copied,
+ * the matchers search only the region of the current paragraph, and they are reused by the splits of the same thread,
+ * so the loop doesn't allocate anything per paragraph.
+ */
+public class RegexSplittingEngine implements SplittingEngine {
+
+	private static final int NOT_FOUND = -1;
+
+	private static final Pattern PUNCTUATION = Pattern.compile("\\p{Punct}");
+	// there can't be alphanumeric characters between new line characters
+	private static final Pattern NEW_LINES = Pattern.compile("\n[^\\p{Alnum}]*\n");
+	// there needs to be a paragraph (alphanumeric characters) before the dot
+	private static final Pattern DOT = Pattern.compile("\\p{Alnum}.*?\\.");
+	// only keep punctuation that adhere to the paragraph
+	private static final Pattern TRIM = Pattern.compile("\\p{Punct}*\\p{Alnum}");
+
+	private static final ThreadLocal<Matchers> MATCHERS = ThreadLocal.withInitial(Matchers::new);
+
+	@Override
+	public void split(CharSequence text, int mainLimit, int secondaryLimit, ParagraphListener listener) {
+		Matchers matchers = MATCHERS.get();
+		matchers.reset(text);
+		try {
+			split(matchers, mainLimit, secondaryLimit, listener);
+		} finally {
+			// the thread doesn't keep the text
+			matchers.reset("");
+		}
+	}
+
+	private void split(Matchers matchers, int mainLimit, int secondaryLimit, ParagraphListener listener) {
+		CharSequence text = matchers.text;
+		int end = trimEnd(text, 0, text.length());
+		// the starting position of paragraph
+		int offset = trimStart(matchers, 0, end);
+		// the first double new line after *offset*, it is the same until the paragraphs pass it
+		int newLines = NOT_FOUND;
+
+		while(offset < end) {
+			int length = end - offset;
+
+			// always split at double new line before 1200 character (can be separated by non alphanumeric characters)
+			if(newLines < offset) {
+				newLines = find(matchers.newLines, offset, end);
+			}
+			if(newLines != end && isInRange(newLines - offset, mainLimit)) {
+				offset = addParagraph(listener, matchers, offset, newLines - offset, end, SplitReason.DOUBLE_NEW_LINE);
+				continue;
+			}
+
+			// no need to split anymore if too small
+			if(length < mainLimit) {
+				addParagraph(listener, matchers, offset, length, end, SplitReason.END);
+				break;
+			}
+
+			// NEW LINE
+			int separator = characterMatching(text, '\n', offset, end, mainLimit, secondaryLimit);
+			if(separator != NOT_FOUND) {
+				offset = addParagraph(listener, matchers, offset, separator, end, SplitReason.NEW_LINE);
+				continue;
+			}
+
+			// DOT
+			separator = patternMatching(matchers.dot, offset, end, mainLimit, secondaryLimit);
+			if(separator != NOT_FOUND) {
+				offset = addParagraph(listener, matchers, offset, separator, end, SplitReason.DOT);
+				continue;
+			}
+
+			// PUNCTUATION
+			separator = patternMatching(matchers.punctuation, offset, end, mainLimit, secondaryLimit);
+			if(separator != NOT_FOUND) {
+				offset = addParagraph(listener, matchers, offset, separator, end, SplitReason.PUNCTUATION);
+				continue;
+			}
+
+			// SPACE
+			separator = characterMatching(text, ' ', offset, end, mainLimit, secondaryLimit);
+			if(separator != NOT_FOUND) {
+				offset = addParagraph(listener, matchers, offset, separator, end, SplitReason.SPACE);
+				continue;
+			}
+
+			// split into *mainLimit* chunk
+			offset = addParagraph(listener, matchers, offset, Math.min(length, mainLimit), end, SplitReason.HARD_CUT);
+		}
+	}
+
+	/**
+	 * Add a new paragraph.
+	 * @param listener
+	 * @param matchers
+	 * @param start
+	 * @param length
+	 * @param end
+	 * @param reason
+	 * @return position of the next paragraph
+	 */
+	private int addParagraph(ParagraphListener listener, Matchers matchers, int start, int length, int end, SplitReason reason) {
+		listener.paragraph(start, trimEnd(matchers.text, start, start + length) - start, reason);
+		return trimStart(matchers, start + length, end);
+	}
+
+	/**
+	 * @param matcher
+	 * @param start position of the paragraph
+	 * @param end
+	 * @param mainLimit
+	 * @param secondaryLimit
+	 * @return length of the paragraph ending with the match or -1 if there is no match in range
+	 */
+	private int patternMatching(Matcher matcher, int start, int end, int mainLimit, int secondaryLimit) {
+		// split at first match between *secondaryLimit* - *mainLimit* character
+		matcher.region(start, start + Math.min(end - start, mainLimit));
+		int index = NOT_FOUND;
+		while(matcher.find()) {
+			if(matcher.end() - start >= secondaryLimit) {
+				index = matcher.end() - start;
+				break;
+			}
+		}
+		if(isInRange(index, mainLimit)) {
+			return index;
+		}
+		// split at last match before *secondaryLimit* character
+		matcher.region(start, start + Math.min(end - start, secondaryLimit));
+		index = NOT_FOUND;
+		while(matcher.find()) {
+			index = matcher.end() - start;
+		}
+		return isInRange(index, secondaryLimit) ? index : NOT_FOUND;
+	}
+
+	/**
+	 * @param text
+	 * @param separator
+	 * @param start position of the paragraph
+	 * @param end
+	 * @param mainLimit
+	 * @param secondaryLimit
+	 * @return length of the paragraph ending before the separator or -1 if there is no separator in range
+	 */
+	private int characterMatching(CharSequence text, char separator, int start, int end, int mainLimit, int secondaryLimit) {
+		// split at first match between *secondaryLimit* - *mainLimit* character
+		for(int i = start + secondaryLimit, to = start + Math.min(end - start, mainLimit); i < to; i++) {
+			if(text.charAt(i) == separator) {
+				return i - start;
+			}
+		}
+		// split at last match before *secondaryLimit* character
+		for(int i = start + Math.min(end - start - 1, secondaryLimit); i >= start; i--) {
+			if(text.charAt(i) == separator) {
+				return isInRange(i - start, secondaryLimit) ? i - start : NOT_FOUND;
+			}
+		}
+		return NOT_FOUND;
+	}
+
+	private boolean isInRange(int index, int upperBound) {
+		// index == -1 means the term was not found
+		return index >= 0 && index < upperBound;
+	}
+
+	/**
+	 * @return start of the first match after *from* or *end* if there is none
+	 */
+	private int find(Matcher matcher, int from, int end) {
+		matcher.region(from, end);
+		return matcher.find() ? matcher.start() : end;
+	}
+
+	/**
+	 * @return position of the next paragraph or *end* if there are no more paragraphs
+	 */
+	private int trimStart(Matchers matchers, int from, int end) {
+		return find(matchers.trim, from, end);
+	}
+
+	/**
+	 * @return end of the text without the trailing whitespaces
+	 */
+	private int trimEnd(CharSequence text, int from, int to) {
+		while(to > from && Character.isWhitespace(text.charAt(to - 1))) {
+			to--;
+		}
+		return to;
+	}
+
+	/**
+	 * Matchers of one thread, they are reset to the text of every split.
+	 */
+	private static final class Matchers {
+		private final Matcher newLines = NEW_LINES.matcher("");
+		private final Matcher dot = DOT.matcher("");
+		private final Matcher punctuation = PUNCTUATION.matcher("");
+		private final Matcher trim = TRIM.matcher("");
+		private CharSequence text;
+
+		private void reset(CharSequence text) {
+			this.text = text;
+			newLines.reset(text);
+			dot.reset(text);
+			punctuation.reset(text);
+			trim.reset(text);
+		}
+	}
+}
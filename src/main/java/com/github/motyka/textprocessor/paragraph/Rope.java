@@ -0,0 +1,237 @@
+package com.github.motyka.textprocessor.paragraph;
+
+/**
+ * Text of a stored document, a balanced tree (AVL) of its parts. The rope is immutable: an edit makes a new rope
+ * sharing all the parts but the ones around the edit with the previous one, so it costs the logarithm of the length
+ * of the text and the length of the edit, the text is never copied whole.
+ */
+final class Rope implements CharSequence {
+
+	// the parts are joined up to this length, so the edits of a few characters don't leave many tiny leaves
+	private static final int LEAF = 1024;
+
+	private final Node root;
+	// the leaf read last, the characters are mostly read in order
+	private Cursor cursor;
+
+	private Rope(Node root) {
+		this.root = root;
+	}
+
+	static Rope of(String text) {
+		return new Rope(build(text, 0, text.length()));
+	}
+
+	/**
+	 * @param offset
+	 * @param deleted number of the characters removed at the offset, they have to be in the text
+	 * @param inserted
+	 * @return the edited text
+	 */
+	Rope replace(int offset, int deleted, String inserted) {
+		if(offset < 0 || deleted < 0 || offset > root.length - deleted) {
+			throw new IndexOutOfBoundsException("The edit is outside of the text of " + root.length + " characters.");
+		}
+		return new Rope(replace(root, offset, deleted, inserted));
+	}
+
+	private static Node replace(Node node, int offset, int deleted, String inserted) {
+		if(offset == 0 && deleted == node.length) {
+			return build(inserted);
+		}
+		if(node instanceof Leaf) {
+			String text = ((Leaf) node).text;
+			return build(text.substring(0, offset) + inserted + text.substring(offset + deleted));
+		}
+		Concat concat = (Concat) node;
+		int middle = concat.left.length;
+		if(offset + deleted <= middle) {
+			return join(replace(concat.left, offset, deleted, inserted), concat.right);
+		}
+		if(offset >= middle) {
+			return join(concat.left, replace(concat.right, offset - middle, deleted, inserted));
+		}
+		// the edit crosses the parts, the rest of the left one is removed and the inserted text replaces the start
+		// of the right one
+		Node left = replace(concat.left, offset, middle - offset, "");
+		return join(left, replace(concat.right, 0, offset + deleted - middle, inserted));
+	}
+
+	@Override
+	public int length() {
+		return root.length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		Cursor cursor = this.cursor;
+		if(cursor == null || index < cursor.start || index >= cursor.start + cursor.leaf.length) {
+			if(index < 0 || index >= root.length) {
+				throw new IndexOutOfBoundsException("Index " + index + " outside of the text of " + root.length + " characters.");
+			}
+			cursor = find(index);
+			// only read by this rope, a stale cursor of another thread is still a correct one
+			this.cursor = cursor;
+		}
+		return cursor.leaf.text.charAt(index - cursor.start);
+	}
+
+	private Cursor find(int index) {
+		Node node = root;
+		int start = 0;
+		while(node instanceof Concat) {
+			Concat concat = (Concat) node;
+			if(index < start + concat.left.length) {
+				node = concat.left;
+			} else {
+				start += concat.left.length;
+				node = concat.right;
+			}
+		}
+		return new Cursor((Leaf) node, start);
+	}
+
+	@Override
+	public String subSequence(int start, int end) {
+		if(start < 0 || end > root.length || start > end) {
+			throw new IndexOutOfBoundsException("The range " + start + " - " + end + " is outside of the text of " + root.length + " characters.");
+		}
+		StringBuilder text = new StringBuilder(end - start);
+		append(root, start, end, text);
+		return text.toString();
+	}
+
+	private static void append(Node node, int start, int end, StringBuilder text) {
+		if(start >= end) {
+			return;
+		}
+		if(node instanceof Leaf) {
+			text.append(((Leaf) node).text, start, end);
+			return;
+		}
+		Concat concat = (Concat) node;
+		int middle = concat.left.length;
+		append(concat.left, start, Math.min(end, middle), text);
+		append(concat.right, Math.max(0, start - middle), end - middle, text);
+	}
+
+	@Override
+	public String toString() {
+		return subSequence(0, root.length);
+	}
+
+	/**
+	 * @return approximate size of the tree without the characters in bytes
+	 */
+	long weight() {
+		return weight(root.length);
+	}
+
+	/**
+	 * @param length of the text
+	 * @return approximate size of the tree of the text without the characters in bytes
+	 */
+	static long weight(int length) {
+		// a leaf and its string, about a node for every leaf
+		return 120L * (length / LEAF + 1);
+	}
+
+	private static Node build(String text) {
+		return build(text, 0, text.length());
+	}
+
+	private static Node build(String text, int from, int to) {
+		if(to - from <= LEAF) {
+			return new Leaf(text.substring(from, to));
+		}
+		int middle = (from + to) >>> 1;
+		return new Concat(build(text, from, middle), build(text, middle, to));
+	}
+
+	/**
+	 * @return the node of both texts, balanced if both are balanced
+	 */
+	private static Node join(Node left, Node right) {
+		if(left.length == 0) {
+			return right;
+		}
+		if(right.length == 0) {
+			return left;
+		}
+		if(left.height > right.height + 1) {
+			Concat concat = (Concat) left;
+			return balance(concat.left, join(concat.right, right));
+		}
+		if(right.height > left.height + 1) {
+			Concat concat = (Concat) right;
+			return balance(join(left, concat.left), concat.right);
+		}
+		if(left instanceof Leaf && right instanceof Leaf && left.length + right.length <= LEAF) {
+			return new Leaf(((Leaf) left).text + ((Leaf) right).text);
+		}
+		return new Concat(left, right);
+	}
+
+	/**
+	 * @return the node of the balanced parts, their heights can differ by at most 2
+	 */
+	private static Node balance(Node left, Node right) {
+		if(left.height > right.height + 1) {
+			Concat concat = (Concat) left;
+			if(concat.left.height >= concat.right.height) {
+				return new Concat(concat.left, new Concat(concat.right, right));
+			}
+			Concat inner = (Concat) concat.right;
+			return new Concat(new Concat(concat.left, inner.left), new Concat(inner.right, right));
+		}
+		if(right.height > left.height + 1) {
+			Concat concat = (Concat) right;
+			if(concat.right.height >= concat.left.height) {
+				return new Concat(new Concat(left, concat.left), concat.right);
+			}
+			Concat inner = (Concat) concat.left;
+			return new Concat(new Concat(left, inner.left), new Concat(inner.right, concat.right));
+		}
+		return new Concat(left, right);
+	}
+
+	private abstract static class Node {
+		final int length;
+		final int height;
+
+		Node(int length, int height) {
+			this.length = length;
+			this.height = height;
+		}
+	}
+
+	private static final class Leaf extends Node {
+		final String text;
+
+		Leaf(String text) {
+			super(text.length(), 0);
+			this.text = text;
+		}
+	}
+
+	private static final class Concat extends Node {
+		final Node left;
+		final Node right;
+
+		Concat(Node left, Node right) {
+			super(left.length + right.length, 1 + Math.max(left.height, right.height));
+			this.left = left;
+			this.right = right;
+		}
+	}
+
+	private static final class Cursor {
+		final Leaf leaf;
+		final int start;
+
+		Cursor(Leaf leaf, int start) {
+			this.leaf = leaf;
+			this.start = start;
+		}
+	}
+}
@@ -0,0 +1,255 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import java.util.Arrays;
+
+/**
+ * Splits the text iterating over it character by character, remembering the first and last separator of every rule
+ * of the chain in the *secondaryLimit* - *mainLimit* window of the current paragraph. All the rules are checked
+ * in the same pass with one lookup of the character in the compiled chain. The text is never copied and with
+ * the default chain the result is the same as the one of {@link RegexSplittingEngine}.
+ */
+public class ScanningSplittingEngine implements SplittingEngine {
+
+	private static final int NOT_FOUND = -1;
+
+	private final SplitRuleChain chain;
+
+	public ScanningSplittingEngine() {
+		this(SplitRuleChain.DEFAULT);
+	}
+
+	public ScanningSplittingEngine(SplitRuleChain chain) {
+		this.chain = chain;
+	}
+
+	public SplitRuleChain getChain() {
+		return chain;
+	}
+
+	@Override
+	public void split(CharSequence text, int mainLimit, int secondaryLimit, ParagraphListener listener) {
+		split(text, 0, text.length(), mainLimit, secondaryLimit, listener);
+	}
+
+	/**
+	 * Splits only a part of the text, the paragraphs are the same as the ones found when splitting the whole text
+	 * if *from* is 0 or a double new line.
+	 * @param text
+	 * @param from
+	 * @param to only the paragraphs starting before this position are reported
+	 * @param mainLimit
+	 * @param secondaryLimit
+	 * @param listener
+	 */
+	public void split(CharSequence text, int from, int to, int mainLimit, int secondaryLimit, ParagraphListener listener) {
+		LineBreaks lineBreaks = chain.getLineBreaks();
+		int end = lineBreaks.trimEnd(text, 0, text.length());
+		// the starting position of paragraph
+		int start = trimStart(text, from, end);
+		// the double new lines are only searched forward, so this part of the text is scanned once
+		int newLines = NOT_FOUND;
+		Boundary boundary = new Boundary();
+
+		while(start < Math.min(to, end)) {
+			if(newLines < start) {
+				newLines = lineBreaks.findNewLines(text, start, end);
+			}
+
+			int length = next(text, start, end, newLines, mainLimit, secondaryLimit, boundary).length;
+			listener.paragraph(start, lineBreaks.trimEnd(text, start, start + length) - start, boundary.reason);
+			start = trimStart(text, start + length, end);
+		}
+	}
+
+	/**
+	 * Finds the length of the paragraph and the separator which ends it.
+	 * @param text
+	 * @param start position of the paragraph
+	 * @param end end of the text
+	 * @param newLines position of the first double new line after *start* or *end* if there is none
+	 * @param mainLimit
+	 * @param secondaryLimit
+	 * @param boundary set to the length of the paragraph and its separator
+	 * @return the passed boundary
+	 */
+	Boundary next(CharSequence text, int start, int end, int newLines, int mainLimit, int secondaryLimit, Boundary boundary) {
+		// always split at double new line before *mainLimit*, if there is none it is the end of the text
+		// so there is no need to split anymore if too small
+		if(newLines - start < mainLimit) {
+			return boundary.set(newLines - start, newLines < end ? SplitReason.DOUBLE_NEW_LINE : SplitReason.END);
+		}
+		return splitWindow(text, start, end, mainLimit, secondaryLimit, boundary);
+	}
+
+	/**
+	 * Finds the length of the paragraph which is longer than *mainLimit*.
+	 * The rules of the chain are checked in order, if none of them has a separator in range
+	 * the paragraph is split into *mainLimit* chunk.
+	 * @param text
+	 * @param start position of the paragraph
+	 * @param end end of the text
+	 * @param mainLimit
+	 * @param secondaryLimit
+	 * @param boundary
+	 * @return the passed boundary
+	 */
+	private Boundary splitWindow(CharSequence text, int start, int end, int mainLimit, int secondaryLimit, Boundary boundary) {
+		SplitRuleChain chain = this.chain;
+		int rules = (1 << chain.size) - 1;
+		int included = chain.included;
+		int afterWord = ~chain.afterWord;
+		int lineStartRules = ~chain.lineStart;
+		int beforeWhitespace = chain.beforeWhitespace;
+		int[] latin = chain.latin();
+		// first separator between *secondaryLimit* - *mainLimit* and last separator before *secondaryLimit* of every rule
+		int[] first = boundary.first(chain.size);
+		int[] last = boundary.last;
+		// the rules which had an alphanumeric character in the same line after their last separator
+		int word = 0;
+		// the paragraph can't be split before its first character, so it doesn't matter if it starts a line
+		boolean lineStart = false;
+
+		// the separators are positions of the split, the split after a dot or punctuation includes it in the paragraph
+		int windowEnd = Math.min(end - start - 1, mainLimit);
+		for(int i = 0; i <= windowEnd; i++) {
+			char ch = text.charAt(start + i);
+			int bits = ch < 256 ? latin[ch] : chain.bits(ch);
+
+			int matched = bits & rules;
+			if(matched != 0) {
+				int accepted = matched & (word | afterWord);
+				if(!lineStart) {
+					accepted &= lineStartRules;
+				}
+				if((accepted & beforeWhitespace) != 0 && start + i + 1 < end
+						&& (chain.bits(text.charAt(start + i + 1)) & SplitRuleChain.WHITESPACE) == 0) {
+					accepted &= ~beforeWhitespace;
+				}
+
+				while(accepted != 0) {
+					int rule = Integer.numberOfTrailingZeros(accepted);
+					accepted &= accepted - 1;
+					int separator = (included & 1 << rule) != 0 ? i + 1 : i;
+					// only the single characters are checked at the *mainLimit* position
+					if(separator > 0 && separator <= mainLimit) {
+						first[rule] = first(first[rule], separator, mainLimit, secondaryLimit);
+						last[rule] = last(last[rule], separator, secondaryLimit);
+					}
+				}
+				if(first[0] != NOT_FOUND) {
+					// the first rule has the highest priority, nothing else matters
+					break;
+				}
+				word &= ~matched;
+			}
+
+			if((bits & SplitRuleChain.ALPHANUMERIC) != 0) {
+				word = rules;
+			} else if((bits & SplitRuleChain.LINE_TERMINATOR) != 0) {
+				word = 0;
+			}
+			lineStart = (bits & SplitRuleChain.LINE_TERMINATOR) != 0;
+		}
+
+		for(int rule = 0; rule < chain.size; rule++) {
+			if(first[rule] != NOT_FOUND) {
+				return boundary.set(first[rule], chain.reasons[rule]);
+			}
+			if(isInRange(last[rule], secondaryLimit)) {
+				return boundary.set(last[rule], chain.reasons[rule]);
+			}
+		}
+		// split into *mainLimit* chunk
+		return boundary.set(mainLimit, SplitReason.HARD_CUT);
+	}
+
+	private static int first(int current, int separator, int mainLimit, int secondaryLimit) {
+		return current == NOT_FOUND && separator >= secondaryLimit && separator < mainLimit ? separator : current;
+	}
+
+	private static int last(int current, int separator, int secondaryLimit) {
+		return separator <= secondaryLimit ? separator : current;
+	}
+
+	private static boolean isInRange(int index, int upperBound) {
+		// index == -1 means the separator was not found
+		return index >= 0 && index < upperBound;
+	}
+
+	/**
+	 * Only keeps punctuation that adhere to the paragraph.
+	 * @param text
+	 * @param from
+	 * @param end
+	 * @return position of the next paragraph or *end* if there are no more paragraphs
+	 */
+	static int trimStart(CharSequence text, int from, int end) {
+		for(int i = from; i < end; i++) {
+			if(isAlphanumeric(text.charAt(i))) {
+				while(i > from && isPunctuation(text.charAt(i - 1))) {
+					i--;
+				}
+				return i;
+			}
+		}
+		return end;
+	}
+
+	/**
+	 * @param text
+	 * @param from
+	 * @param to
+	 * @return end of the text without the trailing whitespaces
+	 */
+	static int trimEnd(CharSequence text, int from, int to) {
+		while(to > from && Character.isWhitespace(text.charAt(to - 1))) {
+			to--;
+		}
+		return to;
+	}
+
+	// the same character classes as \p{Alnum}, \p{Punct} and the line terminators of . in java.util.regex.Pattern
+	static boolean isAlphanumeric(char ch) {
+		return (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') || (ch >= '0' && ch <= '9');
+	}
+
+	static boolean isPunctuation(char ch) {
+		return (ch >= '!' && ch <= '/') || (ch >= ':' && ch <= '@') || (ch >= '[' && ch <= '`') || (ch >= '{' && ch <= '~');
+	}
+
+	static boolean isLineTerminator(char ch) {
+		return ch == '\n' || ch == '\r' || ch == '\u0085' || ch == '\u2028' || ch == '\u2029';
+	}
+
+	/**
+	 * Length of the next paragraph and the separator which ends it, one instance is reused for the whole text.
+	 */
+	static final class Boundary {
+		int length;
+		SplitReason reason;
+		// separators of the rules in the current window
+		private int[] first = new int[0];
+		private int[] last = new int[0];
+
+		private Boundary set(int length, SplitReason reason) {
+			this.length = length;
+			this.reason = reason;
+			return this;
+		}
+
+		/**
+		 * Clears the separators of the rules.
+		 * @param rules
+		 * @return the first separators
+		 */
+		private int[] first(int rules) {
+			if(first.length != rules) {
+				first = new int[rules];
+				last = new int[rules];
+			}
+			Arrays.fill(first, NOT_FOUND);
+			Arrays.fill(last, NOT_FOUND);
+			return first;
+		}
+	}
+}
@@ -1,9 +1,30 @@
 package com.github.motyka.textprocessor.paragraph;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.github.motyka.textprocessor.search.SearchOptions;
+import lombok.AllArgsConstructor;
+import lombok.ToString;
 import lombok.Value;
 
+import java.util.List;
+
 @Value
+@AllArgsConstructor(onConstructor_ = @JsonCreator)
 public class SearchCriteria {
+	// can be the whole document, so it isn't logged
+	@ToString.Exclude
 	private String text;
 	private String searchTerm;
+	// all of them are searched at once, every paragraph reports which of them it contains
+	private List<String> searchTerms;
+	// how the search term is matched, null for the exact match
+	private SearchOptions options;
+
+	public SearchCriteria(String text, String searchTerm) {
+		this(text, searchTerm, null);
+	}
+
+	public SearchCriteria(String text, String searchTerm, List<String> searchTerms) {
+		this(text, searchTerm, searchTerms, null);
+	}
 }
@@ -0,0 +1,94 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * Keeps the positions of the paragraphs of the recently split texts, so the same text can be searched again
+ * without splitting it. The texts aren't kept, they are identified by their hash, length, the limits, the strategy
+ * and the chain of the split rules. The hash is keyed with a random key of the process, so a client can't compute a text which
+ * would get the paragraphs of another one.
+ * The cache is bounded by the approximate size of the positions in bytes, the entries are evicted
+ * by Caffeine's W-TinyLFU policy.
+ */
+@Component
+public class SplitCache {
+
+	private final Cache<Key, ParagraphBoundaries> cache;
+	private final TextHash textHash = TextHash.random();
+
+	public SplitCache(
+			@Value("${paragraph.cache.max-weight:67108864}") long maxWeight,
+			MeterRegistry registry) {
+		if(maxWeight <= 0) {
+			cache = null;
+			return;
+		}
+		cache = Caffeine.newBuilder()
+				.maximumWeight(maxWeight)
+				.weigher((Key key, ParagraphBoundaries boundaries) -> boundaries.weight())
+				.recordStats()
+				.build();
+		// cache.gets{cache="paragraph.split", result="hit|miss"}, cache.evictions, cache.size ...
+		CaffeineCacheMetrics.monitor(registry, cache, "paragraph.split");
+	}
+
+	/**
+	 * @return false if the maximum weight is 0, the texts have to be split every time
+	 */
+	boolean isEnabled() {
+		return cache != null;
+	}
+
+	/**
+	 * @param text
+	 * @param mainLimit
+	 * @param secondaryLimit
+	 * @param split splits the text if it isn't in the cache
+	 * @return the positions of the paragraphs of the SCANNING strategy with the default chain
+	 */
+	ParagraphBoundaries get(String text, int mainLimit, int secondaryLimit, Supplier<ParagraphBoundaries> split) {
+		return get(text, mainLimit, secondaryLimit, SplittingStrategy.SCANNING, SplitRuleChain.DEFAULT_NAME, split);
+	}
+
+	/**
+	 * The text is split outside of the map, so a long split doesn't block the other texts of the same bin of the map.
+	 * The same text requested concurrently can be split more than once, the first paragraphs are kept.
+	 * @param text
+	 * @param mainLimit
+	 * @param secondaryLimit
+	 * @param strategy the text was split with
+	 * @param rules name of the chain of the split rules
+	 * @param split splits the text if it isn't in the cache
+	 * @return the positions of the paragraphs
+	 */
+	ParagraphBoundaries get(String text, int mainLimit, int secondaryLimit, SplittingStrategy strategy, String rules,
+			Supplier<ParagraphBoundaries> split) {
+		long[] hash = textHash.hash(text);
+		Key key = new Key(hash[0], hash[1], text.length(), mainLimit, secondaryLimit, strategy, rules);
+		ParagraphBoundaries boundaries = cache.getIfPresent(key);
+		if(boundaries != null) {
+			return boundaries;
+		}
+		boundaries = split.get();
+		ParagraphBoundaries cached = cache.asMap().putIfAbsent(key, boundaries);
+		return cached != null ? cached : boundaries;
+	}
+
+	@lombok.Value
+	private static class Key {
+		private long hashHigh;
+		private long hashLow;
+		private int length;
+		private int mainLimit;
+		private int secondaryLimit;
+		private SplittingStrategy strategy;
+		private String rules;
+	}
+}
@@ -0,0 +1,23 @@
+package com.github.motyka.textprocessor.paragraph;
+
+/**
+ * The separator which ended the paragraph, in the order they are checked by the splitting engines.
+ */
+public enum SplitReason {
+	/**
+	 * Double new line before *mainLimit*.
+	 */
+	DOUBLE_NEW_LINE,
+	/**
+	 * The rest of the text is shorter than *mainLimit*.
+	 */
+	END,
+	NEW_LINE,
+	DOT,
+	PUNCTUATION,
+	SPACE,
+	/**
+	 * No separator was found, the paragraph is a *mainLimit* chunk.
+	 */
+	HARD_CUT
+}
@@ -0,0 +1,50 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Passes the paragraphs to the listener counting their separators. The counts are added to {@link ParagraphMetrics}
+ * at the end of the split, so the shared counters aren't updated for every paragraph.
+ * Every split is traced if DEBUG level is enabled for this class, it is checked once per split so the tracing costs
+ * nothing when it's off.
+ */
+class SplitRecorder<L extends SplittingEngine.ParagraphListener> implements SplittingEngine.ParagraphListener {
+
+	private static final Logger logger = LoggerFactory.getLogger(SplitRecorder.class);
+
+	private static final int REASONS = SplitReason.values().length;
+
+	private final L listener;
+	private final ParagraphMetrics metrics;
+	private final int[] reasons = new int[REASONS];
+	private final boolean trace = logger.isDebugEnabled();
+
+	SplitRecorder(L listener, ParagraphMetrics metrics) {
+		this.listener = listener;
+		this.metrics = metrics;
+	}
+
+	@Override
+	public void paragraph(int start, int length) {
+		listener.paragraph(start, length);
+	}
+
+	@Override
+	public void paragraph(int start, int length, SplitReason reason) {
+		if(trace) {
+			logger.debug("paragraph start {}, length {}, split because of {}", start, length, reason);
+		}
+		reasons[reason.ordinal()]++;
+		listener.paragraph(start, length, reason);
+	}
+
+	/**
+	 * Adds the counts to the metrics, should be called once after the split.
+	 * @return the listener
+	 */
+	L finish() {
+		metrics.reasons(reasons);
+		return listener;
+	}
+}
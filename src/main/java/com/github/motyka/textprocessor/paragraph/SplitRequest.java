@@ -0,0 +1,42 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import com.github.motyka.textprocessor.search.SearchOptions;
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * How {@link ParagraphService} splits and searches a text: the limits, the split rules, the search terms and the unit
+ * of the positions. The parameters which aren't set in the builder have the defaults of the endpoints.
+ */
+@Value
+@Builder(toBuilder = true)
+public class SplitRequest {
+	private String searchTerm;
+	// how the search term is matched, null for the exact match without the occurrences
+	private SearchOptions options;
+	// all of them are searched at once, every paragraph reports which of them it contains, can be null
+	private List<String> searchTerms;
+	@Builder.Default
+	private int mainLimit = 1200;
+	@Builder.Default
+	private int secondaryLimit = 800;
+	// null for paragraph.splitting.strategy, must be SCANNING or null if the chain isn't the default one
+	private SplittingStrategy strategy;
+	// name of the chain of SplitRuleChains, null for the default one
+	private String rules;
+	// only the texts read from bytes can have the positions in bytes, the limits are always in characters
+	@Builder.Default
+	private OffsetUnit unit = OffsetUnit.CHARS;
+
+	/**
+	 * @param searchTerm
+	 * @param mainLimit
+	 * @param secondaryLimit
+	 * @return the request with the other parameters of {@link #builder()}
+	 */
+	public static SplitRequest of(String searchTerm, int mainLimit, int secondaryLimit) {
+		return builder().searchTerm(searchTerm).mainLimit(mainLimit).secondaryLimit(secondaryLimit).build();
+	}
+}
@@ -0,0 +1,71 @@
+package com.github.motyka.textprocessor.paragraph;
+
+/**
+ * Separator at which a paragraph longer than *mainLimit* can be split. The rules of a chain are tried in their order:
+ * the paragraph is split at the first separator of the rule between *secondaryLimit* - *mainLimit* or at its last
+ * separator before *secondaryLimit*, if the rule has neither, the next rule is tried. The double new lines, the end
+ * of the text and the *mainLimit* chunks are handled by the engine for every chain.
+ * <p>
+ * The rules are only declared by their characters and a few conditions, so a chain is compiled into a single table
+ * of the characters when the application starts and {@link ScanningSplittingEngine} checks all its rules in one pass,
+ * however many there are. The rules registered as Spring beans can be used in the chains together with
+ * {@link BuiltInSplitRule}.
+ */
+public interface SplitRule {
+
+	/**
+	 * @return name of the rule in the chains, e.g. paragraph.rules.chains.sentences=NEW_LINE,SENTENCE_END,SPACE
+	 */
+	String getName();
+
+	/**
+	 * @return separator reported for the paragraphs ended by this rule
+	 */
+	SplitReason getReason();
+
+	/**
+	 * Only called when the chain is compiled.
+	 * @param ch
+	 * @return true if the paragraph can be split at this character
+	 */
+	boolean isSeparator(char ch);
+
+	/**
+	 * @return true if the separators are the line breaks of the chain instead of {@link #isSeparator(char)},
+	 * see {@link LineBreaks}
+	 */
+	default boolean isLineBreak() {
+		return false;
+	}
+
+	/**
+	 * @return true if the separator is the last character of the paragraph (dot), false if the paragraph ends before it
+	 * (new line)
+	 */
+	default boolean isIncluded() {
+		return false;
+	}
+
+	/**
+	 * @return true if there has to be an alphanumeric character before the separator, in the same line
+	 * and after the previous separator of this rule
+	 */
+	default boolean isAfterWord() {
+		return false;
+	}
+
+	/**
+	 * @return true if the separator has to be the first character of a line
+	 */
+	default boolean isLineStart() {
+		return false;
+	}
+
+	/**
+	 * @return true if the separator has to be followed by a whitespace or the end of the text, e.g. so the dots
+	 * in URLs and numbers aren't separators
+	 */
+	default boolean isBeforeWhitespace() {
+		return false;
+	}
+}
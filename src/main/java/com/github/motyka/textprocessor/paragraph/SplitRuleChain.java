@@ -0,0 +1,166 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The rules of a chain compiled into a table of the characters. Every character has a bit for every rule it is
+ * a separator of and the bits of its class (alphanumeric, line terminator, whitespace), so the scanner finds all rules
+ * matching the character with a single lookup. The conditions of the rules are masks of the rule bits.
+ * The chain is immutable and shared by all the splits using it.
+ */
+public class SplitRuleChain {
+
+	public static final String DEFAULT_NAME = "default";
+
+	/**
+	 * NEW_LINE, DOT, PUNCTUATION, SPACE - the same paragraphs as {@link RegexSplittingEngine}.
+	 */
+	public static final SplitRuleChain DEFAULT = compile(DEFAULT_NAME, Arrays.asList(
+			BuiltInSplitRule.NEW_LINE, BuiltInSplitRule.DOT, BuiltInSplitRule.PUNCTUATION, BuiltInSplitRule.SPACE));
+
+	// the lower bits are the rules in the order of the chain
+	static final int MAX_RULES = 29;
+	static final int ALPHANUMERIC = 1 << 29;
+	static final int LINE_TERMINATOR = 1 << 30;
+	static final int WHITESPACE = 1 << 31;
+
+	private final String name;
+	private final List<SplitRule> rules;
+	private final LineBreaks lineBreaks;
+	// blocks of 256 characters, the blocks with the same bits are shared
+	private final int[][] blocks;
+	final int size;
+	final int included;
+	final int afterWord;
+	final int lineStart;
+	final int beforeWhitespace;
+	final SplitReason[] reasons;
+
+	private SplitRuleChain(String name, List<SplitRule> rules, LineBreaks lineBreaks, int[][] blocks) {
+		this.name = name;
+		this.rules = Collections.unmodifiableList(new ArrayList<>(rules));
+		this.lineBreaks = lineBreaks;
+		this.blocks = blocks;
+		size = rules.size();
+		reasons = new SplitReason[size];
+		int included = 0, afterWord = 0, lineStart = 0, beforeWhitespace = 0;
+		for(int i = 0; i < size; i++) {
+			SplitRule rule = rules.get(i);
+			reasons[i] = Objects.requireNonNull(rule.getReason(), () -> "The rule has no reason: " + rule.getName());
+			included |= rule.isIncluded() ? 1 << i : 0;
+			afterWord |= rule.isAfterWord() ? 1 << i : 0;
+			lineStart |= rule.isLineStart() ? 1 << i : 0;
+			beforeWhitespace |= rule.isBeforeWhitespace() ? 1 << i : 0;
+		}
+		this.included = included;
+		this.afterWord = afterWord;
+		this.lineStart = lineStart;
+		this.beforeWhitespace = beforeWhitespace;
+	}
+
+	/**
+	 * @param name
+	 * @param rules in the order they are tried
+	 * @return the chain breaking the lines only at LF
+	 */
+	public static SplitRuleChain compile(String name, List<? extends SplitRule> rules) {
+		return compile(name, rules, LineBreaks.LF);
+	}
+
+	/**
+	 * @param name
+	 * @param rules in the order they are tried
+	 * @param lineBreaks separators of the line break rules and of the double line breaks
+	 * @return
+	 */
+	public static SplitRuleChain compile(String name, List<? extends SplitRule> rules, LineBreaks lineBreaks) {
+		if(rules.size() > MAX_RULES) {
+			throw new IllegalArgumentException("The chain " + name + " can have at most " + MAX_RULES + " rules: " + rules.size());
+		}
+		Set<String> names = new HashSet<>();
+		for(SplitRule rule : rules) {
+			if(!names.add(rule.getName())) {
+				throw new IllegalArgumentException("The chain " + name + " has the rule " + rule.getName() + " twice");
+			}
+		}
+
+		List<int[]> distinct = new ArrayList<>();
+		int[][] blocks = new int[256][];
+		int[] block = new int[256];
+		for(int high = 0; high < 256; high++) {
+			for(int low = 0; low < 256; low++) {
+				block[low] = bits((char) (high << 8 | low), rules, lineBreaks);
+			}
+			blocks[high] = share(distinct, block);
+		}
+		return new SplitRuleChain(name, new ArrayList<>(rules), lineBreaks, blocks);
+	}
+
+	private static int bits(char ch, List<? extends SplitRule> rules, LineBreaks lineBreaks) {
+		int bits = 0;
+		for(int i = 0; i < rules.size(); i++) {
+			SplitRule rule = rules.get(i);
+			if(rule.isLineBreak() ? lineBreaks.isLineBreak(ch) : rule.isSeparator(ch)) {
+				bits |= 1 << i;
+			}
+		}
+		if(ScanningSplittingEngine.isAlphanumeric(ch)) {
+			bits |= ALPHANUMERIC;
+		}
+		if(ScanningSplittingEngine.isLineTerminator(ch)) {
+			bits |= LINE_TERMINATOR;
+		}
+		if(Character.isWhitespace(ch) || lineBreaks.isLineBreak(ch)) {
+			bits |= WHITESPACE;
+		}
+		return bits;
+	}
+
+	private static int[] share(List<int[]> distinct, int[] block) {
+		for(int[] existing : distinct) {
+			if(Arrays.equals(existing, block)) {
+				return existing;
+			}
+		}
+		int[] copy = block.clone();
+		distinct.add(copy);
+		return copy;
+	}
+
+	/**
+	 * @param ch
+	 * @return the rules the character is a separator of and its class
+	 */
+	int bits(char ch) {
+		return blocks[ch >>> 8][ch & 0xFF];
+	}
+
+	/**
+	 * @return bits of the first 256 characters, the most common ones are looked up without the block
+	 */
+	int[] latin() {
+		return blocks[0];
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public List<SplitRule> getRules() {
+		return rules;
+	}
+
+	public LineBreaks getLineBreaks() {
+		return lineBreaks;
+	}
+
+	public boolean isDefault() {
+		return this == DEFAULT;
+	}
+}
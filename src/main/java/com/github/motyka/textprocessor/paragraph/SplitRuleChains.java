@@ -0,0 +1,114 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * The named chains of the split rules, selected by the *rules* parameter of the requests. The chains are configured
+ * as paragraph.rules.chains.&lt;name&gt;=&lt;rule&gt;,&lt;rule&gt;... from {@link BuiltInSplitRule} and the rules
+ * registered as Spring beans, and they are compiled once when the application starts. The line breaks of a chain are
+ * configured as paragraph.rules.line-breaks.&lt;name&gt;=LF,CR... from {@link LineBreaks.LineBreak}, only LF by default.
+ */
+@Component
+public class SplitRuleChains {
+
+	private static final String PROPERTY = "paragraph.rules.chains";
+	private static final String LINE_BREAKS_PROPERTY = "paragraph.rules.line-breaks";
+
+	private final Logger logger = LoggerFactory.getLogger(SplitRuleChains.class);
+
+	private final Map<String, ScanningSplittingEngine> engines = new HashMap<>();
+
+	@Autowired
+	public SplitRuleChains(ObjectProvider<SplitRule> rules, Environment environment) {
+		this(rules.orderedStream().collect(Collectors.toList()),
+				Binder.get(environment).bind(PROPERTY, Bindable.mapOf(String.class, String.class)).orElse(Collections.emptyMap()),
+				Binder.get(environment).bind(LINE_BREAKS_PROPERTY, Bindable.mapOf(String.class, String.class)).orElse(Collections.emptyMap()));
+	}
+
+	/**
+	 * @param rules the rules in addition to the built-in ones
+	 * @param chains names of the rules by the names of the chains
+	 */
+	public SplitRuleChains(List<SplitRule> rules, Map<String, String> chains) {
+		this(rules, chains, Collections.emptyMap());
+	}
+
+	/**
+	 * @param rules the rules in addition to the built-in ones
+	 * @param chains names of the rules by the names of the chains
+	 * @param lineBreaks names of the line breaks by the names of the chains, LF if a chain isn't there
+	 */
+	public SplitRuleChains(List<SplitRule> rules, Map<String, String> chains, Map<String, String> lineBreaks) {
+		Map<String, SplitRule> rulesByName = new HashMap<>();
+		for(BuiltInSplitRule rule : BuiltInSplitRule.values()) {
+			rulesByName.put(rule.getName(), rule);
+		}
+		for(SplitRule rule : rules) {
+			if(rulesByName.put(rule.getName(), rule) != null) {
+				throw new IllegalArgumentException("There are two split rules named " + rule.getName());
+			}
+		}
+
+		for(String chain : lineBreaks.keySet()) {
+			if(!chains.containsKey(chain)) {
+				throw new IllegalArgumentException("The line breaks are set for the unknown split rule chain " + chain);
+			}
+		}
+
+		engines.put(SplitRuleChain.DEFAULT_NAME, (ScanningSplittingEngine) SplittingStrategy.SCANNING.getEngine());
+		for(Map.Entry<String, String> chain : chains.entrySet()) {
+			if(SplitRuleChain.DEFAULT_NAME.equals(chain.getKey())) {
+				throw new IllegalArgumentException("The default chain can't be changed, it gives the same paragraphs for all strategies");
+			}
+			List<SplitRule> chainRules = new ArrayList<>();
+			for(String name : chain.getValue().split(",")) {
+				SplitRule rule = rulesByName.get(name.trim());
+				if(rule == null) {
+					throw new IllegalArgumentException("Unknown split rule " + name.trim() + " in the chain " + chain.getKey());
+				}
+				chainRules.add(rule);
+			}
+			String chainLineBreaks = lineBreaks.get(chain.getKey());
+			LineBreaks breaks = chainLineBreaks == null ? LineBreaks.LF : LineBreaks.parse(chainLineBreaks);
+			engines.put(chain.getKey(), new ScanningSplittingEngine(SplitRuleChain.compile(chain.getKey(), chainRules, breaks)));
+			logger.info("split rule chain {}: {}, line breaks {}", chain.getKey(), chain.getValue(), breaks);
+		}
+	}
+
+	/**
+	 * @param name
+	 * @return the scanning engine splitting with the rules of the chain
+	 */
+	ScanningSplittingEngine engine(String name) {
+		ScanningSplittingEngine engine = engines.get(name);
+		if(engine == null) {
+			throw new IllegalArgumentException("Unknown split rule chain: " + name);
+		}
+		return engine;
+	}
+
+	/**
+	 * @return names of the rules by the names of the chains
+	 */
+	public Map<String, List<String>> getChains() {
+		Map<String, List<String>> chains = new HashMap<>();
+		engines.forEach((name, engine) -> chains.put(name, engine.getChain().getRules().stream()
+				.map(SplitRule::getName)
+				.collect(Collectors.toList())));
+		return chains;
+	}
+}
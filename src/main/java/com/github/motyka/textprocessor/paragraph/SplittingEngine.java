@@ -0,0 +1,36 @@
+package com.github.motyka.textprocessor.paragraph;
+
+/**
+ * Finds the paragraphs of a text. The engine only reports the positions of the paragraphs,
+ * creating the {@link Paragraph} and searching in it is done by {@link ParagraphService}.
+ */
+public interface SplittingEngine {
+
+	/**
+	 * Splits the text into paragraphs. The text and the limits are expected to be already validated.
+	 * @param text
+	 * @param mainLimit
+	 * @param secondaryLimit
+	 * @param listener notified about every paragraph in the order of appearance
+	 */
+	void split(CharSequence text, int mainLimit, int secondaryLimit, ParagraphListener listener);
+
+	@FunctionalInterface
+	interface ParagraphListener {
+		/**
+		 * @param start position of the paragraph in the text
+		 * @param length length of the paragraph without the trailing whitespaces
+		 */
+		void paragraph(int start, int length);
+
+		/**
+		 * Called by the engines instead of {@link #paragraph(int, int)} for the listeners interested in the separators.
+		 * @param start
+		 * @param length
+		 * @param reason separator which ended the paragraph
+		 */
+		default void paragraph(int start, int length, SplitReason reason) {
+			paragraph(start, length);
+		}
+	}
+}
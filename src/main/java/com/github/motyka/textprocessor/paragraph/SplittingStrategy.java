@@ -0,0 +1,22 @@
+package com.github.motyka.textprocessor.paragraph;
+
+public enum SplittingStrategy {
+	/**
+	 * The original implementation based on regular expressions.
+	 */
+	REGEX(new RegexSplittingEngine()),
+	/**
+	 * Single pass implementation iterating over the text character by character.
+	 */
+	SCANNING(new ScanningSplittingEngine());
+
+	private final SplittingEngine engine;
+
+	SplittingStrategy(SplittingEngine engine) {
+		this.engine = engine;
+	}
+
+	public SplittingEngine getEngine() {
+		return engine;
+	}
+}
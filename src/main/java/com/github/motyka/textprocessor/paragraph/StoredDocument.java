@@ -0,0 +1,259 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import com.github.motyka.textprocessor.search.EditableNgramIndex;
+import com.github.motyka.textprocessor.search.NgramIndex;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Document split once and kept in {@link DocumentStore} with the index of its paragraphs. The edits change
+ * the document in place and increment its version: the text is a {@link Rope}, the paragraphs a gap buffer kept
+ * between the edits and only the paragraphs around the edits are split and indexed again, so an edit costs
+ * the length of the edit and the paragraphs around it, not the length of the document.
+ */
+class StoredDocument {
+
+	// "PIDX" and the version of the format of the file
+	private static final int MAGIC = 0x50494458;
+	private static final int VERSION = 3;
+
+	// at most 2 bytes of the text, 4 bytes of the posting, 8 bytes of a new trigram and 12 bytes of a new paragraph
+	// for every inserted character
+	static final int EDIT_WEIGHT = 26;
+
+	private final String id;
+	private final int mainLimit;
+	private final int secondaryLimit;
+	// the searches read the document while it isn't edited
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	// incremented by every edit
+	private volatile int version;
+	private Rope text;
+	private final EditedParagraphs paragraphs;
+	private final EditableNgramIndex index;
+
+	/**
+	 * @param id
+	 * @param version
+	 * @param text
+	 * @param mainLimit
+	 * @param secondaryLimit
+	 * @param starts
+	 * @param lengths
+	 * @param index of the paragraphs identified by their positions in *starts*, built if it's null
+	 */
+	StoredDocument(String id, int version, String text, int mainLimit, int secondaryLimit, int[] starts, int[] lengths, NgramIndex index) {
+		this(id, version, Rope.of(text), mainLimit, secondaryLimit, new EditedParagraphs(starts, lengths, text.length()),
+				new EditableNgramIndex(index != null ? index : NgramIndex.build(text, starts, lengths), starts.length));
+	}
+
+	private StoredDocument(String id, int version, Rope text, int mainLimit, int secondaryLimit, EditedParagraphs paragraphs, EditableNgramIndex index) {
+		this.id = id;
+		this.version = version;
+		this.text = text;
+		this.mainLimit = mainLimit;
+		this.secondaryLimit = secondaryLimit;
+		this.paragraphs = paragraphs;
+		this.index = index;
+	}
+
+	/**
+	 * @param term
+	 * @return paragraphs containing the term in the order of the document
+	 */
+	List<Paragraph> search(String term) {
+		lock.readLock().lock();
+		try {
+			int[] candidates = index.candidates(term);
+			int[] found;
+			if(candidates == null) {
+				found = new int[paragraphs.size()];
+				Arrays.setAll(found, i -> i);
+			} else {
+				// the ids of the candidates aren't in the order of the document
+				found = new int[candidates.length];
+				for(int i = 0; i < candidates.length; i++) {
+					found[i] = paragraphs.index(candidates[i]);
+				}
+				Arrays.sort(found);
+			}
+			List<Paragraph> result = new ArrayList<>();
+			for(int paragraph : found) {
+				int start = paragraphs.start(paragraph);
+				int length = paragraphs.length(paragraph);
+				String content = text.subSequence(start, start + length);
+				if(content.contains(term)) {
+					result.add(new Paragraph(content, start, length, true));
+				}
+			}
+			return result;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Checks the edits before any of them is applied.
+	 * @param edits
+	 * @return number of the inserted characters
+	 */
+	long validate(List<TextEdit> edits) {
+		long length = text.length();
+		long inserted = 0;
+		for(TextEdit edit : edits) {
+			if(edit.getOffset() < 0 || edit.getDeleted() < 0 || edit.getOffset() > length - edit.getDeleted()) {
+				throw new IllegalArgumentException("The edit is outside of the text of " + length + " characters: " + edit);
+			}
+			int insertedLength = edit.getInserted() == null ? 0 : edit.getInserted().length();
+			length += insertedLength - edit.getDeleted();
+			inserted += insertedLength;
+		}
+		if(length > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("The edited document would be longer than " + Integer.MAX_VALUE + " characters.");
+		}
+		return inserted;
+	}
+
+	/**
+	 * Applies the edits one after another, every edit is re-split and indexed separately. The edits have to be
+	 * validated first.
+	 * @param edits
+	 * @param searchTerm the changed paragraphs containing it are marked, can be null
+	 * @param changes the changes of the paragraphs are added here, one for every edit
+	 */
+	void edit(List<TextEdit> edits, String searchTerm, List<ParagraphChange> changes) {
+		lock.writeLock().lock();
+		try {
+			IncrementalSplitter splitter = new IncrementalSplitter((ScanningSplittingEngine) SplittingStrategy.SCANNING.getEngine(), mainLimit, secondaryLimit);
+			for(TextEdit edit : edits) {
+				String inserted = edit.getInserted() == null ? "" : edit.getInserted();
+				int oldEnd = ScanningSplittingEngine.trimEnd(text, 0, text.length());
+				text = text.replace(edit.getOffset(), edit.getDeleted(), inserted);
+
+				IncrementalSplitter.Change change = splitter.split(text, oldEnd, paragraphs, edit.getOffset(), edit.getDeleted(), inserted.length());
+				index.remove(paragraphs.apply(change));
+				int[] ids = new int[change.starts.length];
+				for(int i = 0; i < ids.length; i++) {
+					ids[i] = paragraphs.id(change.first + i);
+				}
+				index.add(text, ids, change.starts, change.lengths);
+
+				List<Paragraph> changed = new ArrayList<>(change.starts.length);
+				for(int i = 0; i < change.starts.length; i++) {
+					String paragraph = text.subSequence(change.starts[i], change.starts[i] + change.lengths[i]);
+					changed.add(new Paragraph(paragraph, change.starts[i], change.lengths[i], searchTerm != null && !searchTerm.isEmpty() && paragraph.contains(searchTerm)));
+				}
+				changes.add(new ParagraphChange(change.first, change.removed, changed, change.shift));
+			}
+			version++;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	int getVersion() {
+		return version;
+	}
+
+	int getLength() {
+		lock.readLock().lock();
+		try {
+			return text.length();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @param length of the text
+	 * @param paragraphs number of the paragraphs
+	 * @return approximate size of a new document without its index in bytes, it can be checked before the text
+	 * is split and indexed
+	 */
+	static long weight(int length, int paragraphs) {
+		return 128 + 2L * length + Rope.weight(length) + EditedParagraphs.weight(paragraphs);
+	}
+
+	/**
+	 * @return approximate size of the document and its index in bytes
+	 */
+	long weight() {
+		lock.readLock().lock();
+		try {
+			return 128 + 2L * text.length() + text.weight() + paragraphs.weight() + index.weight();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	DocumentInfo info() {
+		lock.readLock().lock();
+		try {
+			return new DocumentInfo(id, version, text.length(), paragraphs.size(), mainLimit, secondaryLimit, weight());
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	void write(DataOutput output) throws IOException {
+		lock.readLock().lock();
+		try {
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeUTF(id);
+			output.writeInt(version);
+			output.writeInt(mainLimit);
+			output.writeInt(secondaryLimit);
+			byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+			output.writeInt(bytes.length);
+			output.write(bytes);
+			output.writeInt(paragraphs.size());
+			for(int i = 0; i < paragraphs.size(); i++) {
+				output.writeInt(paragraphs.start(i));
+				output.writeInt(paragraphs.length(i));
+				output.writeInt(paragraphs.id(i));
+			}
+			output.writeInt(paragraphs.nextId());
+			index.write(output);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	static StoredDocument read(DataInput input) throws IOException {
+		int format = input.readInt() == MAGIC ? input.readInt() : 0;
+		if(format < 1 || format > VERSION) {
+			throw new IOException("Unknown format of the stored document");
+		}
+		String id = input.readUTF();
+		// the documents written before the edits were added were never edited
+		int version = format == 1 ? 1 : input.readInt();
+		int mainLimit = input.readInt();
+		int secondaryLimit = input.readInt();
+		byte[] bytes = new byte[input.readInt()];
+		input.readFully(bytes);
+		String text = new String(bytes, StandardCharsets.UTF_8);
+		int[] starts = new int[input.readInt()];
+		int[] lengths = new int[starts.length];
+		int[] ids = new int[starts.length];
+		for(int i = 0; i < starts.length; i++) {
+			starts[i] = input.readInt();
+			lengths[i] = input.readInt();
+			// the paragraphs were identified by their positions before the edits kept the index
+			ids[i] = format < 3 ? i : input.readInt();
+		}
+		if(format < 3) {
+			return new StoredDocument(id, version, text, mainLimit, secondaryLimit, starts, lengths, NgramIndex.read(input));
+		}
+		EditedParagraphs paragraphs = new EditedParagraphs(starts, lengths, ids, input.readInt(), text.length());
+		return new StoredDocument(id, version, Rope.of(text), mainLimit, secondaryLimit, paragraphs, EditableNgramIndex.read(input));
+	}
+}
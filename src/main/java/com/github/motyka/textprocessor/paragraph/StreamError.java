@@ -0,0 +1,12 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import lombok.Value;
+
+/**
+ * Last line of /paragraphs/splitAndSearch/stream which failed after its first paragraphs were sent with the status 200,
+ * e.g. because of a too long run of punctuation. The paragraphs before it are correct, the rest of the text isn't split.
+ */
+@Value
+public class StreamError {
+	private String error;
+}
@@ -0,0 +1,319 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * Splits a text read from a {@link Reader} the same way as {@link ScanningSplittingEngine} splits the whole text.
+ * The rules of the engine's chain can only look one character after *mainLimit*, which is always in the buffer.
+ * Only the current paragraph and the lookahead needed to finalize it are kept in the buffer, so the memory usually
+ * doesn't depend on the size of the text. The lookahead can't be bounded in three cases: a run of punctuation is
+ * a paragraph only if it's followed by an alphanumeric character, a line break before *mainLimit* ends
+ * the paragraph only if the next line has no alphanumeric characters, and the whitespaces are trimmed at the end
+ * of the text. The buffer grows until the run or the line ends, up to {@link #limitBuffer} characters.
+ * The text can also be pushed to the splitter with {@link #feed} as it arrives, without a reader blocking for it.
+ */
+class StreamingSplitter {
+
+	private static final int NOT_FOUND = -1;
+
+	// null if the text is pushed with *feed*
+	private final Reader reader;
+	private final ScanningSplittingEngine engine;
+	private final int mainLimit;
+	private final int secondaryLimit;
+
+	private char[] buffer;
+	private CharSequence chars;
+	// position of the first character of the buffer in the text
+	private long offset;
+	private int length;
+	// end of the text without the trailing whitespaces, the same as *length* until the whole text is read
+	private int end;
+	private boolean eof;
+
+	// the starting position of paragraph
+	private int start;
+	private boolean trimmed;
+	// position of the first double new line after *start*
+	private int newLines = NOT_FOUND;
+	// there are no double new lines before this position
+	private int newLinesFrom;
+
+	// the text pushed with *feed* which isn't in the buffer yet
+	private char[] input;
+	private int inputOffset;
+	private int inputLength;
+	private boolean finished;
+	private int maxBufferSize = Integer.MAX_VALUE;
+
+	// number of UTF-8 bytes of the text before *counted* position of the buffer, -1 if the bytes aren't counted
+	private long countedBytes = -1;
+	private int counted;
+	private final ScanningSplittingEngine.Boundary boundary = new ScanningSplittingEngine.Boundary();
+
+	StreamingSplitter(Reader reader, int mainLimit, int secondaryLimit, int bufferSize) {
+		this(reader, new ScanningSplittingEngine(), mainLimit, secondaryLimit, bufferSize);
+	}
+
+	/**
+	 * @param reader
+	 * @param engine splits the paragraphs with the rules of its chain
+	 * @param mainLimit
+	 * @param secondaryLimit
+	 * @param bufferSize
+	 */
+	StreamingSplitter(Reader reader, ScanningSplittingEngine engine, int mainLimit, int secondaryLimit, int bufferSize) {
+		this.reader = reader;
+		this.engine = engine;
+		this.mainLimit = mainLimit;
+		this.secondaryLimit = secondaryLimit;
+		setBuffer(new char[Math.max(bufferSize, 2 * (mainLimit + 2))]);
+	}
+
+	/**
+	 * Creates the splitter for the text pushed with {@link #feed} and {@link #finish}.
+	 */
+	StreamingSplitter(int mainLimit, int secondaryLimit, int bufferSize) {
+		this(null, new ScanningSplittingEngine(), mainLimit, secondaryLimit, bufferSize);
+	}
+
+	/**
+	 * Creates the splitter for the text pushed with {@link #feed} and {@link #finish}.
+	 */
+	StreamingSplitter(ScanningSplittingEngine engine, int mainLimit, int secondaryLimit, int bufferSize) {
+		this(null, engine, mainLimit, secondaryLimit, bufferSize);
+	}
+
+	void split(Listener listener) throws IOException {
+		process(listener);
+	}
+
+	/**
+	 * Splits the next part of the text, the paragraphs are passed to the listener as soon as they can be finalized.
+	 * The characters are copied, so the array can be reused after the method returns.
+	 * @param chars
+	 * @param offset
+	 * @param length
+	 * @param listener
+	 */
+	void feed(char[] chars, int offset, int length, Listener listener) {
+		input = chars;
+		inputOffset = offset;
+		inputLength = length;
+		processInput(listener);
+		input = null;
+	}
+
+	/**
+	 * Splits the rest of the text after the last part was passed to {@link #feed}.
+	 * @param listener
+	 */
+	void finish(Listener listener) {
+		finished = true;
+		processInput(listener);
+	}
+
+	private void processInput(Listener listener) {
+		try {
+			process(listener);
+		} catch(IOException ex) {
+			// there's no reader, the text is only copied from the input
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	/**
+	 * @param listener
+	 * @return true if the whole text is split, false if the pushed text was split and the next part is needed
+	 * @throws IOException
+	 */
+	private boolean process(Listener listener) throws IOException {
+		while(true) {
+			if(!trimmed) {
+				int next = ScanningSplittingEngine.trimStart(chars, start, end);
+				if(next == end) {
+					if(eof) {
+						return true;
+					}
+					// only the punctuation at the end can adhere to the next paragraph
+					start = trailingPunctuation();
+					if(!read()) {
+						return false;
+					}
+					continue;
+				}
+				start = next;
+				trimmed = true;
+			}
+
+			if(!eof && !isFinal()) {
+				if(!read()) {
+					return false;
+				}
+				continue;
+			}
+
+			int paragraphLength = engine.next(chars, start, end, findNewLines(), mainLimit, secondaryLimit, boundary).length;
+			listener.paragraph(offset + start, buffer, start, engine.getChain().getLineBreaks().trimEnd(chars, start, start + paragraphLength) - start);
+			start += paragraphLength;
+			trimmed = false;
+		}
+	}
+
+	/**
+	 * @return number of characters read so far, the length of the text after the split
+	 */
+	long getLength() {
+		return offset + length;
+	}
+
+	/**
+	 * Limits the buffer, must be called before the text is split.
+	 * @param maxBufferSize characters, the split fails with {@link IllegalArgumentException} if the current paragraph
+	 * and its lookahead don't fit into them
+	 */
+	void limitBuffer(int maxBufferSize) {
+		this.maxBufferSize = Math.max(maxBufferSize, buffer.length);
+	}
+
+	/**
+	 * Counts the bytes of the text encoded in UTF-8 so the positions can be converted with {@link #utf8Offset},
+	 * must be called before the text is split.
+	 */
+	void countUtf8Bytes() {
+		countedBytes = 0;
+	}
+
+	/**
+	 * Can be called by the listener for the positions of its paragraph, the positions must not decrease.
+	 * @param index position in the buffer passed to the listener
+	 * @return position in the text encoded in UTF-8
+	 */
+	long utf8Offset(int index) {
+		if(countedBytes < 0) {
+			throw new IllegalStateException("The bytes aren't counted");
+		}
+		countedBytes += Utf8Text.encodedLength(buffer, counted, index);
+		counted = index;
+		return countedBytes;
+	}
+
+	/**
+	 * @return true if the paragraph at *start* is the same whatever text follows: the double new line before *mainLimit*
+	 * is followed by a character which isn't trimmed at the end of the text, or the character after *mainLimit* for
+	 * the rules is and there is no line break before *mainLimit* which can still be followed by another one
+	 */
+	private boolean isFinal() {
+		LineBreaks lineBreaks = engine.getChain().getLineBreaks();
+		int found = findNewLines();
+		int last = lineBreaks.trimEnd(chars, start, end);
+		if(found < end && found - start < mainLimit) {
+			return lineBreaks.findNewLines(chars, found, last) == found;
+		}
+		return last - start > mainLimit + 1 && (found < end || newLinesFrom - start >= mainLimit);
+	}
+
+	private int findNewLines() {
+		if(newLines >= start) {
+			return newLines;
+		}
+
+		int from = Math.max(start, newLinesFrom);
+		int found = engine.getChain().getLineBreaks().findNewLines(chars, from, end);
+		if(found < end || eof) {
+			newLines = found;
+			return found;
+		}
+		// the line break at the end of the buffer can be followed by another one, or CR by LF
+		newLinesFrom = engine.getChain().getLineBreaks().findLastLineBreak(chars, from, end);
+		return end;
+	}
+
+	private int trailingPunctuation() {
+		int i = end;
+		while(i > start && ScanningSplittingEngine.isPunctuation(chars.charAt(i - 1))) {
+			i--;
+		}
+		return i;
+	}
+
+	/**
+	 * @return false if the text is pushed and the next part isn't there yet
+	 * @throws IOException
+	 */
+	private boolean read() throws IOException {
+		if(reader == null && inputLength == 0 && !finished) {
+			return false;
+		}
+
+		if(length == buffer.length) {
+			if(start >= buffer.length / 2 || (buffer.length == maxBufferSize && start > 0)) {
+				compact();
+			} else if(buffer.length < maxBufferSize) {
+				setBuffer(Arrays.copyOf(buffer, (int) Math.min(buffer.length * 2L, maxBufferSize)));
+			} else {
+				throw new IllegalArgumentException("The text has more than " + maxBufferSize
+						+ " characters of punctuation, whitespaces or lines without alphanumeric characters.");
+			}
+		}
+
+		int read;
+		if(reader != null) {
+			read = reader.read(buffer, length, buffer.length - length);
+		} else if(inputLength > 0) {
+			read = Math.min(inputLength, buffer.length - length);
+			System.arraycopy(input, inputOffset, buffer, length, read);
+			inputOffset += read;
+			inputLength -= read;
+		} else {
+			read = -1;
+		}
+
+		if(read < 0) {
+			eof = true;
+			end = engine.getChain().getLineBreaks().trimEnd(chars, start, length);
+			// the double new line has to be followed by a paragraph, which could have been only whitespaces
+			newLines = NOT_FOUND;
+			return true;
+		}
+
+		length += read;
+		end = length;
+		return true;
+	}
+
+	private void compact() {
+		int shift = start;
+		if(countedBytes >= 0) {
+			utf8Offset(shift);
+			counted = 0;
+		}
+		System.arraycopy(buffer, shift, buffer, 0, length - shift);
+		offset += shift;
+		length -= shift;
+		end -= shift;
+		start = 0;
+		newLines = newLines >= shift ? newLines - shift : NOT_FOUND;
+		newLinesFrom = Math.max(0, newLinesFrom - shift);
+	}
+
+	private void setBuffer(char[] buffer) {
+		this.buffer = buffer;
+		this.chars = CharBuffer.wrap(buffer);
+	}
+
+	@FunctionalInterface
+	interface Listener {
+		/**
+		 * @param start position of the paragraph in the whole text
+		 * @param buffer buffer containing the paragraph, it is reused after the method returns
+		 * @param offset position of the paragraph in the buffer
+		 * @param length length of the paragraph without the trailing whitespaces
+		 */
+		void paragraph(long start, char[] buffer, int offset, int length);
+	}
+}
@@ -0,0 +1,11 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import lombok.Value;
+
+@Value
+public class TermMatch {
+	// index of the term in SearchCriteria.searchTerms
+	private int term;
+	// position of the occurrence in the text
+	private long start;
+}
@@ -0,0 +1,18 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+/**
+ * Replaces *deleted* characters at the offset with the inserted text.
+ */
+@Value
+@AllArgsConstructor(onConstructor_ = @JsonCreator)
+public class TextEdit {
+	// position in the text after the previous edits of the same request
+	private int offset;
+	private int deleted;
+	// null or empty if the characters are only deleted
+	private String inserted;
+}
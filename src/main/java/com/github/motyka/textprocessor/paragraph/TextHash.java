@@ -0,0 +1,96 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import java.security.SecureRandom;
+
+/**
+ * 128 bit SipHash-2-4 of the UTF-16 characters of a text (little-endian), used to identify the texts without keeping
+ * them. The hash is keyed, so the collisions can't be computed without the key, which is random for every instance.
+ */
+final class TextHash {
+
+	private final long key0;
+	private final long key1;
+
+	TextHash(long key0, long key1) {
+		this.key0 = key0;
+		this.key1 = key1;
+	}
+
+	/**
+	 * @return the hash with a random key
+	 */
+	static TextHash random() {
+		SecureRandom random = new SecureRandom();
+		return new TextHash(random.nextLong(), random.nextLong());
+	}
+
+	/**
+	 * @param text
+	 * @return the first and second 64 bits of the hash
+	 */
+	long[] hash(CharSequence text) {
+		long[] v = {
+				key0 ^ 0x736f6d6570736575L,
+				key1 ^ 0x646f72616e646f6dL ^ 0xee,
+				key0 ^ 0x6c7967656e657261L,
+				key1 ^ 0x7465646279746573L
+		};
+		int length = text.length();
+		int blocks = length / 4;
+
+		// every block is 4 characters, 8 bytes
+		for(int block = 0; block < blocks; block++) {
+			compress(v, chars(text, block * 4, 4));
+		}
+		// the last block has the length of the text in bytes in its highest byte
+		compress(v, (long) (2 * length) << 56 | chars(text, blocks * 4, length - blocks * 4));
+
+		v[2] ^= 0xee;
+		rounds(v, 4);
+		long first = v[0] ^ v[1] ^ v[2] ^ v[3];
+		v[1] ^= 0xdd;
+		rounds(v, 4);
+		return new long[]{first, v[0] ^ v[1] ^ v[2] ^ v[3]};
+	}
+
+	private static long chars(CharSequence text, int from, int count) {
+		long value = 0;
+		for(int i = count - 1; i >= 0; i--) {
+			value = (value << 16) | text.charAt(from + i);
+		}
+		return value;
+	}
+
+	private static void compress(long[] v, long m) {
+		v[3] ^= m;
+		rounds(v, 2);
+		v[0] ^= m;
+	}
+
+	private static void rounds(long[] v, int count) {
+		long v0 = v[0];
+		long v1 = v[1];
+		long v2 = v[2];
+		long v3 = v[3];
+		for(int i = 0; i < count; i++) {
+			v0 += v1;
+			v1 = Long.rotateLeft(v1, 13);
+			v1 ^= v0;
+			v0 = Long.rotateLeft(v0, 32);
+			v2 += v3;
+			v3 = Long.rotateLeft(v3, 16);
+			v3 ^= v2;
+			v0 += v3;
+			v3 = Long.rotateLeft(v3, 21);
+			v3 ^= v0;
+			v2 += v1;
+			v1 = Long.rotateLeft(v1, 17);
+			v1 ^= v2;
+			v2 = Long.rotateLeft(v2, 32);
+		}
+		v[0] = v0;
+		v[1] = v1;
+		v[2] = v2;
+		v[3] = v3;
+	}
+}
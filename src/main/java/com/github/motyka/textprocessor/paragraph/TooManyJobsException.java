@@ -0,0 +1,15 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class TooManyJobsException extends RuntimeException {
+	public TooManyJobsException(int maxJobs) {
+		this("There are already " + maxJobs + " jobs, the finished ones are removed after paragraph.jobs.ttl or when they are deleted.");
+	}
+
+	public TooManyJobsException(String message) {
+		super(message);
+	}
+}
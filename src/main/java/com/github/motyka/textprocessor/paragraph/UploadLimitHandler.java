@@ -0,0 +1,20 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+
+/**
+ * The multipart uploads longer than spring.servlet.multipart.max-file-size or max-request-size are rejected
+ * with 413 instead of 500. The multipart body is parsed before the controller is chosen, so it can't be handled there.
+ */
+@ControllerAdvice
+public class UploadLimitHandler {
+
+	@ExceptionHandler(MaxUploadSizeExceededException.class)
+	@ResponseStatus(HttpStatus.PAYLOAD_TOO_LARGE)
+	public void tooLarge() {
+	}
+}
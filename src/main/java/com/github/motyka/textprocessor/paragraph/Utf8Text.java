@@ -0,0 +1,298 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * UTF-8 encoded text read as {@link CharSequence} without decoding it into a String, so the splitting engines
+ * work directly on the bytes. The characters are the same as in the String decoded with
+ * {@link StandardCharsets#UTF_8}, the malformed sequences are read as U+FFFD.
+ * <p>
+ * The ASCII text is read byte by byte. Otherwise the position of every {@value #STRIDE}th character is kept,
+ * the parts between them with only ASCII characters are still read byte by byte and the other ones are decoded
+ * from the last position read. Reading the text in order decodes every character once and any character is found
+ * decoding at most {@value #STRIDE} characters. The last position is remembered, so the instance can't be used
+ * by many threads.
+ */
+public class Utf8Text implements CharSequence {
+
+	private static final int STRIDE = 64;
+	// the cursor moves back by the code points up to this number of characters
+	private static final int BACKWARD_STEPS = 16;
+
+	private final byte[] bytes;
+	private final int from;
+	private final int to;
+	private final int length;
+
+	// positions of the characters k * STRIDE (or k * STRIDE + 1 for a surrogate pair), null if the text is ASCII
+	private int[] checkpointChars;
+	private int[] checkpointBytes;
+	// there are only ASCII characters up to the next checkpoint
+	private boolean[] asciiCheckpoints;
+	// the surrogate pair at the end can cross *checkpoints* * STRIDE, so its second character has no checkpoint
+	private int checkpoints;
+
+	// the code point read last and its length in bytes
+	private int cursorChar;
+	private int cursorByte;
+	private int cursorSequence;
+
+	public Utf8Text(byte[] bytes) {
+		this(bytes, 0, bytes.length);
+	}
+
+	public Utf8Text(byte[] bytes, int offset, int length) {
+		this.bytes = bytes;
+		this.from = offset;
+		this.to = offset + length;
+		this.cursorByte = offset;
+
+		int i = from;
+		while(i < to && bytes[i] >= 0) {
+			i++;
+		}
+		this.length = i == to ? length : index();
+		this.cursorSequence = i == to || from == to ? 1 : sequence(from);
+	}
+
+	/**
+	 * Counts the characters and keeps the positions of every {@value #STRIDE}th character.
+	 * @return number of characters
+	 */
+	private int index() {
+		checkpointChars = new int[16];
+		checkpointBytes = new int[16];
+		asciiCheckpoints = new boolean[16];
+		int chars = 0;
+		for(int i = from; i < to; ) {
+			if(chars >= checkpoints * STRIDE) {
+				if(checkpoints == checkpointChars.length) {
+					checkpointChars = Arrays.copyOf(checkpointChars, checkpoints * 2);
+					checkpointBytes = Arrays.copyOf(checkpointBytes, checkpoints * 2);
+					asciiCheckpoints = Arrays.copyOf(asciiCheckpoints, checkpoints * 2);
+				}
+				checkpointChars[checkpoints] = chars;
+				checkpointBytes[checkpoints] = i;
+				asciiCheckpoints[checkpoints] = true;
+				checkpoints++;
+			}
+			// the ASCII characters up to the next checkpoint
+			int ascii = i;
+			int limit = Math.min(to, i + checkpoints * STRIDE - chars);
+			while(i < limit && bytes[i] >= 0) {
+				i++;
+			}
+			chars += i - ascii;
+			if(i < limit) {
+				asciiCheckpoints[checkpoints - 1] = false;
+				int sequence = sequence(i);
+				chars += sequence == 4 ? 2 : 1;
+				i += sequence;
+			}
+		}
+		return chars;
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		if(index < 0 || index >= length) {
+			throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+		}
+		if(checkpointChars == null) {
+			return (char) bytes[from + index];
+		}
+		int checkpoint = checkpoint(index);
+		if(asciiCheckpoints[checkpoint] && index >= checkpointChars[checkpoint]) {
+			return (char) bytes[checkpointBytes[checkpoint] + index - checkpointChars[checkpoint]];
+		}
+		return decode(index);
+	}
+
+	// the second character of a surrogate pair crossing the end of the last stride belongs to the last checkpoint
+	private int checkpoint(int index) {
+		return Math.min(index / STRIDE, checkpoints - 1);
+	}
+
+	private char decode(int index) {
+		// the same or the next ASCII character when reading in order
+		if(index == cursorChar && cursorSequence == 1 && bytes[cursorByte] >= 0) {
+			return (char) bytes[cursorByte];
+		}
+		if(index == cursorChar + 1 && cursorSequence < 4 && cursorByte + cursorSequence < to && bytes[cursorByte + cursorSequence] >= 0) {
+			cursorChar = index;
+			cursorByte += cursorSequence;
+			cursorSequence = 1;
+			return (char) bytes[cursorByte];
+		}
+
+		int sequence = seek(index);
+		int codePoint = codePoint(cursorByte, sequence);
+		if(sequence < 4) {
+			return (char) codePoint;
+		}
+		return index == cursorChar ? Character.highSurrogate(codePoint) : Character.lowSurrogate(codePoint);
+	}
+
+	/**
+	 * @param index position of the character, can be the length of the text
+	 * @return position of the character in the bytes relative to the offset, the second character of a surrogate pair
+	 * is at the end of the pair
+	 */
+	public int byteOffset(int index) {
+		if(index < 0 || index > length) {
+			throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+		}
+		if(checkpointChars == null) {
+			return index;
+		}
+		if(index == length) {
+			return to - from;
+		}
+		int sequence = seek(index);
+		return cursorByte - from + (index == cursorChar ? 0 : sequence);
+	}
+
+	/**
+	 * Moves the cursor to the code point containing the character. The cursor moves back by the code points
+	 * for the nearby characters, e.g. when the splitting engine trims the paragraph, otherwise from the nearest
+	 * checkpoint before the character.
+	 * @param index
+	 * @return length of the code point in bytes
+	 */
+	private int seek(int index) {
+		if(index < cursorChar - BACKWARD_STEPS || index - cursorChar >= STRIDE) {
+			int checkpoint = checkpoint(index);
+			if(checkpointChars[checkpoint] > index) {
+				checkpoint--;
+			}
+			cursorChar = checkpointChars[checkpoint];
+			cursorByte = checkpointBytes[checkpoint];
+			cursorSequence = sequence(cursorByte);
+		}
+		while(cursorChar > index) {
+			cursorSequence = previous(cursorByte);
+			cursorByte -= cursorSequence;
+			cursorChar -= cursorSequence == 4 ? 2 : 1;
+		}
+		while(cursorChar + (cursorSequence == 4 ? 2 : 1) <= index) {
+			cursorChar += cursorSequence == 4 ? 2 : 1;
+			cursorByte += cursorSequence;
+			cursorSequence = sequence(cursorByte);
+		}
+		return cursorSequence;
+	}
+
+	/**
+	 * The UTF-8 is self-synchronizing, the code point starts at most 3 continuation bytes before,
+	 * otherwise the previous byte is a malformed sequence.
+	 * @param i start of a code point
+	 * @return length of the code point before it in bytes
+	 */
+	private int previous(int i) {
+		int start = i - 1;
+		while(start > from && start > i - 4 && (bytes[start] & 0xC0) == 0x80) {
+			start--;
+		}
+		return sequence(start) == i - start ? i - start : 1;
+	}
+
+	/**
+	 * @param i
+	 * @return length of the well-formed code point at the position, or the length of its maximal part
+	 * which is read as a single U+FFFD, the same as {@link StandardCharsets#UTF_8} decoder does
+	 */
+	private int sequence(int i) {
+		int lead = bytes[i] & 0xFF;
+		if(lead < 0x80) {
+			return 1;
+		}
+		int expected;
+		// the range of the second byte excludes the overlong forms, the encoded surrogates are decoded as one U+FFFD
+		int min = 0x80;
+		int max = 0xBF;
+		if(lead >= 0xC2 && lead <= 0xDF) {
+			expected = 2;
+		} else if(lead >= 0xE0 && lead <= 0xEF) {
+			expected = 3;
+			min = lead == 0xE0 ? 0xA0 : 0x80;
+		} else if(lead >= 0xF0 && lead <= 0xF4) {
+			expected = 4;
+			min = lead == 0xF0 ? 0x90 : 0x80;
+			max = lead == 0xF4 ? 0x8F : 0xBF;
+		} else {
+			return 1;
+		}
+
+		for(int j = 1; j < expected; j++) {
+			if(i + j >= to) {
+				return j;
+			}
+			int next = bytes[i + j] & 0xFF;
+			if(next < min || next > max) {
+				return j;
+			}
+			min = 0x80;
+			max = 0xBF;
+		}
+		return expected;
+	}
+
+	private int codePoint(int i, int sequence) {
+		int lead = bytes[i] & 0xFF;
+		switch(sequence) {
+			case 1:
+				return lead < 0x80 ? lead : 0xFFFD;
+			case 2:
+				return lead < 0xE0 ? ((lead & 0x1F) << 6) | (bytes[i + 1] & 0x3F) : 0xFFFD;
+			case 3:
+				int codePoint = ((lead & 0x0F) << 12) | ((bytes[i + 1] & 0x3F) << 6) | (bytes[i + 2] & 0x3F);
+				return lead < 0xF0 && !Character.isSurrogate((char) codePoint) ? codePoint : 0xFFFD;
+			default:
+				return ((lead & 0x07) << 18) | ((bytes[i + 1] & 0x3F) << 12) | ((bytes[i + 2] & 0x3F) << 6) | (bytes[i + 3] & 0x3F);
+		}
+	}
+
+	/**
+	 * @param chars
+	 * @param from
+	 * @param to
+	 * @return number of bytes of the characters encoded in UTF-8, the surrogate pair is 4 bytes counted at its first
+	 * character
+	 */
+	public static int encodedLength(char[] chars, int from, int to) {
+		int length = 0;
+		for(int i = from; i < to; i++) {
+			char ch = chars[i];
+			if(ch < 0x80) {
+				length++;
+			} else if(ch < 0x800) {
+				length += 2;
+			} else if(Character.isHighSurrogate(ch)) {
+				length += 4;
+			} else if(!Character.isLowSurrogate(ch)) {
+				length += 3;
+			}
+		}
+		return length;
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		StringBuilder builder = new StringBuilder(end - start);
+		for(int i = start; i < end; i++) {
+			builder.append(charAt(i));
+		}
+		return builder.toString();
+	}
+
+	@Override
+	public String toString() {
+		return new String(bytes, from, to - from, StandardCharsets.UTF_8);
+	}
+}
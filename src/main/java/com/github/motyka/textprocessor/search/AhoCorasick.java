@@ -0,0 +1,232 @@
+package com.github.motyka.textprocessor.search;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Aho-Corasick automaton finding all occurrences of many terms in a single pass over the text,
+ * the cost is proportional to the length of the text and the number of matches, not the number of terms.
+ * The transitions of the ASCII characters are a complete table, the other characters only have the transitions
+ * of the trie and follow the failures, so the size of the automaton doesn't grow with the number of distinct
+ * non-ASCII characters of the terms. The automaton is immutable, so it can be shared between requests.
+ */
+public class AhoCorasick {
+
+	private static final int ROOT = 0;
+	// all ASCII characters which don't appear in the terms
+	private static final int OTHER = 0;
+
+	private final int[] lengths;
+	private final int alphabetSize;
+	private final int[] asciiSymbols = new int[128];
+	// transitions[state * alphabetSize + symbol] of the ASCII characters, every transition is defined (a complete DFA)
+	private final int[] transitions;
+	// children of the state in the trie by the other characters, sorted by the character
+	// between otherStarts[state] and otherStarts[state + 1]
+	private final int[] otherStarts;
+	private final char[] otherCharacters;
+	private final int[] otherTargets;
+	private final int[] failures;
+	// terms ending in the state, including the ones ending in its suffixes
+	private final int[][] outputs;
+
+	public AhoCorasick(List<String> terms) {
+		lengths = new int[terms.size()];
+		boolean[] ascii = new boolean[asciiSymbols.length];
+		int maxStates = 1;
+		for(int i = 0; i < terms.size(); i++) {
+			String term = terms.get(i);
+			if(term == null || term.isEmpty()) {
+				throw new IllegalArgumentException("The search terms can't be empty.");
+			}
+			lengths[i] = term.length();
+			maxStates = Math.addExact(maxStates, term.length());
+			for(int j = 0; j < term.length(); j++) {
+				if(term.charAt(j) < ascii.length) {
+					ascii[term.charAt(j)] = true;
+				}
+			}
+		}
+
+		int symbol = OTHER + 1;
+		for(char ch = 0; ch < ascii.length; ch++) {
+			if(ascii[ch]) {
+				asciiSymbols[ch] = symbol++;
+			}
+		}
+		alphabetSize = symbol;
+
+		// trie of the terms, missing transitions are -1, the children by the other characters are keyed
+		// by the state and the character
+		int[] trie = new int[Math.multiplyExact(maxStates, alphabetSize)];
+		Arrays.fill(trie, -1);
+		Map<Long, Integer> otherChildren = new HashMap<>();
+		int[][] own = new int[maxStates][];
+		int states = 1;
+		for(int i = 0; i < terms.size(); i++) {
+			int state = ROOT;
+			for(char ch : terms.get(i).toCharArray()) {
+				if(ch < asciiSymbols.length) {
+					int index = state * alphabetSize + asciiSymbols[ch];
+					if(trie[index] < 0) {
+						trie[index] = states++;
+					}
+					state = trie[index];
+				} else {
+					Integer child = otherChildren.putIfAbsent(otherKey(state, ch), states);
+					state = child != null ? child : states++;
+				}
+			}
+			own[state] = append(own[state], i);
+		}
+
+		long[] keys = new long[otherChildren.size()];
+		int count = 0;
+		for(long key : otherChildren.keySet()) {
+			keys[count++] = key;
+		}
+		Arrays.sort(keys);
+		otherStarts = new int[states + 1];
+		otherCharacters = new char[keys.length];
+		otherTargets = new int[keys.length];
+		for(int i = 0; i < keys.length; i++) {
+			otherStarts[(int) (keys[i] >>> 16) + 1]++;
+			otherCharacters[i] = (char) keys[i];
+			otherTargets[i] = otherChildren.get(keys[i]);
+		}
+		for(int state = 0; state < states; state++) {
+			otherStarts[state + 1] += otherStarts[state];
+		}
+
+		// breadth first, so the failure of the state is always computed before the state
+		transitions = Arrays.copyOf(trie, states * alphabetSize);
+		outputs = new int[states][];
+		failures = new int[states];
+		outputs[ROOT] = own[ROOT] != null ? own[ROOT] : new int[0];
+		Queue<Integer> queue = new ArrayDeque<>();
+		for(int a = 0; a < alphabetSize; a++) {
+			int child = transitions[a];
+			if(child < 0) {
+				transitions[a] = ROOT;
+			} else {
+				failures[child] = ROOT;
+				queue.add(child);
+			}
+		}
+		for(int i = otherStarts[ROOT]; i < otherStarts[ROOT + 1]; i++) {
+			failures[otherTargets[i]] = ROOT;
+			queue.add(otherTargets[i]);
+		}
+		while(!queue.isEmpty()) {
+			int state = queue.poll();
+			outputs[state] = merge(own[state], outputs[failures[state]]);
+			for(int a = 0; a < alphabetSize; a++) {
+				int index = state * alphabetSize + a;
+				int child = transitions[index];
+				int fallback = transitions[failures[state] * alphabetSize + a];
+				if(child < 0) {
+					transitions[index] = fallback;
+				} else {
+					failures[child] = fallback;
+					queue.add(child);
+				}
+			}
+			for(int i = otherStarts[state]; i < otherStarts[state + 1]; i++) {
+				failures[otherTargets[i]] = next(failures[state], otherCharacters[i]);
+				queue.add(otherTargets[i]);
+			}
+		}
+	}
+
+	/**
+	 * @return number of terms
+	 */
+	public int size() {
+		return lengths.length;
+	}
+
+	/**
+	 * Finds all occurrences of the terms between *from* and *to*.
+	 * @param text
+	 * @param from
+	 * @param to
+	 * @param listener notified about every occurrence in the order of their ends
+	 */
+	public void search(CharSequence text, int from, int to, MatchListener listener) {
+		int state = ROOT;
+		for(int i = from; i < to; i++) {
+			state = next(state, text.charAt(i));
+			for(int term : outputs[state]) {
+				listener.match(term, i + 1 - lengths[term]);
+			}
+		}
+	}
+
+	/**
+	 * @param text
+	 * @param from
+	 * @param to
+	 * @return true if any of the terms is between *from* and *to*
+	 */
+	public boolean containsAny(CharSequence text, int from, int to) {
+		int state = ROOT;
+		for(int i = from; i < to; i++) {
+			state = next(state, text.charAt(i));
+			if(outputs[state].length > 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private int next(int state, char ch) {
+		if(ch < asciiSymbols.length) {
+			return transitions[state * alphabetSize + asciiSymbols[ch]];
+		}
+		while(true) {
+			int index = Arrays.binarySearch(otherCharacters, otherStarts[state], otherStarts[state + 1], ch);
+			if(index >= 0) {
+				return otherTargets[index];
+			}
+			if(state == ROOT) {
+				return ROOT;
+			}
+			state = failures[state];
+		}
+	}
+
+	private static long otherKey(int state, char ch) {
+		return (long) state << 16 | ch;
+	}
+
+	private static int[] append(int[] terms, int term) {
+		if(terms == null) {
+			return new int[]{term};
+		}
+		int[] result = Arrays.copyOf(terms, terms.length + 1);
+		result[terms.length] = term;
+		return result;
+	}
+
+	private static int[] merge(int[] own, int[] inherited) {
+		if(own == null) {
+			return inherited;
+		}
+		int[] result = Arrays.copyOf(own, own.length + inherited.length);
+		System.arraycopy(inherited, 0, result, own.length, inherited.length);
+		return result;
+	}
+
+	@FunctionalInterface
+	public interface MatchListener {
+		/**
+		 * @param term index of the term
+		 * @param start position of the occurrence in the text
+		 */
+		void match(int term, int start);
+	}
+}
@@ -0,0 +1,148 @@
+package com.github.motyka.textprocessor.search;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * {@link NgramIndex} of the paragraphs of an edited text, the paragraphs are identified by ids which grow with every
+ * added paragraph. The added paragraphs are indexed in a new segment and the removed ones are only marked,
+ * so an edit costs the length of the changed paragraphs, not the length of the text. The last segments are merged
+ * while the previous one isn't more than twice as big, so a paragraph is merged a logarithmic number of times,
+ * and all segments are merged when there are more removed paragraphs than the current ones.
+ * <p>
+ * The index is mutable, it has to be guarded by the lock of the text.
+ */
+public class EditableNgramIndex {
+
+	// segments in the order of their ids
+	private final List<NgramIndex> segments;
+	// removed paragraphs still in the segments
+	private final BitSet removed;
+	private int removedCount;
+	private int paragraphs;
+
+	/**
+	 * @param index of the current paragraphs
+	 * @param paragraphs number of the paragraphs
+	 */
+	public EditableNgramIndex(NgramIndex index, int paragraphs) {
+		this(new ArrayList<>(Arrays.asList(index)), new BitSet(), 0, paragraphs);
+	}
+
+	private EditableNgramIndex(List<NgramIndex> segments, BitSet removed, int removedCount, int paragraphs) {
+		this.segments = segments;
+		this.removed = removed;
+		this.removedCount = removedCount;
+		this.paragraphs = paragraphs;
+	}
+
+	/**
+	 * @param ids of the current paragraphs
+	 */
+	public void remove(int[] ids) {
+		for(int id : ids) {
+			removed.set(id);
+		}
+		removedCount += ids.length;
+		paragraphs -= ids.length;
+	}
+
+	/**
+	 * @param text
+	 * @param ids ascending ids of the new paragraphs, greater than the ids of all paragraphs added before
+	 * @param starts positions of the paragraphs
+	 * @param lengths lengths of the paragraphs
+	 */
+	public void add(CharSequence text, int[] ids, int[] starts, int[] lengths) {
+		if(ids.length > 0) {
+			segments.add(NgramIndex.build(text, ids, starts, lengths));
+			paragraphs += ids.length;
+		}
+		if(removedCount > paragraphs) {
+			while(segments.size() > 1) {
+				mergeLast();
+			}
+			// none of the removed paragraphs is left in the index and their ids aren't used again
+			removed.clear();
+			removedCount = 0;
+			return;
+		}
+		while(segments.size() > 1 && segments.get(segments.size() - 2).postings() <= 2L * segments.get(segments.size() - 1).postings()) {
+			mergeLast();
+		}
+	}
+
+	private void mergeLast() {
+		NgramIndex last = segments.remove(segments.size() - 1);
+		segments.set(segments.size() - 1, NgramIndex.merge(segments.get(segments.size() - 1), last, removed));
+	}
+
+	/**
+	 * @param term
+	 * @return sorted ids of the paragraphs containing all trigrams of the term, null if the term is shorter
+	 * than the trigrams and every paragraph can contain it
+	 */
+	public int[] candidates(String term) {
+		if(term.length() < NgramIndex.N) {
+			return null;
+		}
+		int[] candidates = new int[0];
+		int size = 0;
+		for(NgramIndex segment : segments) {
+			int[] found = segment.candidates(term);
+			if(size + found.length > candidates.length) {
+				candidates = Arrays.copyOf(candidates, size + found.length);
+			}
+			for(int id : found) {
+				if(!removed.get(id)) {
+					candidates[size++] = id;
+				}
+			}
+		}
+		return Arrays.copyOf(candidates, size);
+	}
+
+	/**
+	 * @return approximate size of the index in bytes
+	 */
+	public long weight() {
+		long weight = 64 + removed.length() / 8;
+		for(NgramIndex segment : segments) {
+			weight += segment.weight();
+		}
+		return weight;
+	}
+
+	public void write(DataOutput output) throws IOException {
+		output.writeInt(paragraphs);
+		output.writeInt(removedCount);
+		long[] words = removed.toLongArray();
+		output.writeInt(words.length);
+		for(long word : words) {
+			output.writeLong(word);
+		}
+		output.writeInt(segments.size());
+		for(NgramIndex segment : segments) {
+			segment.write(output);
+		}
+	}
+
+	public static EditableNgramIndex read(DataInput input) throws IOException {
+		int paragraphs = input.readInt();
+		int removedCount = input.readInt();
+		long[] words = new long[input.readInt()];
+		for(int i = 0; i < words.length; i++) {
+			words[i] = input.readLong();
+		}
+		List<NgramIndex> segments = new ArrayList<>();
+		for(int i = input.readInt(); i > 0; i--) {
+			segments.add(NgramIndex.read(input));
+		}
+		return new EditableNgramIndex(segments, BitSet.valueOf(words), removedCount, paragraphs);
+	}
+}
@@ -0,0 +1,287 @@
+package com.github.motyka.textprocessor.search;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Inverted index of the trigrams (3 consecutive characters) of the paragraphs of a text. A term of at least
+ * 3 characters can only be in the paragraphs containing all its trigrams, so only these paragraphs have to be checked.
+ * The posting lists of the rarest trigrams are intersected first, the cost depends on the number of paragraphs
+ * containing the trigrams, not the length of the text. The index is immutable, so it can be shared between requests.
+ * <p>
+ * The trigrams are stored sorted in a single array with their posting lists concatenated in another one:
+ * 8 bytes for every distinct trigram and 4 bytes for every paragraph containing it.
+ */
+public class NgramIndex {
+
+	public static final int N = 3;
+
+	// sorted trigrams, the paragraphs containing keys[i] are postings[offsets[i]] ... postings[offsets[i + 1] - 1]
+	private final long[] keys;
+	private final int[] offsets;
+	private final int[] postings;
+
+	private NgramIndex(long[] keys, int[] offsets, int[] postings) {
+		this.keys = keys;
+		this.offsets = offsets;
+		this.postings = postings;
+	}
+
+	/**
+	 * @param text
+	 * @param starts positions of the paragraphs
+	 * @param lengths lengths of the paragraphs
+	 * @return index of the trigrams inside the paragraphs, the paragraph *i* is identified by *i*
+	 */
+	public static NgramIndex build(CharSequence text, int[] starts, int[] lengths) {
+		int[] ids = new int[starts.length];
+		Arrays.setAll(ids, i -> i);
+		return build(text, ids, starts, lengths);
+	}
+
+	/**
+	 * @param text
+	 * @param ids ascending ids of the paragraphs
+	 * @param starts positions of the paragraphs
+	 * @param lengths lengths of the paragraphs
+	 * @return index of the trigrams inside the paragraphs
+	 */
+	public static NgramIndex build(CharSequence text, int[] ids, int[] starts, int[] lengths) {
+		// the distinct trigrams of every paragraph with the positions of their paragraphs, in the order of the paragraphs
+		int total = 0;
+		for(int length : lengths) {
+			total += Math.max(0, length - N + 1);
+		}
+		long[] trigrams = new long[total];
+		int[] paragraphs = new int[total];
+		int size = 0;
+		// open addressing set of the trigrams of the current paragraph, they are stored plus one, so 0 is an empty slot
+		long[] seen = new long[16];
+		for(int paragraph = 0; paragraph < starts.length; paragraph++) {
+			int from = size;
+			int end = starts[paragraph] + lengths[paragraph];
+			if(2 * (lengths[paragraph] - N + 1) > seen.length) {
+				seen = new long[Integer.highestOneBit(2 * (lengths[paragraph] - N + 1)) * 2];
+			}
+			int mask = seen.length - 1;
+			for(int i = starts[paragraph]; i + N <= end; i++) {
+				long trigram = key(text, i);
+				int slot = (int) ((trigram + 1) * 0x9E3779B97F4A7C15L >>> 32) & mask;
+				while(seen[slot] != 0 && seen[slot] != trigram + 1) {
+					slot = (slot + 1) & mask;
+				}
+				if(seen[slot] == 0) {
+					seen[slot] = trigram + 1;
+					trigrams[size] = trigram;
+					paragraphs[size++] = paragraph;
+				}
+			}
+			// only the slots of this paragraph are cleared
+			for(int i = from; i < size; i++) {
+				int slot = (int) ((trigrams[i] + 1) * 0x9E3779B97F4A7C15L >>> 32) & mask;
+				while(seen[slot] != trigrams[i] + 1) {
+					slot = (slot + 1) & mask;
+				}
+				seen[slot] = 0;
+			}
+		}
+
+		// stable radix sort by the characters of the trigrams, the paragraphs of a trigram stay in their order
+		long[] sortedTrigrams = new long[size];
+		int[] sortedParagraphs = new int[size];
+		int[] counts = new int[Character.MAX_VALUE + 2];
+		for(int shift = 0; shift < 16 * N; shift += 16) {
+			Arrays.fill(counts, 0);
+			for(int i = 0; i < size; i++) {
+				counts[(int) (trigrams[i] >>> shift & Character.MAX_VALUE) + 1]++;
+			}
+			if(size == 0 || counts[(int) (trigrams[0] >>> shift & Character.MAX_VALUE) + 1] == size) {
+				// the same character in all the trigrams, e.g. the first of a text without accents in the third pass
+				continue;
+			}
+			for(int i = 1; i < counts.length; i++) {
+				counts[i] += counts[i - 1];
+			}
+			for(int i = 0; i < size; i++) {
+				int position = counts[(int) (trigrams[i] >>> shift & Character.MAX_VALUE)]++;
+				sortedTrigrams[position] = trigrams[i];
+				sortedParagraphs[position] = paragraphs[i];
+			}
+			long[] swappedTrigrams = trigrams;
+			trigrams = sortedTrigrams;
+			sortedTrigrams = swappedTrigrams;
+			int[] swappedParagraphs = paragraphs;
+			paragraphs = sortedParagraphs;
+			sortedParagraphs = swappedParagraphs;
+		}
+
+		int count = 0;
+		for(int i = 0; i < size; i++) {
+			if(i == 0 || trigrams[i] != trigrams[i - 1]) {
+				count++;
+			}
+		}
+		long[] keys = new long[count];
+		int[] offsets = new int[count + 1];
+		int[] postings = new int[size];
+		int key = -1;
+		for(int i = 0; i < size; i++) {
+			if(i == 0 || trigrams[i] != trigrams[i - 1]) {
+				keys[++key] = trigrams[i];
+				offsets[key] = i;
+			}
+			postings[i] = ids[paragraphs[i]];
+		}
+		offsets[count] = size;
+		return new NgramIndex(keys, offsets, postings);
+	}
+
+	/**
+	 * Merges the indexes of different paragraphs.
+	 * @param first
+	 * @param second the ids of its paragraphs are greater than the ones of the first index
+	 * @param removed ids of the paragraphs left out of the merged index
+	 * @return index of the paragraphs of both indexes
+	 */
+	public static NgramIndex merge(NgramIndex first, NgramIndex second, BitSet removed) {
+		long[] keys = new long[first.keys.length + second.keys.length];
+		int[] offsets = new int[keys.length + 1];
+		int[] postings = new int[first.postings.length + second.postings.length];
+		int count = 0;
+		int size = 0;
+		int i = 0;
+		int j = 0;
+		while(i < first.keys.length || j < second.keys.length) {
+			long key = j == second.keys.length || (i < first.keys.length && first.keys[i] <= second.keys[j]) ? first.keys[i] : second.keys[j];
+			if(i < first.keys.length && first.keys[i] == key) {
+				size = copy(first, i++, removed, postings, size);
+			}
+			if(j < second.keys.length && second.keys[j] == key) {
+				size = copy(second, j++, removed, postings, size);
+			}
+			// the trigrams of only the removed paragraphs are left out
+			if(size > offsets[count]) {
+				keys[count++] = key;
+				offsets[count] = size;
+			}
+		}
+		return new NgramIndex(Arrays.copyOf(keys, count), Arrays.copyOf(offsets, count + 1), Arrays.copyOf(postings, size));
+	}
+
+	private static int copy(NgramIndex index, int key, BitSet removed, int[] postings, int size) {
+		for(int p = index.offsets[key]; p < index.offsets[key + 1]; p++) {
+			if(!removed.get(index.postings[p])) {
+				postings[size++] = index.postings[p];
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * @param term
+	 * @return sorted paragraphs containing all trigrams of the term, they have to be checked for the whole term,
+	 * null if the term is shorter than the trigrams and every paragraph can contain it
+	 */
+	public int[] candidates(String term) {
+		if(term.length() < N) {
+			return null;
+		}
+
+		int trigrams = term.length() - N + 1;
+		int[] found = new int[trigrams];
+		for(int i = 0; i < trigrams; i++) {
+			found[i] = Arrays.binarySearch(keys, key(term, i));
+			if(found[i] < 0) {
+				return new int[0];
+			}
+		}
+		// the shortest lists first, the intersection only gets shorter
+		Integer[] order = new Integer[trigrams];
+		for(int i = 0; i < trigrams; i++) {
+			order[i] = found[i];
+		}
+		Arrays.sort(order, (a, b) -> Integer.compare(offsets[a + 1] - offsets[a], offsets[b + 1] - offsets[b]));
+
+		int[] candidates = Arrays.copyOfRange(postings, offsets[order[0]], offsets[order[0] + 1]);
+		int size = candidates.length;
+		for(int i = 1; i < trigrams && size > 0; i++) {
+			if(order[i].equals(order[i - 1])) {
+				continue;
+			}
+			size = intersect(candidates, size, offsets[order[i]], offsets[order[i] + 1]);
+		}
+		return Arrays.copyOf(candidates, size);
+	}
+
+	/**
+	 * Keeps only the candidates in the postings between *from* and *to*.
+	 * @return the number of candidates left
+	 */
+	private int intersect(int[] candidates, int size, int from, int to) {
+		int kept = 0;
+		int j = from;
+		for(int i = 0; i < size && j < to; i++) {
+			int candidate = candidates[i];
+			// the posting list is sorted, the candidate is searched only after the previous one
+			int found = Arrays.binarySearch(postings, j, to, candidate);
+			if(found >= 0) {
+				candidates[kept++] = candidate;
+				j = found + 1;
+			} else {
+				j = -found - 1;
+			}
+		}
+		return kept;
+	}
+
+	/**
+	 * @return number of the paragraphs containing the trigrams, summed over the trigrams
+	 */
+	public int postings() {
+		return postings.length;
+	}
+
+	/**
+	 * @return approximate size of the index in bytes
+	 */
+	public long weight() {
+		return 48 + 8L * keys.length + 4L * offsets.length + 4L * postings.length;
+	}
+
+	public void write(DataOutput output) throws IOException {
+		output.writeInt(keys.length);
+		output.writeInt(postings.length);
+		for(long key : keys) {
+			output.writeLong(key);
+		}
+		for(int offset : offsets) {
+			output.writeInt(offset);
+		}
+		for(int posting : postings) {
+			output.writeInt(posting);
+		}
+	}
+
+	public static NgramIndex read(DataInput input) throws IOException {
+		long[] keys = new long[input.readInt()];
+		int[] postings = new int[input.readInt()];
+		int[] offsets = new int[keys.length + 1];
+		for(int i = 0; i < keys.length; i++) {
+			keys[i] = input.readLong();
+		}
+		for(int i = 0; i < offsets.length; i++) {
+			offsets[i] = input.readInt();
+		}
+		for(int i = 0; i < postings.length; i++) {
+			postings[i] = input.readInt();
+		}
+		return new NgramIndex(keys, offsets, postings);
+	}
+
+	private static long key(CharSequence text, int i) {
+		return ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+	}
+}
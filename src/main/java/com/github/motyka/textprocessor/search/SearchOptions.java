@@ -0,0 +1,23 @@
+package com.github.motyka.textprocessor.search;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+/**
+ * How the search term is matched, the default (all false) is an exact, case-sensitive match.
+ */
+@Value
+@AllArgsConstructor(onConstructor_ = @JsonCreator)
+public class SearchOptions {
+	public static final SearchOptions EXACT = new SearchOptions(false, false, false, false);
+
+	// the characters are compared by their simple case folding, as String.equalsIgnoreCase does
+	private boolean ignoreCase;
+	// the canonically equivalent texts match, e.g. "café" with the precomposed or the combining accent (NFC and NFD)
+	private boolean normalize;
+	// the occurrence can't have letters, digits or combining marks right before or after it
+	private boolean wholeWord;
+	// the search term is a regular expression
+	private boolean regex;
+}
@@ -0,0 +1,498 @@
+package com.github.motyka.textprocessor.search;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Search term compiled with its {@link SearchOptions}. The plain terms are found with Boyer-Moore-Horspool directly
+ * in the original text, the case folding is applied to the compared characters, so no lowered copy of the text
+ * is created. The pattern is immutable and can be shared between requests, the state of a search (buffers, regex
+ * matcher) is in the {@link Searcher} created for every request.
+ */
+public abstract class SearchPattern {
+
+	private static final int NOT_FOUND = -1;
+	// the characters below it are never changed by the canonical decomposition and are never combining marks
+	private static final char FIRST_DECOMPOSED = 'À';
+	// the first combining mark, U+0300
+	private static final char FIRST_COMBINING = '\u0300';
+	// simple case folding of every char, as String.equalsIgnoreCase compares them
+	private static final char[] FOLDED = new char[Character.MAX_VALUE + 1];
+	private static final String WORD_CHARACTER = "[\\p{L}\\p{Nd}\\p{M}]";
+	// canonical decompositions of the single chars, filled when the char is first decomposed
+	private static final String[] DECOMPOSITIONS = new String[Character.MAX_VALUE + 1];
+
+	// limits of the regular expressions compiled without them, in characters and milliseconds
+	public static final int DEFAULT_MAX_REGEX_LENGTH = 1000;
+	public static final long DEFAULT_REGEX_TIMEOUT = 1000;
+
+	static {
+		for(int ch = 0; ch <= Character.MAX_VALUE; ch++) {
+			FOLDED[ch] = Character.toLowerCase(Character.toUpperCase((char) ch));
+		}
+	}
+
+	private final String term;
+	private final SearchOptions options;
+
+	private SearchPattern(String term, SearchOptions options) {
+		this.term = term;
+		this.options = options;
+	}
+
+	/**
+	 * The same as {@link #compile(String, SearchOptions, int, long)} with the default limits of the regular expressions.
+	 */
+	public static SearchPattern compile(String term, SearchOptions options) {
+		return compile(term, options, DEFAULT_MAX_REGEX_LENGTH, DEFAULT_REGEX_TIMEOUT);
+	}
+
+	/**
+	 * @param term can't be empty
+	 * @param options
+	 * @param maxRegexLength maximum length of the term if it is a regular expression
+	 * @param regexTimeout milliseconds a searcher of the regular expression can match in all its texts together,
+	 * then it fails with {@link IllegalArgumentException}, so a backtracking expression can't hold the thread
+	 * @return
+	 * @throws IllegalArgumentException if the term is empty, it isn't a valid regular expression or it is too long
+	 */
+	public static SearchPattern compile(String term, SearchOptions options, int maxRegexLength, long regexTimeout) {
+		if(term == null || term.isEmpty()) {
+			throw new IllegalArgumentException("The search term can't be empty.");
+		}
+		if(options.isRegex()) {
+			if(term.length() > maxRegexLength) {
+				throw new IllegalArgumentException("The regular expression is longer than " + maxRegexLength + " characters.");
+			}
+			return new RegexPattern(term, options, TimeUnit.MILLISECONDS.toNanos(regexTimeout));
+		}
+		if(options.isNormalize()) {
+			return new NormalizedPattern(term, options);
+		}
+		return new PlainPattern(term, options);
+	}
+
+	/**
+	 * @return searcher for one thread, it can search in many texts
+	 */
+	public abstract Searcher searcher();
+
+	public String getTerm() {
+		return term;
+	}
+
+	public SearchOptions getOptions() {
+		return options;
+	}
+
+	/**
+	 * @param text
+	 * @param start
+	 * @param end
+	 * @return true if there is no letter, digit or combining mark right before or after the occurrence
+	 */
+	static boolean isWholeWord(CharSequence text, int start, int end) {
+		return (start == 0 || !isWordCharacter(text.charAt(start - 1))) && (end == text.length() || !isWordCharacter(text.charAt(end)));
+	}
+
+	private static boolean isWordCharacter(char ch) {
+		return Character.isLetterOrDigit(ch) || isMark(ch);
+	}
+
+	private static boolean isCombining(char ch) {
+		return ch >= FIRST_COMBINING && (isMark(ch) || Character.isLowSurrogate(ch));
+	}
+
+	private static boolean isMark(char ch) {
+		int type = Character.getType(ch);
+		return type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK || type == Character.ENCLOSING_MARK;
+	}
+
+	private static boolean findPlain(Horspool horspool, CharSequence text, int from, int to, boolean wholeWord, MatchListener listener) {
+		boolean found = false;
+		for(int i = horspool.indexOf(text, from, to); i != NOT_FOUND; i = horspool.indexOf(text, i + 1, to)) {
+			int end = i + horspool.length();
+			if(!wholeWord || isWholeWord(text, i, end)) {
+				if(listener == null) {
+					return true;
+				}
+				listener.match(i, end);
+				found = true;
+			}
+		}
+		return found;
+	}
+
+	private static String decomposition(char ch) {
+		String decomposition = DECOMPOSITIONS[ch];
+		if(decomposition == null) {
+			// the Strings are immutable, so they can be published without a lock
+			decomposition = Normalizer.normalize(String.valueOf(ch), Normalizer.Form.NFD);
+			DECOMPOSITIONS[ch] = decomposition;
+		}
+		return decomposition;
+	}
+
+	private static char fold(char ch) {
+		return FOLDED[ch];
+	}
+
+	/**
+	 * Finds the occurrences of the pattern, it isn't thread-safe.
+	 */
+	public abstract static class Searcher {
+
+		/**
+		 * Finds all occurrences between *from* and *to*, they can overlap.
+		 * @param text
+		 * @param from
+		 * @param to
+		 * @param listener notified about every occurrence in the order of their starts
+		 */
+		public void search(CharSequence text, int from, int to, MatchListener listener) {
+			find(text, from, to, listener);
+		}
+
+		/**
+		 * @param text
+		 * @param from
+		 * @param to
+		 * @return true if there is an occurrence between *from* and *to*
+		 */
+		public boolean contains(CharSequence text, int from, int to) {
+			return find(text, from, to, null);
+		}
+
+		/**
+		 * @param listener null to stop at the first occurrence
+		 * @return true if any occurrence was found
+		 */
+		abstract boolean find(CharSequence text, int from, int to, MatchListener listener);
+	}
+
+	@FunctionalInterface
+	public interface MatchListener {
+		/**
+		 * @param start position of the occurrence in the text
+		 * @param end position after the occurrence
+		 */
+		void match(int start, int end);
+	}
+
+	/**
+	 * Boyer-Moore-Horspool over the characters of the text, optionally folded.
+	 */
+	private static final class Horspool {
+		private final char[] pattern;
+		private final boolean ignoreCase;
+		// shifts by the lower byte of the last character of the window, the characters with the same lower byte
+		// share the smallest of their shifts
+		private final int[] shifts = new int[256];
+
+		private Horspool(String term, boolean ignoreCase) {
+			this.ignoreCase = ignoreCase;
+			pattern = term.toCharArray();
+			if(ignoreCase) {
+				for(int i = 0; i < pattern.length; i++) {
+					pattern[i] = fold(pattern[i]);
+				}
+			}
+			Arrays.fill(shifts, pattern.length);
+			for(int i = 0; i < pattern.length - 1; i++) {
+				shifts[pattern[i] & 0xFF] = pattern.length - 1 - i;
+			}
+		}
+
+		/**
+		 * @return start of the first occurrence between *from* and *to* or -1
+		 */
+		private int indexOf(CharSequence text, int from, int to) {
+			int last = pattern.length - 1;
+			char lastCharacter = pattern[last];
+			for(int i = from, limit = to - pattern.length; i <= limit; ) {
+				char ch = text.charAt(i + last);
+				if(ignoreCase) {
+					ch = fold(ch);
+				}
+				if(ch == lastCharacter && matches(text, i)) {
+					return i;
+				}
+				i += shifts[ch & 0xFF];
+			}
+			return NOT_FOUND;
+		}
+
+		/**
+		 * The same as {@link #indexOf(CharSequence, int, int)} for the decomposed text.
+		 */
+		private int indexOf(char[] text, int from, int to) {
+			int last = pattern.length - 1;
+			char lastCharacter = pattern[last];
+			for(int i = from, limit = to - pattern.length; i <= limit; ) {
+				char ch = ignoreCase ? fold(text[i + last]) : text[i + last];
+				if(ch == lastCharacter && matches(text, i)) {
+					return i;
+				}
+				i += shifts[ch & 0xFF];
+			}
+			return NOT_FOUND;
+		}
+
+		private boolean matches(char[] text, int start) {
+			for(int i = 0; i < pattern.length - 1; i++) {
+				char ch = text[start + i];
+				if((ignoreCase ? fold(ch) : ch) != pattern[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private boolean matches(CharSequence text, int start) {
+			for(int i = 0; i < pattern.length - 1; i++) {
+				char ch = text.charAt(start + i);
+				if((ignoreCase ? fold(ch) : ch) != pattern[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private int length() {
+			return pattern.length;
+		}
+	}
+
+	private static final class PlainPattern extends SearchPattern {
+		private final Horspool horspool;
+		// the plain pattern has no state, so it is shared by all the threads
+		private final Searcher searcher = new Searcher() {
+			@Override
+			boolean find(CharSequence text, int from, int to, MatchListener listener) {
+				return findPlain(horspool, text, from, to, getOptions().isWholeWord(), listener);
+			}
+		};
+
+		private PlainPattern(String term, SearchOptions options) {
+			super(term, options);
+			horspool = new Horspool(term, options.isIgnoreCase());
+		}
+
+		@Override
+		public Searcher searcher() {
+			return searcher;
+		}
+	}
+
+	/**
+	 * The term and the text are compared in the canonical decomposition (NFD). Only the parts of the text with
+	 * the characters which can be decomposed are decomposed, into a buffer of the searcher, the paragraphs without
+	 * them (e.g. ASCII) are searched directly. The occurrence has to start and end at the boundaries of the characters with their
+	 * combining marks, so "cafe" isn't found in "café".
+	 */
+	private static final class NormalizedPattern extends SearchPattern {
+		private final Horspool horspool;
+
+		private NormalizedPattern(String term, SearchOptions options) {
+			super(term, options);
+			horspool = new Horspool(Normalizer.normalize(term, Normalizer.Form.NFD), options.isIgnoreCase());
+		}
+
+		@Override
+		public Searcher searcher() {
+			return new Searcher() {
+				private char[] decomposed = new char[0];
+				// position in the text of the character (with its combining marks) of every decomposed character
+				// and the end of the text
+				private int[] positions = new int[1];
+
+				@Override
+				boolean find(CharSequence text, int from, int to, MatchListener listener) {
+					if(!isDecomposable(text, from, to)) {
+						return findPlain(horspool, text, from, to, getOptions().isWholeWord(), listener);
+					}
+					int length = decompose(text, from, to);
+					boolean found = false;
+					for(int i = horspool.indexOf(decomposed, 0, length); i != NOT_FOUND; i = horspool.indexOf(decomposed, i + 1, length)) {
+						int end = i + horspool.length();
+						if(isBoundary(i, length) && isBoundary(end, length)
+								&& (!getOptions().isWholeWord() || isWholeWord(text, positions[i], positions[end]))) {
+							if(listener == null) {
+								return true;
+							}
+							listener.match(positions[i], positions[end]);
+							found = true;
+						}
+					}
+					return found;
+				}
+
+				private boolean isDecomposable(CharSequence text, int from, int to) {
+					for(int i = from; i < to; i++) {
+						if(text.charAt(i) >= FIRST_DECOMPOSED) {
+							return true;
+						}
+					}
+					return false;
+				}
+
+				private boolean isBoundary(int index, int length) {
+					return index == 0 || index == length || positions[index] != positions[index - 1];
+				}
+
+				/**
+				 * @return number of the decomposed characters
+				 */
+				private int decompose(CharSequence text, int from, int to) {
+					// there is always room for one char for every char of the rest of the text
+					ensureCapacity(to - from);
+					char[] decomposed = this.decomposed;
+					int[] positions = this.positions;
+					int length = 0;
+					for(int i = from; i < to; ) {
+						char ch = text.charAt(i);
+						// the character with its combining marks and the low surrogate
+						int end = i + 1;
+						while(end < to && isCombining(text.charAt(end))) {
+							end++;
+						}
+						if(end == i + 1 && ch < FIRST_DECOMPOSED) {
+							decomposed[length] = ch;
+							positions[length++] = i;
+						} else {
+							String characters = end == i + 1 ? decomposition(ch) : Normalizer.normalize(text.subSequence(i, end), Normalizer.Form.NFD);
+							if(length + characters.length() + to - end > decomposed.length) {
+								ensureCapacity(length + characters.length() + to - end);
+								decomposed = this.decomposed;
+								positions = this.positions;
+							}
+							for(int j = 0; j < characters.length(); j++) {
+								decomposed[length] = characters.charAt(j);
+								positions[length++] = i;
+							}
+						}
+						i = end;
+					}
+					positions[length] = to;
+					return length;
+				}
+
+				private void ensureCapacity(int capacity) {
+					if(capacity > decomposed.length) {
+						int size = Math.max(capacity, decomposed.length * 2);
+						decomposed = Arrays.copyOf(decomposed, size);
+						positions = Arrays.copyOf(positions, size + 1);
+					}
+				}
+			};
+		}
+	}
+
+	/**
+	 * The regular expression is compiled once, every searcher has its own matcher reset to the searched text.
+	 * The matcher reads the text through {@link DeadlineText}, so a catastrophic backtracking is stopped when
+	 * the searcher runs out of its time.
+	 */
+	private static final class RegexPattern extends SearchPattern {
+		private final Pattern pattern;
+		private final long timeout;
+
+		private RegexPattern(String term, SearchOptions options, long timeout) {
+			super(term, options);
+			int flags = (options.isIgnoreCase() ? Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE : 0)
+					| (options.isNormalize() ? Pattern.CANON_EQ : 0);
+			String regex = options.isWholeWord() ? "(?<!" + WORD_CHARACTER + ")(?:" + term + ")(?!" + WORD_CHARACTER + ")" : term;
+			pattern = Pattern.compile(regex, flags);
+			this.timeout = timeout;
+		}
+
+		@Override
+		public Searcher searcher() {
+			return new Searcher() {
+				private final Matcher matcher = pattern.matcher("").useTransparentBounds(true);
+				private final DeadlineText deadlineText = new DeadlineText(getTerm());
+				// nanoseconds left for all the following searches
+				private long remaining = timeout;
+
+				@Override
+				boolean find(CharSequence text, int from, int to, MatchListener listener) {
+					if(deadlineText.text != text) {
+						deadlineText.text = text;
+						// the transparent bounds are kept
+						matcher.reset(deadlineText);
+					}
+					if(remaining <= 0) {
+						throw deadlineText.timeout();
+					}
+					long start = System.nanoTime();
+					deadlineText.deadline = start + remaining;
+					try {
+						matcher.region(from, to);
+						boolean found = false;
+						while(matcher.find()) {
+							// the empty matches aren't occurrences of anything
+							if(matcher.start() == matcher.end()) {
+								continue;
+							}
+							if(listener == null) {
+								return true;
+							}
+							listener.match(matcher.start(), matcher.end());
+							found = true;
+						}
+						return found;
+					} finally {
+						remaining -= System.nanoTime() - start;
+					}
+				}
+			};
+		}
+	}
+
+	/**
+	 * Text read by the regex matcher, it checks the clock every few thousand characters and fails the search after
+	 * its deadline.
+	 */
+	private static final class DeadlineText implements CharSequence {
+		private static final int CHECKED = 4095;
+
+		private final String term;
+		private CharSequence text;
+		private long deadline;
+		private int reads;
+
+		DeadlineText(String term) {
+			this.term = term;
+		}
+
+		@Override
+		public char charAt(int index) {
+			if((++reads & CHECKED) == 0 && System.nanoTime() - deadline > 0) {
+				throw timeout();
+			}
+			return text.charAt(index);
+		}
+
+		IllegalArgumentException timeout() {
+			return new IllegalArgumentException("The search for the regular expression took too long: " + term);
+		}
+
+		@Override
+		public int length() {
+			return text.length();
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			return text.subSequence(start, end);
+		}
+
+		@Override
+		public String toString() {
+			return text.toString();
+		}
+	}
+}
@@ -0,0 +1,41 @@
+package com.github.motyka.textprocessor;
+
+import com.github.motyka.textprocessor.paragraph.SearchCriteria;
+import com.github.motyka.textprocessor.utils.ResourceUtils;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("fast-startup")
+public class FastStartupProfileTest {
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private TestRestTemplate restTemplate;
+
+	@Test
+	public void separators() {
+		String text = ResourceUtils.readResource("separators.txt");
+		String expected = ResourceUtils.readResource("expected/separators.txt");
+		String url = "http://localhost:" + port + "/paragraphs/splitAndSearch?mainLimit=20&secondaryLimit=10";
+
+		List<?> result = restTemplate.postForObject(url, new SearchCriteria(text, "separated"), List.class);
+
+		assertEquals(expected, result.toString());
+		assertEquals(HttpStatus.OK, restTemplate.getForEntity("http://localhost:" + port + "/actuator/prometheus", String.class).getStatusCode());
+		// without the Swagger documentation
+		assertEquals(HttpStatus.NOT_FOUND, restTemplate.getForEntity("http://localhost:" + port + "/v2/api-docs", String.class).getStatusCode());
+	}
+}
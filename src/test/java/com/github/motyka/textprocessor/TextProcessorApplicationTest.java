@@ -1,6 +1,14 @@
 package com.github.motyka.textprocessor;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.github.luben.zstd.Zstd;
+import com.github.motyka.textprocessor.paragraph.BatchItem;
+import com.github.motyka.textprocessor.paragraph.DocumentEdit;
 import com.github.motyka.textprocessor.paragraph.SearchCriteria;
+import com.github.motyka.textprocessor.paragraph.TextEdit;
+import com.github.motyka.textprocessor.search.SearchOptions;
 import com.github.motyka.textprocessor.utils.ResourceUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -9,10 +17,24 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
 public class TextProcessorApplicationTest {
@@ -25,6 +47,9 @@ public class TextProcessorApplicationTest {
 	@Autowired
 	private TestRestTemplate restTemplate;
 
+	@Autowired
+	private ObjectMapper objectMapper;
+
 	@BeforeEach
 	public void setUp() {
 		baseUrl = "http://localhost:" + port + "/paragraphs/splitAndSearch";
@@ -50,4 +75,278 @@ public class TextProcessorApplicationTest {
 
 		assertEquals(expected, result.toString());
 	}
+
+	@Test
+	public void separatorsScanning() {
+		String text = ResourceUtils.readResource("separators.txt");
+		String expected = ResourceUtils.readResource("expected/separators.txt");
+		String url = this.baseUrl + "?mainLimit=20&secondaryLimit=10&strategy=SCANNING";
+
+		List<?> result = restTemplate.postForObject(url, new SearchCriteria(text, "separated"), List.class);
+
+		assertEquals(expected, result.toString());
+	}
+
+	@Test
+	public void bigFileScanning() {
+		String text = ResourceUtils.readResource("big_test.txt");
+		String expected = ResourceUtils.readResource("expected/big_test.txt");
+
+		List<?> result = restTemplate.postForObject(baseUrl + "?strategy=SCANNING", new SearchCriteria(text, "ipsum"), List.class);
+
+		assertEquals(expected, result.toString());
+	}
+
+	@Test
+	public void rules() {
+		String text = "See http://example.com/index.html?q=1 now. Next sentence here";
+		String url = this.baseUrl + "?mainLimit=40&secondaryLimit=30&rules=sentences";
+
+		List<?> result = restTemplate.postForObject(url, new SearchCriteria(text, "now"), List.class);
+		Map<?, ?> chains = restTemplate.getForObject("http://localhost:" + port + "/paragraphs/rules", Map.class);
+
+		assertEquals("[{text=See http://example.com/index.html?q=1, start=0, length=37, contains=false}, "
+				+ "{text=now. Next sentence here, start=38, length=23, contains=true}]", result.toString());
+		assertEquals("[NEW_LINE, SENTENCE_END, PUNCTUATION_BEFORE_SPACE, SPACE]", chains.get("sentences").toString());
+		assertEquals(HttpStatus.BAD_REQUEST, restTemplate.postForEntity(this.baseUrl + "?rules=unknown", new SearchCriteria(text, "now"), String.class)
+				.getStatusCode());
+	}
+
+	@Test
+	public void searchOptions() {
+		String text = "Contract one.\n\nthe CONTRACT and contracts.";
+		SearchCriteria criteria = new SearchCriteria(text, "contract", null, new SearchOptions(true, false, true, false));
+
+		List<?> result = restTemplate.postForObject(baseUrl, criteria, List.class);
+
+		assertEquals("[{text=Contract one., start=0, length=13, contains=true, occurrences=[{start=0, length=8}]}, "
+				+ "{text=the CONTRACT and contracts., start=15, length=27, contains=true, occurrences=[{start=19, length=8}]}]", result.toString());
+	}
+
+	@Test
+	public void pages() {
+		String text = ResourceUtils.readResource("separators.txt");
+		String expected = ResourceUtils.readResource("expected/separators.txt");
+		String url = this.baseUrl + "/page?mainLimit=20&secondaryLimit=10&limit=3";
+
+		List<Object> paragraphs = new ArrayList<>();
+		Map<?, ?> page = restTemplate.postForObject(url, new SearchCriteria(text, "separated"), Map.class);
+		paragraphs.addAll((List<?>) page.get("paragraphs"));
+		while(page.get("next") != null) {
+			page = restTemplate.postForObject(url + "&cursor=" + page.get("next"), new SearchCriteria(text, "separated"), Map.class);
+			paragraphs.addAll((List<?>) page.get("paragraphs"));
+		}
+
+		assertEquals(expected, paragraphs.toString());
+		assertEquals(HttpStatus.BAD_REQUEST, restTemplate.postForEntity(url + "&cursor=invalid", new SearchCriteria(text, "separated"), String.class)
+				.getStatusCode());
+	}
+
+	@Test
+	public void separatorsStream() throws IOException {
+		String text = ResourceUtils.readResource("separators.txt");
+		String expected = ResourceUtils.readResource("expected/separators.txt");
+		String url = this.baseUrl + "/stream?mainLimit=20&secondaryLimit=10&searchTerm=separated";
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(MediaType.TEXT_PLAIN);
+
+		String result = restTemplate.postForObject(url, new HttpEntity<>(text, headers), String.class);
+
+		List<Object> paragraphs = new ArrayList<>();
+		for(String line : result.split("\n")) {
+			paragraphs.add(objectMapper.readValue(line, Map.class));
+		}
+		assertEquals(expected, paragraphs.toString());
+	}
+
+	@Test
+	public void separatorsStreamNonBlocking() throws IOException {
+		String text = ResourceUtils.readResource("separators.txt");
+		String expected = ResourceUtils.readResource("expected/separators.txt");
+		String url = this.baseUrl + "/stream/async?mainLimit=20&secondaryLimit=10&searchTerm=separated";
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(MediaType.TEXT_PLAIN);
+
+		String result = restTemplate.postForObject(url, new HttpEntity<>(text, headers), String.class);
+
+		List<Object> paragraphs = new ArrayList<>();
+		for(String line : result.split("\n")) {
+			paragraphs.add(objectMapper.readValue(line, Map.class));
+		}
+		assertEquals(expected, paragraphs.toString());
+	}
+
+	@Test
+	public void streamNonBlockingInvalidLimits() {
+		String url = this.baseUrl + "/stream/async?mainLimit=10&secondaryLimit=20";
+
+		ResponseEntity<String> response = restTemplate.postForEntity(url, "text", String.class);
+
+		assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+	}
+
+	@Test
+	public void separatorsOffsets() {
+		String text = ResourceUtils.readResource("separators.txt");
+		String url = this.baseUrl + "/offsets?mainLimit=20&secondaryLimit=10";
+
+		Map<?, ?> result = restTemplate.postForObject(url, new SearchCriteria(text, "separated"), Map.class);
+
+		assertEquals("[0, 16, 35, 46, 63, 81, 97, 109, 129, 149]", result.get("start").toString());
+		assertEquals("[14, 18, 9, 16, 16, 15, 10, 20, 20, 2]", result.get("length").toString());
+		assertEquals("[false, true, false, true, false, true, false, false, false, false]", result.get("contains").toString());
+	}
+
+	@Test
+	public void streamBytesOfOtherCharset() {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.ISO_8859_1));
+		HttpEntity<byte[]> request = new HttpEntity<>("caf\u00e9".getBytes(StandardCharsets.ISO_8859_1), headers);
+
+		assertEquals(HttpStatus.BAD_REQUEST, restTemplate.postForEntity(baseUrl + "/stream?units=BYTES", request, String.class).getStatusCode());
+		assertEquals(HttpStatus.BAD_REQUEST, restTemplate.postForEntity(baseUrl + "/stream/async?units=BYTES", request, String.class).getStatusCode());
+		assertEquals("{\"text\":\"caf\u00e9\",\"start\":0,\"length\":4,\"contains\":false}\n",
+				restTemplate.postForObject(baseUrl + "/stream", request, String.class));
+	}
+
+	@Test
+	public void separatorsOffsetsUtf8() {
+		String text = ResourceUtils.readResource("separators.txt");
+		String url = this.baseUrl + "/offsets?mainLimit=20&secondaryLimit=10&searchTerm=separated&units=BYTES";
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(MediaType.TEXT_PLAIN);
+
+		Map<?, ?> result = restTemplate.postForObject(url, new HttpEntity<>(text, headers), Map.class);
+
+		// the text is ASCII, so the bytes are the same as the characters
+		assertEquals("[0, 16, 35, 46, 63, 81, 97, 109, 129, 149]", result.get("start").toString());
+		assertEquals("[14, 18, 9, 16, 16, 15, 10, 20, 20, 2]", result.get("length").toString());
+		assertEquals("[false, true, false, true, false, true, false, false, false, false]", result.get("contains").toString());
+	}
+
+	@Test
+	public void compressedBodies() throws IOException {
+		String text = ResourceUtils.readResource("separators.txt");
+		String expected = ResourceUtils.readResource("expected/separators.txt");
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(MediaType.TEXT_PLAIN);
+		headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+		ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+		try(GZIPOutputStream output = new GZIPOutputStream(gzip)) {
+			output.write(text.getBytes(StandardCharsets.UTF_8));
+		}
+
+		String result = restTemplate.postForObject(baseUrl + "/stream?mainLimit=20&secondaryLimit=10&searchTerm=separated",
+				new HttpEntity<>(gzip.toByteArray(), headers), String.class);
+
+		List<Object> paragraphs = new ArrayList<>();
+		for(String line : result.split("\n")) {
+			paragraphs.add(objectMapper.readValue(line, Map.class));
+		}
+		assertEquals(expected, paragraphs.toString());
+
+		headers.set(HttpHeaders.CONTENT_ENCODING, "zstd");
+		byte[] zstd = Zstd.compress(text.getBytes(StandardCharsets.UTF_8));
+		Map<?, ?> offsets = restTemplate.postForObject(baseUrl + "/offsets?mainLimit=20&secondaryLimit=10&searchTerm=separated",
+				new HttpEntity<>(zstd, headers), Map.class);
+		assertEquals("[0, 16, 35, 46, 63, 81, 97, 109, 129, 149]", offsets.get("start").toString());
+
+		// a compressed body decompressed into more than paragraph.compression.max-decompressed-bytes
+		byte[] bomb = Zstd.compress(new byte[17 << 20]);
+		assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, restTemplate.postForEntity(baseUrl + "/offsets", new HttpEntity<>(bomb, headers), String.class)
+				.getStatusCode());
+
+		headers.set(HttpHeaders.CONTENT_ENCODING, "br");
+		assertEquals(HttpStatus.UNSUPPORTED_MEDIA_TYPE, restTemplate.postForEntity(baseUrl + "/stream", new HttpEntity<>(zstd, headers), String.class)
+				.getStatusCode());
+	}
+
+	@Test
+	public void binaryResponses() throws IOException {
+		String text = ResourceUtils.readResource("separators.txt");
+		String expected = ResourceUtils.readResource("expected/separators.txt");
+		String url = this.baseUrl + "?mainLimit=20&secondaryLimit=10";
+
+		for(ObjectMapper mapper : Arrays.asList(new ObjectMapper(new SmileFactory()), new ObjectMapper(new CBORFactory()))) {
+			String mediaType = mapper.getFactory() instanceof SmileFactory ? "application/x-jackson-smile" : "application/cbor";
+			HttpHeaders headers = new HttpHeaders();
+			headers.setAccept(Collections.singletonList(MediaType.parseMediaType(mediaType)));
+
+			ResponseEntity<byte[]> response = restTemplate.postForEntity(url, new HttpEntity<>(new SearchCriteria(text, "separated"), headers), byte[].class);
+
+			assertEquals(mediaType, response.getHeaders().getContentType().toString());
+			assertEquals(expected, mapper.readValue(response.getBody(), List.class).toString());
+		}
+	}
+
+	@Test
+	public void documents() {
+		String text = ResourceUtils.readResource("separators.txt");
+		String url = "http://localhost:" + port + "/documents/separators";
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(MediaType.TEXT_PLAIN);
+
+		restTemplate.put(url + "?mainLimit=20&secondaryLimit=10", new HttpEntity<>(text, headers));
+		List<?> result = restTemplate.getForObject(url + "/search?searchTerm=separated", List.class);
+
+		assertEquals("[{text=second! separated., start=16, length=18, contains=true}, {text=third separated,, start=46, length=16, contains=true}, "
+				+ "{text=forth separated, start=81, length=15, contains=true}]", result.toString());
+		Map<?, ?> diff = restTemplate.postForObject(url + "/edits?searchTerm=line", new DocumentEdit(1, Arrays.asList(new TextEdit(0, 5, "1st"))), Map.class);
+		assertEquals("{id=separators, version=2, changes=[{index=0, removed=1, paragraphs=[{text=1st new line, start=0, length=12, contains=true}], shift=-2}]}",
+				diff.toString());
+		assertEquals(HttpStatus.CONFLICT, restTemplate.postForEntity(url + "/edits", new DocumentEdit(1, Arrays.asList(new TextEdit(0, 5, "1st"))), String.class)
+				.getStatusCode());
+		restTemplate.delete(url);
+		assertEquals(HttpStatus.NOT_FOUND, restTemplate.getForEntity(url, String.class).getStatusCode());
+	}
+
+	@Test
+	public void jobs() throws InterruptedException {
+		String text = ResourceUtils.readResource("separators.txt");
+		String expected = ResourceUtils.readResource("expected/separators.txt");
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(MediaType.TEXT_PLAIN);
+
+		ResponseEntity<Map> submitted = restTemplate.postForEntity("http://localhost:" + port + "/jobs?mainLimit=20&secondaryLimit=10&searchTerm=separated",
+				new HttpEntity<>(text, headers), Map.class);
+		assertEquals(HttpStatus.ACCEPTED, submitted.getStatusCode());
+		String url = submitted.getHeaders().getLocation().toString();
+		Map<?, ?> info = submitted.getBody();
+		for(int i = 0; i < 1000 && !"DONE".equals(info.get("state")); i++) {
+			Thread.sleep(10);
+			info = restTemplate.getForObject(url, Map.class);
+		}
+		Map<?, ?> page = restTemplate.getForObject(url + "/paragraphs?offset=0&limit=100", Map.class);
+
+		assertEquals("DONE", info.get("state"));
+		assertEquals(text.length(), info.get("processedBytes"));
+		assertEquals(expected, page.get("paragraphs").toString());
+		assertTrue(page.containsKey("next") && page.get("next") == null);
+		restTemplate.delete(url);
+		assertEquals(HttpStatus.NOT_FOUND, restTemplate.getForEntity(url, String.class).getStatusCode());
+	}
+
+	@Test
+	public void batch() {
+		String separators = ResourceUtils.readResource("separators.txt");
+		String expected = ResourceUtils.readResource("expected/separators.txt");
+		List<BatchItem> items = Arrays.asList(new BatchItem("separators", separators, "separated"), new BatchItem("invalid", null, null));
+
+		Map<?, ?> result = restTemplate.postForObject(baseUrl + "/batch?mainLimit=20&secondaryLimit=10", items, Map.class);
+
+		assertEquals(expected, ((Map<?, ?>) result.get("separators")).get("paragraphs").toString());
+		assertEquals("{error=The text can't be null}", result.get("invalid").toString());
+	}
+
+	@Test
+	public void metrics() {
+		String text = ResourceUtils.readResource("separators.txt");
+		restTemplate.postForObject(baseUrl + "?mainLimit=20&secondaryLimit=10&strategy=SCANNING", new SearchCriteria(text, "separated"), List.class);
+
+		String metrics = restTemplate.getForObject("http://localhost:" + port + "/actuator/prometheus", String.class);
+
+		assertTrue(metrics.contains("paragraph_split_seconds_count{mode=\"paragraphs\",strategy=\"SCANNING\",}"), metrics);
+		assertTrue(metrics.contains("paragraph_split_reason_total{reason=\"DOUBLE_NEW_LINE\",}"), metrics);
+		assertTrue(metrics.contains("paragraph_search_paragraphs_total{result=\"hit\",}"), metrics);
+	}
 }
@@ -0,0 +1,120 @@
+package com.github.motyka.textprocessor.admission;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class AdmissionControlTest {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	@Test
+	@DisplayName("admits the requests fitting into the budget and releases them once")
+	public void admit() throws InterruptedException {
+		AdmissionControl admission = new AdmissionControl(100, 10, 10, 0, registry);
+		AdmissionControl.Permit first = admission.acquire("a", 60);
+		AdmissionControl.Permit second = admission.acquire("b", 40);
+
+		assertEquals(100, admission.getInFlightBytes());
+		assertEquals(2, admission.getInFlightRequests());
+		assertEquals(100.0, registry.get("paragraph.admission.in-flight").gauge().value());
+
+		first.close();
+		first.close();
+		assertEquals(40, admission.getInFlightBytes());
+		second.close();
+		assertEquals(0, admission.getInFlightBytes());
+		assertEquals(0, admission.getInFlightRequests());
+	}
+
+	@Test
+	@DisplayName("a request bigger than the budget is admitted alone")
+	public void oversize() throws InterruptedException {
+		AdmissionControl admission = new AdmissionControl(100, 10, 10, 0, registry);
+		AdmissionControl.Permit permit = admission.acquire("a", 1000);
+
+		AdmissionRejectedException ex = assertThrows(AdmissionRejectedException.class, () -> admission.acquire("b", 1));
+		assertEquals(HttpStatus.SERVICE_UNAVAILABLE, ex.getStatus());
+		assertEquals(1.0, registry.get("paragraph.admission.rejected").tag("reason", "timeout").counter().count());
+
+		permit.close();
+		admission.acquire("b", 1).close();
+	}
+
+	@Test
+	@DisplayName("too many requests of a client are rejected with 429")
+	public void client() throws InterruptedException {
+		AdmissionControl admission = new AdmissionControl(100, 2, 10, 0, registry);
+		AdmissionControl.Permit permit = admission.acquire("a", 1);
+		admission.acquire("a", 1);
+
+		AdmissionRejectedException ex = assertThrows(AdmissionRejectedException.class, () -> admission.acquire("a", 1));
+		assertEquals(HttpStatus.TOO_MANY_REQUESTS, ex.getStatus());
+		assertEquals(1.0, registry.get("paragraph.admission.rejected").tag("reason", "client").counter().count());
+		admission.acquire("b", 1);
+
+		permit.close();
+		admission.acquire("a", 1);
+	}
+
+	@Test
+	@DisplayName("the requests wait in the queue in the order they came, the full queue rejects them with 503")
+	public void queue() throws Exception {
+		AdmissionControl admission = new AdmissionControl(100, 10, 2, 10000, registry);
+		AdmissionControl.Permit permit = admission.acquire("a", 50);
+		AdmissionControl.Permit other = admission.acquire("a", 50);
+		List<String> admitted = Collections.synchronizedList(new ArrayList<>());
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<?> big = executor.submit(() -> waitFor(admission, "big", 80, admitted));
+			awaitQueue(admission, 1);
+			Future<?> small = executor.submit(() -> waitFor(admission, "small", 10, admitted));
+			awaitQueue(admission, 2);
+
+			AdmissionRejectedException ex = assertThrows(AdmissionRejectedException.class, () -> admission.acquire("c", 1));
+			assertEquals(HttpStatus.SERVICE_UNAVAILABLE, ex.getStatus());
+			assertEquals(1.0, registry.get("paragraph.admission.rejected").tag("reason", "queue").counter().count());
+			assertEquals(2.0, registry.get("paragraph.admission.queue").gauge().value());
+
+			// the small request would fit, but it doesn't overtake the big one
+			other.close();
+			Thread.sleep(100);
+			assertEquals(List.of(), admitted);
+
+			permit.close();
+			big.get(10, TimeUnit.SECONDS);
+			small.get(10, TimeUnit.SECONDS);
+			assertEquals(Set.of("big", "small"), Set.copyOf(admitted));
+			assertEquals(90, admission.getInFlightBytes());
+			assertEquals(0, admission.getQueueDepth());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static Void waitFor(AdmissionControl admission, String client, long bytes, List<String> admitted) throws InterruptedException {
+		admission.acquire(client, bytes);
+		admitted.add(client);
+		return null;
+	}
+
+	private static void awaitQueue(AdmissionControl admission, int depth) throws InterruptedException {
+		for(int i = 0; i < 1000 && admission.getQueueDepth() < depth; i++) {
+			Thread.sleep(10);
+		}
+		assertEquals(depth, admission.getQueueDepth());
+	}
+}
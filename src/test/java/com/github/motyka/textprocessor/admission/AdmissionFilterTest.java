@@ -0,0 +1,107 @@
+package com.github.motyka.textprocessor.admission;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class AdmissionFilterTest {
+
+	private final AdmissionControl admission = new AdmissionControl(1000, 1, 0, 0, new SimpleMeterRegistry());
+	private final AdmissionFilter filter = new AdmissionFilter(admission, 3, 500, 300,
+			Collections.singletonList("/paragraphs/splitAndSearch/stream"), 200, 1, "X-Client", 7);
+
+	@Test
+	@DisplayName("the bytes are reserved while the request is processed")
+	public void reserve() throws ServletException, IOException {
+		long[] inFlight = new long[2];
+		filter.doFilter(request("a", 100), new MockHttpServletResponse(), (req, res) -> inFlight[0] = admission.getInFlightBytes());
+		filter.doFilter(request("a", -1), new MockHttpServletResponse(), (req, res) -> inFlight[1] = admission.getInFlightBytes());
+
+		assertEquals(300, inFlight[0]);
+		assertEquals(1500, inFlight[1]);
+		assertEquals(0, admission.getInFlightBytes());
+	}
+
+	@Test
+	@DisplayName("the compressed bodies count as the most they can be decompressed into")
+	public void compressed() throws ServletException, IOException {
+		long[] inFlight = new long[2];
+		MockHttpServletRequest gzip = request("a", 10);
+		gzip.addHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+		MockHttpServletRequest identity = request("a", 10);
+		identity.addHeader(HttpHeaders.CONTENT_ENCODING, "identity");
+		filter.doFilter(gzip, new MockHttpServletResponse(), (req, res) -> inFlight[0] = admission.getInFlightBytes());
+		filter.doFilter(identity, new MockHttpServletResponse(), (req, res) -> inFlight[1] = admission.getInFlightBytes());
+
+		assertEquals(900, inFlight[0]);
+		assertEquals(30, inFlight[1]);
+	}
+
+	@Test
+	@DisplayName("the rejected requests get 503 or 429 with Retry-After")
+	public void reject() throws ServletException, IOException {
+		MockHttpServletResponse busy = new MockHttpServletResponse();
+		MockHttpServletResponse tooMany = new MockHttpServletResponse();
+		filter.doFilter(request("a", 400), new MockHttpServletResponse(), (req, res) -> {
+			try {
+				filter.doFilter(request("b", 100), busy, new MockFilterChain());
+				filter.doFilter(request("a", 1), tooMany, new MockFilterChain());
+			} catch(ServletException | IOException ex) {
+				throw new IllegalStateException(ex);
+			}
+		});
+
+		assertEquals(503, busy.getStatus());
+		assertEquals("7", busy.getHeader(HttpHeaders.RETRY_AFTER));
+		assertEquals(429, tooMany.getStatus());
+		assertEquals("7", tooMany.getHeader(HttpHeaders.RETRY_AFTER));
+		assertEquals(0, admission.getInFlightRequests());
+	}
+
+	@Test
+	@DisplayName("the streamed requests count as their buffer and are limited by the endpoint")
+	public void stream() throws ServletException, IOException {
+		long[] inFlight = new long[1];
+		MockHttpServletResponse busy = new MockHttpServletResponse();
+		MockHttpServletRequest stream = request("a", 100000);
+		stream.setRequestURI("/paragraphs/splitAndSearch/stream");
+		filter.doFilter(stream, new MockHttpServletResponse(), (req, res) -> {
+			inFlight[0] = admission.getInFlightBytes();
+			MockHttpServletRequest other = request("b", 1);
+			other.setRequestURI("/paragraphs/splitAndSearch/stream");
+			try {
+				filter.doFilter(other, busy, new MockFilterChain());
+			} catch(ServletException | IOException ex) {
+				throw new IllegalStateException(ex);
+			}
+		});
+
+		assertEquals(200, inFlight[0]);
+		assertEquals(503, busy.getStatus());
+		assertEquals("7", busy.getHeader(HttpHeaders.RETRY_AFTER));
+		assertEquals(0, admission.getInFlightRequests());
+		// the place of the stream is released with the request
+		MockHttpServletResponse next = new MockHttpServletResponse();
+		filter.doFilter(stream, next, new MockFilterChain());
+		assertEquals(200, next.getStatus());
+	}
+
+	private static MockHttpServletRequest request(String client, int length) {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/paragraphs/splitAndSearch");
+		request.addHeader("X-Client", client);
+		if(length >= 0) {
+			request.setContent(new byte[length]);
+		}
+		return request;
+	}
+}
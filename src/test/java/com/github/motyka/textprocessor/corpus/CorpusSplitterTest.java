@@ -0,0 +1,233 @@
+package com.github.motyka.textprocessor.corpus;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import com.github.motyka.textprocessor.paragraph.OffsetUnit;
+import com.github.motyka.textprocessor.paragraph.ParagraphOffsets;
+import com.github.motyka.textprocessor.paragraph.ParagraphService;
+import com.github.motyka.textprocessor.paragraph.ParagraphServiceFactory;
+import com.github.motyka.textprocessor.paragraph.SplitRequest;
+import com.github.motyka.textprocessor.paragraph.SplittingStrategy;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CorpusSplitterTest {
+
+	private static final int FILES = 120;
+
+	private static final SplitRequest REQUEST = SplitRequest.of("ipsum", 40, 20);
+
+	// with the parameter names module, as configured by Spring Boot
+	private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new ParameterNamesModule());
+
+	@TempDir
+	Path directory;
+
+	@Test
+	@DisplayName("every file of the corpus is written once to the shards in both formats")
+	public void split() throws Exception {
+		Path corpus = corpus();
+		ParagraphService service = ParagraphServiceFactory.create();
+		SplitRequest request = REQUEST.toBuilder().unit(OffsetUnit.BYTES).build();
+
+		for(CorpusFormat format : CorpusFormat.values()) {
+			Path output = directory.resolve("output-" + format);
+			CorpusStats stats = splitter(service, format).split(corpus, output, request);
+
+			assertEquals(FILES, stats.getFiles());
+			assertEquals(0, stats.getSkipped());
+			assertEquals(0, stats.getFailed());
+			assertFalse(Files.exists(output.resolve(CorpusSplitter.CHECKPOINT)));
+			Map<String, String> records = read(output, format);
+			assertEquals(FILES, records.size());
+			for(Map.Entry<String, String> record : records.entrySet()) {
+				byte[] text = Files.readAllBytes(corpus.resolve(record.getKey()));
+				ParagraphOffsets expected = service.splitAndSearchOffsets(text, request.toBuilder().strategy(SplittingStrategy.SCANNING).build());
+				assertEquals(toString(expected), record.getValue(), record.getKey());
+			}
+		}
+	}
+
+	@Test
+	@DisplayName("the crashed split is resumed from the checkpoint without duplicates")
+	public void resume() throws Exception {
+		Path corpus = corpus();
+		Path output = directory.resolve("output");
+
+		IOException ex = assertThrows(IOException.class,
+				() -> splitter(new CrashingParagraphService(50), CorpusFormat.JSONL).split(corpus, output, REQUEST));
+		assertEquals("crash", ex.getCause().getMessage());
+		assertTrue(Files.exists(output.resolve(CorpusSplitter.CHECKPOINT)));
+
+		CorpusStats stats = splitter(ParagraphServiceFactory.create(), CorpusFormat.JSONL).split(corpus, output, REQUEST);
+		assertTrue(stats.getSkipped() > 0, "skipped: " + stats.getSkipped());
+		assertEquals(FILES, stats.getFiles() + stats.getSkipped());
+		assertFalse(Files.exists(output.resolve(CorpusSplitter.CHECKPOINT)));
+
+		Path expected = directory.resolve("expected");
+		splitter(ParagraphServiceFactory.create(), CorpusFormat.JSONL).split(corpus, expected, REQUEST);
+		for(int i = 0; i < 3; i++) {
+			String shard = String.format("%s%05d.jsonl", CorpusSplitter.SHARD_PREFIX, i);
+			assertEquals(sortedLines(expected.resolve(shard)), sortedLines(output.resolve(shard)), shard);
+		}
+	}
+
+	@Test
+	@DisplayName("the checkpoint of a different split isn't resumed")
+	public void differentCheckpoint() throws Exception {
+		Path corpus = corpus();
+		Path output = directory.resolve("output");
+		assertThrows(IOException.class,
+				() -> splitter(new CrashingParagraphService(50), CorpusFormat.JSONL).split(corpus, output, REQUEST));
+
+		assertThrows(IllegalStateException.class,
+				() -> splitter(ParagraphServiceFactory.create(), CorpusFormat.JSONL).split(corpus, output, SplitRequest.of("dolor", 40, 20)));
+		assertThrows(IllegalArgumentException.class,
+				() -> splitter(ParagraphServiceFactory.create(), CorpusFormat.JSONL).split(corpus, directory.resolve("other"), SplitRequest.of(null, 20, 40)));
+	}
+
+	private CorpusSplitter splitter(ParagraphService service, CorpusFormat format) {
+		return new CorpusSplitter(service, objectMapper, 2, 3, 5, 3, format, 7, 60_000);
+	}
+
+	private Path corpus() throws IOException {
+		String[] words = {"lorem", "ipsum", "dolor", "sit", "amet", "żółw", ".", ",", "\n", "\n\n"};
+		Random random = new Random(42);
+		Path corpus = directory.resolve("corpus");
+		for(int i = 0; i < FILES; i++) {
+			StringBuilder text = new StringBuilder();
+			for(int j = random.nextInt(300); j > 0; j--) {
+				text.append(words[random.nextInt(words.length)]).append(' ');
+			}
+			Path file = corpus.resolve("dir" + i % 4).resolve("sub" + i % 3).resolve("file" + i + ".txt");
+			Files.createDirectories(file.getParent());
+			Files.write(file, text.toString().getBytes(StandardCharsets.UTF_8));
+		}
+		return corpus;
+	}
+
+	// positions of the paragraphs by the paths of the files
+	private Map<String, String> read(Path output, CorpusFormat format) throws IOException {
+		Map<String, String> records = new HashMap<>();
+		List<Path> shards;
+		try(Stream<Path> files = Files.list(output)) {
+			shards = files.filter(file -> file.getFileName().toString().startsWith(CorpusSplitter.SHARD_PREFIX)).collect(Collectors.toList());
+		}
+		assertEquals(3, shards.size());
+		for(Path shard : shards) {
+			if(format == CorpusFormat.JSONL) {
+				for(String line : Files.readAllLines(shard)) {
+					Map<?, ?> record = objectMapper.readValue(line, Map.class);
+					Map<?, ?> offsets = (Map<?, ?>) record.get("offsets");
+					assertTrue(records.put((String) record.get("path"), offsets.get("start") + " " + offsets.get("length") + " " + offsets.get("contains")) == null);
+				}
+			} else {
+				try(DataInputStream input = new DataInputStream(Files.newInputStream(shard))) {
+					while(true) {
+						byte[] path;
+						try {
+							path = new byte[input.readInt()];
+						} catch(EOFException ex) {
+							break;
+						}
+						input.readFully(path);
+						byte[] varints = new byte[input.readInt()];
+						input.readFully(varints);
+						assertTrue(records.put(new String(path, StandardCharsets.UTF_8), toString(varints)) == null);
+					}
+				}
+			}
+		}
+		return records;
+	}
+
+	private static String toString(ParagraphOffsets offsets) {
+		List<Boolean> contains = new ArrayList<>();
+		for(boolean value : offsets.getContains()) {
+			contains.add(value);
+		}
+		return Arrays.toString(offsets.getStart()) + " " + Arrays.toString(offsets.getLength()) + " " + contains;
+	}
+
+	// the same format as toString(ParagraphOffsets) decoded from the varints
+	private static String toString(byte[] varints) {
+		int[] position = {0};
+		int size = (int) readVarint(varints, position);
+		long[] start = new long[size];
+		int[] length = new int[size];
+		boolean[] contains = new boolean[size];
+		long previous = 0;
+		for(int i = 0; i < size; i++) {
+			start[i] = previous + readVarint(varints, position);
+			long value = readVarint(varints, position);
+			length[i] = (int) (value >>> 1);
+			contains[i] = (value & 1) != 0;
+			previous = start[i];
+		}
+		assertEquals(varints.length, position[0]);
+		return toString(new ParagraphOffsets(start, length, contains));
+	}
+
+	private static long readVarint(byte[] bytes, int[] position) {
+		long value = 0;
+		for(int shift = 0; ; shift += 7) {
+			byte b = bytes[position[0]++];
+			value |= (long) (b & 0x7F) << shift;
+			if(b >= 0) {
+				return value;
+			}
+		}
+	}
+
+	private static List<String> sortedLines(Path file) throws IOException {
+		List<String> lines = new ArrayList<>(Files.readAllLines(file));
+		Collections.sort(lines);
+		return lines;
+	}
+
+	/**
+	 * Crashes the split after the given number of files.
+	 */
+	private static class CrashingParagraphService extends ParagraphService {
+		private int remaining;
+
+		CrashingParagraphService(int files) {
+			super(ParagraphServiceFactory.metrics(), ParagraphServiceFactory.noCache(), ParagraphServiceFactory.defaultRuleChains());
+			// and the validation of the options
+			this.remaining = files + 1;
+		}
+
+		@Override
+		public ParagraphOffsets splitAndSearchOffsets(byte[] text, SplitRequest request) {
+			synchronized(this) {
+				if(remaining-- <= 0) {
+					throw new Error("crash");
+				}
+			}
+			return super.splitAndSearchOffsets(text, request);
+		}
+	}
+}
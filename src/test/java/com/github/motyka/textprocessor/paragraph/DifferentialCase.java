@@ -0,0 +1,165 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * Input of one comparison of an engine with {@link ReferenceSplitter}, it can be shrunk to a minimal input which still fails.
+ */
+public final class DifferentialCase {
+
+	private final String text;
+	private final String searchTerm;
+	private final int mainLimit;
+	private final int secondaryLimit;
+
+	public DifferentialCase(String text, String searchTerm, int mainLimit, int secondaryLimit) {
+		this.text = text;
+		this.searchTerm = searchTerm;
+		this.mainLimit = mainLimit;
+		this.secondaryLimit = secondaryLimit;
+	}
+
+	public String getText() {
+		return text;
+	}
+
+	public String getSearchTerm() {
+		return searchTerm;
+	}
+
+	public int getMainLimit() {
+		return mainLimit;
+	}
+
+	public int getSecondaryLimit() {
+		return secondaryLimit;
+	}
+
+	/**
+	 * Removes the parts of the text, replaces its characters by simpler ones and lowers the limits
+	 * as long as the case still fails.
+	 * @param failing true if the case still fails
+	 * @return the smallest failing case found
+	 */
+	public DifferentialCase shrink(Predicate<DifferentialCase> failing) {
+		DifferentialCase current = this;
+		boolean changed = true;
+		while(changed) {
+			DifferentialCase shrunk = current.removeParts(failing);
+			shrunk = shrunk.simplifyCharacters(failing);
+			shrunk = shrunk.lowerLimits(failing);
+			changed = !shrunk.equals(current);
+			current = shrunk;
+		}
+		return current;
+	}
+
+	// delta debugging: the chunks of the text are removed, from the halves to the single characters
+	private DifferentialCase removeParts(Predicate<DifferentialCase> failing) {
+		DifferentialCase current = this;
+		for(int chunk = Math.max(1, text.length() / 2); chunk >= 1; chunk /= 2) {
+			for(int i = 0; i + chunk <= current.text.length(); ) {
+				DifferentialCase candidate = current.withText(current.text.substring(0, i) + current.text.substring(i + chunk));
+				if(failing.test(candidate)) {
+					current = candidate;
+				} else {
+					i += chunk;
+				}
+			}
+		}
+		return current;
+	}
+
+	private DifferentialCase simplifyCharacters(Predicate<DifferentialCase> failing) {
+		DifferentialCase current = this;
+		for(int i = 0; i < current.text.length(); i++) {
+			for(char simpler : new char[]{'a', ' ', '.'}) {
+				if(current.text.charAt(i) == simpler) {
+					break;
+				}
+				StringBuilder text = new StringBuilder(current.text);
+				text.setCharAt(i, simpler);
+				DifferentialCase candidate = current.withText(text.toString());
+				if(failing.test(candidate)) {
+					current = candidate;
+					break;
+				}
+			}
+		}
+		return current;
+	}
+
+	private DifferentialCase lowerLimits(Predicate<DifferentialCase> failing) {
+		DifferentialCase current = this;
+		while(current.mainLimit > 1) {
+			DifferentialCase candidate = new DifferentialCase(current.text, current.searchTerm, current.mainLimit - 1,
+					Math.min(current.secondaryLimit, current.mainLimit - 1));
+			if(!failing.test(candidate)) {
+				break;
+			}
+			current = candidate;
+		}
+		while(current.secondaryLimit > 1) {
+			DifferentialCase candidate = new DifferentialCase(current.text, current.searchTerm, current.mainLimit, current.secondaryLimit - 1);
+			if(!failing.test(candidate)) {
+				break;
+			}
+			current = candidate;
+		}
+		return current;
+	}
+
+	private DifferentialCase withText(String text) {
+		return new DifferentialCase(text, searchTerm, mainLimit, secondaryLimit);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if(this == o) {
+			return true;
+		}
+		if(!(o instanceof DifferentialCase)) {
+			return false;
+		}
+		DifferentialCase other = (DifferentialCase) o;
+		return mainLimit == other.mainLimit && secondaryLimit == other.secondaryLimit && text.equals(other.text)
+				&& Objects.equals(searchTerm, other.searchTerm);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(text, searchTerm, mainLimit, secondaryLimit);
+	}
+
+	/**
+	 * @return the case as a Java call which can be pasted into a test
+	 */
+	@Override
+	public String toString() {
+		return "splitAndSearch(" + literal(text) + ", " + literal(searchTerm) + ", " + mainLimit + ", " + secondaryLimit + ")";
+	}
+
+	private static String literal(String value) {
+		if(value == null) {
+			return "null";
+		}
+		StringBuilder literal = new StringBuilder("\"");
+		for(char ch : value.toCharArray()) {
+			if(ch == '"' || ch == '\\') {
+				literal.append('\\').append(ch);
+			} else if(ch == '\n') {
+				literal.append("\\n");
+			} else if(ch == '\r') {
+				literal.append("\\r");
+			} else if(ch == '\t') {
+				literal.append("\\t");
+			} else if(ch < ' ' || ch > '~') {
+				literal.append(String.format("\\u%04X", (int) ch));
+			} else {
+				literal.append(ch);
+			}
+		}
+		return literal.append('"').toString();
+	}
+}
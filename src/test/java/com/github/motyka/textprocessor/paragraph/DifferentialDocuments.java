@@ -0,0 +1,162 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Random and adversarial documents for the comparison of the engines with {@link ReferenceSplitter}. They are made of
+ * the fragments which hit the edge cases of the rules: punctuation kept before a paragraph, whitespaces trimmed at its end
+ * (also the Unicode ones, but not the non-breaking space), new lines with only non-alphanumeric characters between them,
+ * CRLF, the letters outside of ASCII which aren't alphanumeric for the rules and very long runs without any separator.
+ * Some documents end with over a thousand characters mostly outside of ASCII and a supplementary character, which fill
+ * the buffers of the streams and split the surrogate pairs at their ends.
+ */
+public final class DifferentialDocuments {
+
+	private static final String PUNCTUATION = "!\"#$%&'()*+,-./:;<=>?@[\\]^_`{|}~";
+	private static final String[] WORDS = {"lorem", "ipsum", "dolor", "a", "1", "2020", "x9"};
+	// not alphanumeric for the rules: accented and CJK letters, a combining mark, a surrogate pair
+	private static final String[] UNICODE_WORDS = {"\u017C\u00F3\u0142w", "\u65E5\u672C\u8A9E", "e\u0301", "\uD83D\uDE00", "\u00E9"};
+	// Character.isWhitespace: the tab, vertical tab, separators, U+2028, U+3000, but not U+00A0 and U+0085
+	private static final String[] SPACES = {" ", "  ", "\t", "\u000B", "\u001C", "\u00A0", "\u0085", "\u2028", "\u2029", "\u3000", "\f"};
+	private static final String[] NEW_LINES = {"\n", "\r\n", "\r", "\n\n", "\r\n\r\n", "\n\r\n", "\n \n", "\n\t.,\n", "\n\u00E9\n", "\n a\n", "\n\u2028\n", "\n\u00A0\n",
+			"\n.\n\n", "\n\n\n"};
+	private static final String[] SUPPLEMENTARY = {"\uD83D\uDE00", "\uD840\uDC00", "\uD835\uDC00"};
+	private static final String[] SEARCH_TERMS = {null, "", "ipsum", "a", ".", "\n", "\u00E9", "ipsum dolor", "1."};
+
+	private DifferentialDocuments() {
+	}
+
+	/**
+	 * @param random
+	 * @return a document of at most a few thousand characters
+	 */
+	public static String document(Random random) {
+		StringBuilder document = new StringBuilder();
+		if(random.nextInt(10) == 0) {
+			// a run without separators, split into chunks or at the few separators after it
+			appendRun(document, random);
+		}
+		for(int i = 0, fragments = random.nextInt(60); i < fragments; i++) {
+			appendFragment(document, random);
+		}
+		if(random.nextInt(10) == 0) {
+			appendUnicodeText(document, random);
+		}
+		return document.toString();
+	}
+
+	private static void appendFragment(StringBuilder document, Random random) {
+		switch(random.nextInt(10)) {
+			case 0:
+				document.append(UNICODE_WORDS[random.nextInt(UNICODE_WORDS.length)]);
+				break;
+			case 1:
+			case 2:
+				for(int i = 0, length = 1 + random.nextInt(4); i < length; i++) {
+					document.append(PUNCTUATION.charAt(random.nextInt(PUNCTUATION.length())));
+				}
+				break;
+			case 3:
+				document.append(SPACES[random.nextInt(SPACES.length)]);
+				break;
+			case 4:
+				document.append(NEW_LINES[random.nextInt(NEW_LINES.length)]);
+				break;
+			case 5:
+				document.append(random.nextBoolean() ? ". " : "...");
+				break;
+			case 6:
+				if(random.nextInt(5) == 0) {
+					appendRun(document, random);
+					break;
+				}
+				// a word otherwise
+			default:
+				document.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+		}
+	}
+
+	private static void appendUnicodeText(StringBuilder document, Random random) {
+		for(int end = document.length() + 1024 + random.nextInt(1024); document.length() < end; ) {
+			switch(random.nextInt(8)) {
+				case 0:
+					document.append(SPACES[random.nextInt(SPACES.length)]);
+					break;
+				case 1:
+					document.append(NEW_LINES[random.nextInt(NEW_LINES.length)]);
+					break;
+				case 2:
+					document.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+					break;
+				case 3:
+					document.append(SUPPLEMENTARY[random.nextInt(SUPPLEMENTARY.length)]);
+					break;
+				default:
+					document.append(UNICODE_WORDS[random.nextInt(UNICODE_WORDS.length)]).append(random.nextBoolean() ? " " : ", ");
+			}
+		}
+		document.append(SUPPLEMENTARY[random.nextInt(SUPPLEMENTARY.length)]);
+	}
+
+	private static void appendRun(StringBuilder document, Random random) {
+		String[] runs = {"a", "7", "\u00E9", "-", " "};
+		document.append(runs[random.nextInt(runs.length)].repeat(50 + random.nextInt(500)));
+	}
+
+	/**
+	 * @param random
+	 * @param length of the text
+	 * @return the main and the secondary limit, often the same or 1 or longer than the text
+	 */
+	public static int[] limits(Random random, int length) {
+		int mainLimit;
+		switch(random.nextInt(5)) {
+			case 0:
+				mainLimit = 1 + random.nextInt(3);
+				break;
+			case 1:
+				mainLimit = 1 + random.nextInt(length + 5);
+				break;
+			case 2:
+				mainLimit = 1200;
+				break;
+			default:
+				mainLimit = 1 + random.nextInt(40);
+		}
+		int secondaryLimit;
+		switch(random.nextInt(5)) {
+			case 0:
+			case 1:
+				secondaryLimit = mainLimit;
+				break;
+			case 2:
+				secondaryLimit = 1;
+				break;
+			default:
+				secondaryLimit = 1 + random.nextInt(mainLimit);
+		}
+		return new int[]{mainLimit, secondaryLimit};
+	}
+
+	public static DifferentialCase randomCase(Random random) {
+		String text = document(random);
+		int[] limits = limits(random, text.length());
+		return new DifferentialCase(text, SEARCH_TERMS[random.nextInt(SEARCH_TERMS.length)], limits[0], limits[1]);
+	}
+
+	/**
+	 * @param seed
+	 * @param size number of the cases
+	 * @return the same cases for the same seed
+	 */
+	public static List<DifferentialCase> corpus(long seed, int size) {
+		Random random = new Random(seed);
+		List<DifferentialCase> corpus = new ArrayList<>(size);
+		for(int i = 0; i < size; i++) {
+			corpus.add(randomCase(random));
+		}
+		return corpus;
+	}
+}
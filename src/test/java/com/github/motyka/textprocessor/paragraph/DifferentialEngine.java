@@ -0,0 +1,231 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Every way {@link ParagraphService} splits a text, compared with {@link ReferenceSplitter} by {@link DifferentialTest}
+ * and measured by the EngineComparisonBenchmark. A new engine has to be added here before it is used by the service.
+ */
+public enum DifferentialEngine {
+	REFERENCE {
+		@Override
+		public List<Paragraph> split(DifferentialCase input) {
+			return ReferenceSplitter.splitAndSearch(input.getText(), input.getSearchTerm(), input.getMainLimit(), input.getSecondaryLimit());
+		}
+	},
+	REGEX {
+		@Override
+		public List<Paragraph> split(DifferentialCase input) {
+			return Services.DEFAULT.splitAndSearch(input.getText(), request(input, SplittingStrategy.REGEX));
+		}
+	},
+	SCANNING {
+		@Override
+		public List<Paragraph> split(DifferentialCase input) {
+			return Services.DEFAULT.splitAndSearch(input.getText(), request(input, SplittingStrategy.SCANNING));
+		}
+	},
+	/**
+	 * The text is split in segments of a few characters.
+	 */
+	PARALLEL {
+		@Override
+		public List<Paragraph> split(DifferentialCase input) {
+			return Services.PARALLEL.splitAndSearch(input.getText(), request(input, SplittingStrategy.SCANNING));
+		}
+	},
+	/**
+	 * The text is read with the smallest buffer.
+	 */
+	STREAMING {
+		@Override
+		public List<Paragraph> split(DifferentialCase input) {
+			List<Paragraph> paragraphs = new ArrayList<>();
+			try {
+				Services.STREAMING.splitAndSearch(new StringReader(input.getText()), request(input, null), paragraphs::add);
+			} catch(IOException ex) {
+				throw new UncheckedIOException(ex);
+			}
+			return paragraphs;
+		}
+	},
+	/**
+	 * The text is pushed to the stream in chunks of a few characters, which can split the surrogate pairs.
+	 */
+	PUSHED {
+		@Override
+		public List<Paragraph> split(DifferentialCase input) {
+			List<Paragraph> paragraphs = new ArrayList<>();
+			ParagraphStream stream = Services.STREAMING.openStream(request(input, null), paragraphs::add);
+			char[] chars = input.getText().toCharArray();
+			int chunkSize = 1 + chars.length % 7;
+			for(int i = 0; i < chars.length; i += chunkSize) {
+				stream.feed(chars, i, Math.min(chunkSize, chars.length - i));
+			}
+			stream.finish();
+			return paragraphs;
+		}
+	},
+	/**
+	 * The text is written to a file in UTF-8 and streamed from its mappings of a few bytes, like the corpus files.
+	 */
+	MAPPED {
+		@Override
+		public List<Paragraph> split(DifferentialCase input) {
+			List<Paragraph> paragraphs = new ArrayList<>();
+			try {
+				Path file = Files.createTempFile("differential", ".txt");
+				try {
+					Files.writeString(file, input.getText(), StandardCharsets.UTF_8);
+					try(Reader reader = new MappedFileReader(file, 4 + input.getText().length() % 5)) {
+						Services.STREAMING.splitAndSearch(reader, request(input, null), paragraphs::add);
+					}
+				} finally {
+					Files.delete(file);
+				}
+			} catch(IOException ex) {
+				throw new UncheckedIOException(ex);
+			}
+			return paragraphs;
+		}
+
+		@Override
+		public boolean supports(String text) {
+			// a lone surrogate can't be encoded
+			return StandardCharsets.UTF_8.newEncoder().canEncode(text);
+		}
+	},
+	/**
+	 * A text with two other parts is stored and edited into the text by two edits of one batch, the paragraphs
+	 * of the stored text are changed as a client applies the returned changes.
+	 */
+	EDITS {
+		@Override
+		public List<Paragraph> split(DifferentialCase input) {
+			String text = input.getText();
+			int length = text.length();
+			int head = length / 4;
+			int middle = length / 2;
+			int tail = length * 3 / 4;
+			String headFiller = "lorem\n\n";
+			String tailFiller = " x.";
+			String stored = text.substring(0, head) + headFiller + text.substring(middle, tail) + tailFiller;
+
+			ParagraphOffsets offsets = Services.DEFAULT.splitAndSearchOffsets(stored, request(input, SplittingStrategy.SCANNING));
+			List<Paragraph> paragraphs = toParagraphs(stored, offsets);
+			int[] starts = new int[offsets.size()];
+			for(int i = 0; i < starts.length; i++) {
+				starts[i] = (int) offsets.getStart()[i];
+			}
+			StoredDocument document = new StoredDocument("differential", 1, stored, input.getMainLimit(), input.getSecondaryLimit(), starts,
+					offsets.getLength(), null);
+
+			TextEdit headEdit = new TextEdit(head, headFiller.length(), text.substring(head, middle));
+			// the tail is edited first every other time, so the gap buffers move both ways
+			List<TextEdit> edits = length % 2 == 0
+					? Arrays.asList(headEdit, new TextEdit(tail, tailFiller.length(), text.substring(tail)))
+					: Arrays.asList(new TextEdit(head + headFiller.length() + tail - middle, tailFiller.length(), text.substring(tail)), headEdit);
+			List<ParagraphChange> changes = new ArrayList<>();
+			document.edit(edits, input.getSearchTerm(), changes);
+
+			for(ParagraphChange change : changes) {
+				List<Paragraph> after = paragraphs.subList(change.getIndex() + change.getRemoved(), paragraphs.size());
+				after.replaceAll(paragraph -> new Paragraph(paragraph.getText(), paragraph.getStart() + change.getShift(), paragraph.getLength(),
+						paragraph.isContains()));
+				List<Paragraph> changed = paragraphs.subList(change.getIndex(), change.getIndex() + change.getRemoved());
+				changed.clear();
+				changed.addAll(change.getParagraphs());
+			}
+			return paragraphs;
+		}
+	},
+	/**
+	 * The text is split in pages of two paragraphs continued by the cursor.
+	 */
+	PAGES {
+		@Override
+		public List<Paragraph> split(DifferentialCase input) {
+			List<Paragraph> paragraphs = new ArrayList<>();
+			String cursor = null;
+			do {
+				ParagraphPage page = Services.DEFAULT.page(input.getText(), request(input, null), 0, 2, false, cursor);
+				paragraphs.addAll(page.getParagraphs());
+				cursor = page.getNext();
+			} while(cursor != null);
+			return paragraphs;
+		}
+	},
+	OFFSETS {
+		@Override
+		public List<Paragraph> split(DifferentialCase input) {
+			return toParagraphs(input.getText(), Services.DEFAULT.splitAndSearchOffsets(input.getText(), request(input, SplittingStrategy.SCANNING)));
+		}
+	},
+	/**
+	 * The text is split as UTF-8 bytes, the positions are in characters.
+	 */
+	UTF8 {
+		@Override
+		public List<Paragraph> split(DifferentialCase input) {
+			byte[] bytes = input.getText().getBytes(StandardCharsets.UTF_8);
+			return toParagraphs(input.getText(), Services.DEFAULT.splitAndSearchOffsets(bytes, request(input, SplittingStrategy.SCANNING)));
+		}
+
+		@Override
+		public boolean supports(String text) {
+			// a lone surrogate can't be encoded
+			return StandardCharsets.UTF_8.newEncoder().canEncode(text);
+		}
+	};
+
+	public abstract List<Paragraph> split(DifferentialCase input);
+
+	/**
+	 * @param text
+	 * @return false if the engine can't split the text by design, it isn't compared with the reference then
+	 */
+	public boolean supports(String text) {
+		return true;
+	}
+
+	private static SplitRequest request(DifferentialCase input, SplittingStrategy strategy) {
+		return SplitRequest.builder().searchTerm(input.getSearchTerm()).mainLimit(input.getMainLimit()).secondaryLimit(input.getSecondaryLimit())
+				.strategy(strategy).build();
+	}
+
+	private static List<Paragraph> toParagraphs(String text, ParagraphOffsets offsets) {
+		List<Paragraph> paragraphs = new ArrayList<>(offsets.size());
+		for(int i = 0; i < offsets.size(); i++) {
+			int start = (int) offsets.getStart()[i];
+			int length = offsets.getLength()[i];
+			paragraphs.add(new Paragraph(text.substring(start, start + length), start, length, offsets.getContains()[i]));
+		}
+		return paragraphs;
+	}
+
+	/**
+	 * The services are created once, so their caches and thread pools are shared by the splits.
+	 */
+	private static final class Services {
+		private static final ParagraphService DEFAULT = ParagraphServiceFactory.create();
+		private static final ParagraphService PARALLEL = ParagraphServiceFactory.create();
+		private static final ParagraphService STREAMING = ParagraphServiceFactory.create();
+
+		static {
+			ReflectionTestUtils.setField(PARALLEL, "parallelThreshold", 0);
+			ReflectionTestUtils.setField(PARALLEL, "parallelSegmentSize", 8);
+			ReflectionTestUtils.setField(STREAMING, "streamingBufferSize", 1);
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Compares every {@link DifferentialEngine} with {@link ReferenceSplitter}. A longer run can be started with
+ * -Ddifferential.cases=1000000 -Ddifferential.seed=..., a failure is reported with the shrunk case as a Java call.
+ */
+public class DifferentialTest {
+
+	private static final long SEED = Long.getLong("differential.seed", 42);
+	private static final int CASES = Integer.getInteger("differential.cases", 3000);
+
+	private static final String[] ADVERSARIAL = {
+			"",
+			" \t\n ",
+			"?!.word",
+			"word.  　",
+			"a\n.,\nb",
+			"a\n b\nc",
+			"a\né\nb",
+			"a\r\n\r\nb\r\nc",
+			"ééé. 日本. é😀",
+			"a".repeat(5000),
+			"é".repeat(3000) + ". end",
+			"...,,,!!!???".repeat(100),
+			"word ".repeat(1000),
+			"x\n".repeat(1000),
+			"\u00E9\u65E5 ".repeat(400) + "\uD83D\uDE00",
+			"word \uD83D\uDE00".repeat(200)
+	};
+
+	private static final int[][] LIMITS = {{1, 1}, {2, 2}, {3, 1}, {7, 7}, {12, 8}, {40, 40}, {1200, 800}, {1200, 1200}};
+
+	@Test
+	@DisplayName("every engine gives the reference paragraphs for random documents")
+	public void randomDocuments() {
+		Random random = new Random(SEED);
+		for(int i = 0; i < CASES; i++) {
+			assertSameAsReference(DifferentialDocuments.randomCase(random));
+		}
+	}
+
+	@Test
+	@DisplayName("every engine gives the reference paragraphs for adversarial documents")
+	public void adversarialDocuments() {
+		for(String text : ADVERSARIAL) {
+			for(int[] limits : LIMITS) {
+				assertSameAsReference(new DifferentialCase(text, "a", limits[0], limits[1]));
+			}
+		}
+	}
+
+	@Test
+	@DisplayName("failing case shrunk to a minimal reproducer")
+	public void shrink() {
+		// a broken engine which ends the paragraphs after a question mark one character earlier
+		DifferentialEngine engine = DifferentialEngine.SCANNING;
+		Random random = new Random(SEED);
+		DifferentialCase failing = null;
+		while(failing == null) {
+			DifferentialCase input = DifferentialDocuments.randomCase(random);
+			if(input.getText().length() > 100 && isBroken(engine, input)) {
+				failing = input;
+			}
+		}
+
+		DifferentialCase shrunk = failing.shrink(input -> isBroken(engine, input));
+
+		assertTrue(isBroken(engine, shrunk));
+		// the question mark is cut off the text by mainLimit
+		assertEquals("?a", shrunk.getText());
+		assertEquals(1, shrunk.getMainLimit());
+	}
+
+	private static boolean isBroken(DifferentialEngine engine, DifferentialCase input) {
+		List<Paragraph> paragraphs = engine.split(input);
+		for(int i = 0; i < paragraphs.size(); i++) {
+			Paragraph paragraph = paragraphs.get(i);
+			if(paragraph.getText().endsWith("?")) {
+				paragraphs.set(i, new Paragraph(paragraph.getText().substring(0, paragraph.getLength() - 1), paragraph.getStart(), paragraph.getLength() - 1,
+						paragraph.isContains()));
+			}
+		}
+		return !paragraphs.equals(DifferentialEngine.REFERENCE.split(input));
+	}
+
+	private static void assertSameAsReference(DifferentialCase input) {
+		List<Paragraph> expected = DifferentialEngine.REFERENCE.split(input);
+		for(DifferentialEngine engine : DifferentialEngine.values()) {
+			if(engine != DifferentialEngine.REFERENCE && engine.supports(input.getText()) && differs(engine, expected, input)) {
+				DifferentialCase shrunk = input.shrink(candidate -> engine.supports(candidate.getText())
+						&& differs(engine, DifferentialEngine.REFERENCE.split(candidate), candidate));
+				fail(engine + " differs from the reference for " + shrunk + "\nexpected: " + DifferentialEngine.REFERENCE.split(shrunk)
+						+ "\nactual:   " + split(engine, shrunk));
+			}
+		}
+	}
+
+	private static boolean differs(DifferentialEngine engine, List<Paragraph> expected, DifferentialCase input) {
+		try {
+			return !expected.equals(engine.split(input));
+		} catch(RuntimeException ex) {
+			return true;
+		}
+	}
+
+	private static String split(DifferentialEngine engine, DifferentialCase input) {
+		try {
+			return Objects.toString(engine.split(input));
+		} catch(RuntimeException ex) {
+			return ex.toString();
+		}
+	}
+}
@@ -0,0 +1,146 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import com.github.motyka.textprocessor.utils.ResourceUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DocumentStoreTest {
+
+	private final ParagraphService service = ParagraphServiceFactory.create();
+
+	@TempDir
+	Path directory;
+
+	@Test
+	@DisplayName("the same paragraphs as splitting and searching the text")
+	public void search() throws IOException {
+		String text = ResourceUtils.readResource("big_test.txt");
+		DocumentStore store = new DocumentStore(service, 1 << 24, "", new SimpleMeterRegistry());
+
+		DocumentInfo info = store.store("big", text, 200, 100, SplittingStrategy.SCANNING);
+
+		SplitRequest request = SplitRequest.builder().mainLimit(200).secondaryLimit(100).strategy(SplittingStrategy.SCANNING).build();
+		List<Paragraph> paragraphs = service.splitAndSearch(text, request);
+		assertEquals(new DocumentInfo("big", 1, text.length(), paragraphs.size(), 200, 100, info.getWeight()), info);
+		// longer and shorter than the trigrams
+		for(String term : new String[]{"ipsum", "dolor sit", "Lorem ipsum dolor", "a", "missing"}) {
+			List<Paragraph> expected = service.splitAndSearch(text, request.toBuilder().searchTerm(term).build()).stream()
+					.filter(Paragraph::isContains)
+					.collect(Collectors.toList());
+			assertEquals(expected, store.search("big", term), term);
+		}
+	}
+
+	@Test
+	@DisplayName("documents read from the directory after a restart")
+	public void persistence() throws IOException {
+		String text = ResourceUtils.readResource("separators.txt");
+		DocumentStore store = new DocumentStore(service, 1 << 24, directory.toString(), new SimpleMeterRegistry());
+		store.store("separators.txt", text, 20, 10, null);
+		List<Paragraph> expected = store.search("separators.txt", "separated");
+
+		DocumentStore restarted = new DocumentStore(service, 1 << 24, directory.toString(), new SimpleMeterRegistry());
+
+		assertEquals(expected, restarted.search("separators.txt", "separated"));
+		assertEquals(store.info("separators.txt"), restarted.info("separators.txt"));
+
+		restarted.delete("separators.txt");
+		assertThrows(DocumentNotFoundException.class, () -> restarted.delete("separators.txt"));
+		assertThrows(DocumentNotFoundException.class, () -> new DocumentStore(service, 1 << 24, directory.toString(), new SimpleMeterRegistry())
+				.search("separators.txt", "separated"));
+	}
+
+	@Test
+	@DisplayName("edited document has the same paragraphs as the document stored with the edited text")
+	public void edit() throws IOException {
+		String text = ResourceUtils.readResource("big_test.txt");
+		DocumentStore store = new DocumentStore(service, 1 << 24, directory.toString(), new SimpleMeterRegistry());
+		store.store("big", text, 200, 100, SplittingStrategy.SCANNING);
+		List<TextEdit> edits = Arrays.asList(new TextEdit(10, 5, "edited\n\nipsum"), new TextEdit(1500, 0, " inserted sentence."),
+				new TextEdit(text.length() - 20, 20, null));
+		StringBuilder edited = new StringBuilder(text);
+		edits.forEach(edit -> edited.replace(edit.getOffset(), edit.getOffset() + edit.getDeleted(), Objects.toString(edit.getInserted(), "")));
+
+		DocumentDiff diff = store.edit("big", 1, edits, "inserted");
+		DocumentInfo expected = store.store("expected", edited.toString(), 200, 100, SplittingStrategy.SCANNING);
+
+		assertEquals(2, diff.getVersion());
+		assertEquals(3, diff.getChanges().size());
+		assertEquals(-5 + "edited\n\nipsum".length(), diff.getChanges().get(0).getShift());
+		for(ParagraphChange change : diff.getChanges()) {
+			for(Paragraph paragraph : change.getParagraphs()) {
+				assertEquals(paragraph.getText().contains("inserted"), paragraph.isContains(), paragraph.getText());
+			}
+		}
+		assertTrue(diff.getChanges().get(1).getParagraphs().stream().anyMatch(Paragraph::isContains));
+		for(String term : new String[]{"ipsum", "inserted", "edited"}) {
+			assertEquals(store.search("expected", term), store.search("big", term), term);
+		}
+		// the removed paragraphs are in the index until its segments are merged
+		assertEquals(new DocumentInfo("big", 2, expected.getLength(), expected.getParagraphs(), 200, 100, store.info("big").getWeight()), store.info("big"));
+		assertThrows(DocumentVersionException.class, () -> store.edit("big", 1, edits, null));
+		assertThrows(IllegalArgumentException.class, () -> store.edit("big", 2, Collections.singletonList(new TextEdit(edited.length(), 1, "x")), null));
+		assertEquals(store.search("expected", "ipsum"),
+				new DocumentStore(service, 1 << 24, directory.toString(), new SimpleMeterRegistry()).search("big", "ipsum"));
+	}
+
+	@Test
+	@DisplayName("edits appended to the log are replayed after a restart, the document is written again with a long log")
+	public void editLog() throws IOException {
+		String text = ResourceUtils.readResource("separators.txt");
+		DocumentStore store = new DocumentStore(service, 1 << 24, directory.toString(), new SimpleMeterRegistry());
+		store.store("separators", text, 20, 10, SplittingStrategy.SCANNING);
+		StringBuilder edited = new StringBuilder(text);
+		Random random = new Random(42);
+
+		for(int version = 1; version <= 200; version++) {
+			int offset = random.nextInt(edited.length());
+			String inserted = random.nextBoolean() ? "x" : "\n\nseparated ";
+			edited.replace(offset, offset + 1, inserted);
+			store.edit("separators", version, Collections.singletonList(new TextEdit(offset, 1, inserted)), null);
+
+			if(version % 50 == 0) {
+				DocumentStore restarted = new DocumentStore(service, 1 << 24, directory.toString(), new SimpleMeterRegistry());
+				store.store("expected", edited.toString(), 20, 10, SplittingStrategy.SCANNING);
+				assertEquals(version + 1, restarted.info("separators").getVersion());
+				assertEquals(store.search("expected", "separated"), restarted.search("separators", "separated"));
+				assertEquals(store.search("expected", "x"), store.search("separators", "x"));
+			}
+		}
+		// the longer log was written into the document
+		Path log = directory.resolve("separators.log");
+		assertTrue(!Files.exists(log) || Files.size(log) <= edited.length());
+	}
+
+	@Test
+	@DisplayName("invalid documents")
+	public void invalid() throws IOException {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		ParagraphService counted = new ParagraphService(new ParagraphMetrics(registry), ParagraphServiceFactory.noCache(), ParagraphServiceFactory.defaultRuleChains());
+		DocumentStore store = new DocumentStore(counted, 1000, "", new SimpleMeterRegistry());
+
+		assertThrows(IllegalArgumentException.class, () -> store.store("../text", "text", 1200, 800, null));
+		assertThrows(IllegalArgumentException.class, () -> store.store("big", ResourceUtils.readResource("big_test.txt"), 1200, 800, null));
+		// the text longer than the limit isn't split
+		assertTrue(registry.find("paragraph.split").timers().isEmpty());
+		assertThrows(NullPointerException.class, () -> store.store("null", null, 1200, 800, null));
+		assertThrows(DocumentNotFoundException.class, () -> store.search("missing", "text"));
+		assertThrows(IllegalArgumentException.class, () -> store.search("missing", ""));
+	}
+}
@@ -0,0 +1,115 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class IncrementalSplitterTest {
+
+	private static final String[] WORDS = {"word", "a", "1", " ", " ", "\n", "\n\n", "\n \n", ".", ". ", "?", "! ", ",", "...", "\t"};
+
+	private final ScanningSplittingEngine engine = new ScanningSplittingEngine();
+
+	@Test
+	@DisplayName("same paragraphs as splitting the whole edited text")
+	public void sameAsWholeSplit() {
+		Random random = new Random(42);
+		for(int i = 0; i < 5000; i++) {
+			Rope text = Rope.of(randomText(random, 80));
+			int mainLimit = 1 + random.nextInt(30);
+			int secondaryLimit = 1 + random.nextInt(mainLimit);
+			IncrementalSplitter splitter = new IncrementalSplitter(engine, mainLimit, secondaryLimit);
+			EditedParagraphs paragraphs = paragraphs(text, mainLimit, secondaryLimit);
+
+			for(int j = 0; j < 5; j++) {
+				String before = text.toString();
+				int offset = random.nextInt(text.length() + 1);
+				int deleted = random.nextInt(Math.min(10, text.length() - offset) + 1);
+				String inserted = randomText(random, 3);
+				int oldEnd = ScanningSplittingEngine.trimEnd(text, 0, text.length());
+				text = text.replace(offset, deleted, inserted);
+
+				paragraphs.apply(splitter.split(text, oldEnd, paragraphs, offset, deleted, inserted.length()));
+
+				String message = "'" + before + "' -> '" + text + "', limits: " + mainLimit + " - " + secondaryLimit;
+				assertEquals(toString(paragraphs(text, mainLimit, secondaryLimit)), toString(paragraphs), message);
+			}
+		}
+	}
+
+	@Test
+	@DisplayName("only the paragraphs around the edit are split again")
+	public void local() {
+		StringBuilder text = new StringBuilder();
+		for(int i = 0; i < 1000; i++) {
+			text.append("Paragraph number ").append(i).append(" has a few words. And another sentence.\n\n");
+		}
+		int offset = text.indexOf("number 500");
+
+		IncrementalSplitter.Change change = edit(text, offset, "number".length(), "no.", 40, 20);
+
+		assertTrue(change.removed <= 3, "removed: " + change.removed);
+		assertEquals(-3, change.shift);
+		// the paragraph before the edit can be split again, it reads *mainLimit* + 1 characters
+		assertTrue(change.starts[0] >= offset - "Paragraph ".length() - 2 * 40, "restarted at: " + change.starts[0]);
+	}
+
+	@Test
+	@DisplayName("only the paragraphs around the edit are split again without double new lines")
+	public void localWithoutDoubleNewLines() {
+		StringBuilder text = new StringBuilder();
+		for(int i = 0; i < 1000; i++) {
+			text.append("Line number ").append(i).append(" has a few words, and a comma.\n");
+		}
+		int offset = text.indexOf("number 500");
+
+		IncrementalSplitter.Change change = edit(text, offset, "number".length(), "no.", 40, 20);
+
+		assertTrue(change.removed <= 4, "removed: " + change.removed);
+		assertTrue(change.starts[0] > offset - 3 * 40, "restarted at: " + change.starts[0]);
+	}
+
+	// edits the text and checks the change against the split of the whole edited text
+	private IncrementalSplitter.Change edit(StringBuilder text, int offset, int deleted, String inserted, int mainLimit, int secondaryLimit) {
+		Rope edited = Rope.of(text.toString());
+		EditedParagraphs paragraphs = paragraphs(edited, mainLimit, secondaryLimit);
+		int oldEnd = ScanningSplittingEngine.trimEnd(edited, 0, edited.length());
+		edited = edited.replace(offset, deleted, inserted);
+
+		IncrementalSplitter.Change change = new IncrementalSplitter(engine, mainLimit, secondaryLimit).split(edited, oldEnd, paragraphs, offset, deleted,
+				inserted.length());
+		paragraphs.apply(change);
+
+		assertEquals(toString(paragraphs(edited, mainLimit, secondaryLimit)), toString(paragraphs));
+		return change;
+	}
+
+	private EditedParagraphs paragraphs(CharSequence text, int mainLimit, int secondaryLimit) {
+		List<int[]> paragraphs = new ArrayList<>();
+		engine.split(text, mainLimit, secondaryLimit, (start, length) -> paragraphs.add(new int[]{start, length}));
+		return new EditedParagraphs(paragraphs.stream().mapToInt(paragraph -> paragraph[0]).toArray(),
+				paragraphs.stream().mapToInt(paragraph -> paragraph[1]).toArray(), text.length());
+	}
+
+	private static String toString(EditedParagraphs paragraphs) {
+		StringBuilder result = new StringBuilder();
+		for(int i = 0; i < paragraphs.size(); i++) {
+			result.append('[').append(paragraphs.start(i)).append(", ").append(paragraphs.length(i)).append(']');
+		}
+		return result.toString();
+	}
+
+	private static String randomText(Random random, int maxWords) {
+		StringBuilder text = new StringBuilder();
+		for(int j = 0, count = random.nextInt(maxWords); j < count; j++) {
+			text.append(WORDS[random.nextInt(WORDS.length)]);
+		}
+		return text.toString();
+	}
+}
@@ -0,0 +1,209 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import com.github.motyka.textprocessor.utils.ResourceUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class JobServiceTest {
+
+	private final BlockingParagraphService service = new BlockingParagraphService();
+	private final List<JobService> jobServices = new ArrayList<>();
+
+	@TempDir
+	Path directory;
+
+	@AfterEach
+	public void tearDown() {
+		service.release.countDown();
+		jobServices.forEach(JobService::shutdown);
+	}
+
+	@Test
+	@DisplayName("the same paragraphs as the stream split, read by pages from memory and from the disk")
+	public void paragraphs() throws Exception {
+		String text = ResourceUtils.readResource("big_test.txt");
+		SplitRequest request = SplitRequest.builder().searchTerm("ipsum").searchTerms(Arrays.asList("dolor", "amet")).mainLimit(200).secondaryLimit(100).build();
+		List<Paragraph> expected = new ArrayList<>();
+		service.splitAndSearch(new StringReader(text), request, expected::add);
+
+		for(long maxMemory : new long[]{1 << 24, 2000}) {
+			JobService jobs = jobService(2, 10, 1 << 20, maxMemory, 60_000);
+			JobInfo submitted = jobs.submit(input(text), StandardCharsets.UTF_8, request);
+			JobInfo info = await(jobs, submitted.getId());
+
+			assertEquals(JobState.DONE, info.getState());
+			assertEquals(text.getBytes(StandardCharsets.UTF_8).length, info.getTotalBytes());
+			assertEquals(info.getTotalBytes(), info.getProcessedBytes());
+			assertEquals(expected.size(), info.getParagraphs());
+			assertEquals(expected.stream().filter(Paragraph::isContains).count(), info.getMatched());
+			assertEquals(maxMemory < text.length() * 2, info.isSpilled());
+			assertTrue(info.getExpires().isAfter(info.getFinished()));
+
+			List<Paragraph> paragraphs = new ArrayList<>();
+			Long offset = 0L;
+			while(offset != null) {
+				JobPage page = jobs.page(submitted.getId(), offset, 7);
+				assertEquals(offset, page.getOffset());
+				paragraphs.addAll(page.getParagraphs());
+				offset = page.getNext();
+			}
+			assertEquals(expected, paragraphs);
+			assertEquals(expected.subList(20, 21), jobs.page(submitted.getId(), 20, 1).getParagraphs());
+		}
+	}
+
+	@Test
+	@DisplayName("small jobs don't wait for the big ones submitted before them")
+	public void priority() throws Exception {
+		JobService jobs = jobService(1, 10, 1000, 1 << 24, 60_000);
+		String blocking = jobs.submit(input("blocking"), StandardCharsets.UTF_8, SplitRequest.of(BlockingParagraphService.BLOCK, 20, 10)).getId();
+		assertTrue(service.started.await(10, TimeUnit.SECONDS));
+		String big = jobs.submit(input(String.join(" ", Collections.nCopies(10_000, "big"))), StandardCharsets.UTF_8, SplitRequest.of("big", 20, 10)).getId();
+		String small = jobs.submit(input("small"), StandardCharsets.UTF_8, SplitRequest.of("small", 20, 10)).getId();
+		assertEquals(JobState.QUEUED, jobs.info(big).getState());
+		assertEquals(JobState.RUNNING, jobs.info(blocking).getState());
+
+		service.release.countDown();
+		for(String id : Arrays.asList(blocking, big, small)) {
+			assertEquals(JobState.DONE, await(jobs, id).getState());
+		}
+		assertEquals(Arrays.asList(BlockingParagraphService.BLOCK, "small", "big"), service.searchTerms);
+	}
+
+	@Test
+	@DisplayName("cancelled, expired and too many jobs")
+	public void removal() throws Exception {
+		JobService jobs = jobService(1, 2, 1 << 20, 1 << 24, 0);
+		String blocking = jobs.submit(input("blocking"), StandardCharsets.UTF_8, SplitRequest.of(BlockingParagraphService.BLOCK, 20, 10)).getId();
+		assertTrue(service.started.await(10, TimeUnit.SECONDS));
+		String queued = jobs.submit(input("queued"), StandardCharsets.UTF_8, SplitRequest.of(null, 20, 10)).getId();
+		assertThrows(TooManyJobsException.class, () -> jobs.submit(input("third"), StandardCharsets.UTF_8, SplitRequest.of(null, 20, 10)));
+
+		jobs.delete(queued);
+		assertThrows(JobNotFoundException.class, () -> jobs.info(queued));
+		assertThrows(JobNotFoundException.class, () -> jobs.delete(queued));
+		service.release.countDown();
+		assertEquals(JobState.DONE, await(jobs, blocking).getState());
+		// the ttl is 0
+		jobs.removeExpired();
+		assertThrows(JobNotFoundException.class, () -> jobs.page(blocking, 0, 10));
+		try(Stream<Path> files = Files.list(directory)) {
+			assertFalse(files.findAny().isPresent());
+		}
+		// the queued job was never started
+		assertEquals(Collections.singletonList(BlockingParagraphService.BLOCK), service.searchTerms);
+	}
+
+	@Test
+	@DisplayName("invalid parameters are rejected before the job is queued")
+	public void invalid() throws IOException {
+		JobService jobs = jobService(1, 10, 1 << 20, 1 << 24, 60_000);
+
+		assertThrows(IllegalArgumentException.class, () -> jobs.submit(input("text"), StandardCharsets.UTF_8, SplitRequest.of(null, 10, 20)));
+		assertThrows(IllegalArgumentException.class,
+				() -> jobs.submit(input("text"), StandardCharsets.UTF_8, SplitRequest.builder().mainLimit(20).secondaryLimit(10).rules("unknown").build()));
+		String id = jobs.submit(input("text"), StandardCharsets.UTF_8, SplitRequest.of(null, 20, 10)).getId();
+		assertThrows(IllegalArgumentException.class, () -> jobs.page(id, -1, 10));
+		assertThrows(IllegalArgumentException.class, () -> jobs.page(id, 0, JobService.MAX_PAGE_SIZE + 1));
+		assertThrows(JobNotFoundException.class, () -> jobs.info("missing"));
+	}
+
+	@Test
+	@DisplayName("the texts longer than max-bytes and the jobs without the disk space for them are rejected")
+	public void tooLarge() throws IOException {
+		JobService jobs = jobService(1, 10, 1 << 20, 1 << 24, 100, 60_000);
+
+		assertThrows(JobTooLargeException.class, () -> jobs.submit(input("a".repeat(101)), StandardCharsets.UTF_8, SplitRequest.of(null, 20, 10)));
+		// the partly uploaded text is deleted
+		try(Stream<Path> files = Files.list(directory)) {
+			assertEquals(0, files.count());
+		}
+		assertEquals(100, jobs.submit(input("a".repeat(100)), StandardCharsets.UTF_8, SplitRequest.of(null, 20, 10)).getTotalBytes());
+
+		JobService huge = jobService(1, 10, 1 << 20, 1 << 24, Long.MAX_VALUE, 60_000);
+		assertThrows(TooManyJobsException.class, () -> huge.submit(input("text"), StandardCharsets.UTF_8, SplitRequest.of(null, 20, 10)));
+	}
+
+	private JobService jobService(int threads, int maxJobs, long bytesPerSecond, long maxMemory, long ttl) throws IOException {
+		return jobService(threads, maxJobs, bytesPerSecond, maxMemory, 1 << 20, ttl);
+	}
+
+	private JobService jobService(int threads, int maxJobs, long bytesPerSecond, long maxMemory, long maxBytes, long ttl) throws IOException {
+		JobService jobs = new JobService(service, threads, maxJobs, bytesPerSecond, maxMemory, maxBytes, ttl, directory.toString(), new SimpleMeterRegistry());
+		jobServices.add(jobs);
+		return jobs;
+	}
+
+	private static ByteArrayInputStream input(String text) {
+		return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static JobInfo await(JobService jobs, String id) throws InterruptedException {
+		long end = System.currentTimeMillis() + 10_000;
+		JobInfo info = jobs.info(id);
+		while(!info.getState().isFinished() && System.currentTimeMillis() < end) {
+			Thread.sleep(10);
+			info = jobs.info(id);
+		}
+		assertNull(info.getError());
+		return info;
+	}
+
+	/**
+	 * Records the search terms in the order the jobs are run and blocks the job searching for {@link #BLOCK}
+	 * until it's released.
+	 */
+	private static class BlockingParagraphService extends ParagraphService {
+		static final String BLOCK = "block";
+
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final List<String> searchTerms = Collections.synchronizedList(new ArrayList<>());
+
+		BlockingParagraphService() {
+			super(ParagraphServiceFactory.metrics(), ParagraphServiceFactory.noCache(), ParagraphServiceFactory.defaultRuleChains());
+		}
+
+		@Override
+		public void splitAndSearch(Reader reader, SplitRequest request, Consumer<Paragraph> consumer) throws IOException {
+			String searchTerm = request.getSearchTerm();
+			if(searchTerm != null) {
+				this.searchTerms.add(searchTerm);
+			}
+			if(BLOCK.equals(searchTerm)) {
+				started.countDown();
+				try {
+					release.await(10, TimeUnit.SECONDS);
+				} catch(InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			super.splitAndSearch(reader, request, consumer);
+		}
+	}
+}
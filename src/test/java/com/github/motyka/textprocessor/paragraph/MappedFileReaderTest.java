@@ -0,0 +1,60 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class MappedFileReaderTest {
+
+	// 1 - 4 bytes in UTF-8, the last one is a surrogate pair
+	private static final String[] CHARACTERS = {"a", "\n", "é", "ł", "€", " ", "\uD83D\uDE00"};
+
+	@TempDir
+	Path directory;
+
+	@Test
+	@DisplayName("the same text for all the mapping sizes and reads")
+	public void sameText() throws IOException {
+		Random random = new Random(42);
+		for(int i = 0; i < 300; i++) {
+			StringBuilder text = new StringBuilder();
+			for(int j = 0, count = random.nextInt(100); j < count; j++) {
+				text.append(CHARACTERS[random.nextInt(CHARACTERS.length)]);
+			}
+			Path file = directory.resolve("text" + i + ".txt");
+			Files.writeString(file, text, StandardCharsets.UTF_8);
+
+			assertEquals(text.toString(), read(file, 1 + random.nextInt(20), 1 + random.nextInt(10)));
+		}
+	}
+
+	@Test
+	@DisplayName("empty file")
+	public void empty() throws IOException {
+		Path file = directory.resolve("empty.txt");
+		Files.writeString(file, "");
+
+		assertEquals("", read(file, 10, 10));
+	}
+
+	private String read(Path file, int mappingSize, int chunkSize) throws IOException {
+		StringBuilder text = new StringBuilder();
+		char[] buffer = new char[chunkSize];
+		try(Reader reader = new MappedFileReader(file, mappingSize)) {
+			int read;
+			while((read = reader.read(buffer, 0, buffer.length)) >= 0) {
+				text.append(buffer, 0, read);
+			}
+		}
+		return text.toString();
+	}
+}
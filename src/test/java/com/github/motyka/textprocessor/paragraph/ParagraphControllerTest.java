@@ -0,0 +1,70 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ParagraphControllerTest {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final ParagraphService service = ParagraphServiceFactory.create();
+	private final ParagraphController controller = new ParagraphController(service, null, objectMapper);
+
+	@BeforeEach
+	public void limitBuffer() {
+		ReflectionTestUtils.setField(service, "streamingBufferSize", 16);
+		ReflectionTestUtils.setField(service, "maxStreamingBufferSize", 64);
+	}
+
+	@Test
+	@DisplayName("the stream failed after the first paragraphs ends with an error line")
+	public void streamError() throws IOException {
+		StringBuilder text = new StringBuilder();
+		for(int i = 0; i < 20; i++) {
+			text.append("Lorem ipsum dolor ").append(i).append(".\n\n");
+		}
+		text.append("first ").append("!?".repeat(100)).append("second");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		response.setBufferSize(100);
+
+		controller.splitAndSearchStream(request(text.toString()), response, "ipsum", null, 30, 20, null, OffsetUnit.CHARS);
+
+		assertTrue(response.isCommitted());
+		assertEquals(200, response.getStatus());
+		String[] lines = response.getContentAsString().split("\n");
+		// the paragraphs before the run of punctuation and the error
+		assertEquals(22, lines.length);
+		assertEquals(0, objectMapper.readTree(lines[0]).get("start").asInt());
+		assertTrue(objectMapper.readTree(lines[21]).get("error").asText().contains("punctuation"));
+	}
+
+	@Test
+	@DisplayName("the stream failed before anything was sent gets 400")
+	public void streamBadRequest() {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		assertThrows(ParagraphSplittingException.class, () ->
+				controller.splitAndSearchStream(request("first " + "!?".repeat(100) + "second"), response, null, null, 30, 20, null, OffsetUnit.CHARS));
+		assertFalse(response.isCommitted());
+	}
+
+	private static MockHttpServletRequest request(String text) {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/paragraphs/splitAndSearch/stream");
+		request.setContentType("text/plain");
+		request.setCharacterEncoding("UTF-8");
+		request.setContent(text.getBytes(StandardCharsets.UTF_8));
+		return request;
+	}
+}
@@ -0,0 +1,91 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import com.github.motyka.textprocessor.utils.ResourceUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ParagraphFileServiceTest {
+
+	private final ParagraphService service = ParagraphServiceFactory.create();
+	private final ParagraphFileService fileService = new ParagraphFileService(service);
+
+	@TempDir
+	Path root;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		ReflectionTestUtils.setField(fileService, "root", root.toString());
+		// many mappings even for the small files
+		ReflectionTestUtils.setField(fileService, "mappingSize", 1000);
+		Files.createDirectories(root.resolve("texts/separators"));
+		Files.writeString(root.resolve("texts/big_test.txt"), ResourceUtils.readResource("big_test.txt"));
+		Files.writeString(root.resolve("texts/separators/separators.txt"), ResourceUtils.readResource("separators.txt"));
+	}
+
+	@Test
+	@DisplayName("the same paragraphs as the text")
+	public void file() throws IOException {
+		String text = ResourceUtils.readResource("big_test.txt");
+		List<String> terms = Arrays.asList("amet", "elit");
+
+		SplitRequest request = SplitRequest.builder().searchTerm("ipsum").searchTerms(terms).mainLimit(200).secondaryLimit(100).build();
+
+		Map<String, ParagraphOffsets> offsets = fileService.splitAndSearchOffsets("texts/big_test.txt", request);
+
+		assertEquals(Map.of("texts/big_test.txt", service.splitAndSearchOffsets(text, request.toBuilder().strategy(SplittingStrategy.SCANNING).build())), offsets);
+	}
+
+	@Test
+	@DisplayName("all the files of the directory")
+	public void directory() throws IOException {
+		SplitRequest request = SplitRequest.of("separated", 20, 10);
+		Map<String, ParagraphOffsets> offsets = fileService.splitAndSearchOffsets("texts", request);
+
+		assertEquals(Arrays.asList("texts/big_test.txt", "texts/separators/separators.txt"), List.copyOf(offsets.keySet()));
+		assertEquals(service.splitAndSearchOffsets(ResourceUtils.readResource("separators.txt"), request.toBuilder().strategy(SplittingStrategy.SCANNING).build()),
+				offsets.get("texts/separators/separators.txt"));
+	}
+
+	@Test
+	@DisplayName("only the files under the root directory")
+	public void outsideRoot() throws IOException {
+		Files.writeString(root.resolveSibling(root.getFileName() + ".txt"), "outside");
+
+		assertThrows(IllegalArgumentException.class, () -> fileService.splitAndSearchOffsets("../" + root.getFileName() + ".txt", SplitRequest.of(null, 20, 10)));
+		assertThrows(IllegalArgumentException.class, () -> fileService.splitAndSearchOffsets("missing.txt", SplitRequest.of(null, 20, 10)));
+	}
+
+	@Test
+	@DisplayName("the links in a directory pointing outside of the root directory are skipped")
+	public void linkOutsideRoot() throws IOException {
+		Path outside = Files.writeString(root.resolveSibling(root.getFileName() + ".txt"), "outside");
+		Files.createSymbolicLink(root.resolve("texts/outside.txt"), outside);
+		Files.createSymbolicLink(root.resolve("texts/inside.txt"), root.resolve("texts/big_test.txt"));
+
+		Map<String, ParagraphOffsets> offsets = fileService.splitAndSearchOffsets("texts", SplitRequest.of(null, 20, 10));
+
+		assertEquals(Arrays.asList("texts/big_test.txt", "texts/inside.txt", "texts/separators/separators.txt"), List.copyOf(offsets.keySet()));
+		assertThrows(IllegalArgumentException.class, () -> fileService.splitAndSearchOffsets("texts/outside.txt", SplitRequest.of(null, 20, 10)));
+	}
+
+	@Test
+	@DisplayName("no files without the root directory")
+	public void noRoot() {
+		ReflectionTestUtils.setField(fileService, "root", "");
+
+		assertThrows(IllegalArgumentException.class, () -> fileService.splitAndSearchOffsets("texts", SplitRequest.of(null, 20, 10)));
+	}
+}
@@ -0,0 +1,52 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.util.Collections;
+
+/**
+ * Creates {@link ParagraphService} outside of Spring for the tests and benchmarks, the properties keep their defaults
+ * and can be changed with ReflectionTestUtils.
+ */
+public final class ParagraphServiceFactory {
+
+	private ParagraphServiceFactory() {
+	}
+
+	/**
+	 * @return the service without the cache, with only the default chain of the split rules
+	 */
+	public static ParagraphService create() {
+		return create(noCache());
+	}
+
+	/**
+	 * @param cache
+	 * @return the service with only the default chain of the split rules
+	 */
+	public static ParagraphService create(SplitCache cache) {
+		return create(cache, defaultRuleChains());
+	}
+
+	public static ParagraphService create(SplitCache cache, SplitRuleChains ruleChains) {
+		return new ParagraphService(metrics(), cache, ruleChains);
+	}
+
+	/**
+	 * @return the metrics in their own registry
+	 */
+	public static ParagraphMetrics metrics() {
+		return new ParagraphMetrics(new SimpleMeterRegistry());
+	}
+
+	/**
+	 * @return the disabled cache, the texts are split every time
+	 */
+	public static SplitCache noCache() {
+		return new SplitCache(0, new SimpleMeterRegistry());
+	}
+
+	public static SplitRuleChains defaultRuleChains() {
+		return new SplitRuleChains(Collections.emptyList(), Collections.emptyMap());
+	}
+}
@@ -1,21 +1,30 @@
 package com.github.motyka.textprocessor.paragraph;
 
+import com.github.motyka.textprocessor.search.SearchOptions;
+import com.github.motyka.textprocessor.utils.ResourceUtils;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
-import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
-import org.mockito.junit.jupiter.MockitoExtension;
-
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
-@ExtendWith(MockitoExtension.class)
 public class ParagraphServiceTest {
 
-	@InjectMocks
-	private ParagraphService service;
+	private final ParagraphService service = ParagraphServiceFactory.create();
 
 	@Test
 	@DisplayName("single paragraph")
@@ -176,6 +185,299 @@ public class ParagraphServiceTest {
 		assertEquals(new Paragraph("to test the search functionality.", 64, 33, true), paragraphs.get(2));
 	}
 
+	@Test
+	@DisplayName("search for many terms")
+	public void searchTerms() {
+		List<Paragraph> paragraphs = service.splitAndSearch("This is some test text\n\n" +
+				"with a search term inside some of them", SplitRequest.builder().searchTerms(Arrays.asList("some", "search", "text"))
+				.strategy(SplittingStrategy.SCANNING).build());
+
+		assertEquals(2, paragraphs.size());
+		assertEquals(new Paragraph("This is some test text", 0, 22, true,
+				Arrays.asList(new TermMatch(0, 8), new TermMatch(2, 18))), paragraphs.get(0));
+		assertEquals(new Paragraph("with a search term inside some of them", 24, 38, true,
+				Arrays.asList(new TermMatch(1, 31), new TermMatch(0, 50))), paragraphs.get(1));
+	}
+
+	@Test
+	@DisplayName("too many or too long search terms")
+	public void searchTermsLimits() {
+		ReflectionTestUtils.setField(service, "maxSearchTerms", 2);
+		ReflectionTestUtils.setField(service, "maxSearchTermsLength", 10);
+
+		assertEquals(1, service.splitAndSearch("some text", SplitRequest.builder().searchTerms(Arrays.asList("some", "text")).build()).size());
+		assertThrows(IllegalArgumentException.class,
+				() -> service.splitAndSearch("some text", SplitRequest.builder().searchTerms(Arrays.asList("some", "text", "other")).build()));
+		assertThrows(IllegalArgumentException.class,
+				() -> service.splitAndSearch("some text", SplitRequest.builder().searchTerms(Arrays.asList("some", "longer text")).build()));
+	}
+
+	@Test
+	@DisplayName("offsets of paragraphs")
+	public void offsets() {
+		String text = "This is some test text\n\n" +
+				"with a search term inside some of them\n\n" +
+				"to test the search functionality. search";
+		for(SplittingStrategy strategy : SplittingStrategy.values()) {
+			ParagraphOffsets offsets = service.splitAndSearchOffsets(text, request("search", 30, 20, strategy));
+
+			List<Paragraph> paragraphs = service.splitAndSearch(text, request("search", 30, 20, strategy));
+			assertEquals(paragraphs.size(), offsets.size());
+			for(int i = 0; i < paragraphs.size(); i++) {
+				assertEquals(paragraphs.get(i).getStart(), offsets.getStart()[i]);
+				assertEquals(paragraphs.get(i).getLength(), offsets.getLength()[i]);
+				assertEquals(paragraphs.get(i).isContains(), offsets.getContains()[i]);
+			}
+		}
+	}
+
+	@Test
+	@DisplayName("offsets of UTF-8 text in characters and bytes")
+	public void offsetsUtf8() throws IOException {
+		String text = "Zażółć gęślą jaźń. 😀 Ćma\n\ndruga część, z terminem";
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		SplitRequest request = SplitRequest.builder().searchTerm("termin").searchTerms(Collections.singletonList("😀")).mainLimit(20).secondaryLimit(10).build();
+		ParagraphOffsets expected = service.splitAndSearchOffsets(text, request.toBuilder().strategy(SplittingStrategy.SCANNING).build());
+		// the positions in the decoded text can only be in characters
+		assertThrows(IllegalArgumentException.class, () -> service.splitAndSearchOffsets(text, request.toBuilder().unit(OffsetUnit.BYTES).build()));
+
+		for(SplittingStrategy strategy : SplittingStrategy.values()) {
+			assertEquals(expected, service.splitAndSearchOffsets(bytes, request.toBuilder().strategy(strategy).build()));
+
+			ParagraphOffsets offsets = service.splitAndSearchOffsets(bytes, request.toBuilder().strategy(strategy).unit(OffsetUnit.BYTES).build());
+			assertEquals(expected.size(), offsets.size());
+			for(int i = 0; i < offsets.size(); i++) {
+				String paragraph = text.substring((int) expected.getStart()[i], (int) expected.getStart()[i] + expected.getLength()[i]);
+				assertEquals(paragraph, new String(bytes, (int) offsets.getStart()[i], offsets.getLength()[i], StandardCharsets.UTF_8));
+			}
+			assertArrayEquals(expected.getContains(), offsets.getContains());
+		}
+
+		// the stream has the same positions in bytes
+		List<Paragraph> paragraphs = new ArrayList<>();
+		service.splitAndSearch(new StringReader(text), SplitRequest.builder().searchTerms(Arrays.asList("termin", "😀")).mainLimit(20).secondaryLimit(10)
+				.unit(OffsetUnit.BYTES).build(), paragraphs::add);
+		ParagraphOffsets offsets = service.splitAndSearchOffsets(bytes, request.toBuilder().unit(OffsetUnit.BYTES).build());
+		assertEquals(offsets.size(), paragraphs.size());
+		for(int i = 0; i < paragraphs.size(); i++) {
+			assertEquals(offsets.getStart()[i], paragraphs.get(i).getStart());
+			assertEquals(offsets.getLength()[i], paragraphs.get(i).getLength());
+		}
+		TermMatch match = paragraphs.get(paragraphs.size() - 1).getMatches().get(0);
+		assertEquals("termin", new String(bytes, (int) match.getStart(), 6, StandardCharsets.UTF_8));
+	}
+
+	@Test
+	@DisplayName("parallel splitting of long texts")
+	public void parallel() {
+		String text = ResourceUtils.readResource("big_test.txt");
+		List<Paragraph> expected = service.splitAndSearch(text, request("ipsum", 200, 100, SplittingStrategy.SCANNING));
+		ParagraphOffsets expectedOffsets = service.splitAndSearchOffsets(text, request("ipsum", 200, 100, SplittingStrategy.SCANNING));
+
+		ReflectionTestUtils.setField(service, "parallelThreshold", 0);
+		ReflectionTestUtils.setField(service, "parallelSegmentSize", 100);
+		try {
+			assertEquals(expected, service.splitAndSearch(text, request("ipsum", 200, 100, SplittingStrategy.SCANNING)));
+			assertEquals(expectedOffsets, service.splitAndSearchOffsets(text, request("ipsum", 200, 100, SplittingStrategy.SCANNING)));
+		} finally {
+			service.shutdown();
+		}
+	}
+
+	@Test
+	@DisplayName("long texts split in parallel by SCANNING when REGEX is the default strategy")
+	public void parallelRegex() {
+		String text = ResourceUtils.readResource("big_test.txt");
+		List<Paragraph> expected = service.splitAndSearch(text, request("ipsum", 200, 100, SplittingStrategy.REGEX));
+		ParagraphOffsets expectedOffsets = service.splitAndSearchOffsets(text, request("ipsum", 200, 100, SplittingStrategy.REGEX));
+
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		ParagraphService parallel = new ParagraphService(new ParagraphMetrics(registry), ParagraphServiceFactory.noCache(), ParagraphServiceFactory.defaultRuleChains());
+		ReflectionTestUtils.setField(parallel, "parallelThreshold", text.length());
+		ReflectionTestUtils.setField(parallel, "parallelSegmentSize", 100);
+		try {
+			assertEquals(expected, parallel.splitAndSearch(text, "ipsum", 200, 100));
+			assertEquals(expectedOffsets, parallel.splitAndSearchOffsets(text, request("ipsum", 200, 100, null)));
+			assertEquals(2, registry.get("paragraph.split").tag("strategy", "SCANNING").timers().stream().mapToLong(Timer::count).sum());
+			// the shorter texts are still split by REGEX
+			parallel.splitAndSearch(text.substring(1), "ipsum", 200, 100);
+			assertEquals(1, registry.get("paragraph.split").tag("strategy", "REGEX").timer().count());
+			// and so are the texts of the requests with REGEX
+			assertEquals(expected, parallel.splitAndSearch(text, request("ipsum", 200, 100, SplittingStrategy.REGEX)));
+			assertEquals(2, registry.get("paragraph.split").tag("strategy", "REGEX").timer().count());
+			assertEquals(2, registry.get("paragraph.split").tag("strategy", "SCANNING").timers().stream().mapToLong(Timer::count).sum());
+		} finally {
+			parallel.shutdown();
+		}
+	}
+
+	@Test
+	@DisplayName("search options")
+	public void searchOptions() {
+		String text = "Contract one.\n\nthe CONTRACT and contracts.\n\nno match";
+		SearchOptions options = new SearchOptions(true, false, true, false);
+
+		SplitRequest request = SplitRequest.builder().searchTerm("contract").options(options).build();
+		List<Paragraph> paragraphs = service.splitAndSearch(text, request);
+		ParagraphOffsets offsets = service.splitAndSearchOffsets(text, request.toBuilder().strategy(SplittingStrategy.SCANNING).build());
+
+		assertEquals(Arrays.asList(
+				new Paragraph("Contract one.", 0, 13, true, null, Collections.singletonList(new Occurrence(0, 8))),
+				new Paragraph("the CONTRACT and contracts.", 15, 27, true, null, Collections.singletonList(new Occurrence(19, 8))),
+				new Paragraph("no match", 44, 8, false, null, Collections.emptyList())), paragraphs);
+		assertArrayEquals(new boolean[]{true, true, false}, offsets.getContains());
+		// without the options the occurrences aren't reported
+		assertEquals(new Paragraph("Contract one.", 0, 13, false), service.splitAndSearch(text, "contract", 1200, 800).get(0));
+		assertThrows(IllegalArgumentException.class,
+				() -> service.splitAndSearch(text, SplitRequest.builder().searchTerm("(").options(new SearchOptions(false, false, false, true)).build()));
+	}
+
+	@Test
+	@DisplayName("split rule chains")
+	public void ruleChains() {
+		String text = "See http://example.com/index.html?q=1 now. Next sentence here";
+		ParagraphService service = ParagraphServiceFactory.create(new SplitCache(1 << 20, new SimpleMeterRegistry()),
+				new SplitRuleChains(Collections.emptyList(), Map.of("sentences", "NEW_LINE,SENTENCE_END,PUNCTUATION_BEFORE_SPACE,SPACE")));
+
+		SplitRequest request = SplitRequest.of("now", 40, 30);
+		assertEquals(service.splitAndSearch(text, request), service.splitAndSearch(text, request.toBuilder().strategy(SplittingStrategy.REGEX).rules("default").build()));
+		// the same text and limits are cached separately for every chain
+		List<Paragraph> paragraphs = service.splitAndSearch(text, request.toBuilder().rules("sentences").build());
+		assertEquals(Arrays.asList(new Paragraph("See http://example.com/index.html?q=1", 0, 37, false),
+				new Paragraph("now. Next sentence here", 38, 23, true)), paragraphs);
+
+		assertThrows(IllegalArgumentException.class, () -> service.splitAndSearch(text, request.toBuilder().strategy(SplittingStrategy.REGEX).rules("sentences").build()));
+		assertThrows(IllegalArgumentException.class, () -> service.splitAndSearch(text, request.toBuilder().rules("unknown").build()));
+	}
+
+	@Test
+	@DisplayName("cached paragraphs searched for other terms")
+	public void cache() {
+		String text = ResourceUtils.readResource("big_test.txt");
+		List<Paragraph> expected = service.splitAndSearch(text, request("ipsum", 200, 100, SplittingStrategy.SCANNING));
+		SplitRequest offsetsRequest = SplitRequest.builder().searchTerm("dolor").searchTerms(Arrays.asList("amet", "elit")).mainLimit(200).secondaryLimit(100)
+				.strategy(SplittingStrategy.REGEX).build();
+		ParagraphOffsets expectedOffsets = service.splitAndSearchOffsets(text, offsetsRequest);
+
+		ParagraphService cached = ParagraphServiceFactory.create(new SplitCache(1 << 20, new SimpleMeterRegistry()));
+		cached.splitAndSearch(text, request("dolor", 200, 100, SplittingStrategy.SCANNING));
+
+		assertEquals(expected, cached.splitAndSearch(text, request("ipsum", 200, 100, SplittingStrategy.SCANNING)));
+		assertEquals(expectedOffsets, cached.splitAndSearchOffsets(text, offsetsRequest));
+
+		ReflectionTestUtils.setField(cached, "parallelThreshold", 0);
+		ReflectionTestUtils.setField(cached, "parallelSegmentSize", 100);
+		try {
+			assertEquals(expected, cached.splitAndSearch(text, request("ipsum", 200, 100, SplittingStrategy.SCANNING)));
+			assertEquals(expectedOffsets, cached.splitAndSearchOffsets(text, offsetsRequest.toBuilder().strategy(SplittingStrategy.SCANNING).build()));
+		} finally {
+			cached.shutdown();
+		}
+	}
+
+	@Test
+	@DisplayName("pages continued by the cursor")
+	public void pages() {
+		String text = ResourceUtils.readResource("big_test.txt");
+		SplitRequest request = SplitRequest.builder().searchTerm("ipsum").searchTerms(Collections.singletonList("amet")).mainLimit(200).secondaryLimit(100).build();
+		List<Paragraph> expected = service.splitAndSearch(text, request.toBuilder().strategy(SplittingStrategy.SCANNING).build());
+
+		List<Paragraph> paragraphs = new ArrayList<>();
+		String cursor = null;
+		do {
+			ParagraphPage page = service.page(text, request, 0, 7, false, cursor);
+			paragraphs.addAll(page.getParagraphs());
+			cursor = page.getNext();
+		} while(cursor != null);
+
+		assertEquals(expected, paragraphs);
+		assertEquals(expected.subList(5, 8),
+				service.page(text, request, 5, 3, false, null).getParagraphs());
+	}
+
+	@Test
+	@DisplayName("pages of only the matching paragraphs")
+	public void matchingPages() {
+		String text = ResourceUtils.readResource("big_test.txt");
+		List<Paragraph> expected = new ArrayList<>();
+		for(Paragraph paragraph : service.splitAndSearch(text, request("ipsum", 200, 100, SplittingStrategy.SCANNING))) {
+			if(paragraph.isContains()) {
+				expected.add(paragraph);
+			}
+		}
+
+		List<Paragraph> paragraphs = new ArrayList<>();
+		ParagraphPage page = service.page(text, SplitRequest.of("ipsum", 200, 100), 1, 2, true, null);
+		paragraphs.addAll(page.getParagraphs());
+		while(page.getNext() != null) {
+			page = service.page(text, SplitRequest.of("ipsum", 200, 100), 0, 2, true, page.getNext());
+			paragraphs.addAll(page.getParagraphs());
+		}
+
+		assertEquals(expected.subList(1, expected.size()), paragraphs);
+	}
+
+	@Test
+	@DisplayName("paragraphs split on demand")
+	public void lazyParagraphs() {
+		String text = ResourceUtils.readResource("big_test.txt");
+		List<Paragraph> expected = service.splitAndSearch(text, request("dolor", 200, 100, SplittingStrategy.SCANNING));
+
+		assertEquals(expected.subList(0, 3), service.stream(text, SplitRequest.of("dolor", 200, 100), false).limit(3).collect(Collectors.toList()));
+		List<Paragraph> paragraphs = new ArrayList<>();
+		service.iterator(text, SplitRequest.of("dolor", 200, 100), false).forEachRemaining(paragraphs::add);
+		assertEquals(expected, paragraphs);
+	}
+
+	@Test
+	@DisplayName("cursor of another text")
+	public void invalidCursor() {
+		String text = "First paragraph.\n\nSecond paragraph.\n\nThird paragraph.";
+		ParagraphPage page = service.page(text, SplitRequest.of(null, 1200, 800), 0, 1, false, null);
+
+		assertEquals(Collections.singletonList(new Paragraph("First paragraph.", 0, 16, false)), page.getParagraphs());
+		assertEquals(Collections.singletonList(new Paragraph("Second paragraph.", 18, 17, false)),
+				service.page(text, SplitRequest.of(null, 1200, 800), 0, 1, false, page.getNext()).getParagraphs());
+		assertThrows(IllegalArgumentException.class, () -> service.page(text.replace("Second", "Other"), SplitRequest.of(null, 1200, 800), 0, 1, false,
+				page.getNext()));
+		assertThrows(IllegalArgumentException.class, () -> service.page(text, SplitRequest.of(null, 1000, 800), 0, 1, false, page.getNext()));
+		assertThrows(IllegalArgumentException.class, () -> service.page(text, SplitRequest.of(null, 1200, 800), 0, 1, false, "not a cursor"));
+		assertThrows(IllegalArgumentException.class, () -> service.page(text, SplitRequest.of(null, 1200, 800), 0, 0, false, null));
+	}
+
+	@Test
+	@DisplayName("batch of documents with errors")
+	public void batch() {
+		try {
+			Map<String, BatchResult> results = service.splitAndSearch(Arrays.asList(
+					new BatchItem("first", "paragraph1\n\nparagraph2", "paragraph2"),
+					new BatchItem("second", null, "search"),
+					new BatchItem("third", "wholeText", null)), SplitRequest.builder().strategy(SplittingStrategy.SCANNING).build());
+
+			assertEquals(Arrays.asList("first", "second", "third"), new ArrayList<>(results.keySet()));
+			assertEquals(BatchResult.of(Arrays.asList(new Paragraph("paragraph1", 0, 10, false), new Paragraph("paragraph2", 12, 10, true))), results.get("first"));
+			assertEquals(BatchResult.error("The text can't be null"), results.get("second"));
+			assertEquals(BatchResult.of(Collections.singletonList(new Paragraph("wholeText", 0, 9, false))), results.get("third"));
+		} finally {
+			service.shutdown();
+		}
+	}
+
+	@Test
+	@DisplayName("batch with duplicated ids")
+	public void batchDuplicatedIds() {
+		assertThrows(IllegalArgumentException.class, () -> service.splitAndSearch(Arrays.asList(
+				new BatchItem("id", "text", null), new BatchItem("id", "text", null)), SplitRequest.of(null, 1200, 800)));
+	}
+
+	@Test
+	@DisplayName("offsets encoded as varints")
+	public void offsetsVarints() {
+		ParagraphOffsets offsets = new ParagraphOffsets(new long[]{0, 200}, new int[]{150, 3}, new boolean[]{true, false});
+
+		assertArrayEquals(new byte[]{2, 0, (byte) 0xAD, 0x02, (byte) 0xC8, 0x01, 6}, offsets.toVarints());
+	}
+
 	@Test
 	@DisplayName("empty text")
 	public void empty() {
@@ -218,4 +520,8 @@ public class ParagraphServiceTest {
 	public void nullText() {
 		assertThrows(NullPointerException.class, () -> service.splitAndSearch(null, "", 8, 12));
 	}
+
+	private static SplitRequest request(String searchTerm, int mainLimit, int secondaryLimit, SplittingStrategy strategy) {
+		return SplitRequest.builder().searchTerm(searchTerm).mainLimit(mainLimit).secondaryLimit(secondaryLimit).strategy(strategy).build();
+	}
 }
@@ -0,0 +1,75 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import com.github.motyka.textprocessor.utils.ResourceUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ParallelSplitterTest {
+
+	private static final String[] WORDS = {"word", "a", "1", " ", " ", "\n", "\n\n", "\n \n", "\n!\n", ".", ",", "?", "\r\n", "\t"};
+
+	private final ScanningSplittingEngine engine = new ScanningSplittingEngine();
+	private final ForkJoinPool pool = new ForkJoinPool(4);
+
+	@AfterEach
+	public void tearDown() {
+		pool.shutdown();
+	}
+
+	@Test
+	@DisplayName("boundaries at double new lines")
+	public void boundaries() {
+		ParallelSplitter splitter = new ParallelSplitter(engine, pool, 5);
+
+		assertEquals(Arrays.asList(0, 5, 15, 22), splitter.findBoundaries("first\n\n second \n\nthird"));
+	}
+
+	@Test
+	@DisplayName("same paragraphs as the whole text for test files")
+	public void sameAsWholeTextFiles() {
+		assertSameParagraphs(ResourceUtils.readResource("big_test.txt"), 1200, 800, 100);
+		assertSameParagraphs(ResourceUtils.readResource("separators.txt"), 20, 10, 3);
+	}
+
+	@Test
+	@DisplayName("same paragraphs as the whole text for random texts")
+	public void sameAsWholeTextRandom() {
+		Random random = new Random(42);
+		for(int i = 0; i < 2000; i++) {
+			StringBuilder text = new StringBuilder();
+			for(int j = 0, count = random.nextInt(100); j < count; j++) {
+				text.append(WORDS[random.nextInt(WORDS.length)]);
+			}
+			int mainLimit = 1 + random.nextInt(30);
+			int secondaryLimit = 1 + random.nextInt(mainLimit);
+			assertSameParagraphs(text.toString(), mainLimit, secondaryLimit, 1 + random.nextInt(50));
+		}
+	}
+
+	private void assertSameParagraphs(String text, int mainLimit, int secondaryLimit, int segmentSize) {
+		List<String> expected = new ArrayList<>();
+		engine.split(text, mainLimit, secondaryLimit, (start, length) -> expected.add(start + ":" + length));
+
+		List<String> paragraphs = new ArrayList<>();
+		new ParallelSplitter(engine, pool, segmentSize).split(text, mainLimit, secondaryLimit, Collector::new, collector -> collector)
+				.forEach(paragraphs::addAll);
+
+		assertEquals(expected, paragraphs, () -> "text: '" + text + "', limits: " + mainLimit + " - " + secondaryLimit + ", segment: " + segmentSize);
+	}
+
+	private static class Collector extends ArrayList<String> implements SplittingEngine.ParagraphListener {
+		@Override
+		public void paragraph(int start, int length) {
+			add(start + ":" + length);
+		}
+	}
+}
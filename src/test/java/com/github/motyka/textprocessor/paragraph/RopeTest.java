@@ -0,0 +1,60 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class RopeTest {
+
+	@Test
+	@DisplayName("same text as editing a StringBuilder")
+	public void sameAsStringBuilder() {
+		Random random = new Random(42);
+		StringBuilder expected = new StringBuilder(random(random, 5000));
+		Rope rope = Rope.of(expected.toString());
+		for(int i = 0; i < 2000; i++) {
+			int offset = random.nextInt(expected.length() + 1);
+			// mostly a few characters, sometimes long parts of the text
+			int deleted = random.nextInt(Math.min(random.nextInt(10) == 0 ? 3000 : 5, expected.length() - offset) + 1);
+			String inserted = random(random, random.nextInt(10) == 0 ? random.nextInt(3000) : random.nextInt(5));
+			expected.replace(offset, offset + deleted, inserted);
+			rope = rope.replace(offset, deleted, inserted);
+
+			assertEquals(expected.length(), rope.length());
+			int from = random.nextInt(expected.length() + 1);
+			int to = from + random.nextInt(expected.length() - from + 1);
+			assertEquals(expected.substring(from, to), rope.subSequence(from, to));
+			if(from < to) {
+				assertEquals(expected.charAt(from), rope.charAt(from));
+				assertEquals(expected.charAt(to - 1), rope.charAt(to - 1));
+			}
+		}
+		assertEquals(expected.toString(), rope.toString());
+	}
+
+	@Test
+	@DisplayName("the previous versions don't change")
+	public void immutable() {
+		Rope rope = Rope.of(random(new Random(7), 10000));
+		String before = rope.toString();
+
+		Rope edited = rope.replace(100, 5000, "edited").replace(0, 10, "");
+
+		assertEquals(before, rope.toString());
+		assertEquals(before.substring(10, 100) + "edited" + before.substring(5100), edited.toString());
+		assertThrows(IndexOutOfBoundsException.class, () -> rope.replace(9999, 2, ""));
+		assertThrows(IndexOutOfBoundsException.class, () -> rope.charAt(10000));
+	}
+
+	private static String random(Random random, int length) {
+		StringBuilder text = new StringBuilder();
+		for(int i = 0; i < length; i++) {
+			text.append((char) ('a' + random.nextInt(26)));
+		}
+		return text.toString();
+	}
+}
@@ -0,0 +1,96 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import com.github.motyka.textprocessor.utils.ResourceUtils;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ScanningSplittingEngineTest {
+
+	private static final String[] TEXTS = {
+			"wholeText",
+			" \t\n wholeText \t\n ",
+			" \t\n ,!paragraph?, \t\n ",
+			" paragraph1 \n!\t,\n,\t?\n paragraph2 ",
+			" !paragraph1. \n\n ,.?paragraph2-, ",
+			"123?567890\n2345\n78,01.3456\n890",
+			"123.567890.2345.7890123456.890",
+			" word,,.,, \t ,.?word2,., ,, ,.?word3,.",
+			"123?567890,2345!7890123456_890",
+			"1234567890 2345 7890123456 890",
+			"123456789012345678901234567890",
+			"first line.\r\nsecond. line\rthird. fourth... ...fifth",
+			"",
+			". \t,?\n\n. ,\n!!"
+	};
+
+	private static final int[][] LIMITS = {{1200, 800}, {12, 8}, {20, 10}, {10, 10}, {5, 1}, {1, 1}, {3, 2}};
+
+	private static final String ALPHABET = "ab1 \n\n\r\t.,!?-é";
+
+	private final SplittingEngine regex = new RegexSplittingEngine();
+	private final SplittingEngine scanning = new ScanningSplittingEngine();
+
+	@Test
+	@DisplayName("same paragraphs and separators as the regex engine")
+	public void sameAsRegex() {
+		for(String text : TEXTS) {
+			for(int[] limits : LIMITS) {
+				assertSameParagraphs(text, limits[0], limits[1]);
+			}
+		}
+	}
+
+	@Test
+	@DisplayName("same paragraphs as the regex engine for test files")
+	public void sameAsRegexFiles() {
+		for(String file : new String[]{"big_test.txt", "separators.txt"}) {
+			String text = ResourceUtils.readResource(file);
+			for(int[] limits : LIMITS) {
+				assertSameParagraphs(text, limits[0], limits[1]);
+			}
+		}
+	}
+
+	@Test
+	@DisplayName("same paragraphs as the regex engine for random texts")
+	public void sameAsRegexRandom() {
+		Random random = new Random(42);
+		for(int i = 0; i < 2000; i++) {
+			StringBuilder text = new StringBuilder();
+			int length = random.nextInt(200);
+			for(int j = 0; j < length; j++) {
+				text.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+			}
+			int mainLimit = 1 + random.nextInt(30);
+			int secondaryLimit = 1 + random.nextInt(mainLimit);
+			assertSameParagraphs(text.toString(), mainLimit, secondaryLimit);
+		}
+	}
+
+	private void assertSameParagraphs(String text, int mainLimit, int secondaryLimit) {
+		assertEquals(split(regex, text, mainLimit, secondaryLimit), split(scanning, text, mainLimit, secondaryLimit),
+				() -> "text: '" + text + "', limits: " + mainLimit + " - " + secondaryLimit);
+	}
+
+	private List<String> split(SplittingEngine engine, String text, int mainLimit, int secondaryLimit) {
+		List<String> paragraphs = new ArrayList<>();
+		engine.split(text, mainLimit, secondaryLimit, new SplittingEngine.ParagraphListener() {
+			@Override
+			public void paragraph(int start, int length) {
+				throw new AssertionError("The separator should be reported");
+			}
+
+			@Override
+			public void paragraph(int start, int length, SplitReason reason) {
+				paragraphs.add(start + ":" + length + ":" + reason);
+			}
+		});
+		return paragraphs;
+	}
+}
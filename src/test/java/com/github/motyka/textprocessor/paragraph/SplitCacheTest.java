@@ -0,0 +1,113 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class SplitCacheTest {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	@Test
+	@DisplayName("different hashes for similar texts")
+	public void hash() {
+		TextHash textHash = TextHash.random();
+		Set<String> hashes = new HashSet<>();
+		StringBuilder text = new StringBuilder();
+		for(int i = 0; i < 40; i++) {
+			hashes.add(Arrays.toString(textHash.hash(text)));
+			for(int j = 0; j < text.length(); j++) {
+				char ch = text.charAt(j);
+				text.setCharAt(j, 'b');
+				hashes.add(Arrays.toString(textHash.hash(text)));
+				text.setCharAt(j, ch);
+			}
+			text.append('a');
+		}
+
+		assertEquals(40 + 39 * 40 / 2, hashes.size());
+		assertArrayEquals(textHash.hash("the same text"), textHash.hash(new StringBuilder("the same text")));
+	}
+
+	@Test
+	@DisplayName("SipHash-2-4 with 128 bit output and a random key")
+	public void keyedHash() {
+		// the first test vector of the reference implementation, key 00 01 ... 0f and the empty message
+		long[] hash = new TextHash(0x0706050403020100L, 0x0f0e0d0c0b0a0908L).hash("");
+		assertEquals(0xa3817f04ba25a8e6L, Long.reverseBytes(hash[0]));
+		assertEquals(0x6df67214c7550293L, Long.reverseBytes(hash[1]));
+
+		assertFalse(Arrays.equals(TextHash.random().hash("the same text"), TextHash.random().hash("the same text")));
+	}
+
+	@Test
+	@DisplayName("the text is split once for the same limits")
+	public void splitOnce() {
+		SplitCache cache = new SplitCache(1 << 20, registry);
+		AtomicInteger splits = new AtomicInteger();
+
+		ParagraphBoundaries first = cache.get("text", 10, 5, () -> split(splits, "text"));
+		ParagraphBoundaries second = cache.get(new String("text"), 10, 5, () -> split(splits, "text"));
+		cache.get("text", 10, 6, () -> split(splits, "text"));
+		cache.get("text2", 10, 5, () -> split(splits, "text2"));
+
+		assertSame(first, second);
+		assertEquals(3, splits.get());
+		assertEquals(1.0, registry.get("cache.gets").tag("result", "hit").functionCounter().count());
+	}
+
+	@Test
+	@DisplayName("the strategy and the chain are in the key")
+	public void strategyAndRules() {
+		SplitCache cache = new SplitCache(1 << 20, registry);
+		AtomicInteger splits = new AtomicInteger();
+
+		ParagraphBoundaries scanning = cache.get("text", 10, 5, () -> split(splits, "text"));
+		ParagraphBoundaries regex = cache.get("text", 10, 5, SplittingStrategy.REGEX, SplitRuleChain.DEFAULT_NAME, () -> split(splits, "text"));
+		cache.get("text", 10, 5, SplittingStrategy.SCANNING, "other", () -> split(splits, "text"));
+
+		assertNotSame(scanning, regex);
+		assertSame(regex, cache.get("text", 10, 5, SplittingStrategy.REGEX, SplitRuleChain.DEFAULT_NAME, () -> split(splits, "text")));
+		assertEquals(3, splits.get());
+	}
+
+	@Test
+	@DisplayName("the text is split outside of the map")
+	public void splitOutsideOfMap() {
+		SplitCache cache = new SplitCache(1 << 20, registry);
+		AtomicInteger splits = new AtomicInteger();
+
+		// a split running inside of the computation of the map couldn't use the map
+		ParagraphBoundaries outer = cache.get("outer", 10, 5, () -> {
+			cache.get("inner", 10, 5, () -> split(splits, "inner"));
+			return split(splits, "outer");
+		});
+
+		assertSame(outer, cache.get("outer", 10, 5, () -> split(splits, "outer")));
+		assertEquals(2, splits.get());
+	}
+
+	@Test
+	@DisplayName("cache disabled with 0 weight")
+	public void disabled() {
+		assertFalse(new SplitCache(0, registry).isEnabled());
+	}
+
+	private ParagraphBoundaries split(AtomicInteger splits, String text) {
+		splits.incrementAndGet();
+		ParagraphBoundaries.Collector collector = new ParagraphBoundaries.Collector();
+		collector.paragraph(0, text.length());
+		return collector.build();
+	}
+}
@@ -0,0 +1,259 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SplitRuleChainTest {
+
+	private static final String[] WORDS = {"word", "a", "1", " ", " ", "\n", "\n\n", "\n# ", "#", ".", ". ", "?", "! ", ",", "http://a.b/c?d=e", "1.5", "\r\n", "\t", "\r",
+			"\u0085", "\u2028"};
+	// the line breaks replacing LF in the texts split by the chains with more line breaks
+	private static final String[] LINE_BREAKS = {"\n", "\r\n", "\r", "\u0085", "\u2028", "\u2029"};
+
+	private static final SplitRule SEMICOLON = new SplitRule() {
+		@Override
+		public String getName() {
+			return "SEMICOLON";
+		}
+
+		@Override
+		public SplitReason getReason() {
+			return SplitReason.PUNCTUATION;
+		}
+
+		@Override
+		public boolean isSeparator(char ch) {
+			return ch == ';';
+		}
+
+		@Override
+		public boolean isIncluded() {
+			return true;
+		}
+	};
+
+	private final SplitRuleChains chains = new SplitRuleChains(Collections.singletonList(SEMICOLON), Map.of(
+			"sentences", "NEW_LINE, SENTENCE_END, PUNCTUATION_BEFORE_SPACE, SPACE",
+			"markdown", "HEADING,NEW_LINE,SENTENCE_END,PUNCTUATION_BEFORE_SPACE,SPACE",
+			"semicolon", "SEMICOLON,SPACE",
+			"crlf", "NEW_LINE,DOT,PUNCTUATION,SPACE",
+			"unicode", "HEADING,NEW_LINE,DOT,PUNCTUATION,SPACE"), Map.of(
+			"crlf", "LF,CR",
+			"unicode", "lf, cr, nel, ls, ps"));
+	private final ForkJoinPool pool = new ForkJoinPool(4);
+
+	@AfterEach
+	public void tearDown() {
+		pool.shutdown();
+	}
+
+	@Test
+	@DisplayName("sentence ends don't split URLs")
+	public void sentences() {
+		String text = "See http://example.com/index.html?q=1 now. Next sentence here";
+
+		assertEquals(Arrays.asList("See http://example.com/index.:DOT", "html?q=1 now. Next sentence here:END"),
+				split("default", text, 40, 30));
+		assertEquals(Arrays.asList("See http://example.com/index.html?q=1:SPACE", "now. Next sentence here:END"),
+				split("sentences", text, 40, 30));
+	}
+
+	@Test
+	@DisplayName("headings start new paragraphs")
+	public void headings() {
+		String text = "Intro line one\nmore intro text\n# Heading\nBody";
+
+		assertEquals(Arrays.asList("Intro line one:NEW_LINE", "more intro text\n# Heading\nBody:END"), split("default", text, 40, 5));
+		assertEquals(Arrays.asList("Intro line one\nmore intro text:NEW_LINE", "Heading\nBody:END"), split("markdown", text, 40, 5));
+	}
+
+	@Test
+	@DisplayName("custom rule before the built-in ones")
+	public void customRule() {
+		assertEquals(Arrays.asList("first part;:PUNCTUATION", "second part here:END"), split("semicolon", "first part; second part here", 20, 5));
+		assertEquals(Arrays.asList("first part here;:PUNCTUATION", "second:END"), split("semicolon", "first part here; second", 20, 5));
+		assertEquals(Arrays.asList("first part here, second:SPACE", "part:END"), split("semicolon", "first part here, second part", 25, 20));
+	}
+
+	@Test
+	@DisplayName("default chain gives the same paragraphs as the regular expressions")
+	public void defaultChain() {
+		assertEquals(Arrays.asList("NEW_LINE", "DOT", "PUNCTUATION", "SPACE"), chains.getChains().get("default"));
+		assertEquals(Arrays.asList("SEMICOLON", "SPACE"), chains.getChains().get("semicolon"));
+
+		Random random = new Random(42);
+		for(int i = 0; i < 2000; i++) {
+			String text = randomText(random);
+			int mainLimit = 1 + random.nextInt(30);
+			int secondaryLimit = 1 + random.nextInt(mainLimit);
+			List<String> expected = new ArrayList<>();
+			new RegexSplittingEngine().split(text, mainLimit, secondaryLimit, (start, length) -> expected.add(start + ":" + length));
+			List<String> paragraphs = new ArrayList<>();
+			new ScanningSplittingEngine(SplitRuleChain.compile("copy", SplitRuleChain.DEFAULT.getRules()))
+					.split(text, mainLimit, secondaryLimit, (start, length) -> paragraphs.add(start + ":" + length));
+
+			assertEquals(expected, paragraphs, () -> "text: '" + text + "', limits: " + mainLimit + " - " + secondaryLimit);
+		}
+	}
+
+	@Test
+	@DisplayName("line breaks of the chain")
+	public void lineBreaks() {
+		assertEquals(Arrays.asList("first:DOUBLE_NEW_LINE", "second\r\nthird:END"), split("crlf", "first\r\n\r\nsecond\r\nthird\r\n", 40, 10));
+		assertEquals(Arrays.asList("first:DOUBLE_NEW_LINE", "second:NEW_LINE", "third:END"), split("crlf", "first\r\rsecond\rthird", 10, 5));
+		assertEquals(Arrays.asList("first\u2028\u2028second:END"), split("default", "first\u2028\u2028second", 40, 10));
+		assertEquals(Arrays.asList("first:DOUBLE_NEW_LINE", "second:END"), split("unicode", "first\u2028\u2029second\u0085", 40, 10));
+		assertEquals(Arrays.asList("first line:NEW_LINE", "Heading:NEW_LINE", "Body:END"), split("unicode", "first line\u0085# Heading\u0085Body", 12, 5));
+		assertEquals("[LF, CR, NEL, LS, PS]", chains.engine("unicode").getChain().getLineBreaks().toString());
+		assertEquals(LineBreaks.LF, chains.engine("sentences").getChain().getLineBreaks());
+	}
+
+	@Test
+	@DisplayName("line breaks give the same paragraphs as the text with LF instead of them")
+	public void normalizedLineBreaks() {
+		Random random = new Random(42);
+		for(String name : Arrays.asList("crlf", "unicode")) {
+			ScanningSplittingEngine engine = chains.engine(name);
+			LineBreaks lineBreaks = engine.getChain().getLineBreaks();
+			// the same rules, but only LF
+			ScanningSplittingEngine lf = new ScanningSplittingEngine(SplitRuleChain.compile(name, engine.getChain().getRules()));
+			for(int i = 0; i < 2000; i++) {
+				StringBuilder builder = new StringBuilder(randomText(random));
+				for(int j = 0; j < builder.length(); j++) {
+					if(builder.charAt(j) == '\n') {
+						builder.replace(j, j + 1, LINE_BREAKS[random.nextInt(LINE_BREAKS.length)]);
+					}
+				}
+				String text = builder.toString();
+				// every line break is replaced by LF, LF of CRLF by a line terminator which isn't a line break of the LF chain,
+				// so the positions are the same
+				StringBuilder normalized = new StringBuilder(text);
+				for(int j = 0; j < text.length(); j++) {
+					if(lineBreaks.isLineBreak(text.charAt(j))) {
+						normalized.setCharAt(j, j > 0 && text.startsWith("\r\n", j - 1) ? '\u2028' : '\n');
+					}
+				}
+				int mainLimit = 1 + random.nextInt(30);
+				int secondaryLimit = 1 + random.nextInt(mainLimit);
+
+				List<String> expected = new ArrayList<>();
+				lf.split(normalized, mainLimit, secondaryLimit, (start, length) -> expected.add(start + ":" + length));
+				List<String> paragraphs = new ArrayList<>();
+				engine.split(text, mainLimit, secondaryLimit, (start, length) -> paragraphs.add(start + ":" + length));
+
+				assertEquals(expected, paragraphs, () -> "chain: " + name + ", text: '" + text + "', limits: " + mainLimit + " - " + secondaryLimit);
+			}
+		}
+	}
+
+	@Test
+	@DisplayName("same paragraphs when streamed and split in parallel")
+	public void streamingAndParallel() throws IOException {
+		Random random = new Random(42);
+		for(String name : Arrays.asList("sentences", "markdown", "semicolon", "crlf", "unicode")) {
+			ScanningSplittingEngine engine = chains.engine(name);
+			for(int i = 0; i < 1000; i++) {
+				String text = randomText(random);
+				int mainLimit = 1 + random.nextInt(30);
+				int secondaryLimit = 1 + random.nextInt(mainLimit);
+				int bufferSize = 1 + random.nextInt(40);
+				String message = "chain: " + name + ", text: '" + text + "', limits: " + mainLimit + " - " + secondaryLimit;
+
+				List<String> expected = new ArrayList<>();
+				engine.split(text, mainLimit, secondaryLimit, (start, length) -> expected.add(start + ":" + text.substring(start, start + length)));
+
+				List<String> streamed = new ArrayList<>();
+				new StreamingSplitter(new StringReader(text), engine, mainLimit, secondaryLimit, bufferSize)
+						.split((start, buffer, offset, length) -> streamed.add(start + ":" + new String(buffer, offset, length)));
+				assertEquals(expected, streamed, message);
+
+				List<String> pushed = new ArrayList<>();
+				StreamingSplitter.Listener listener = (start, buffer, offset, length) -> pushed.add(start + ":" + new String(buffer, offset, length));
+				StreamingSplitter splitter = new StreamingSplitter(engine, mainLimit, secondaryLimit, bufferSize);
+				char[] chars = text.toCharArray();
+				for(int j = 0; j < chars.length; j += 7) {
+					splitter.feed(chars, j, Math.min(7, chars.length - j), listener);
+				}
+				splitter.finish(listener);
+				assertEquals(expected, pushed, message);
+
+				List<String> parallel = new ArrayList<>();
+				new ParallelSplitter(engine, pool, 1 + random.nextInt(50)).split(text, mainLimit, secondaryLimit,
+						() -> new Collector(text), collector -> collector)
+						.forEach(parallel::addAll);
+				assertEquals(expected, parallel, message);
+
+				List<String> scanned = new ArrayList<>();
+				ParagraphScanner scanner = new ParagraphScanner(engine, text, 0, mainLimit, secondaryLimit);
+				while(scanner.next()) {
+					scanned.add(scanner.start() + ":" + text.substring(scanner.start(), scanner.start() + scanner.length()));
+				}
+				assertEquals(expected, scanned, message);
+			}
+		}
+	}
+
+	@Test
+	@DisplayName("invalid chains")
+	public void invalidChains() {
+		assertThrows(IllegalArgumentException.class, () -> chains.engine("unknown"));
+		assertThrows(IllegalArgumentException.class, () -> new SplitRuleChains(Collections.emptyList(), Map.of("chain", "NEW_LINE,UNKNOWN")));
+		assertThrows(IllegalArgumentException.class, () -> new SplitRuleChains(Collections.emptyList(), Map.of("default", "NEW_LINE")));
+		assertThrows(IllegalArgumentException.class, () -> new SplitRuleChains(Arrays.asList(SEMICOLON, SEMICOLON), Collections.emptyMap()));
+		assertThrows(IllegalArgumentException.class, () -> new SplitRuleChains(Collections.emptyList(), Map.of("chain", "NEW_LINE"), Map.of("chain", "LF,TAB")));
+		assertThrows(IllegalArgumentException.class, () -> new SplitRuleChains(Collections.emptyList(), Map.of("chain", "NEW_LINE"), Map.of("chain", "")));
+		assertThrows(IllegalArgumentException.class, () -> new SplitRuleChains(Collections.emptyList(), Map.of("chain", "NEW_LINE"), Map.of("default", "LF,CR")));
+		assertThrows(IllegalArgumentException.class, () -> SplitRuleChain.compile("twice", Arrays.asList(BuiltInSplitRule.DOT, BuiltInSplitRule.DOT)));
+		assertThrows(IllegalArgumentException.class, () -> SplitRuleChain.compile("long", Collections.nCopies(SplitRuleChain.MAX_RULES + 1, SEMICOLON)));
+	}
+
+	private List<String> split(String chain, String text, int mainLimit, int secondaryLimit) {
+		List<String> paragraphs = new ArrayList<>();
+		chains.engine(chain).split(text, mainLimit, secondaryLimit, new SplittingEngine.ParagraphListener() {
+			@Override
+			public void paragraph(int start, int length) {
+			}
+
+			@Override
+			public void paragraph(int start, int length, SplitReason reason) {
+				paragraphs.add(text.substring(start, start + length) + ":" + reason);
+			}
+		});
+		return paragraphs;
+	}
+
+	private static String randomText(Random random) {
+		StringBuilder text = new StringBuilder();
+		for(int j = 0, count = random.nextInt(60); j < count; j++) {
+			text.append(WORDS[random.nextInt(WORDS.length)]);
+		}
+		return text.toString();
+	}
+
+	private static class Collector extends ArrayList<String> implements SplittingEngine.ParagraphListener {
+		private final String text;
+
+		Collector(String text) {
+			this.text = text;
+		}
+
+		@Override
+		public void paragraph(int start, int length) {
+			add(start + ":" + text.substring(start, start + length));
+		}
+	}
+}
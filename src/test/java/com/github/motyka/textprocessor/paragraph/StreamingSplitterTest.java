@@ -0,0 +1,132 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import com.github.motyka.textprocessor.utils.ResourceUtils;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class StreamingSplitterTest {
+
+	private static final String ALPHABET = "ab1 \n\n\r\t.,!?-é";
+
+	private final SplittingEngine scanning = new ScanningSplittingEngine();
+
+	@Test
+	@DisplayName("same paragraphs as the whole text")
+	public void sameAsWholeText() throws IOException {
+		assertSameParagraphs("paragraph1\n\nparagraph2", 1200, 800, 1, 1);
+		assertSameParagraphs(" !paragraph1. \n\n ,.?paragraph2-, ", 1200, 800, 1, 3);
+		assertSameParagraphs("123?567890\n2345\n78,01.3456\n890", 12, 8, 1, 2);
+		assertSameParagraphs("123456789012345678901234567890", 12, 8, 1, 5);
+		assertSameParagraphs("abc\n!\n   ", 12, 8, 1, 1);
+		assertSameParagraphs("", 12, 8, 1, 1);
+	}
+
+	@Test
+	@DisplayName("same paragraphs as the whole text for test files")
+	public void sameAsWholeTextFiles() throws IOException {
+		assertSameParagraphs(ResourceUtils.readResource("big_test.txt"), 1200, 800, 16, 100);
+		assertSameParagraphs(ResourceUtils.readResource("separators.txt"), 20, 10, 1, 7);
+	}
+
+	@Test
+	@DisplayName("same paragraphs as the whole text for random texts read in random chunks")
+	public void sameAsWholeTextRandom() throws IOException {
+		Random random = new Random(42);
+		for(int i = 0; i < 2000; i++) {
+			StringBuilder text = new StringBuilder();
+			int length = random.nextInt(300);
+			for(int j = 0; j < length; j++) {
+				text.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+			}
+			int mainLimit = 1 + random.nextInt(30);
+			int secondaryLimit = 1 + random.nextInt(mainLimit);
+			assertSameParagraphs(text.toString(), mainLimit, secondaryLimit, 1 + random.nextInt(40), 1 + random.nextInt(10));
+		}
+	}
+
+	@Test
+	@DisplayName("long sequence of separators makes the buffer grow")
+	public void longSeparators() throws IOException {
+		String text = "first" + " \n".repeat(500) + "!\n" + " ".repeat(1000) + "second" + " ".repeat(1000);
+		assertSameParagraphs(text, 12, 8, 1, 64);
+	}
+
+	@Test
+	@DisplayName("letters outside of ASCII don't make the buffer grow")
+	public void limitedBuffer() throws IOException {
+		String text = "Za\u017c\u00f3\u0142\u0107 g\u0119\u015bl\u0105 ja\u017a\u0144, \u0142\u00f3d\u017a.\n".repeat(2000);
+		assertSameParagraphs(text, 12, 8, 1, 64, 64);
+		assertSameParagraphs(text + "\n\u0105\u0119".repeat(20) + " \u00f3", 12, 8, 1, 7, 64);
+	}
+
+	@Test
+	@DisplayName("sequence of separators longer than the limited buffer fails the split")
+	public void separatorsOverLimit() {
+		String text = "first " + "!?".repeat(100) + "second";
+		StreamingSplitter splitter = new StreamingSplitter(new StringReader(text), 12, 8, 1);
+		splitter.limitBuffer(64);
+		assertThrows(IllegalArgumentException.class, () -> splitter.split((start, buffer, offset, length) -> {}));
+	}
+
+	private void assertSameParagraphs(String text, int mainLimit, int secondaryLimit, int bufferSize, int chunkSize) throws IOException {
+		assertSameParagraphs(text, mainLimit, secondaryLimit, bufferSize, chunkSize, Integer.MAX_VALUE);
+	}
+
+	private void assertSameParagraphs(String text, int mainLimit, int secondaryLimit, int bufferSize, int chunkSize, int maxBufferSize) throws IOException {
+		List<String> expected = new ArrayList<>();
+		scanning.split(text, mainLimit, secondaryLimit, (start, length) -> expected.add(start + ":" + text.substring(start, start + length)));
+
+		List<String> paragraphs = new ArrayList<>();
+		StreamingSplitter reading = new StreamingSplitter(new ChunkedReader(text, chunkSize), mainLimit, secondaryLimit, bufferSize);
+		reading.limitBuffer(maxBufferSize);
+		reading.split((start, buffer, offset, length) -> paragraphs.add(start + ":" + new String(buffer, offset, length)));
+
+		assertEquals(expected, paragraphs, () -> "text: '" + text + "', limits: " + mainLimit + " - " + secondaryLimit);
+
+		// the same chunks pushed to the splitter
+		List<String> pushed = new ArrayList<>();
+		StreamingSplitter.Listener listener = (start, buffer, offset, length) -> pushed.add(start + ":" + new String(buffer, offset, length));
+		StreamingSplitter splitter = new StreamingSplitter(mainLimit, secondaryLimit, bufferSize);
+		splitter.limitBuffer(maxBufferSize);
+		char[] chars = text.toCharArray();
+		for(int i = 0; i < chars.length; i += chunkSize) {
+			splitter.feed(chars, i, Math.min(chunkSize, chars.length - i), listener);
+		}
+		splitter.finish(listener);
+
+		assertEquals(expected, pushed, () -> "pushed text: '" + text + "', limits: " + mainLimit + " - " + secondaryLimit);
+	}
+
+	/**
+	 * Returns at most *chunkSize* characters from every read, like a slow network connection.
+	 */
+	private static class ChunkedReader extends Reader {
+		private final Reader reader;
+		private final int chunkSize;
+
+		ChunkedReader(String text, int chunkSize) {
+			this.reader = new StringReader(text);
+			this.chunkSize = chunkSize;
+		}
+
+		@Override
+		public int read(char[] buffer, int offset, int length) throws IOException {
+			return reader.read(buffer, offset, Math.min(length, chunkSize));
+		}
+
+		@Override
+		public void close() throws IOException {
+			reader.close();
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package com.github.motyka.textprocessor.paragraph;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class Utf8TextTest {
+
+	// 1 - 4 bytes in UTF-8, the separators and the line terminators of the dot
+	private static final String[] CHARACTERS = {"a", "b", "1", "\n", " ", ".", ",", "é", "€", " ", "\u0085", "　", "😀"};
+
+	@Test
+	@DisplayName("the same characters as the decoded String, also for the malformed bytes")
+	public void sameCharacters() {
+		Random random = new Random(42);
+		for(int i = 0; i < 1000; i++) {
+			byte[] bytes = new byte[random.nextInt(1000)];
+			random.nextBytes(bytes);
+			if(i % 2 == 0) {
+				// mostly well-formed text
+				bytes = randomText(random, bytes.length).getBytes(StandardCharsets.UTF_8);
+			}
+			String expected = new String(bytes, StandardCharsets.UTF_8);
+			Utf8Text text = new Utf8Text(bytes);
+
+			assertEquals(expected.length(), text.length());
+			// in order, then in random order
+			assertEquals(expected, text.subSequence(0, text.length()));
+			for(int j = 0; j < 100 && expected.length() > 0; j++) {
+				int index = random.nextInt(expected.length());
+				assertEquals(expected.charAt(index), text.charAt(index));
+			}
+		}
+	}
+
+	@Test
+	@DisplayName("positions of the characters in the bytes")
+	public void byteOffset() {
+		Random random = new Random(42);
+		for(int i = 0; i < 300; i++) {
+			String expected = randomText(random, random.nextInt(2000));
+			Utf8Text text = new Utf8Text(expected.getBytes(StandardCharsets.UTF_8));
+
+			for(int index = 0; index <= expected.length(); index++) {
+				// the second character of the surrogate pair is at the end of the pair
+				int end = index < expected.length() && Character.isLowSurrogate(expected.charAt(index)) ? index + 1 : index;
+				assertEquals(expected.substring(0, end).getBytes(StandardCharsets.UTF_8).length, text.byteOffset(index));
+			}
+		}
+	}
+
+	@Test
+	@DisplayName("surrogate pair at the end crossing a checkpoint")
+	public void surrogatePairAtTheEnd() {
+		for(int k = 1; k <= 32; k *= 2) {
+			for(int length = k * 64 - 1; length <= k * 64 + 1; length++) {
+				String expected = "a".repeat(length) + "\uD83D\uDE00";
+				Utf8Text text = new Utf8Text(expected.getBytes(StandardCharsets.UTF_8));
+
+				assertEquals(expected, text.subSequence(0, text.length()).toString());
+				for(int index = text.length() - 1; index >= 0; index -= 63) {
+					assertEquals(expected.charAt(index), new Utf8Text(expected.getBytes(StandardCharsets.UTF_8)).charAt(index));
+				}
+				assertEquals(length, text.byteOffset(length));
+				assertEquals(length + 4, new Utf8Text(expected.getBytes(StandardCharsets.UTF_8)).byteOffset(length + 1));
+				assertEquals(split(SplittingStrategy.SCANNING, expected, 1, 1), split(SplittingStrategy.SCANNING, text, 1, 1));
+			}
+		}
+	}
+
+	@Test
+	@DisplayName("the same paragraphs as of the decoded String")
+	public void sameParagraphs() {
+		Random random = new Random(42);
+		for(int i = 0; i < 300; i++) {
+			String text = randomText(random, random.nextInt(3000));
+			int secondaryLimit = 1 + random.nextInt(50);
+			int mainLimit = secondaryLimit + random.nextInt(50);
+
+			for(SplittingStrategy strategy : SplittingStrategy.values()) {
+				assertEquals(split(strategy, text, mainLimit, secondaryLimit),
+						split(strategy, new Utf8Text(text.getBytes(StandardCharsets.UTF_8)), mainLimit, secondaryLimit));
+			}
+		}
+	}
+
+	private List<String> split(SplittingStrategy strategy, CharSequence text, int mainLimit, int secondaryLimit) {
+		List<String> paragraphs = new ArrayList<>();
+		strategy.getEngine().split(text, mainLimit, secondaryLimit, (start, length) -> paragraphs.add(start + ":" + length));
+		return paragraphs;
+	}
+
+	private String randomText(Random random, int length) {
+		StringBuilder text = new StringBuilder();
+		while(text.length() < length) {
+			text.append(CHARACTERS[random.nextInt(CHARACTERS.length)]);
+		}
+		return text.toString();
+	}
+}
@@ -0,0 +1,101 @@
+package com.github.motyka.textprocessor.search;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AhoCorasickTest {
+
+	@Test
+	@DisplayName("overlapping terms")
+	public void overlapping() {
+		AhoCorasick automaton = new AhoCorasick(Arrays.asList("he", "she", "his", "hers"));
+
+		assertEquals(Arrays.asList("1:1", "0:2", "3:2"), search(automaton, "ushers", 0, 6));
+		assertEquals(Arrays.asList("1:1", "0:2"), search(automaton, "ushers", 1, 5));
+	}
+
+	@Test
+	@DisplayName("non ASCII terms")
+	public void nonAscii() {
+		AhoCorasick automaton = new AhoCorasick(Arrays.asList("café", "żółw", "w"));
+
+		assertEquals(Arrays.asList("0:3", "1:8", "2:11"), search(automaton, "la café żółw", 0, 12));
+		assertTrue(automaton.containsAny("żółw", 0, 4));
+		assertFalse(automaton.containsAny("żół", 0, 3));
+	}
+
+	@Test
+	@DisplayName("many distinct non ASCII characters")
+	public void manyCharacters() {
+		List<String> terms = new ArrayList<>();
+		StringBuilder text = new StringBuilder();
+		for(char ch = '\u4e00'; ch < '\u4e00' + 20000; ch += 2) {
+			terms.add(new String(new char[]{ch, (char) (ch + 1)}));
+			text.append(ch).append(' ');
+		}
+		text.append("\u4e00\u4e01\u4e02\u4e03");
+		AhoCorasick automaton = new AhoCorasick(terms);
+
+		assertEquals(Arrays.asList("0:20000", "1:20002"), search(automaton, text.toString(), 0, text.length()));
+		assertFalse(automaton.containsAny(text, 0, 20000));
+	}
+
+	@Test
+	@DisplayName("same occurrences as indexOf for random texts")
+	public void sameAsIndexOf() {
+		Random random = new Random(42);
+		for(int i = 0; i < 500; i++) {
+			List<String> terms = new ArrayList<>();
+			for(int j = 0, count = 1 + random.nextInt(10); j < count; j++) {
+				terms.add(random(random, 1 + random.nextInt(4)));
+			}
+			String text = random(random, random.nextInt(200));
+
+			List<String> expected = new ArrayList<>();
+			for(int end = 1; end <= text.length(); end++) {
+				for(int term = 0; term < terms.size(); term++) {
+					int start = end - terms.get(term).length();
+					if(start >= 0 && text.startsWith(terms.get(term), start)) {
+						expected.add(term + ":" + start);
+					}
+				}
+			}
+			List<String> matches = search(new AhoCorasick(terms), text, 0, text.length());
+			// the order of the occurrences ending at the same position doesn't matter
+			Collections.sort(expected);
+			Collections.sort(matches);
+			assertEquals(expected, matches, () -> terms + " in " + text);
+		}
+	}
+
+	@Test
+	@DisplayName("empty term")
+	public void emptyTerm() {
+		assertThrows(IllegalArgumentException.class, () -> new AhoCorasick(Arrays.asList("term", "")));
+	}
+
+	private List<String> search(AhoCorasick automaton, String text, int from, int to) {
+		List<String> matches = new ArrayList<>();
+		automaton.search(text, from, to, (term, start) -> matches.add(term + ":" + start));
+		return matches;
+	}
+
+	private String random(Random random, int length) {
+		StringBuilder sb = new StringBuilder();
+		for(int i = 0; i < length; i++) {
+			sb.append("abcé".charAt(random.nextInt(4)));
+		}
+		return sb.toString();
+	}
+}
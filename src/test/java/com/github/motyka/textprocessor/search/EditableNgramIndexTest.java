@@ -0,0 +1,98 @@
+package com.github.motyka.textprocessor.search;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class EditableNgramIndexTest {
+
+	@Test
+	@DisplayName("the candidates of the added and not removed paragraphs")
+	public void addRemove() throws IOException {
+		Random random = new Random(42);
+		// the paragraphs by their ids, null when removed
+		List<String> paragraphs = new ArrayList<>();
+		for(int i = 0; i < 100; i++) {
+			paragraphs.add(random(random));
+		}
+		EditableNgramIndex index = new EditableNgramIndex(build(paragraphs), paragraphs.size());
+
+		for(int i = 0; i < 300; i++) {
+			List<Integer> removed = new ArrayList<>();
+			for(int j = random.nextInt(4); j > 0; j--) {
+				int id = random.nextInt(paragraphs.size());
+				if(paragraphs.get(id) != null && !removed.contains(id)) {
+					paragraphs.set(id, null);
+					removed.add(id);
+				}
+			}
+			index.remove(removed.stream().mapToInt(Integer::intValue).toArray());
+			int first = paragraphs.size();
+			int added = random.nextInt(4);
+			for(int j = 0; j < added; j++) {
+				paragraphs.add(random(random));
+			}
+			StringBuilder text = new StringBuilder();
+			int[] ids = new int[added];
+			int[] starts = new int[added];
+			int[] lengths = new int[added];
+			for(int j = 0; j < added; j++) {
+				ids[j] = first + j;
+				starts[j] = text.length();
+				lengths[j] = paragraphs.get(first + j).length();
+				text.append(paragraphs.get(first + j)).append("\n\n");
+			}
+			index.add(text, ids, starts, lengths);
+
+			String term = random(random).substring(0, 3);
+			assertArrayEquals(expected(paragraphs, term), index.candidates(term), term);
+		}
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		index.write(new DataOutputStream(bytes));
+		EditableNgramIndex read = EditableNgramIndex.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		for(String term : new String[]{"abc", "bad", "cab", "dddd"}) {
+			assertArrayEquals(index.candidates(term), read.candidates(term), term);
+		}
+		assertNull(read.candidates("ab"));
+	}
+
+	private static NgramIndex build(List<String> paragraphs) {
+		StringBuilder text = new StringBuilder();
+		int[] starts = new int[paragraphs.size()];
+		int[] lengths = new int[starts.length];
+		for(int i = 0; i < starts.length; i++) {
+			starts[i] = text.length();
+			lengths[i] = paragraphs.get(i).length();
+			text.append(paragraphs.get(i)).append("\n\n");
+		}
+		return NgramIndex.build(text, starts, lengths);
+	}
+
+	// the trigram of 3 characters is in the paragraph if and only if the term is
+	private static int[] expected(List<String> paragraphs, String term) {
+		return IntStream.range(0, paragraphs.size())
+				.filter(id -> paragraphs.get(id) != null && paragraphs.get(id).contains(term))
+				.toArray();
+	}
+
+	private static String random(Random random) {
+		char[] text = new char[3 + random.nextInt(20)];
+		for(int i = 0; i < text.length; i++) {
+			text[i] = (char) ('a' + random.nextInt(4));
+		}
+		return new String(text);
+	}
+}
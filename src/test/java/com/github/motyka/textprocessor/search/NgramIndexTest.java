@@ -0,0 +1,98 @@
+package com.github.motyka.textprocessor.search;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class NgramIndexTest {
+
+	// also outside of ASCII, the trigrams are sorted by all their characters
+	private static final String ALPHABET = "ab\u0105\u4e2d";
+
+	private static final String TEXT = "lorem ipsum dolor, sit amet. ipsum dolor sit; sed do eiusmod lorem";
+	private static final int[] STARTS = {0, 29, 46};
+	private static final int[] LENGTHS = {28, 16, 20};
+
+	@Test
+	@DisplayName("paragraphs containing all trigrams of the term")
+	public void candidates() {
+		NgramIndex index = NgramIndex.build(TEXT, STARTS, LENGTHS);
+
+		assertArrayEquals(new int[]{0, 1}, index.candidates("ipsum dolor"));
+		assertArrayEquals(new int[]{0, 2}, index.candidates("lorem"));
+		assertArrayEquals(new int[]{2}, index.candidates("eiusmod"));
+		// the trigrams between the paragraphs aren't indexed
+		assertArrayEquals(new int[0], index.candidates("amet. ipsum"));
+		assertArrayEquals(new int[0], index.candidates("missing"));
+		assertNull(index.candidates("do"));
+	}
+
+	@Test
+	@DisplayName("every paragraph containing the term is a candidate")
+	public void randomTerms() {
+		Random random = new Random(42);
+		StringBuilder text = new StringBuilder();
+		List<Integer> starts = new ArrayList<>();
+		List<Integer> lengths = new ArrayList<>();
+		for(int i = 0; i < 200; i++) {
+			starts.add(text.length());
+			int length = 1 + random.nextInt(100);
+			for(int j = 0; j < length; j++) {
+				text.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+			}
+			lengths.add(length);
+			text.append("\n\n");
+		}
+		int[] startArray = starts.stream().mapToInt(Integer::intValue).toArray();
+		int[] lengthArray = lengths.stream().mapToInt(Integer::intValue).toArray();
+		NgramIndex index = NgramIndex.build(text, startArray, lengthArray);
+
+		for(int i = 0; i < 1000; i++) {
+			StringBuilder term = new StringBuilder();
+			for(int j = 0, length = 3 + random.nextInt(6); j < length; j++) {
+				term.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+			}
+			int[] candidates = index.candidates(term.toString());
+			for(int paragraph = 0; paragraph < startArray.length; paragraph++) {
+				String content = text.substring(startArray[paragraph], startArray[paragraph] + lengthArray[paragraph]);
+				if(content.contains(term)) {
+					assertTrue(java.util.Arrays.binarySearch(candidates, paragraph) >= 0, term + " in " + paragraph);
+				}
+			}
+			// sorted and only the paragraphs with all the trigrams
+			for(int c = 0; c < candidates.length; c++) {
+				assertTrue(c == 0 || candidates[c - 1] < candidates[c]);
+				String content = text.substring(startArray[candidates[c]], startArray[candidates[c]] + lengthArray[candidates[c]]);
+				for(int j = 0; j + NgramIndex.N <= term.length(); j++) {
+					assertTrue(content.contains(term.substring(j, j + NgramIndex.N)), term + " in " + candidates[c]);
+				}
+			}
+		}
+	}
+
+	@Test
+	@DisplayName("the same index after writing and reading it")
+	public void writeRead() throws IOException {
+		NgramIndex index = NgramIndex.build(TEXT, STARTS, LENGTHS);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		index.write(new DataOutputStream(bytes));
+
+		NgramIndex read = NgramIndex.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+		for(String term : new String[]{"ipsum dolor", "lorem", "eiusmod", "missing"}) {
+			assertArrayEquals(index.candidates(term), read.candidates(term));
+		}
+	}
+}
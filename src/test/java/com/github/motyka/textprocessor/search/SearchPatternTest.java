@@ -0,0 +1,144 @@
+package com.github.motyka.textprocessor.search;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SearchPatternTest {
+
+	private static final SearchOptions IGNORE_CASE = new SearchOptions(true, false, false, false);
+	private static final SearchOptions NORMALIZE = new SearchOptions(false, true, false, false);
+	private static final SearchOptions WHOLE_WORD = new SearchOptions(false, false, true, false);
+
+	@Test
+	@DisplayName("case-insensitive")
+	public void ignoreCase() {
+		String text = "Contract, contract and CONTRACTS";
+
+		assertEquals(Arrays.asList("0:8", "10:18", "23:31"), search("contract", IGNORE_CASE, text));
+		assertEquals(Arrays.asList("10:18"), search("contract", SearchOptions.EXACT, text));
+		assertEquals(Arrays.asList("0:4", "5:9"), search("\u017c\u00f3\u0142w", IGNORE_CASE, "\u017b\u00d3\u0141W \u017b\u00f3\u0142w"));
+	}
+
+	@Test
+	@DisplayName("NFC and NFD forms")
+	public void normalize() {
+		String nfc = "le caf\u00e9, la CAF\u00c9";
+		String nfd = "le cafe\u0301, la CAFE\u0301";
+
+		assertEquals(Arrays.asList("3:7"), search("caf\u00e9", NORMALIZE, nfc));
+		assertEquals(Arrays.asList("3:8"), search("caf\u00e9", NORMALIZE, nfd));
+		assertEquals(Arrays.asList("3:7"), search("cafe\u0301", NORMALIZE, nfc));
+		assertEquals(Arrays.asList("3:8", "13:18"), search("caf\u00e9", new SearchOptions(true, true, false, false), nfd));
+		assertEquals(Collections.emptyList(), search("caf\u00e9", SearchOptions.EXACT, nfd));
+		// the accent belongs to the last character
+		assertEquals(Collections.emptyList(), search("cafe", NORMALIZE, nfd));
+		assertEquals(Collections.emptyList(), search("cafe", NORMALIZE, nfc));
+		assertEquals(Arrays.asList("0:4"), search("cafe", NORMALIZE, "cafe au lait"));
+	}
+
+	@Test
+	@DisplayName("whole words")
+	public void wholeWord() {
+		String text = "cat concatenate cat. cats (cat)";
+
+		assertEquals(Arrays.asList("0:3", "16:19", "27:30"), search("cat", WHOLE_WORD, text));
+		assertEquals(Collections.emptyList(), search("cafe", WHOLE_WORD, "cafe\u0301"));
+		assertEquals(Arrays.asList("0:3", "16:19", "21:25", "27:30"), search("cats?", new SearchOptions(false, false, true, true), text));
+	}
+
+	@Test
+	@DisplayName("regular expression")
+	public void regex() {
+		String text = "Invoice 2020-01, invoice 2021-12, INVOICE";
+
+		assertEquals(Arrays.asList("0:15", "17:32"), search("invoice \\d{4}-\\d{2}", new SearchOptions(true, false, false, true), text));
+		assertEquals(Arrays.asList("8:12", "25:29"), search("\\d{4}", new SearchOptions(false, false, true, true), text));
+		assertEquals(Arrays.asList("3:8"), search("caf\u00e9", new SearchOptions(false, true, false, true), "le cafe\u0301"));
+		// the empty matches are skipped
+		assertEquals(Arrays.asList("1:3"), search("a*", new SearchOptions(false, false, false, true), "baa"));
+		assertThrows(IllegalArgumentException.class, () -> SearchPattern.compile("(unclosed", new SearchOptions(false, false, false, true)));
+	}
+
+	@Test
+	@DisplayName("the regular expressions are limited by their length and the time of the search")
+	public void regexLimits() {
+		SearchOptions regex = new SearchOptions(false, false, false, true);
+		assertThrows(IllegalArgumentException.class, () -> SearchPattern.compile("a".repeat(11), regex, 10, 1000));
+
+		// catastrophic backtracking, it would take hours without the timeout
+		SearchPattern.Searcher searcher = SearchPattern.compile("(.*a){12}b", regex, 10, 100).searcher();
+		String text = "a".repeat(40);
+		long start = System.nanoTime();
+		assertThrows(IllegalArgumentException.class, () -> searcher.contains(text, 0, text.length()));
+		assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+		// the time is shared by all the searches of the searcher
+		assertThrows(IllegalArgumentException.class, () -> searcher.contains("a".repeat(12) + "b", 0, 13));
+		assertTrue(SearchPattern.compile("(.*a){12}b", regex, 10, 100).searcher().contains("a".repeat(12) + "b", 0, 13));
+	}
+
+	@Test
+	@DisplayName("search in a part of the text")
+	public void region() {
+		SearchPattern.Searcher searcher = SearchPattern.compile("ab", IGNORE_CASE).searcher();
+
+		assertTrue(searcher.contains("xxAByy", 1, 4));
+		assertFalse(searcher.contains("xxAByy", 3, 6));
+		assertFalse(searcher.contains("xxAByy", 0, 3));
+	}
+
+	@Test
+	@DisplayName("same occurrences as regionMatches for random texts")
+	public void sameAsRegionMatches() {
+		Random random = new Random(42);
+		for(int i = 0; i < 2000; i++) {
+			String term = random(random, 1 + random.nextInt(4));
+			String text = random(random, random.nextInt(200));
+			for(boolean ignoreCase : new boolean[]{false, true}) {
+				List<String> expected = new ArrayList<>();
+				for(int start = 0; start + term.length() <= text.length(); start++) {
+					if(text.regionMatches(ignoreCase, start, term, 0, term.length())) {
+						expected.add(start + ":" + (start + term.length()));
+					}
+				}
+				SearchOptions options = new SearchOptions(ignoreCase, false, false, false);
+				assertEquals(expected, search(term, options, text), () -> term + " in " + text + ", ignore case: " + ignoreCase);
+				// the same when the text has no characters to decompose
+				if(text.indexOf('\u00e9') < 0 && text.indexOf('\u00c9') < 0) {
+					assertEquals(expected, search(term, new SearchOptions(ignoreCase, true, false, false), text));
+				}
+			}
+		}
+	}
+
+	@Test
+	@DisplayName("empty term")
+	public void emptyTerm() {
+		assertThrows(IllegalArgumentException.class, () -> SearchPattern.compile("", SearchOptions.EXACT));
+	}
+
+	private List<String> search(String term, SearchOptions options, String text) {
+		List<String> matches = new ArrayList<>();
+		SearchPattern.compile(term, options).searcher().search(text, 0, text.length(), (start, end) -> matches.add(start + ":" + end));
+		return matches;
+	}
+
+	private String random(Random random, int length) {
+		StringBuilder sb = new StringBuilder();
+		for(int i = 0; i < length; i++) {
+			sb.append("abAB\u00e9\u00c9 ".charAt(random.nextInt(7)));
+		}
+		return sb.toString();
+	}
+}